@@ -11,6 +11,7 @@ import jakarta.servlet.http.*;
 import org.basex.core.*;
 import org.basex.core.StaticOptions.*;
 import org.basex.core.jobs.*;
+import org.basex.core.metrics.*;
 import org.basex.query.*;
 import org.basex.query.value.*;
 import org.basex.query.value.item.*;
@@ -29,6 +30,12 @@ public abstract class BaseXServlet extends HttpServlet {
   private String username;
   /** Servlet-specific authentication method. */
   private AuthMethod auth;
+  /** Number of requests. */
+  private Counter requests;
+  /** Number of requests that failed with a server error. */
+  private Counter errors;
+  /** Request latency. */
+  private Histogram latency;
 
   @Override
   public void init(final ServletConfig config) throws ServletException {
@@ -57,12 +64,18 @@ public abstract class BaseXServlet extends HttpServlet {
     }
     final Context ctx = hc.context();
     if(ctx.soptions.get(StaticOptions.LOGTRACE)) ctx.setExternal(ctx.log);
+
+    final Metrics metrics = ctx.metrics;
+    requests = metrics.counter("basex_http_requests_total", "Number of HTTP requests.");
+    errors = metrics.counter("basex_http_errors_total", "Number of HTTP server errors.");
+    latency = metrics.histogram("basex_http_request_seconds", "HTTP request latency.");
   }
 
   @Override
   public final void service(final HttpServletRequest request, final HttpServletResponse response)
       throws IOException {
 
+    final Performance perf = new Performance();
     final HTTPConnection conn = new HTTPConnection(request, response, auth);
     try {
       conn.authenticate(username);
@@ -91,6 +104,9 @@ public abstract class BaseXServlet extends HttpServlet {
       Util.errln(message);
       conn.error(SC_INTERNAL_SERVER_ERROR, Util.info(HTTPText.UNEXPECTED_X, message));
     } finally {
+      requests.increment();
+      if(response.getStatus() >= SC_INTERNAL_SERVER_ERROR) errors.increment();
+      latency.record(perf.ns());
       if(Prop.debug) {
         Util.errln("Request: " + request.getMethod() + ' ' + request.getRequestURL());
         for(final Enumeration<String> en = request.getHeaderNames(); en.hasMoreElements();) {
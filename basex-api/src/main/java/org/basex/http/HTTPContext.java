@@ -108,6 +108,7 @@ public final class HTTPContext {
 
     // initialize persistent jobs
     new Jobs(context).init();
+    context.metrics.register();
     return context;
   }
 
@@ -0,0 +1,40 @@
+package org.basex.http.metrics;
+
+import static jakarta.servlet.http.HttpServletResponse.*;
+import static org.basex.util.Token.*;
+import static org.basex.util.http.HTTPText.*;
+
+import java.io.*;
+
+import org.basex.core.*;
+import org.basex.core.users.*;
+import org.basex.http.*;
+import org.basex.server.*;
+import org.basex.util.*;
+import org.basex.util.http.*;
+
+/**
+ * <p>This servlet returns the current metrics in the Prometheus text format.
+ * Admin permissions are required.</p>
+ *
+ * @author BaseX Team 2005-24, BSD License
+ * @author Christian Gruen
+ */
+public final class MetricsServlet extends BaseXServlet {
+  /** Content type of the Prometheus text format. */
+  private static final String CONTENT_TYPE = MediaType.TEXT_PLAIN + "; version=0.0.4; " +
+      CHARSET + '=' + Strings.UTF8;
+
+  @Override
+  protected void run(final HTTPConnection conn) throws IOException {
+    if(!conn.context.user().has(Perm.ADMIN))
+      throw new LoginException(Text.PERM_REQUIRED_X, Perm.ADMIN);
+    if(!conn.method.equals(Method.GET.name()))
+      throw HTTPStatus.METHOD_NOT_SUPPORTED_X.get(conn.method);
+
+    conn.response.setStatus(SC_OK);
+    conn.response.setContentType(CONTENT_TYPE);
+    conn.response.getOutputStream().write(token(conn.context.metrics.text()));
+    conn.log(SC_OK, "");
+  }
+}
@@ -51,7 +51,7 @@ final class RestXqResponse extends WebResponse {
   protected Expr[] init(final WebFunction function, final Object data)
       throws QueryException, IOException {
 
-    qc = function.module.qc(ctx);
+    qc = function.module.qc(ctx, function.function);
     qc.jc().type(RESTXQ);
     ctx.setExternal(conn.requestCtx);
 
@@ -2,6 +2,7 @@ package org.basex.http.web;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 import org.basex.core.*;
 import org.basex.http.restxq.*;
@@ -9,11 +10,20 @@ import org.basex.http.ws.*;
 import org.basex.io.*;
 import org.basex.query.*;
 import org.basex.query.func.*;
+import org.basex.query.scope.*;
+import org.basex.query.var.*;
 import org.basex.util.*;
 
 /**
  * This class caches information on a single XQuery module with relevant annotations.
  *
+ * If a web function is evaluated (including permission checks, error and WebSocket functions),
+ * the module is parsed again for each request, as compiled expressions cannot be shared by
+ * concurrent requests. To speed up the parsing of large modules, the declarations of all
+ * functions that cannot be reached by the invoked function are replaced by whitespaces.
+ * The resulting query strings are derived from the cached module, and they are invalidated
+ * along with the module if the timestamp of the file changes.
+ *
  * @author BaseX Team 2005-24, BSD License
  * @author Christian Gruen
  */
@@ -29,6 +39,8 @@ public final class WebModule {
   private long time = -1;
   /** File content. */
   private String content;
+  /** Query strings for evaluating single functions (can be {@code null}). */
+  private Queries queries;
 
   /**
    * Constructor.
@@ -50,6 +62,7 @@ public final class WebModule {
 
     time = ts;
     content = file.string();
+    queries = null;
 
     functions.clear();
     wsFunctions.clear();
@@ -66,6 +79,7 @@ public final class WebModule {
           if(wxq.parseAnnotations(ctx)) wsFunctions.add(wxq);
         }
       }
+      queries = Queries.get(content, file.path(), qc);
     } catch(final QueryException ex) {
       if(ctx.soptions.get(StaticOptions.RESTXQERRORS)) throw ex;
       // ignore modules that cannot be parsed
@@ -90,14 +104,109 @@ public final class WebModule {
   }
 
   /**
-   * Parses the module and returns the query context.
+   * Parses the complete module and returns the query context.
    * @param ctx database context
    * @return query context
    * @throws QueryException query exception
    */
-  public QueryContext qc(final Context ctx) throws QueryException {
+  private QueryContext qc(final Context ctx) throws QueryException {
     final QueryContext qc = new QueryContext(ctx);
     qc.parse(content, file.path());
     return qc;
   }
+
+  /**
+   * Parses the module for evaluating the specified function and returns the query context.
+   * @param ctx database context
+   * @param func function to be evaluated
+   * @return query context
+   * @throws QueryException query exception
+   */
+  public QueryContext qc(final Context ctx, final StaticFunc func) throws QueryException {
+    final Queries qs = queries;
+    final String query = qs != null ? qs.get(func) : null;
+    if(query != null) {
+      final QueryContext qc = new QueryContext(ctx);
+      try {
+        qc.parse(query, file.path());
+        return qc;
+      } catch(final QueryException ex) {
+        // unexpected error: parse complete module
+        Util.debug(ex);
+        qc.close();
+      }
+    }
+    return qc(ctx);
+  }
+
+  /**
+   * Query strings for evaluating single functions.
+   */
+  private static final class Queries {
+    /** Content of the module. */
+    private final String content;
+    /** Path of the module. */
+    private final String path;
+    /** Parsed functions. */
+    private final StaticFunc[] funcs;
+    /** Parsed static variables. */
+    private final ArrayList<StaticVar> vars = new ArrayList<>();
+    /** Cached query strings. */
+    private final ConcurrentHashMap<StaticFunc, String> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     * @param content content of the module
+     * @param path path of the module
+     * @param qc query context of the parsed module
+     */
+    private Queries(final String content, final String path, final QueryContext qc) {
+      this.content = content;
+      this.path = path;
+      funcs = qc.functions.funcs();
+      for(final StaticVar var : qc.vars) vars.add(var);
+    }
+
+    /**
+     * Creates an instance for the specified module.
+     * @param content content of the module
+     * @param path path of the module
+     * @param qc query context of the parsed module
+     * @return instance, or {@code null} if the module declares a context value
+     */
+    static Queries get(final String content, final String path, final QueryContext qc) {
+      return qc.contextValue != null ? null : new Queries(content, path, qc);
+    }
+
+    /**
+     * Returns the query string for evaluating the specified function.
+     * @param func function
+     * @return query string, or {@code null} if the function is unknown
+     */
+    String get(final StaticFunc func) {
+      for(final StaticFunc sf : funcs) {
+        if(sf == func) return cache.computeIfAbsent(func, this::query);
+      }
+      return null;
+    }
+
+    /**
+     * Creates a query string in which all function declarations of the module are replaced by
+     * whitespaces that are not reachable from the specified function or a static variable.
+     * The module is returned unchanged if functions may be looked up dynamically.
+     * @param func function
+     * @return query string
+     */
+    private String query(final StaticFunc func) {
+      final ArrayList<Scope> scopes = new ArrayList<>(vars);
+      scopes.add(func);
+      final Set<Scope> reached = QueryCache.reachable(scopes);
+      if(QueryCache.lookups(reached)) return content;
+      final ArrayList<StaticFunc> skipped = new ArrayList<>();
+      for(final StaticFunc sf : funcs) {
+        if(!reached.contains(sf) && path.equals(sf.info.path())) skipped.add(sf);
+      }
+      return QueryCache.strip(content, skipped);
+    }
+  }
 }
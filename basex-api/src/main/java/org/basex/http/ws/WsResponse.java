@@ -43,7 +43,7 @@ public final class WsResponse extends WebResponse {
   protected Expr[] init(final WebFunction function, final Object data)
       throws QueryException {
 
-    qc = function.module.qc(ctx);
+    qc = function.module.qc(ctx, function.function);
     qc.jc().type(WEBSOCKET);
     ctx.setExternal(ws);
     ctx.setExternal(new RequestContext(ws.request));
@@ -146,6 +146,23 @@ class Session:
             raise IOError(self.__info)
         return result
 
+    def execute_all(self, commands):
+        """Execute multiple commands and return the results.
+All commands are sent at once, and the responses are read afterwards.
+If a command fails, an error is raised for the first failure."""
+        self.__swrapper.sendall(''.join(com + chr(0) for com in commands))
+
+        results = list()
+        error = None
+        for _ in commands:
+            results.append(self.recv_c_str())
+            self.__info = self.recv_c_str()
+            if not self.server_response_success() and error is None:
+                error = self.__info
+        if error is not None:
+            raise IOError(error)
+        return results
+
     def query(self, querytxt):
         """Creates a new query instance (having id returned from server)."""
         return Query(self, querytxt)
@@ -282,6 +299,25 @@ An empty string can be specified as data type."""
         """Execute the query and return the result"""
         return self.__exc(chr(5), self.__id)
 
+    def execute_all(self, bindings):
+        """Execute the query once for each binding set (a dictionary with
+variable names and values) and return the results.
+All binding sets are sent at once, and the results are read afterwards."""
+        data = chr(15) + self.__id + chr(0)
+        for binding in bindings:
+            data += chr(1)
+            for name, value in binding.items():
+                data += name + chr(0) + value + chr(0) + chr(0)
+            data += chr(0)
+        self.__session.send(data)
+
+        results = list()
+        for _ in bindings:
+            results.append(self.__session.recv_c_str())
+            if not self.__session.server_response_success():
+                raise IOError(self.__session.recv_c_str())
+        return results
+
     def info(self):
         """Return query information"""
         return self.__exc(chr(6), self.__id)
@@ -184,4 +184,31 @@ public final class RestXqPathTest extends RestXqTest {
     // invalid annotation
     get(500, "declare %R:path('') %R:xyz function m:f() {'x'};", "");
   }
+
+  /**
+   * Calls other functions of the module.
+   * @throws Exception exception
+   */
+  @Test public void calls() throws Exception {
+    final String f = "declare variable $m:v := m:a('v');" +
+        "declare function m:a($a) { 'a' || $a };" +
+        "declare function m:b($b) { m:a#1($b) || $m:v };" +
+        "declare function m:c($c) { error() };" +
+        "declare %R:path('f/{$x}') function m:f($x) { (function($y) { m:b($y) })($x) };" +
+        "declare %R:path('g/{$x}') function m:g($x) { function-lookup(xs:QName('m:a'), 1)($x) };";
+    get("axav", f, "f/x");
+    get("ax", f, "g/x");
+  }
+
+  /**
+   * Calls other functions of the module from a permission check.
+   * @throws Exception exception
+   */
+  @Test public void permCalls() throws Exception {
+    final String f = "declare function m:a() { 'a' };" +
+        "declare function m:c() { error() };" +
+        "declare %perm:check('p') function m:p() { if(m:a() = 'a') then () else m:c() };" +
+        "declare %R:path('p') function m:f() { 'f' };";
+    get("f", f, "p");
+  }
 }
@@ -4,6 +4,7 @@ import static org.basex.core.Text.*;
 
 import java.io.*;
 import java.net.*;
+import java.nio.channels.*;
 import java.util.*;
 import java.util.Map.*;
 
@@ -32,6 +33,8 @@ public final class BaseXServer extends CLI implements Runnable {
   private volatile boolean stop;
   /** Server socket. */
   private ServerSocket socket;
+  /** Selector for idle sessions ({@code null} if every session is served by its own thread). */
+  private ClientSelector selector;
   /** Start as service. */
   private boolean service;
   /** Daemon flag. */
@@ -102,10 +105,13 @@ public final class BaseXServer extends CLI implements Runnable {
     }
 
     try {
-      socket = new ServerSocket();
+      // multiplex idle sessions if the number of worker threads is limited
+      final int threads = sopts.get(StaticOptions.SERVERTHREADS);
+      socket = threads > 0 ? ServerSocketChannel.open().socket() : new ServerSocket();
       socket.setReuseAddress(true);
       socket.bind(new InetSocketAddress(addr, port));
       stopFile = stopFile(getClass(), port);
+      if(threads > 0) selector = new ClientSelector(threads);
     } catch(final BindException ex) {
       context.log.writeServer(LogType.ERROR, Util.message(ex));
       Util.debug(ex);
@@ -119,6 +125,7 @@ public final class BaseXServer extends CLI implements Runnable {
     }
 
     new Thread(this).start();
+    context.metrics.register();
 
     // show info that server has been started
     final String startX = Util.info(SRV_STARTED_PORT_X, port);
@@ -153,7 +160,7 @@ public final class BaseXServer extends CLI implements Runnable {
             }
           }
           // create client listener, stop authentication after timeout
-          final ClientListener cl = new ClientListener(s, context, this);
+          final ClientListener cl = new ClientListener(s, context, this, selector);
           if(ka > 0) {
             cl.timeout.schedule(new TimerTask() {
               @Override
@@ -163,7 +170,11 @@ public final class BaseXServer extends CLI implements Runnable {
             }, ka);
             authorizing.add(cl);
           }
-          cl.start();
+          if(selector != null) {
+            selector.login(cl);
+          } else {
+            cl.start();
+          }
         }
       } catch(final SocketException ex) {
         Util.debug(ex);
@@ -199,6 +210,7 @@ public final class BaseXServer extends CLI implements Runnable {
       cl.close();
     }
     context.sessions.close();
+    if(selector != null) selector.close();
 
     try {
       // close interactive input if server was stopped by another process
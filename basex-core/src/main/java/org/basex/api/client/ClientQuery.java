@@ -1,10 +1,12 @@
 package org.basex.api.client;
 
 import java.io.*;
+import java.util.*;
 
 import org.basex.api.dom.*;
 import org.basex.core.*;
 import org.basex.io.in.*;
+import org.basex.io.out.*;
 import org.basex.query.*;
 import org.basex.query.value.*;
 import org.basex.query.value.item.*;
@@ -60,37 +62,10 @@ public class ClientQuery extends Query {
   public void bind(final String name, final Object value, final String type) throws IOException {
     cache = null;
 
-    final Object vl = value instanceof BXNode ? ((BXNode) value).getNode() : value;
-    String t = type == null ? "" : type;
-    final String v;
-    if(vl instanceof Value) {
-      final Value val = (Value) vl;
-      final Type tp = val.type;
-      if(t.isEmpty()) t = val.isEmpty() ? QueryText.EMPTY_SEQUENCE + "()" : tp.toString();
-
-      try {
-        final TokenBuilder tb = new TokenBuilder();
-        for(final Item item : val) {
-          if(!tb.isEmpty()) tb.addByte((byte) 1);
-          if(item instanceof ANode) {
-            tb.add(item.serialize().finish());
-          } else {
-            tb.add(item.string(null));
-          }
-          final Type it = item.type;
-          if(it != tp) tb.addByte((byte) 2).add(it);
-        }
-        v = tb.toString();
-      } catch(final QueryException ex) {
-        throw new QueryIOException(ex);
-      }
-    } else {
-      v = value.toString();
-    }
-
+    final String[] binding = binding(value, type);
     final ServerCmd cmd = name == null ? ServerCmd.CONTEXT : ServerCmd.BIND;
     final String n = name == null ? "" : name + '\0';
-    cs.exec(cmd, id + '\0' + n + v + '\0' + t, null);
+    cs.exec(cmd, id + '\0' + n + binding[0] + '\0' + binding[1], null);
   }
 
   @Override
@@ -103,6 +78,37 @@ public class ClientQuery extends Query {
     return cs.exec(ServerCmd.EXEC, id, out);
   }
 
+  @Override
+  public List<String> execute(final List<? extends Map<String, ?>> bindings) throws IOException {
+    cache = null;
+
+    // send {ID}0, and 1, {NAME}0{VALUE}0{TYPE}0 and 0 for each binding set
+    cs.sout.write(ServerCmd.BATCH.code);
+    cs.send(id);
+    for(final Map<String, ?> map : bindings) {
+      cs.sout.write(1);
+      for(final Map.Entry<String, ?> entry : map.entrySet()) {
+        final String[] binding = binding(entry.getValue(), "");
+        cs.send(entry.getKey());
+        cs.send(binding[0]);
+        cs.send(binding[1]);
+      }
+      cs.sout.write(0);
+    }
+    cs.sout.write(0);
+    cs.sout.flush();
+
+    // receive results, stop at first error
+    final ArrayList<String> results = new ArrayList<>(bindings.size());
+    for(int b = bindings.size(); b > 0; b--) {
+      final ArrayOutput ao = out == null ? new ArrayOutput() : null;
+      ClientSession.receive(cs.sin, ao != null ? ao : out);
+      if(!ClientSession.ok(cs.sin)) throw new BaseXException(cs.sin.readString());
+      results.add(ao != null ? ao.toString() : null);
+    }
+    return results;
+  }
+
   @Override
   public void close() throws IOException {
     cs.exec(ServerCmd.CLOSE, id, null);
@@ -118,4 +124,42 @@ public class ClientQuery extends Query {
     cache(bi, full);
     if(!ClientSession.ok(bi)) throw new BaseXException(bi.readString());
   }
+
+  /**
+   * Converts a value to the string representation and type of a binding.
+   * @param value value to be bound
+   * @param type value type (can be {@code null})
+   * @return value and type strings
+   * @throws IOException I/O exception
+   */
+  private static String[] binding(final Object value, final String type) throws IOException {
+    final Object vl = value instanceof BXNode ? ((BXNode) value).getNode() : value;
+    String t = type == null ? "" : type;
+    final String v;
+    if(vl instanceof Value) {
+      final Value val = (Value) vl;
+      final Type tp = val.type;
+      if(t.isEmpty()) t = val.isEmpty() ? QueryText.EMPTY_SEQUENCE + "()" : tp.toString();
+
+      try {
+        final TokenBuilder tb = new TokenBuilder();
+        for(final Item item : val) {
+          if(!tb.isEmpty()) tb.addByte((byte) 1);
+          if(item instanceof ANode) {
+            tb.add(item.serialize().finish());
+          } else {
+            tb.add(item.string(null));
+          }
+          final Type it = item.type;
+          if(it != tp) tb.addByte((byte) 2).add(it);
+        }
+        v = tb.toString();
+      } catch(final QueryException ex) {
+        throw new QueryIOException(ex);
+      }
+    } else {
+      v = value.toString();
+    }
+    return new String[] { v, t };
+  }
 }
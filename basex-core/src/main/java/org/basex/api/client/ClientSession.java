@@ -2,6 +2,7 @@ package org.basex.api.client;
 
 import java.io.*;
 import java.net.*;
+import java.util.*;
 
 import org.basex.core.*;
 import org.basex.core.parse.Commands.Cmd;
@@ -31,8 +32,8 @@ import org.basex.util.*;
 public class ClientSession extends Session {
   /** Server output (buffered). */
   final PrintOutput sout;
-  /** Server input. */
-  final InputStream sin;
+  /** Server input (buffered). */
+  final BufferInput sin;
 
   /** Socket reference. */
   private final Socket socket;
@@ -97,11 +98,10 @@ public class ClientSession extends Session {
     } catch(final IllegalArgumentException ex) {
       throw new BaseXException(ex);
     }
-    sin = socket.getInputStream();
+    sin = BufferInput.get(socket.getInputStream());
 
     // receive server response
-    final BufferInput bi = BufferInput.get(sin);
-    final String[] response = Strings.split(bi.readString(), ':');
+    final String[] response = Strings.split(sin.readString(), ':');
     final String code, nonce;
     if(response.length > 1) {
       // support for digest authentication
@@ -120,7 +120,7 @@ public class ClientSession extends Session {
     sout.flush();
 
     // receive success flag
-    if(!ok(bi)) throw new LoginException(username);
+    if(!ok(sin)) throw new LoginException(username);
   }
 
   @Override
@@ -165,6 +165,25 @@ public class ClientSession extends Session {
     execute(command.toString(), output);
   }
 
+  @Override
+  public List<String> execute(final List<String> commands) throws IOException {
+    // send all commands, receive responses
+    for(final String command : commands) send(command);
+    sout.flush();
+
+    final ArrayList<String> results = new ArrayList<>(commands.size());
+    BaseXException error = null;
+    for(int c = commands.size(); c > 0; c--) {
+      final ArrayOutput ao = out == null ? new ArrayOutput() : null;
+      receive(sin, ao != null ? ao : out);
+      info = sin.readString();
+      if(!ok(sin) && error == null) error = new BaseXException(info);
+      results.add(ao != null ? ao.toString() : null);
+    }
+    if(error != null) throw error;
+    return results;
+  }
+
   /**
    * Sends the specified stream to the server.
    * @param input input stream
@@ -184,10 +203,9 @@ public class ClientSession extends Session {
    * @throws IOException I/O exception
    */
   private void receive(final OutputStream output) throws IOException {
-    final BufferInput bi = BufferInput.get(sin);
-    if(output != null) receive(bi, output);
-    info = bi.readString();
-    if(!ok(bi)) throw new BaseXException(info);
+    if(output != null) receive(sin, output);
+    info = sin.readString();
+    if(!ok(sin)) throw new BaseXException(info);
   }
 
   /**
@@ -251,9 +269,8 @@ public class ClientSession extends Session {
     sout.write(command.code);
     send(arg);
     sout.flush();
-    final BufferInput bi = BufferInput.get(sin);
-    receive(bi, o);
-    if(!ok(bi)) throw new BaseXException(bi.readString());
+    receive(sin, o);
+    if(!ok(sin)) throw new BaseXException(sin.readString());
     return o.toString();
   }
 
@@ -1,6 +1,7 @@
 package org.basex.api.client;
 
 import java.io.*;
+import java.util.*;
 
 import org.basex.io.in.*;
 import org.basex.query.value.type.*;
@@ -143,6 +144,22 @@ public abstract class Query implements Closeable {
    */
   public abstract String execute() throws IOException;
 
+  /**
+   * Executes the query once for each binding set and returns the results.
+   * Client queries send all binding sets at once and read the results afterwards.
+   * @param bindings binding sets (variable names and values)
+   * @return results or {@code null} references
+   * @throws IOException I/O exception (execution stops at the first error)
+   */
+  public List<String> execute(final List<? extends Map<String, ?>> bindings) throws IOException {
+    final ArrayList<String> results = new ArrayList<>(bindings.size());
+    for(final Map<String, ?> map : bindings) {
+      for(final Map.Entry<String, ?> entry : map.entrySet()) bind(entry.getKey(), entry.getValue());
+      results.add(execute());
+    }
+    return results;
+  }
+
   /**
    * Returns the serialization options.
    * @return serialization options
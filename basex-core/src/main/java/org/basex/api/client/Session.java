@@ -1,6 +1,7 @@
 package org.basex.api.client;
 
 import java.io.*;
+import java.util.*;
 
 import org.basex.core.*;
 import org.basex.io.out.*;
@@ -50,6 +51,32 @@ public abstract class Session implements Closeable {
     return ao != null ? ao.toString() : null;
   }
 
+  /**
+   * Executes multiple commands and returns their results as strings, or serializes them to the
+   * specified output stream. All commands are executed, even if one of them fails.
+   * Client sessions send all commands at once and read the responses afterwards.
+   * As the server may block while the responses are not read, this is intended for
+   * commands with small results.
+   * @param commands commands to be parsed
+   * @return results or {@code null} references
+   * @throws IOException I/O exception (for the first command that failed)
+   */
+  public List<String> execute(final List<String> commands) throws IOException {
+    final ArrayList<String> results = new ArrayList<>(commands.size());
+    IOException error = null;
+    for(final String command : commands) {
+      String result = null;
+      try {
+        result = execute(command);
+      } catch(final IOException ex) {
+        if(error == null) error = ex;
+      }
+      results.add(result);
+    }
+    if(error != null) throw error;
+    return results;
+  }
+
   /**
    * Returns a query object for the specified query string.
    * @param query query string
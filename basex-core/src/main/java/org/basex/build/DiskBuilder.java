@@ -34,6 +34,8 @@ public final class DiskBuilder extends Builder {
 
   /** Static options. */
   private final StaticOptions sopts;
+  /** Compress table and texts. */
+  private final boolean compress;
   /** Debug counter. */
   private int c;
 
@@ -48,6 +50,7 @@ public final class DiskBuilder extends Builder {
       final MainOptions opts) {
     super(name, parser);
     this.sopts = sopts;
+    compress = opts.get(MainOptions.COMPRESS);
     meta = new MetaData(dbName, opts, sopts);
   }
 
@@ -93,6 +96,14 @@ public final class DiskBuilder extends Builder {
       }
       tmpFile.delete();
 
+      // compress table and texts
+      if(compress) {
+        for(final String file : new String[] { DATATBL, DATATXT, DATAATV }) {
+          CompressedFile.compress(meta.dbFile(file), meta.dbFile(file + 'z'));
+        }
+        meta.compress = true;
+      }
+
       // return database instance. build will be finalized when this instance is closed
       meta.dirty = true;
       return new DiskData(meta, elemNames, attrNames, path, nspaces);
@@ -99,8 +99,14 @@ public abstract class Command extends Job {
       Util.stack(th);
       throw th;
     } finally {
-      // ensure that job will be unregistered
-      unregister(ctx);
+      // ensure that job will be unregistered; report errors while persisting the updates
+      try {
+        unregister(ctx);
+      } catch(final BaseXException ex) {
+        throw ex;
+      } catch(final IOException ex) {
+        throw new BaseXException(ex);
+      }
     }
   }
 
@@ -4,9 +4,11 @@ import java.util.*;
 
 import org.basex.core.jobs.*;
 import org.basex.core.locks.*;
+import org.basex.core.metrics.*;
 import org.basex.core.users.*;
 import org.basex.data.*;
 import org.basex.io.random.*;
+import org.basex.query.*;
 import org.basex.query.util.pkg.*;
 import org.basex.query.value.seq.*;
 import org.basex.server.*;
@@ -44,8 +46,12 @@ public final class Context {
   public final Log log;
   /** Locking. */
   public final Locking locking;
+  /** Metrics. */
+  public final Metrics metrics;
   /** Key/value store. */
   public final Store store;
+  /** Prepared queries. */
+  public final QueryCache queries;
 
   /** External objects (HTTP context, HTTP requests). */
   private final HashSet<Object> external;
@@ -112,8 +118,10 @@ public final class Context {
     user = ctx.user;
     repo = ctx.repo;
     log = ctx.log;
+    metrics = ctx.metrics;
     jobs = ctx.jobs;
     store = ctx.store;
+    queries = ctx.queries;
     external = new HashSet<>(ctx.external);
   }
 
@@ -136,7 +144,15 @@ public final class Context {
     jobs = new JobPool(soptions);
     external = new HashSet<>();
     store = new Store(this);
+    queries = new QueryCache(soptions.get(StaticOptions.QUERYCACHE));
     client = null;
+
+    metrics = new Metrics();
+    metrics.gauge("basex_jobs_active", "Number of queued or running jobs.", jobs.active::size);
+    metrics.gauge("basex_jobs_results", "Number of cached job results.", jobs.results::size);
+    metrics.gauge("basex_jobs_tasks", "Number of scheduled jobs.", jobs.tasks::size);
+    metrics.gauge("basex_sessions", "Number of client sessions.", sessions::size);
+    metrics.gauge("basex_databases_opened", "Number of opened databases.", datas::size);
   }
 
   /**
@@ -167,6 +183,7 @@ public final class Context {
     sessions.close();
     datas.close();
     log.close();
+    metrics.close();
     closeDB();
   }
 
@@ -76,6 +76,14 @@ public final class Datas {
     return entry == null ? 0 : entry.getValue();
   }
 
+  /**
+   * Returns the number of opened databases.
+   * @return number of databases
+   */
+  public synchronized int size() {
+    return list.size();
+  }
+
   /**
    * Closes all data references.
    */
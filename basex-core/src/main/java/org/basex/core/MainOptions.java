@@ -19,6 +19,8 @@ public final class MainOptions extends Options {
 
   /** Flag for creating a main memory database. */
   public static final BooleanOption MAINMEM = new BooleanOption("MAINMEM", false);
+  /** Flag for storing the table and the texts of a main memory database off-heap. */
+  public static final BooleanOption OFFHEAP = new BooleanOption("OFFHEAP", false);
   /** Flag for closing a database after creating it. */
   public static final BooleanOption CREATEONLY = new BooleanOption("CREATEONLY", false);
 
@@ -97,6 +99,8 @@ public final class MainOptions extends Options {
   public static final BooleanOption AUTOOPTIMIZE = new BooleanOption("AUTOOPTIMIZE", false);
   /** Index split size. */
   public static final NumberOption SPLITSIZE = new NumberOption("SPLITSIZE", 0);
+  /** Flag for storing the table and the texts in compressed blocks. */
+  public static final BooleanOption COMPRESS = new BooleanOption("COMPRESS", false);
 
   // Full-Text
 
@@ -125,6 +129,14 @@ public final class MainOptions extends Options {
   public static final NumberOption UNROLLLIMIT = new NumberOption("UNROLLLIMIT", 5);
   /** Flag for tail-call optimization. */
   public static final NumberOption TAILCALLS = new NumberOption("TAILCALLS", 256);
+  /** Minimum number of iterations for evaluating for clauses in parallel (0: disabled). */
+  public static final NumberOption PARALLELFOR = new NumberOption("PARALLELFOR", 0);
+  /** Maximum number of items held in main memory by a group by clause (0: no limit). */
+  public static final NumberOption GROUPLIMIT = new NumberOption("GROUPLIMIT", 0);
+  /** Maximum number of tuples sorted in main memory by an order by clause (0: no limit). */
+  public static final NumberOption SORTLIMIT = new NumberOption("SORTLIMIT", 0);
+  /** Favor iterative evaluation of paths over the number of predicate evaluations. */
+  public static final BooleanOption STREAMING = new BooleanOption("STREAMING", false);
   /** Look up documents in databases. */
   public static final BooleanOption WITHDB = new BooleanOption("WITHDB", true);
   /** Favor global database when opening resources. */
@@ -167,6 +179,8 @@ public final class MainOptions extends Options {
 
   /** Flushes the database after each update. */
   public static final BooleanOption AUTOFLUSH = new BooleanOption("AUTOFLUSH", true);
+  /** Logs updates in a journal and writes them to the database files in larger intervals. */
+  public static final BooleanOption JOURNAL = new BooleanOption("JOURNAL", false);
   /** Writes original files back after updates. */
   public static final BooleanOption WRITEBACK = new BooleanOption("WRITEBACK", false);
   /** Maximum number of index occurrences to print. */
@@ -177,7 +191,7 @@ public final class MainOptions extends Options {
   /** Indexing options. */
   public static final Option<?>[] INDEXING = { MAXCATS, MAXLEN, SPLITSIZE, LANGUAGE, STOPWORDS,
     TEXTINDEX, ATTRINDEX, TOKENINDEX, FTINDEX, TEXTINCLUDE, ATTRINCLUDE, TOKENINCLUDE, FTINCLUDE,
-    STEMMING, CASESENS, DIACRITICS, UPDINDEX, AUTOOPTIMIZE };
+    STEMMING, CASESENS, DIACRITICS, UPDINDEX, AUTOOPTIMIZE, COMPRESS };
 
   /** XML Parsing options. */
   private static final Option<?>[] XMLPARSING = { INTPARSE, STRIPWS, STRIPNS, DTD, XINCLUDE,
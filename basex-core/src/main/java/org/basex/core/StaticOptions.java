@@ -32,8 +32,22 @@ public final class StaticOptions extends Options {
   public static final BooleanOption FAIRLOCK = new BooleanOption("FAIRLOCK", false);
   /** Timeout (seconds) for remembering result of asynchronous queries. */
   public static final NumberOption CACHETIMEOUT = new NumberOption("CACHETIMEOUT", 3600);
+  /** Number of worker threads for scheduled jobs; one thread per job if set to 0. */
+  public static final NumberOption JOBTHREADS = new NumberOption("JOBTHREADS", 0);
+  /** Maximum number of prepared queries ({@code 0}: disable cache). */
+  public static final NumberOption QUERYCACHE = new NumberOption("QUERYCACHE", 1000);
   /** Write store at shutdown. */
   public static final BooleanOption WRITESTORE = new BooleanOption("WRITESTORE", true);
+  /** Memory-map database tables for read access. */
+  public static final BooleanOption MMAP = new BooleanOption("MMAP", false);
+  /** Maximum number of buffered pages per database file. */
+  public static final NumberOption BUFFERS = new NumberOption("BUFFERS", 256);
+  /** Number of table pages that are read in advance when a table is scanned sequentially. */
+  public static final NumberOption READAHEAD = new NumberOption("READAHEAD", 8);
+  /** Maximum number of cached entries per database index. */
+  public static final NumberOption INDEXCACHE = new NumberOption("INDEXCACHE", 65536);
+  /** Number of threads for building index structures ({@code 0}: number of processors). */
+  public static final NumberOption INDEXTHREADS = new NumberOption("INDEXTHREADS", 0);
 
   /** Comment: written to the options file. */
   public static final Comment C_CLIENT = new Comment("Client/Server Architecture");
@@ -63,6 +77,8 @@ public final class StaticOptions extends Options {
   public static final NumberOption TIMEOUT = new NumberOption("TIMEOUT", 30);
   /** Keep alive time (seconds) for clients; deactivated if set to 0. */
   public static final NumberOption KEEPALIVE = new NumberOption("KEEPALIVE", 600);
+  /** Number of worker threads for client sessions; one thread per session if set to 0. */
+  public static final NumberOption SERVERTHREADS = new NumberOption("SERVERTHREADS", 0);
   /** Defines the number of parallel readers. */
   public static final NumberOption PARALLEL = new NumberOption("PARALLEL", 8);
   /** Logging flag. */
@@ -71,6 +87,11 @@ public final class StaticOptions extends Options {
   public static final NumberOption LOGMSGMAXLEN = new NumberOption("LOGMSGMAXLEN", 1000);
   /** Write trace output to the logs. */
   public static final BooleanOption LOGTRACE = new BooleanOption("LOGTRACE", true);
+  /** Size of the asynchronous log queue; entries are written synchronously if set to 0. */
+  public static final NumberOption LOGQUEUE = new NumberOption("LOGQUEUE", 0);
+  /** Handling of new log entries if the asynchronous log queue is full. */
+  public static final EnumOption<LogOverflow> LOGOVERFLOW =
+      new EnumOption<>("LOGOVERFLOW", LogOverflow.BLOCK);
 
   /** Comment: written to the options file. */
   public static final Comment C_HTTP = new Comment("HTTP Services");
@@ -96,6 +117,17 @@ public final class StaticOptions extends Options {
   public static final EnumOption<AuthMethod> AUTHMETHOD =
       new EnumOption<>("AUTHMETHOD", AuthMethod.BASIC);
 
+  /** Handling of new log entries if the log queue is full. */
+  public enum LogOverflow {
+    /** Wait until queued entries have been written. */ BLOCK,
+    /** Discard new entries. */ DROP;
+
+    @Override
+    public String toString() {
+      return EnumOption.string(this);
+    }
+  }
+
   /** Authorization method. */
   public enum AuthMethod {
     /** Basic.  */ BASIC,
@@ -125,6 +157,11 @@ public final class StaticOptions extends Options {
     // assigns static variables and system properties
     Prop.language = get(LANG);
     Prop.debug = get(DEBUG);
+    Prop.mmap = get(MMAP);
+    Prop.buffers = get(BUFFERS);
+    Prop.readahead = get(READAHEAD);
+    Prop.indexcache = get(INDEXCACHE);
+    Prop.indexthreads = get(INDEXTHREADS);
     final String ph = get(PROXYHOST);
     if(!ph.isEmpty()) {
       Prop.setSystem("http.proxyHost", ph);
@@ -228,6 +228,14 @@ public interface Text {
   String ITEMS = "Items";
   /** Context. */
   String CONTEXT = "Context";
+  /** Buffer statistics. */
+  String BUFFERS = "Buffers";
+  /** Buffer statistics. */
+  String BUFFERS_X_X = "% hits, % misses";
+  /** Index cache statistics. */
+  String INDEX_CACHE = "Index cache";
+  /** Index cache statistics. */
+  String INDEX_CACHE_X_X_X = "% hits, % misses, hit rate: %%";
 
   /** Options error. */
   String OPT_OFFSET_X = "List counter for '%' is invalid.";
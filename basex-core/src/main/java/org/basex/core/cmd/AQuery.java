@@ -73,8 +73,11 @@ public abstract class AQuery extends Command {
 
           queryPlan(!optplan);
           qp.optimize();
-          queryPlan(optplan);
-          if(!runquery) continue;
+          // optimized plan of evaluated queries: create it afterwards to include actual results
+          if(!runquery) {
+            queryPlan(optplan);
+            continue;
+          }
 
           final PrintOutput po = r == 0 && serialize ? out : new NullOutput();
           try(Serializer ser = qp.serializer(po)) {
@@ -94,6 +97,7 @@ public abstract class AQuery extends Command {
               }
             }
           }
+          queryPlan(optplan);
           qp.close();
         }
       } catch(final QueryException | JobException | IOException ex) {
@@ -3,6 +3,8 @@ package org.basex.core.cmd;
 import static org.basex.core.Text.*;
 
 import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
 
 import org.basex.core.*;
 import org.basex.core.parse.*;
@@ -79,10 +81,43 @@ public final class CreateIndex extends ACreate {
    * @throws IOException I/O exception
    */
   static void create(final Data data, final ACreate cmd) throws IOException {
-    if(data.meta.createtext) create(IndexType.TEXT, data, cmd);
-    if(data.meta.createattr) create(IndexType.ATTRIBUTE, data, cmd);
-    if(data.meta.createtoken) create(IndexType.TOKEN, data, cmd);
-    if(data.meta.createft) create(IndexType.FULLTEXT, data, cmd);
+    final ArrayList<IndexType> types = new ArrayList<>();
+    if(data.meta.createtext) types.add(IndexType.TEXT);
+    if(data.meta.createattr) types.add(IndexType.ATTRIBUTE);
+    if(data.meta.createtoken) types.add(IndexType.TOKEN);
+    if(data.meta.createft) types.add(IndexType.FULLTEXT);
+    create(types, data, cmd);
+  }
+
+  /**
+   * Builds the specified indexes. The indexes of databases on disk are built in parallel.
+   * @param types indexes to be built
+   * @param data data reference
+   * @param cmd calling command
+   * @throws IOException I/O exception
+   */
+  static void create(final ArrayList<IndexType> types, final Data data, final ACreate cmd)
+      throws IOException {
+
+    final int ts = types.size();
+    if(ts < 2 || data.inMemory() || IndexBuilder.threads() < 2) {
+      for(final IndexType type : types) create(type, data, cmd);
+      return;
+    }
+
+    final ArrayList<Callable<Void>> tasks = new ArrayList<>(ts);
+    for(final IndexType type : types) {
+      tasks.add(() -> {
+        create(type, data, cmd);
+        return null;
+      });
+    }
+    final ExecutorService executor = Executors.newFixedThreadPool(ts);
+    try {
+      IndexBuilder.invoke(executor, tasks);
+    } finally {
+      executor.shutdown();
+    }
   }
 
   /**
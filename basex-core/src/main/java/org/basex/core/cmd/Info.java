@@ -6,6 +6,8 @@ import java.io.*;
 
 import org.basex.core.*;
 import org.basex.core.users.*;
+import org.basex.index.*;
+import org.basex.io.random.*;
 import org.basex.util.*;
 import org.basex.util.options.*;
 
@@ -46,6 +48,10 @@ public final class Info extends AInfo {
 
     final User user = context.user();
     info(tb, USED_MEM, Performance.getMemory());
+    info(tb, BUFFERS, Util.info(BUFFERS_X_X, Buffers.hits(), Buffers.misses()));
+    final long hits = IndexCache.hits(), total = hits + IndexCache.misses();
+    info(tb, INDEX_CACHE, Util.info(INDEX_CACHE_X_X_X, hits, total - hits,
+        total == 0 ? 0 : hits * 100 / total));
 
     if(user.has(Perm.ADMIN)) {
       final StaticOptions sopts = context.soptions;
@@ -1,10 +1,12 @@
 package org.basex.core.jobs;
 
+import java.io.*;
 import java.util.*;
 import java.util.concurrent.*;
 
 import org.basex.core.*;
 import org.basex.core.users.*;
+import org.basex.io.random.*;
 import org.basex.util.*;
 
 /**
@@ -19,8 +21,8 @@ public abstract class Job {
   /** Job context. */
   private JobContext jc = new JobContext(this);
   // state and control flags must be volatile so that all threads see the actual non-cached values
-  /** Timer. */
-  private volatile Timer timer;
+  /** Timeout task. */
+  private volatile ScheduledFuture<?> timer;
 
   /** This flag indicates that a job is updating. */
   public volatile boolean updating;
@@ -43,23 +45,31 @@ public abstract class Job {
    */
   public final void register(final Context ctx) {
     jc.context = ctx;
+    jc.queue(false);
     ctx.jobs.register(this);
     state(JobState.QUEUED);
     ctx.locking.acquire(this, ctx);
+    jc.dequeue();
     state(JobState.RUNNING);
     jc.performance = new Performance();
     // non-admin users: stop process after timeout
-    if(!ctx.user().has(Perm.ADMIN)) startTimeout(ctx.soptions.get(StaticOptions.TIMEOUT));
+    if(!ctx.user().has(Perm.ADMIN)) startTimeout(ctx);
   }
 
   /**
-   * Unregisters the job.
+   * Unregisters the job. Commits of the job are persisted before the job is removed.
    * @param ctx context
+   * @throws IOException I/O exception while persisting the commits
    */
-  public final void unregister(final Context ctx) {
+  public final void unregister(final Context ctx) throws IOException {
     stopTimeout();
     ctx.locking.release();
-    ctx.jobs.unregister(this);
+    try {
+      // persist journaled commits (locks have been released to group concurrent commits)
+      Journal.sync();
+    } finally {
+      ctx.jobs.unregister(this);
+    }
   }
 
   /**
@@ -89,6 +99,14 @@ public abstract class Job {
     children.remove(children.size() - 1);
   }
 
+  /**
+   * Removes the specified child job.
+   * @param job child job
+   */
+  public final synchronized void popJob(final Job job) {
+    children.remove(job);
+  }
+
   /**
    * Stops a job or sub job.
    */
@@ -185,24 +203,23 @@ public abstract class Job {
   // PRIVATE FUNCTIONS ============================================================================
 
   /**
-   * Starts a timeout thread.
-   * @param sec seconds wait; deactivated if set to 0
+   * Starts a timeout task.
+   * @param ctx database context
    */
-  private void startTimeout(final long sec) {
+  private void startTimeout(final Context ctx) {
+    // deactivated if set to 0
+    final long sec = ctx.soptions.get(StaticOptions.TIMEOUT);
     if(sec == 0) return;
-    timer = new Timer(true);
-    timer.schedule(new TimerTask() {
-      @Override
-      public void run() { timeout(); }
-    }, sec * 1000L);
+    timer = ctx.jobs.schedule(this::timeout, sec * 1000L);
   }
 
   /**
-   * Stops the timeout thread.
+   * Stops the timeout task.
    */
   private void stopTimeout() {
-    if(timer != null) {
-      timer.cancel();
+    final ScheduledFuture<?> tmr = timer;
+    if(tmr != null) {
+      tmr.cancel(false);
       timer = null;
     }
   }
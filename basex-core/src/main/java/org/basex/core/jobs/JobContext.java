@@ -43,6 +43,10 @@ public final class JobContext {
   private String tp;
   /** Job description (optional). */
   private String desc;
+  /** Time spent in queues (ns). */
+  private volatile long waited;
+  /** Start of the current waiting period ({@code 0}: not waiting). */
+  private volatile long queued;
 
   /**
    * Constructor.
@@ -93,6 +97,35 @@ public final class JobContext {
     return tp != null ? tp : Util.className(job);
   }
 
+  /**
+   * Starts a waiting period, unless the job is already waiting.
+   * @param reset reset the time that has been spent in queues so far
+   */
+  void queue(final boolean reset) {
+    if(reset) waited = 0;
+    if(queued == 0) queued = System.nanoTime();
+  }
+
+  /**
+   * Ends the current waiting period.
+   */
+  void dequeue() {
+    final long q = queued;
+    if(q != 0) {
+      waited += System.nanoTime() - q;
+      queued = 0;
+    }
+  }
+
+  /**
+   * Returns the time that has been spent in queues, including the current waiting period.
+   * @return time in nanoseconds
+   */
+  public long waited() {
+    final long q = queued;
+    return waited + (q != 0 ? System.nanoTime() - q : 0);
+  }
+
   /**
    * Returns the query tracer.
    * @return name
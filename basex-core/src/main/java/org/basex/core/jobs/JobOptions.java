@@ -25,4 +25,19 @@ public final class JobOptions extends Options {
   public static final BooleanOption SERVICE = new BooleanOption("service");
   /** Log entry. */
   public static final StringOption LOG = new StringOption("log");
+  /** Priority (considered if the number of job threads is limited). */
+  public static final EnumOption<JobPriority> PRIORITY =
+      new EnumOption<>("priority", JobPriority.class);
+
+  /** Job priorities (in descending order). */
+  public enum JobPriority {
+    /** High.   */ HIGH,
+    /** Normal. */ NORMAL,
+    /** Low.    */ LOW;
+
+    @Override
+    public String toString() {
+      return EnumOption.string(this);
+    }
+  }
 }
@@ -4,8 +4,10 @@ import static org.basex.util.Token.*;
 
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
 import org.basex.core.*;
+import org.basex.core.jobs.JobOptions.*;
 import org.basex.util.*;
 import org.basex.util.list.*;
 
@@ -27,11 +29,17 @@ public final class JobPool {
   public final Map<String, Job> active = new ConcurrentHashMap<>();
   /** Cached results. */
   public final Map<String, QueryJobResult> results = new ConcurrentHashMap<>();
-  /** Timer tasks. */
+  /** Scheduled tasks. */
   public final Map<String, QueryJobTask> tasks = new ConcurrentHashMap<>();
 
-  /** Timer. */
-  final Timer timer = new Timer(true);
+  /** Permits for registering new jobs. */
+  private final Semaphore admission = new Semaphore(MAX_RUNNING, true);
+  /** Scheduler for delayed and repeated tasks. */
+  private final ScheduledThreadPoolExecutor scheduler;
+  /** Worker threads for scheduled jobs. */
+  private final ThreadPoolExecutor workers;
+  /** Counter for queued tasks (preserves the order of tasks with the same priority). */
+  private final AtomicLong counter = new AtomicLong();
   /** Timeout (ms). */
   private final long timeout;
 
@@ -41,14 +49,31 @@ public final class JobPool {
    */
   public JobPool(final StaticOptions sopts) {
     timeout = sopts.get(StaticOptions.CACHETIMEOUT) * 1000L;
+
+    final ThreadFactory factory = r -> {
+      final Thread thread = new Thread(r);
+      thread.setDaemon(true);
+      return thread;
+    };
+    scheduler = new ScheduledThreadPoolExecutor(1, factory);
+    scheduler.setRemoveOnCancelPolicy(true);
+    scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+
+    // limited number of workers: queue jobs by their priority; otherwise, one thread per job
+    final int threads = sopts.get(StaticOptions.JOBTHREADS);
+    workers = threads > 0 ?
+      new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+        new PriorityBlockingQueue<>(), factory) :
+      new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+        new SynchronousQueue<>(), factory);
   }
 
   /**
-   * Registers a job (puts it on a queue).
+   * Registers a job. Blocks if the maximum number of jobs has been reached.
    * @param job job
    */
   public void register(final Job job) {
-    while(active.size() >= MAX_RUNNING) Performance.sleep(10);
+    admission.acquireUninterruptibly();
     active.put(job.jc().id(), job);
   }
 
@@ -57,7 +82,7 @@ public final class JobPool {
    * @param job job
    */
   public void unregister(final Job job) {
-    active.remove(job.jc().id());
+    if(active.remove(job.jc().id()) != null) admission.release();
   }
 
   /**
@@ -65,7 +90,9 @@ public final class JobPool {
    */
   public synchronized void close() {
     // stop running tasks and queries
-    timer.cancel();
+    scheduler.shutdownNow();
+    workers.getQueue().clear();
+    workers.shutdown();
     for(final Job job : active.values()) job.stop();
     while(!active.isEmpty()) Performance.sleep(10);
   }
@@ -75,12 +102,52 @@ public final class JobPool {
    * @param job job
    */
   public void scheduleResult(final Job job) {
-    timer.schedule(new TimerTask() {
-      @Override
-      public void run() {
-        results.remove(job.jc().id());
-      }
-    }, timeout);
+    schedule(() -> results.remove(job.jc().id()), timeout);
+  }
+
+  /**
+   * Runs a task after the specified delay.
+   * @param task task
+   * @param delay delay (ms)
+   * @return future for cancelling the task, or {@code null} if the pool has been closed
+   */
+  ScheduledFuture<?> schedule(final Runnable task, final long delay) {
+    try {
+      return scheduler.schedule(task, delay, TimeUnit.MILLISECONDS);
+    } catch(final RejectedExecutionException ex) {
+      Util.debug(ex);
+      return null;
+    }
+  }
+
+  /**
+   * Schedules a job task.
+   * @param task job task
+   * @param delay initial delay (ms)
+   */
+  void schedule(final QueryJobTask task, final long delay) {
+    try {
+      task.future(task.interval > 0 ?
+        scheduler.scheduleAtFixedRate(task, delay, task.interval, TimeUnit.MILLISECONDS) :
+        scheduler.schedule(task, delay, TimeUnit.MILLISECONDS));
+    } catch(final RejectedExecutionException ex) {
+      Util.debug(ex);
+    }
+  }
+
+  /**
+   * Runs a scheduled job on a worker thread. If all workers are busy, the job will be queued,
+   * and jobs with a higher priority will be run first.
+   * @param job job
+   * @param code code to run
+   */
+  void execute(final QueryJob job, final Runnable code) {
+    job.jc().queue(true);
+    try {
+      workers.execute(new Task(job.priority(), counter.getAndIncrement(), code));
+    } catch(final RejectedExecutionException ex) {
+      Util.debug(ex);
+    }
   }
 
   /**
@@ -108,7 +175,7 @@ public final class JobPool {
    */
   public boolean remove(final String id) {
     // stop scheduled task
-    final TimerTask task = tasks.remove(id);
+    final QueryJobTask task = tasks.remove(id);
     if(task != null) task.cancel();
     // send stop signal to job
     final Job job = active.get(id);
@@ -118,4 +185,37 @@ public final class JobPool {
 
     return job != null || task != null;
   }
+
+  /** Queued task of a worker thread. */
+  private static final class Task implements Runnable, Comparable<Task> {
+    /** Priority. */
+    private final JobPriority priority;
+    /** Order of submission. */
+    private final long order;
+    /** Code to run. */
+    private final Runnable code;
+
+    /**
+     * Constructor.
+     * @param priority priority
+     * @param order order of submission
+     * @param code code to run
+     */
+    private Task(final JobPriority priority, final long order, final Runnable code) {
+      this.priority = priority;
+      this.order = order;
+      this.code = code;
+    }
+
+    @Override
+    public void run() {
+      code.run();
+    }
+
+    @Override
+    public int compareTo(final Task task) {
+      final int c = priority.compareTo(task.priority);
+      return c != 0 ? c : Long.compare(order, task.order);
+    }
+  }
 }
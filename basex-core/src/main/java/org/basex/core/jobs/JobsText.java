@@ -18,6 +18,8 @@ public interface JobsText {
   /** QName. */
   QNm Q_DURATION = new QNm("duration");
   /** QName. */
+  QNm Q_WAITED = new QNm("waited");
+  /** QName. */
   QNm Q_STATE = new QNm("state");
   /** QName. */
   QNm Q_START = new QNm("start");
@@ -3,11 +3,13 @@ package org.basex.core.jobs;
 import static org.basex.query.QueryError.*;
 import static org.basex.util.Token.*;
 
+import java.io.*;
 import java.util.*;
 import java.util.Map.*;
 import java.util.function.*;
 
 import org.basex.core.*;
+import org.basex.core.jobs.JobOptions.*;
 import org.basex.query.*;
 import org.basex.query.value.*;
 import org.basex.query.value.item.*;
@@ -97,11 +99,7 @@ public final class QueryJob extends Job implements Runnable {
       // create and schedule job task
       final QueryJobTask task = new QueryJobTask(this, jobs, delay, interval, duration);
       jobs.tasks.put(id, task);
-      if(interval > 0) {
-        jobs.timer.scheduleAtFixedRate(task, delay, interval);
-      } else {
-        jobs.timer.schedule(task, delay);
-      }
+      jobs.schedule(task, delay);
     }
   }
 
@@ -165,6 +163,15 @@ public final class QueryJob extends Job implements Runnable {
     return ms;
   }
 
+  /**
+   * Returns the priority of the job.
+   * @return priority
+   */
+  JobPriority priority() {
+    final JobPriority priority = job.options.get(JobOptions.PRIORITY);
+    return priority != null ? priority : JobPriority.NORMAL;
+  }
+
   /**
    * Removes the job from the task list as soon as it has been activated.
    */
@@ -177,6 +184,7 @@ public final class QueryJob extends Job implements Runnable {
     result.init();
 
     final JobContext jc = jc();
+    jc.dequeue();
     final String id = jc.id();
     final Context ctx = jc.context;
     final JobOptions opts = job.options;
@@ -186,6 +194,7 @@ public final class QueryJob extends Job implements Runnable {
     if(log != null) ctx.log.write(LogType.REQUEST, log, null, "JOB:" + id, ctx);
 
     final Performance perf = new Performance();
+    Value res = null;
     qp = new QueryProcessor(job.query, opts.get(JobOptions.BASE_URI), ctx, null);
     try {
       // parse, push and register query. order is important!
@@ -207,7 +216,7 @@ public final class QueryJob extends Job implements Runnable {
       if(remove) ctx.jobs.tasks.remove(id);
 
       // retrieve result; copy persistent database nodes
-      result.value = qp.value().materialize(d -> d == null || d.inMemory(), null, qp.qc);
+      res = qp.value().materialize(d -> d == null || d.inMemory(), null, qp.qc);
 
     } catch(final JobException ex) {
       // query was interrupted: remove cached result
@@ -218,21 +227,25 @@ public final class QueryJob extends Job implements Runnable {
     } catch(final Throwable ex) {
       result.exception = XQUERY_UNEXPECTED_X.get(null, ex);
     } finally {
-      // close and invalidate query after result has been assigned. order is important!
-      if(Boolean.TRUE.equals(opts.get(JobOptions.CACHE))) {
-        ctx.jobs.scheduleResult(this);
-        state(JobState.CACHED);
-      } else {
-        state(JobState.SCHEDULED);
-      }
-
+      // close and invalidate query, persist updates, assign result. order is important!
       if(ctx.jobs.active.containsKey(id)) {
         qp.close();
-        unregister(ctx);
+        try {
+          unregister(ctx);
+        } catch(final IOException ex) {
+          if(result.exception == null) result.exception = IOERR_X.get(null, ex);
+        }
         popJob();
         qp = null;
         result.time += jc.performance.ns();
       }
+      if(result.exception == null) result.value = res;
+      if(Boolean.TRUE.equals(opts.get(JobOptions.CACHE))) {
+        ctx.jobs.scheduleResult(this);
+        state(JobState.CACHED);
+      } else {
+        state(JobState.SCHEDULED);
+      }
 
       // write concluding log entry, invalidate performance measurements
       if(log != null) {
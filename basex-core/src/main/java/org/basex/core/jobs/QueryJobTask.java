@@ -1,6 +1,7 @@
 package org.basex.core.jobs;
 
-import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
 /**
  * Scheduled job.
@@ -8,7 +9,7 @@ import java.util.*;
  * @author BaseX Team 2005-24, BSD License
  * @author Christian Gruen
  */
-public final class QueryJobTask extends TimerTask {
+public final class QueryJobTask implements Runnable {
   /** Job. */
   public final QueryJob job;
   /** Job pool. */
@@ -21,6 +22,13 @@ public final class QueryJobTask extends TimerTask {
   /** Next start time. */
   public long start;
 
+  /** Indicates if the job has been passed on to a worker and has not been completed yet. */
+  private final AtomicBoolean pending = new AtomicBoolean();
+  /** Future for cancelling the task (assigned after scheduling). */
+  private ScheduledFuture<?> future;
+  /** Indicates if the task has been cancelled. */
+  private boolean cancelled;
+
   /**
    * Constructor.
    * @param job job
@@ -48,7 +56,32 @@ public final class QueryJobTask extends TimerTask {
       job.remove();
       cancel();
     }
-    // skip execution if same job is still running
-    if(!jobs.active.containsKey(job.jc().id())) new Thread(job).start();
+    // skip execution if same job is still queued or running
+    if(pending.compareAndSet(false, true)) {
+      jobs.execute(job, () -> {
+        try {
+          job.run();
+        } finally {
+          pending.set(false);
+        }
+      });
+    }
+  }
+
+  /**
+   * Assigns the future of the scheduled task.
+   * @param ftr future
+   */
+  synchronized void future(final ScheduledFuture<?> ftr) {
+    future = ftr;
+    if(cancelled) ftr.cancel(false);
+  }
+
+  /**
+   * Cancels the task. Running jobs will not be interrupted.
+   */
+  public synchronized void cancel() {
+    cancelled = true;
+    if(future != null) future.cancel(false);
   }
 }
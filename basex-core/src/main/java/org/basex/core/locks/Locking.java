@@ -85,11 +85,13 @@ public final class Locking {
     // collect lock strings
     job.addLocks();
     // prepare lock strings and acquire locks
+    final Performance perf = new Performance();
     try {
       acquire(job.jc().locks.finish(ctx));
     } catch(final InterruptedException ex) {
       throw Util.notExpected("Thread was interrupted: %", ex);
     }
+    ctx.metrics.locking.record(perf.ns());
   }
 
   /**
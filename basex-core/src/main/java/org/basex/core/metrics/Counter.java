@@ -0,0 +1,53 @@
+package org.basex.core.metrics;
+
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Counter with a monotonically increasing value.
+ *
+ * @author BaseX Team 2005-24, BSD License
+ * @author Christian Gruen
+ */
+public final class Counter extends Metric {
+  /** Value. */
+  private final LongAdder value = new LongAdder();
+
+  /**
+   * Constructor.
+   * @param name name
+   * @param help description
+   * @param time indicates if values are measured in nanoseconds
+   */
+  Counter(final String name, final String help, final boolean time) {
+    super(name, help, Type.COUNTER, time);
+  }
+
+  /**
+   * Increments the counter.
+   */
+  public void increment() {
+    value.increment();
+  }
+
+  /**
+   * Adds a value.
+   * @param val value to be added (nanoseconds if the counter measures time)
+   */
+  public void add(final long val) {
+    value.add(val);
+  }
+
+  /**
+   * Returns the current value.
+   * @return value
+   */
+  public long get() {
+    return value.sum();
+  }
+
+  @Override
+  void values(final Map<String, Object> map, final boolean text) {
+    map.put(name, value(get()));
+  }
+}
@@ -0,0 +1,40 @@
+package org.basex.core.metrics;
+
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * Metric whose value is sampled from another source when it is requested.
+ *
+ * @author BaseX Team 2005-24, BSD License
+ * @author Christian Gruen
+ */
+public final class Gauge extends Metric {
+  /** Value supplier. */
+  private final LongSupplier supplier;
+
+  /**
+   * Constructor.
+   * @param name name
+   * @param help description
+   * @param type type (gauge or counter)
+   * @param supplier value supplier
+   */
+  Gauge(final String name, final String help, final Type type, final LongSupplier supplier) {
+    super(name, help, type, false);
+    this.supplier = supplier;
+  }
+
+  /**
+   * Returns the current value.
+   * @return value
+   */
+  public long get() {
+    return supplier.getAsLong();
+  }
+
+  @Override
+  void values(final Map<String, Object> map, final boolean text) {
+    map.put(name, get());
+  }
+}
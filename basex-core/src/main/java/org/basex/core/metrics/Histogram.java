@@ -0,0 +1,98 @@
+package org.basex.core.metrics;
+
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Lock-free histogram for durations. Values are assigned to exponential buckets
+ * (powers of two), and percentiles are interpolated within the matching bucket.
+ * The relative error of a percentile is bounded by the bucket width. Values are accumulated over
+ * the whole lifetime of the histogram; rates can be computed from the sum and count.
+ *
+ * @author BaseX Team 2005-24, BSD License
+ * @author Christian Gruen
+ */
+public final class Histogram extends Metric {
+  /** Exported percentiles. */
+  private static final double[] PERCENTILES = { 0.5, 0.9, 0.99 };
+
+  /** Buckets (index: number of significant bits of the value). */
+  private final AtomicLongArray buckets = new AtomicLongArray(Long.SIZE);
+  /** Number of values. */
+  private final LongAdder count = new LongAdder();
+  /** Sum of all values. */
+  private final LongAdder sum = new LongAdder();
+  /** Maximum value. */
+  private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+  /**
+   * Constructor.
+   * @param name name
+   * @param help description
+   */
+  Histogram(final String name, final String help) {
+    super(name, help, Type.SUMMARY, true);
+  }
+
+  /**
+   * Records a value.
+   * @param value value in nanoseconds (negative values will be treated as {@code 0})
+   */
+  public void record(final long value) {
+    final long v = Math.max(0, value);
+    buckets.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(v));
+    count.increment();
+    sum.add(v);
+    max.accumulate(v);
+  }
+
+  /**
+   * Returns the number of recorded values.
+   * @return count
+   */
+  public long count() {
+    return count.sum();
+  }
+
+  /**
+   * Returns the estimated value of the specified percentile.
+   * @param p percentile (between {@code 0} and {@code 1})
+   * @return value in nanoseconds
+   */
+  public long percentile(final double p) {
+    final int bl = buckets.length();
+    final long[] counts = new long[bl];
+    long total = 0;
+    for(int b = 0; b < bl; b++) {
+      counts[b] = buckets.get(b);
+      total += counts[b];
+    }
+    if(total == 0) return 0;
+
+    final long rank = Math.max(1, (long) Math.ceil(p * total)), mx = max.get();
+    long seen = 0;
+    for(int b = 0; b < bl; b++) {
+      final long c = counts[b];
+      if(c == 0) continue;
+      if(seen + c >= rank) {
+        if(b == 0) return 0;
+        // interpolate within the bucket range [2^(b-1), 2^b - 1]
+        final long min = 1L << b - 1, range = min - 1;
+        return Math.min(mx, min + (long) (range * ((double) (rank - seen) / c)));
+      }
+      seen += c;
+    }
+    return mx;
+  }
+
+  @Override
+  void values(final Map<String, Object> map, final boolean text) {
+    for(final double p : PERCENTILES) {
+      map.put(text ? name + "{quantile=\"" + p + "\"}" : name + "_p" + Math.round(p * 100),
+          value(percentile(p)));
+    }
+    if(!text) map.put(name + "_max", value(max.get()));
+    map.put(name + "_sum", value(sum.sum()));
+    map.put(name + "_count", count());
+  }
+}
@@ -0,0 +1,74 @@
+package org.basex.core.metrics;
+
+import java.util.*;
+
+/**
+ * Abstract metric.
+ *
+ * @author BaseX Team 2005-24, BSD License
+ * @author Christian Gruen
+ */
+public abstract class Metric {
+  /** Metric types. */
+  enum Type {
+    /** Counter. */ COUNTER,
+    /** Gauge. */   GAUGE,
+    /** Summary. */ SUMMARY;
+
+    @Override
+    public String toString() {
+      return name().toLowerCase(Locale.ENGLISH);
+    }
+  }
+
+  /** Name. */
+  final String name;
+  /** Description. */
+  final String help;
+  /** Type. */
+  final Type type;
+  /** Indicates if values are measured in nanoseconds (and exported in seconds). */
+  final boolean time;
+
+  /**
+   * Constructor.
+   * @param name name
+   * @param help description
+   * @param type type
+   * @param time indicates if values are measured in nanoseconds
+   */
+  Metric(final String name, final String help, final Type type, final boolean time) {
+    this.name = name;
+    this.help = help;
+    this.type = type;
+    this.time = time;
+  }
+
+  /**
+   * Adds the current values in the Prometheus text format.
+   * @param sb string builder
+   */
+  final void text(final StringBuilder sb) {
+    sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+    sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    final Map<String, Object> map = new LinkedHashMap<>();
+    values(map, true);
+    map.forEach((key, value) -> sb.append(key).append(' ').append(value).append('\n'));
+  }
+
+  /**
+   * Adds the current values. Keys are composed of the metric name and (optional) suffixes.
+   * @param map map with values
+   * @param text create keys for the Prometheus text format (with labels)
+   */
+  abstract void values(Map<String, Object> map, boolean text);
+
+  /**
+   * Converts a value to the exported unit.
+   * @param value value
+   * @return converted value
+   */
+  final Object value(final long value) {
+    return time ? value / 1e9 : (Object) value;
+  }
+}
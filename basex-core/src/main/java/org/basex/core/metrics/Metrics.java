@@ -0,0 +1,194 @@
+package org.basex.core.metrics;
+
+import java.lang.management.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+
+import javax.management.*;
+
+import org.basex.core.metrics.Metric.*;
+import org.basex.io.random.*;
+import org.basex.util.*;
+
+/**
+ * Registry for runtime metrics (counters, gauges, histograms).
+ * The metrics are exported via JMX and can be serialized in the Prometheus text format.
+ *
+ * @author BaseX Team 2005-24, BSD License
+ * @author Christian Gruen
+ */
+public final class Metrics {
+  /** Domain and type of the JMX bean. */
+  private static final String BEAN = "org.basex:type=Metrics";
+
+  /** Registered metrics. */
+  private final Map<String, Metric> metrics = new ConcurrentHashMap<>();
+
+  /** Evaluated queries. */
+  public final Counter queries = counter("basex_queries_total",
+      "Number of evaluated queries.");
+  /** Query latency (from parsing to closing). */
+  public final Histogram query = histogram("basex_query_seconds",
+      "Query latency, including lock waiting time.");
+  /** Time spent for parsing queries. */
+  public final Counter parsing = timer("basex_query_parsing_seconds_total",
+      "Time spent for parsing queries.");
+  /** Time spent for compiling queries. */
+  public final Counter compiling = timer("basex_query_compiling_seconds_total",
+      "Time spent for compiling queries.");
+  /** Time spent for optimizing queries. */
+  public final Counter optimizing = timer("basex_query_optimizing_seconds_total",
+      "Time spent for optimizing queries.");
+  /** Time spent for evaluating queries. */
+  public final Counter evaluating = timer("basex_query_evaluating_seconds_total",
+      "Time spent for evaluating queries.");
+  /** Time spent for serializing query results. */
+  public final Counter serializing = timer("basex_query_serializing_seconds_total",
+      "Time spent for serializing query results.");
+  /** Lock waiting time. */
+  public final Histogram locking = histogram("basex_lock_wait_seconds",
+      "Time spent for waiting for locks.");
+
+  /** Name of the registered JMX bean ({@code null} if the bean was not registered). */
+  private ObjectName bean;
+
+  /**
+   * Constructor.
+   */
+  public Metrics() {
+    counter("basex_buffer_hits_total", "Number of buffer hits.", Buffers::hits);
+    counter("basex_buffer_misses_total", "Number of buffer misses.", Buffers::misses);
+  }
+
+  /**
+   * Returns a counter with the specified name. Creates a new counter if it does not exist yet.
+   * @param name name
+   * @param help description
+   * @return counter
+   */
+  public Counter counter(final String name, final String help) {
+    return get(name, Counter.class, () -> new Counter(name, help, false));
+  }
+
+  /**
+   * Returns a counter for durations. Creates a new counter if it does not exist yet.
+   * @param name name
+   * @param help description
+   * @return counter (values are measured in nanoseconds, and exported in seconds)
+   */
+  public Counter timer(final String name, final String help) {
+    return get(name, Counter.class, () -> new Counter(name, help, true));
+  }
+
+  /**
+   * Returns a histogram for durations. Creates a new histogram if it does not exist yet.
+   * @param name name
+   * @param help description
+   * @return histogram
+   */
+  public Histogram histogram(final String name, final String help) {
+    return get(name, Histogram.class, () -> new Histogram(name, help));
+  }
+
+  /**
+   * Registers a gauge, the value of which will be requested from the specified supplier.
+   * @param name name
+   * @param help description
+   * @param supplier value supplier
+   */
+  public void gauge(final String name, final String help, final LongSupplier supplier) {
+    get(name, Gauge.class, () -> new Gauge(name, help, Type.GAUGE, supplier));
+  }
+
+  /**
+   * Registers a counter, the value of which will be requested from the specified supplier.
+   * @param name name
+   * @param help description
+   * @param supplier value supplier (values must be monotonically increasing)
+   */
+  public void counter(final String name, final String help, final LongSupplier supplier) {
+    get(name, Gauge.class, () -> new Gauge(name, help, Type.COUNTER, supplier));
+  }
+
+  /**
+   * Returns all metrics in the Prometheus text format.
+   * @return string
+   */
+  public String text() {
+    final StringBuilder sb = new StringBuilder();
+    for(final Metric metric : sorted()) metric.text(sb);
+    return sb.toString();
+  }
+
+  /**
+   * Returns the current values of all metrics.
+   * @return map with attribute names and values
+   */
+  public Map<String, Object> values() {
+    final Map<String, Object> map = new LinkedHashMap<>();
+    for(final Metric metric : sorted()) metric.values(map, false);
+    return map;
+  }
+
+  /**
+   * Registers the metrics as JMX bean. This is only done by server instances, as the initialization
+   * of the platform bean server delays startup. If a bean has already been registered by another
+   * instance, a numeric id will be appended to the name.
+   */
+  public synchronized void register() {
+    if(bean != null) return;
+    try {
+      final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      for(int id = 1; bean == null; id++) {
+        final ObjectName name = new ObjectName(id == 1 ? BEAN : BEAN + ",id=" + id);
+        try {
+          server.registerMBean(new MetricsBean(this), name);
+          bean = name;
+        } catch(final InstanceAlreadyExistsException ex) {
+          Util.debug(ex);
+        }
+      }
+    } catch(final JMException | SecurityException ex) {
+      Util.debug(ex);
+    }
+  }
+
+  /**
+   * Unregisters the JMX bean.
+   */
+  public synchronized void close() {
+    if(bean == null) return;
+    try {
+      ManagementFactory.getPlatformMBeanServer().unregisterMBean(bean);
+    } catch(final JMException ex) {
+      Util.debug(ex);
+    }
+    bean = null;
+  }
+
+  /**
+   * Returns a metric with the specified name, or creates a new one.
+   * @param <M> metric type
+   * @param name name
+   * @param type expected type
+   * @param create function for creating a new metric
+   * @return metric
+   */
+  private <M extends Metric> M get(final String name, final Class<M> type,
+      final Supplier<M> create) {
+    final Metric metric = metrics.computeIfAbsent(name, k -> create.get());
+    if(!type.isInstance(metric)) throw Util.notExpected("Metric '%' has another type.", name);
+    return type.cast(metric);
+  }
+
+  /**
+   * Returns all metrics, sorted by their names.
+   * @return metrics
+   */
+  private List<Metric> sorted() {
+    final List<Metric> list = new ArrayList<>(metrics.values());
+    list.sort(Comparator.comparing(metric -> metric.name));
+    return list;
+  }
+}
@@ -0,0 +1,67 @@
+package org.basex.core.metrics;
+
+import java.util.*;
+
+import javax.management.*;
+
+/**
+ * JMX bean for accessing the current metrics. Each metric value is exposed as read-only attribute.
+ *
+ * @author BaseX Team 2005-24, BSD License
+ * @author Christian Gruen
+ */
+final class MetricsBean implements DynamicMBean {
+  /** Metrics. */
+  private final Metrics metrics;
+
+  /**
+   * Constructor.
+   * @param metrics metrics
+   */
+  MetricsBean(final Metrics metrics) {
+    this.metrics = metrics;
+  }
+
+  @Override
+  public Object getAttribute(final String attribute) throws AttributeNotFoundException {
+    final Object value = metrics.values().get(attribute);
+    if(value == null) throw new AttributeNotFoundException(attribute);
+    return value;
+  }
+
+  @Override
+  public AttributeList getAttributes(final String[] attributes) {
+    final Map<String, Object> values = metrics.values();
+    final AttributeList list = new AttributeList();
+    for(final String attribute : attributes) {
+      final Object value = values.get(attribute);
+      if(value != null) list.add(new Attribute(attribute, value));
+    }
+    return list;
+  }
+
+  @Override
+  public void setAttribute(final Attribute attribute) throws AttributeNotFoundException {
+    throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+  }
+
+  @Override
+  public AttributeList setAttributes(final AttributeList attributes) {
+    return new AttributeList();
+  }
+
+  @Override
+  public Object invoke(final String action, final Object[] params, final String[] signature)
+      throws ReflectionException {
+    throw new ReflectionException(new NoSuchMethodException(action));
+  }
+
+  @Override
+  public MBeanInfo getMBeanInfo() {
+    final ArrayList<MBeanAttributeInfo> attributes = new ArrayList<>();
+    metrics.values().forEach((name, value) -> attributes.add(new MBeanAttributeInfo(name,
+        value.getClass().getName(), name, true, false, false)));
+    return new MBeanInfo(getClass().getName(), "BaseX metrics",
+        attributes.toArray(MBeanAttributeInfo[]::new), null, null, null);
+  }
+}
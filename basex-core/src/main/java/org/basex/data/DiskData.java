@@ -17,6 +17,7 @@ import org.basex.index.value.*;
 import org.basex.io.*;
 import org.basex.io.in.DataInput;
 import org.basex.io.out.DataOutput;
+import org.basex.io.out.*;
 import org.basex.io.random.*;
 import org.basex.util.*;
 
@@ -47,6 +48,10 @@ import org.basex.util.*;
  *   - NOT COMPRESSED: return external text unchanged
  * </pre>
  *
+ * If the {@link MainOptions#JOURNAL} option is enabled, updates are logged in a {@link Journal}.
+ * The changes are written to the database files when the journal exceeds a certain size, or when
+ * the database is closed.
+ *
  * @author BaseX Team 2005-24, BSD License
  * @author Christian Gruen
  * @author Tim Petrowsky
@@ -56,6 +61,8 @@ public final class DiskData extends Data {
   private DataAccess texts;
   /** Values access file. */
   private DataAccess values;
+  /** Journal ({@code null} if updates are not logged). */
+  private Journal journal;
 
   /**
    * Default constructor, called from {@link Open#open}.
@@ -65,6 +72,8 @@ public final class DiskData extends Data {
   public DiskData(final MetaData meta) throws IOException {
     super(meta);
 
+    // restore last committed state if the database has not been closed properly
+    final boolean recovered = Journal.recover(meta);
     try(DataInput in = new DataInput(meta.dbFile(DATAINF))) {
       meta.read(in);
       while(true) {
@@ -83,7 +92,7 @@ public final class DiskData extends Data {
     // open data and indexes
     init();
     if(meta.updindex) {
-      idmap = new IdPreMap(meta.dbFile(DATAIDP));
+      idmap = new IdPreMap(meta.dbFile(DATAIDP), this);
       if(meta.textindex) textIndex = new UpdatableDiskValues(this, IndexType.TEXT);
       if(meta.attrindex) attrIndex = new UpdatableDiskValues(this, IndexType.ATTRIBUTE);
       if(meta.tokenindex) tokenIndex = new UpdatableDiskValues(this, IndexType.TOKEN);
@@ -93,6 +102,18 @@ public final class DiskData extends Data {
       if(meta.tokenindex) tokenIndex = new DiskValues(this, IndexType.TOKEN);
     }
     if(meta.ftindex) ftIndex = new FTIndex(this);
+
+    if(recovered) {
+      // updatable indexes may not reflect the restored state
+      if(meta.updindex) {
+        for(final IndexType type : new IndexType[] { IndexType.TEXT, IndexType.ATTRIBUTE,
+            IndexType.TOKEN }) {
+          if(index(type) != null) createIndex(type, null);
+        }
+      }
+      flush(true);
+      if(!meta.dbFile(DATAJRN).delete()) throw new IOException("Journal could not be deleted.");
+    }
   }
 
   /**
@@ -123,8 +144,18 @@ public final class DiskData extends Data {
    */
   private void init() throws IOException {
     table = new TableDiskAccess(meta, false);
-    texts = new DataAccess(meta.dbFile(DATATXT));
-    values = new DataAccess(meta.dbFile(DATAATV));
+    texts = access(DATATXT);
+    values = access(DATAATV);
+  }
+
+  /**
+   * Opens a heap file with texts or attribute values.
+   * @param file file name
+   * @return data access
+   * @throws IOException I/O exception
+   */
+  private DataAccess access(final String file) throws IOException {
+    return new DataAccess(meta.dbFile(file), meta.compress ? meta.dbFile(file + 'z') : null);
   }
 
   /**
@@ -135,29 +166,42 @@ public final class DiskData extends Data {
     if(!meta.dirty) return;
 
     try(DataOutput out = new DataOutput(meta.dbFile(DATAINF))) {
-      meta.write(out);
-      out.writeToken(token(DBTAGS));
-      elemNames.write(out);
-      out.writeToken(token(DBATTS));
-      attrNames.write(out);
-      out.writeToken(token(DBPATH));
-      paths.write(out);
-      out.writeToken(token(DBNS));
-      nspaces.write(out);
-      out.writeToken(token(DBDOCS));
-      resources.write(out);
-      out.write(0);
+      write(out);
     }
     // file may be missing if flag was just enabled
     if(meta.updindex && idmap != null) idmap.write(meta.dbFile(DATAIDP));
     meta.dirty = false;
   }
 
+  /**
+   * Writes all meta data to the specified output.
+   * @param out output stream
+   * @throws IOException I/O exception
+   */
+  private void write(final DataOutput out) throws IOException {
+    meta.write(out);
+    out.writeToken(token(DBTAGS));
+    elemNames.write(out);
+    out.writeToken(token(DBATTS));
+    attrNames.write(out);
+    out.writeToken(token(DBPATH));
+    paths.write(out);
+    out.writeToken(token(DBNS));
+    nspaces.write(out);
+    out.writeToken(token(DBDOCS));
+    resources.write(out);
+    out.write(0);
+  }
+
   @Override
   public synchronized void close() {
     if(closed) return;
     super.close();
     try {
+      if(journal != null) {
+        checkpoint();
+        journal(false);
+      }
       write();
       table.close();
       texts.close();
@@ -198,7 +242,8 @@ public final class DiskData extends Data {
       if(cmd != null) cmd.pushJob(ib);
       set(type, ib.build());
     } finally {
-      if(cmd != null) cmd.popJob();
+      // indexes may be built in parallel
+      if(cmd != null) cmd.popJob(ib);
     }
   }
 
@@ -228,7 +273,17 @@ public final class DiskData extends Data {
   @Override
   public void startUpdate(final MainOptions opts) throws BaseXException {
     if(!table.lock(true)) throw new BaseXException(DB_PINNED_X, meta.name);
-    if(opts.get(MainOptions.AUTOFLUSH)) {
+    final boolean jrn = opts.get(MainOptions.JOURNAL);
+    if(jrn != (journal != null)) {
+      try {
+        if(!jrn) checkpoint();
+        journal(jrn);
+      } catch(final IOException ex) {
+        table.lock(false);
+        throw new BaseXException(ex);
+      }
+    }
+    if(!jrn && opts.get(MainOptions.AUTOFLUSH)) {
       final IOFile upd = meta.updateFile();
       if(upd.exists()) throw new BaseXException(DB_UPDATED_X, meta.name);
       if(!upd.touch()) throw Util.notExpected("%: could not create lock file.", meta.name);
@@ -240,18 +295,81 @@ public final class DiskData extends Data {
     // OPTIMIZE ALL will close the database before this function is called
     if(closed) return;
 
-    // remove updating file
-    final boolean auto = opts.get(MainOptions.AUTOFLUSH);
-    if(auto) {
-      final IOFile upd = meta.updateFile();
-      if(!upd.exists()) throw Util.notExpected("%: lock file does not exist.", meta.name);
-      if(!upd.delete()) throw Util.notExpected("%: could not delete lock file.", meta.name);
+    if(journal != null) {
+      // log changes; write them to the database files if the journal gets too large
+      try {
+        commit();
+        if(journal.full()) checkpoint();
+      } catch(final IOException ex) {
+        throw Util.notExpected(ex);
+      }
+    } else {
+      // remove updating file
+      final boolean auto = opts.get(MainOptions.AUTOFLUSH);
+      if(auto) {
+        final IOFile upd = meta.updateFile();
+        if(!upd.exists()) throw Util.notExpected("%: lock file does not exist.", meta.name);
+        if(!upd.delete()) throw Util.notExpected("%: could not delete lock file.", meta.name);
+      }
+      flush(auto);
     }
-
-    flush(auto);
     if(!table.lock(false)) throw Util.notExpected("Database '%': could not unlock.", meta.name);
   }
 
+  /**
+   * Logs a commit in the journal.
+   * @throws IOException I/O exception
+   */
+  private void commit() throws IOException {
+    final byte[] index = ((TableDiskAccess) table).commit();
+    final long txt = texts.commit(), atv = values.commit();
+    final ArrayOutput info = new ArrayOutput(), ids = new ArrayOutput();
+    try(DataOutput out = new DataOutput(info)) {
+      write(out);
+    }
+    if(meta.updindex && idmap != null) {
+      try(DataOutput out = new DataOutput(ids)) {
+        idmap.write(out);
+      }
+    }
+    journal.commit(info.finish(), index, ids.finish(), txt, atv);
+  }
+
+  /**
+   * Writes all changes to the database files and clears the journal.
+   * @throws IOException I/O exception
+   */
+  private void checkpoint() throws IOException {
+    if(journal == null) return;
+    flush(true);
+    ((TableDiskAccess) table).force();
+    texts.force();
+    values.force();
+    for(final String file : new String[] { DATAINF, DATATBL + 'i', DATAIDP, DATATBL + 'z',
+        DATATXT + 'z', DATAATV + 'z' }) {
+      Journal.force(meta.dbFile(file));
+    }
+    journal.clear();
+  }
+
+  /**
+   * Creates or removes the journal.
+   * @param jrn create or remove journal
+   * @throws IOException I/O exception
+   */
+  private void journal(final boolean jrn) throws IOException {
+    if(jrn) {
+      journal = new Journal(meta);
+    } else {
+      journal.close();
+      if(!meta.dbFile(DATAJRN).delete()) throw new IOException("Journal could not be deleted.");
+      journal = null;
+    }
+    ((TableDiskAccess) table).journal(journal);
+    texts.journal(journal, Journal.TEXTS);
+    values.journal(journal, Journal.VALUES);
+  }
+
   @Override
   public synchronized void flush(final boolean all) {
     try {
@@ -22,19 +22,24 @@ import org.basex.util.hash.*;
  * @author Christian Gruen
  */
 public final class MemData extends Data {
-  /** Texts. */
+  /** Texts ({@code null} if texts are stored off-heap). */
   private final TokenSet texts;
-  /** Attribute Values. */
+  /** Attribute Values ({@code null} if values are stored off-heap). */
   private final TokenSet values;
+  /** Texts and attribute values stored off-heap ({@code null} if they are stored on-heap). */
+  private final DirectTokenSet[] direct;
 
   /**
-   * Constructor.
+   * Constructor for building a new database.
+   * The table and the texts are stored off-heap if {@link MainOptions#MAINMEM} and
+   * {@link MainOptions#OFFHEAP} are enabled.
    * @param paths path index
    * @param nspaces namespaces
    * @param options main options
    */
   public MemData(final PathIndex paths, final Namespaces nspaces, final MainOptions options) {
-    this(null, null, paths, nspaces, null, null, options);
+    this(null, null, paths, nspaces, null, null, options,
+        options.get(MainOptions.MAINMEM) && options.get(MainOptions.OFFHEAP));
   }
 
   /**
@@ -42,7 +47,7 @@ public final class MemData extends Data {
    * @param options main options
    */
   public MemData(final MainOptions options) {
-    this(null, null, options);
+    this(null, null, null, null, null, null, options, false);
   }
 
   /**
@@ -54,16 +59,18 @@ public final class MemData extends Data {
    * @param texts texts
    * @param values values
    * @param options main options
+   * @param offheap store table and texts off-heap
    */
   private MemData(final Names elemNames, final Names attrNames, final PathIndex paths,
       final Namespaces nspaces, final TokenSet texts, final TokenSet values,
-      final MainOptions options) {
+      final MainOptions options, final boolean offheap) {
 
     super(new MetaData(options));
-    table = new TableMemAccess(meta);
+    table = new TableMemAccess(meta, offheap);
     if(meta.updindex) idmap = new IdPreMap(meta.lastid);
-    this.texts = texts == null ? new TokenSet() : texts;
-    this.values = values == null ? new TokenSet() : values;
+    direct = offheap ? new DirectTokenSet[] { new DirectTokenSet(), new DirectTokenSet() } : null;
+    this.texts = offheap ? null : texts == null ? new TokenSet() : texts;
+    this.values = offheap ? null : values == null ? new TokenSet() : values;
     this.elemNames = elemNames == null ? new Names(meta) : elemNames;
     this.attrNames = attrNames == null ? new Names(meta) : attrNames;
     this.paths = paths == null ? new PathIndex(this) : paths;
@@ -128,7 +135,8 @@ public final class MemData extends Data {
 
   @Override
   public byte[] text(final int pre, final boolean text) {
-    return (text ? texts : values).key((int) textRef(pre));
+    final int id = (int) textRef(pre);
+    return direct != null ? direct[text ? 0 : 1].key(id) : (text ? texts : values).key(id);
   }
 
   @Override
@@ -143,7 +151,8 @@ public final class MemData extends Data {
 
   @Override
   public int textLen(final int pre, final boolean text) {
-    return text(pre, text).length;
+    return direct != null ? direct[text ? 0 : 1].length((int) textRef(pre)) :
+      text(pre, text).length;
   }
 
   @Override
@@ -154,12 +163,21 @@ public final class MemData extends Data {
   /**
    * Returns the string values of the database.
    * @param text text/attribute flag
-   * @return set
+   * @return set, or {@code null} if the values are stored off-heap
    */
   public TokenSet values(final boolean text) {
     return text ? texts : values;
   }
 
+  /**
+   * Returns the string values of the database that are stored off-heap.
+   * @param text text/attribute flag
+   * @return set, or {@code null} if the values are stored on-heap
+   */
+  public DirectTokenSet direct(final boolean text) {
+    return direct != null ? direct[text ? 0 : 1] : null;
+  }
+
   // UPDATE OPERATIONS ============================================================================
 
   @Override
@@ -174,6 +192,6 @@ public final class MemData extends Data {
 
   @Override
   protected long textRef(final byte[] value, final boolean text) {
-    return (text ? texts : values).put(value);
+    return direct != null ? direct[text ? 0 : 1].put(value) : (text ? texts : values).put(value);
   }
 }
@@ -50,6 +50,8 @@ public final class MetaData {
   public boolean updindex;
   /** Flag for automatic index updating. */
   public boolean autooptimize;
+  /** Flag for compressed storage of the table and the texts (assigned by the builder). */
+  public boolean compress;
 
   /** Indicates if the text index is to be recreated. */
   public boolean createtext;
@@ -407,6 +409,7 @@ public final class MetaData {
         case DBFTDC:     diacritics = toBoolean(v); break;
         case DBUPDIDX:   updindex = toBoolean(v); break;
         case DBAUTOOPT:  autooptimize = toBoolean(v); break;
+        case DBCOMPRESS: compress = toBoolean(v); break;
         case DBTXTIDX:   textindex = toBoolean(v); break;
         case DBATVIDX:   attrindex = toBoolean(v); break;
         case DBTOKIDX:   tokenindex = toBoolean(v); break;
@@ -450,6 +453,7 @@ public final class MetaData {
     writeInfo(out, DBSIZE,     size);
     writeInfo(out, DBUPDIDX,   updindex);
     writeInfo(out, DBAUTOOPT,  autooptimize);
+    writeInfo(out, DBCOMPRESS, compress);
     writeInfo(out, DBTXTIDX,   textindex);
     writeInfo(out, DBATVIDX,   attrindex);
     writeInfo(out, DBTOKIDX,   tokenindex);
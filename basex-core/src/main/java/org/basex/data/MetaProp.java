@@ -151,6 +151,11 @@ public enum MetaProp {
     public Boolean value(final MetaData meta) { return meta.autooptimize; }
   },
   /** Property. */
+  COMPRESS(true) {
+    @Override
+    public Boolean value(final MetaData meta) { return meta.compress; }
+  },
+  /** Property. */
   MAXCATS(true) {
     @Override
     public Integer value(final MetaData meta) { return meta.maxcats; }
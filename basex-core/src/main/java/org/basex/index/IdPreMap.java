@@ -3,6 +3,7 @@ package org.basex.index;
 import java.io.*;
 import java.util.*;
 
+import org.basex.data.*;
 import org.basex.io.*;
 import org.basex.io.in.DataInput;
 import org.basex.io.out.DataOutput;
@@ -12,56 +13,96 @@ import org.basex.util.list.*;
 /**
  * Updatable ID-PRE mapping.
  *
+ * The records of a database are represented as a sequence of ranges with consecutive IDs.
+ * The ranges are stored in two treaps, which share their nodes:
+ * <ul>
+ *   <li> The PRE tree is ordered by the position of the ranges. Each node stores the number
+ *        of records in its subtree, and the PRE value of a range is computed by walking up to
+ *        the root.</li>
+ *   <li> The ID tree is ordered by the first IDs of the ranges.</li>
+ * </ul>
+ * Lookups and updates take logarithmic time in the number of ranges. All nodes are stored in
+ * primitive arrays.
+ *
  * @author BaseX Team 2005-24, BSD License
  * @author Dimitar Popov
  */
 public class IdPreMap {
-  /** Invalid id-value. */
-  private static final int INV = -1;
-  /** Base ID value. */
-  private int baseid;
-  /** PRE values of the inserted/deleted IDs. */
-  private int[] pres;
-  /** Inserted first ID values. */
-  private int[] fids;
-  /** Inserted last ID values. */
-  private int[] nids;
-  /** Increments showing how the PRE values have been modified. */
-  private int[] incs;
-  /** ID values for the PRE, before inserting/deleting a record. */
-  private int[] oids;
+  /** Marker of the file format (maps of older versions start with the last ID, or -1). */
+  private static final int FORMAT = Integer.MIN_VALUE;
 
-  /** Number of records in the table. */
-  private int rows;
+  /** First IDs of the ranges. */
+  private int[] fids;
+  /** Number of records of the ranges. */
+  private int[] counts;
+  /** Number of records in the subtrees of the PRE tree. */
+  private int[] sizes;
+  /** Left children in the PRE tree. */
+  private int[] lefts;
+  /** Right children in the PRE tree. */
+  private int[] rights;
+  /** Parents in the PRE tree. */
+  private int[] parents;
+  /** Left children in the ID tree. */
+  private int[] idlefts;
+  /** Right children in the ID tree. */
+  private int[] idrights;
+  /** Priorities of the nodes. */
+  private int[] prios;
+
+  /** Root of the PRE tree ({@code 0}: empty). */
+  private int root;
+  /** Root of the ID tree ({@code 0}: empty). */
+  private int idroot;
+  /** Number of ranges. */
+  private int ranges;
+  /** Number of allocated nodes (node {@code 0} is a sentinel). */
+  private int nodes = 1;
+  /** First free node ({@code 0}: none). Free nodes are chained via their left children. */
+  private int free;
+  /** Seed for generating priorities. */
+  private int seed = 0x2545F491;
 
   /**
    * Constructor.
    * @param id last inserted ID
    */
   public IdPreMap(final int id) {
-    baseid = id;
-    pres = new int[1];
-    fids = new int[1];
-    nids = new int[1];
-    incs = new int[1];
-    oids = new int[1];
+    init(Array.INITIAL_CAPACITY);
+    finish(id);
   }
 
   /**
    * Constructs a map by reading it from a file.
-   * @param f file to read from
+   * Maps written by previous versions are rebuilt from the IDs of the database table.
+   * @param file file to read from
+   * @param data data reference
    * @throws IOException I/O error while reading from the file
    */
-  public IdPreMap(final IOFile f) throws IOException {
-    try(DataInput in = new DataInput(f)) {
-      baseid = in.readNum();
-      rows = in.readNum();
-      pres = in.readNums();
-      fids = in.readNums();
-      nids = in.readNums();
-      incs = in.readNums();
-      oids = in.readNums();
+  public IdPreMap(final IOFile file, final Data data) throws IOException {
+    final IntList list = new IntList();
+    final boolean legacy;
+    try(DataInput in = new DataInput(file)) {
+      legacy = in.readNum() != FORMAT;
+      if(!legacy) {
+        final int rs = in.readNum();
+        for(int r = 0; r < rs; r++) list.add(in.readNum()).add(in.readNum());
+      }
     }
+    if(legacy) {
+      final int size = data.meta.size;
+      for(int pre = 0; pre < size; pre++) {
+        final int id = data.id(pre), ls = list.size();
+        if(ls != 0 && list.get(ls - 2) + list.get(ls - 1) == id) {
+          list.set(ls - 1, list.get(ls - 1) + 1);
+        } else {
+          list.add(id).add(1);
+        }
+      }
+    }
+    final int ls = list.size();
+    init(Math.max(Array.INITIAL_CAPACITY, (ls >> 1) + 1));
+    for(int l = 0; l < ls; l += 2) append(list.get(l), list.get(l + 1));
   }
 
   /**
@@ -71,13 +112,21 @@ public class IdPreMap {
    */
   public final void write(final IOFile file) throws IOException {
     try(DataOutput out = new DataOutput(file)) {
-      out.writeNum(baseid);
-      out.writeNum(rows);
-      out.writeNums(pres);
-      out.writeNums(fids);
-      out.writeNums(nids);
-      out.writeNums(incs);
-      out.writeNums(oids);
+      write(out);
+    }
+  }
+
+  /**
+   * Write the map to the specified output.
+   * @param out output stream
+   * @throws IOException I/O error while writing to the stream
+   */
+  public final void write(final DataOutput out) throws IOException {
+    out.writeNum(FORMAT);
+    out.writeNum(ranges);
+    for(final int n : ranges()) {
+      out.writeNum(fids[n]);
+      out.writeNum(counts[n]);
     }
   }
 
@@ -86,7 +135,12 @@ public class IdPreMap {
    * @param base last id
    */
   public final void finish(final int base) {
-    baseid = base;
+    root = 0;
+    idroot = 0;
+    ranges = 0;
+    nodes = 1;
+    free = 0;
+    if(base >= 0) append(0, base + 1);
   }
 
   /**
@@ -95,20 +149,31 @@ public class IdPreMap {
    * @return PRE or -1 if the ID is already deleted
    */
   public int pre(final int id) {
-    // no updates or id is not affected by updates
-    if(rows == 0 || id < pres[0]) return id;
-
-    if(id > baseid) {
-      // id was inserted by update
-      for(int i = 0; i < rows; ++i) {
-        if(fids[i] <= id && id <= nids[i]) return pres[i] + id - fids[i];
+    // single range (no updates, or only appended records): compute PRE value directly
+    if(ranges == 1) {
+      final int p = id - fids[root];
+      return p >= 0 && p < counts[root] ? p : -1;
+    }
+    // find range with the largest first ID that is not greater than the specified ID
+    int r = 0;
+    for(int n = idroot; n != 0;) {
+      if(fids[n] <= id) {
+        r = n;
+        n = idrights[n];
+      } else {
+        n = idlefts[n];
       }
-    } else {
-      // id is affected by updates
-      final int i = sortedLastIndexOf(oids, id);
-      return id + incs[i < 0 ? -i - 2 : i];
     }
-    return -1;
+    if(r == 0 || id - fids[r] >= counts[r]) return -1;
+
+    // sum up the sizes of all preceding ranges
+    int pre = sizes[lefts[r]] + id - fids[r];
+    for(int n = r; n != root;) {
+      final int p = parents[n];
+      if(rights[p] == n) pre += sizes[lefts[p]] + counts[p];
+      n = p;
+    }
+    return pre;
   }
 
   /**
@@ -118,54 +183,32 @@ public class IdPreMap {
    * @param c number of inserted records
    */
   public void insert(final int pre, final int id, final int c) {
-    if(rows == 0 && pre == id && id == baseid + 1) {
-      // no mapping, and we append at the end => nothing to do
-      baseid += c;
-      return;
-    }
-
-    int pos = 0;
-    int inc = c;
-    int oid = pre;
-
-    if(rows > 0) {
-      pos = Arrays.binarySearch(pres, 0, rows, pre);
-      if(pos < 0) {
-        pos = -pos - 1;
-        if(pos != 0) {
-          // check if inserting into an existing id interval
-          final int prev = pos - 1;
-          final int prevcnt = nids[prev] - fids[prev] + 1;
-          final int prevpre = pres[prev];
-
-          if(pre < prevpre + prevcnt) {
-            // split the id interval
-            final int split = pre - prevpre;
-            final int fid = fids[prev] + split;
-
-            // add a new next interval
-            add(pos, pre, fid, nids[prev], incs[prev], oids[prev]);
-
-            // shrink the previous interval
-            nids[prev] = fid - 1;
-            incs[prev] -= prevcnt - split;
-
-            oid = oids[prev];
-          } else {
-            oid = pre - incs[prev];
+    if(pre > 0) {
+      // find range of the preceding record; extend it if the IDs are consecutive
+      int n = root, p = pre - 1;
+      while(n != 0) {
+        final int ls = sizes[lefts[n]];
+        if(p < ls) {
+          n = lefts[n];
+        } else if(p - ls < counts[n]) {
+          if(p - ls == counts[n] - 1 && fids[n] + counts[n] == id) {
+            counts[n] += c;
+            for(; n != root; n = parents[n]) sizes[n] += c;
+            sizes[root] += c;
+            return;
           }
-          inc += incs[prev];
+          break;
+        } else {
+          p -= ls + counts[n];
+          n = rights[n];
         }
-      } else if(pos > 0) {
-        oid = oids[pos];
-        inc += incs[pos - 1];
       }
-
-      increment(pos, c);
     }
 
-    // add the new interval
-    add(pos, pre, id, id + c - 1, inc, oid);
+    final long split = split(root, pre);
+    final int n = node(id, c);
+    idroot = idInsert(idroot, n);
+    root = merge(merge(left(split), n), right(split));
   }
 
   /**
@@ -175,213 +218,292 @@ public class IdPreMap {
    * @param c number of deleted records (negative)
    */
   public void delete(final int pre, final int id, final int c) {
-    if(rows == 0 && pre == id && id - c == baseid + 1) {
-      // no mapping, and we delete at the end => nothing to do
-      baseid += c;
-      return;
+    final long split1 = split(root, pre), split2 = split(right(split1), -c);
+    root = merge(left(split1), right(split2));
+
+    // release the nodes of the deleted ranges
+    final IntList stack = new IntList();
+    for(int n = left(split2); n != 0 || !stack.isEmpty();) {
+      if(n == 0) n = stack.pop();
+      if(rights[n] != 0) stack.push(rights[n]);
+      final int l = lefts[n];
+      idroot = idDelete(idroot, fids[n]);
+      lefts[n] = free;
+      free = n;
+      ranges--;
+      n = l;
     }
+  }
 
-    if(rows == 0) {
-      // no previous updates: add a new record
-      add(0, pre, INV, INV, c, id);
-      return;
-    }
+  /**
+   * Returns the size of the map.
+   * @return number of stored ranges
+   */
+  public int size() {
+    return ranges;
+  }
 
-    final int end = pre - c - 1;
-    final int startIndex = findPre(pre);
+  /**
+   * Allocates the node arrays.
+   * @param capacity initial capacity
+   */
+  private void init(final int capacity) {
+    fids = new int[capacity];
+    counts = new int[capacity];
+    sizes = new int[capacity];
+    lefts = new int[capacity];
+    rights = new int[capacity];
+    parents = new int[capacity];
+    idlefts = new int[capacity];
+    idrights = new int[capacity];
+    prios = new int[capacity];
+  }
 
-    // remove all updates which has affected records which now have to be deleted
-    final int removeStart = startIndex < rows && pres[startIndex] < pre ?
-      startIndex + 1 : startIndex;
-    int removeEnd = -1;
-    for(int i = startIndex; i < rows; ++i) {
-      if(end < pres[i] + nids[i] - fids[i]) break;
-      removeEnd = i;
-    }
+  /**
+   * Appends a range to the end of the map.
+   * @param fid first ID
+   * @param count number of records
+   */
+  private void append(final int fid, final int count) {
+    final int n = node(fid, count);
+    idroot = idInsert(idroot, n);
+    root = merge(root, n);
+  }
 
-    final int inc;
-    final int oid;
-    int endIndex;
-    if(removeEnd >= 0) {
-      inc = incs[removeEnd];
-      oid = oids[removeEnd];
-      endIndex = removeStart;
-      remove(removeStart, removeEnd);
+  /**
+   * Creates a new node.
+   * @param fid first ID
+   * @param count number of records
+   * @return node
+   */
+  private int node(final int fid, final int count) {
+    final int n;
+    if(free != 0) {
+      n = free;
+      free = lefts[n];
     } else {
-      inc = startIndex > 0 ? incs[startIndex - 1] : 0;
-      oid = id;
-      endIndex = startIndex;
-    }
-
-    if(rows <= startIndex) {
-      // the delete does not affect previous updates
-      add(startIndex, pre, INV, INV, inc + c, oid);
-      return;
-    }
-
-    final int min = pres[startIndex];
-    if(startIndex < endIndex) {
-      if(endIndex < rows && pres[endIndex] <= end) {
-        shrinkFromStart(endIndex, pre, c);
-      } else {
-        --endIndex;     // endIndex is not processed, so we let the increment do that
+      if(nodes == fids.length) {
+        final int s = Array.newCapacity(nodes);
+        fids = Arrays.copyOf(fids, s);
+        counts = Arrays.copyOf(counts, s);
+        sizes = Arrays.copyOf(sizes, s);
+        lefts = Arrays.copyOf(lefts, s);
+        rights = Arrays.copyOf(rights, s);
+        parents = Arrays.copyOf(parents, s);
+        idlefts = Arrays.copyOf(idlefts, s);
+        idrights = Arrays.copyOf(idrights, s);
+        prios = Arrays.copyOf(prios, s);
       }
-      shrinkFromEnd(startIndex, pre, inc + c);
-    } else if(min < pre) {
-      add(++endIndex, pres[startIndex], fids[startIndex], nids[startIndex],
-          incs[startIndex], oids[startIndex]);
-      shrinkFromStart(endIndex, pre, c);
-      shrinkFromEnd(startIndex, pre, inc + c);
-    } else if(end < min) {
-      add(endIndex, pre, INV, INV, inc + c, oid);
-    } else {
-      shrinkFromStart(startIndex, pre, c);
+      n = nodes++;
     }
+    // xorshift generator
+    int s = seed;
+    s ^= s << 13;
+    s ^= s >>> 17;
+    s ^= s << 5;
+    seed = s;
+
+    fids[n] = fid;
+    counts[n] = count;
+    sizes[n] = count;
+    lefts[n] = 0;
+    rights[n] = 0;
+    parents[n] = 0;
+    idlefts[n] = 0;
+    idrights[n] = 0;
+    prios[n] = s;
+    ranges++;
+    return n;
+  }
 
-    increment(endIndex + 1, c);
+  /**
+   * Updates the size of a node and the parent references of its children.
+   * @param n node
+   */
+  private void update(final int n) {
+    final int l = lefts[n], r = rights[n];
+    sizes[n] = sizes[l] + sizes[r] + counts[n];
+    parents[l] = n;
+    parents[r] = n;
   }
 
   /**
-   * Shrinks the given tuple from the start.
-   * @param i index of the tuple
-   * @param pre pre-value
-   * @param c number of deleted records (negative number)
+   * Splits a PRE tree before the specified position.
+   * If the position is located inside a range, the range is split.
+   * @param n root node
+   * @param pre position
+   * @return roots of the left and right trees (see {@link #left} and {@link #right})
    */
-  private void shrinkFromStart(final int i, final int pre, final int c) {
-    incs[i] += c;
-    fids[i] += pre - c - pres[i];
-    pres[i] = pre;
+  private long split(final int n, final int pre) {
+    if(n == 0) return 0;
+    final int l = lefts[n], ls = sizes[l], c = counts[n];
+    if(pre <= ls) {
+      final long split = split(l, pre);
+      lefts[n] = right(split);
+      update(n);
+      return pair(left(split), n);
+    }
+    if(pre >= ls + c) {
+      final long split = split(rights[n], pre - ls - c);
+      rights[n] = left(split);
+      update(n);
+      return pair(n, right(split));
+    }
+    // split range: move trailing records to a new node
+    final int off = pre - ls, tail = node(fids[n] + off, c - off), r = rights[n];
+    idroot = idInsert(idroot, tail);
+    counts[n] = off;
+    rights[n] = 0;
+    update(n);
+    return pair(n, merge(tail, r));
   }
 
   /**
-   * Shrinks the given tuple from the end.
-   * @param i index of the tuple
-   * @param pre pre-value
-   * @param inc new inc-value
+   * Merges two PRE trees.
+   * @param l root of the left tree
+   * @param r root of the right tree
+   * @return new root
    */
-  private void shrinkFromEnd(final int i, final int pre, final int inc) {
-    nids[i] = fids[i] + pre - pres[i] - 1;
-    incs[i] = inc;
+  private int merge(final int l, final int r) {
+    if(l == 0) return r;
+    if(r == 0) return l;
+    if(prios[l] > prios[r]) {
+      rights[l] = merge(rights[l], r);
+      update(l);
+      return l;
+    }
+    lefts[r] = merge(l, lefts[r]);
+    update(r);
+    return r;
   }
 
   /**
-   * Increments the pre- and inc-values of all tuples starting from the given index.
-   * @param from start index
-   * @param with increment value
+   * Inserts a node into an ID tree.
+   * @param n root node
+   * @param node node to be inserted
+   * @return new root
    */
-  private void increment(final int from, final int with) {
-    for(int i = from; i < rows; ++i) {
-      pres[i] += with;
-      incs[i] += with;
+  private int idInsert(final int n, final int node) {
+    if(n == 0) return node;
+    if(prios[node] > prios[n]) {
+      final long split = idSplit(n, fids[node]);
+      idlefts[node] = left(split);
+      idrights[node] = right(split);
+      return node;
     }
+    if(fids[node] < fids[n]) idlefts[n] = idInsert(idlefts[n], node);
+    else idrights[n] = idInsert(idrights[n], node);
+    return n;
   }
 
   /**
-   * Returns the size of the map.
-   * @return number of stored tuples
+   * Deletes a node from an ID tree.
+   * @param n root node
+   * @param fid first ID of the node to be deleted
+   * @return new root
    */
-  public int size() {
-    return rows;
+  private int idDelete(final int n, final int fid) {
+    if(n == 0) return 0;
+    if(fids[n] == fid) return idMerge(idlefts[n], idrights[n]);
+    if(fid < fids[n]) idlefts[n] = idDelete(idlefts[n], fid);
+    else idrights[n] = idDelete(idrights[n], fid);
+    return n;
   }
 
   /**
-   * Searches for a given pre value.
-   * @param pre pre value
-   * @return index of the record where the pre is found, or the insertion point if not found
+   * Splits an ID tree.
+   * @param n root node
+   * @param fid first ID of the right tree
+   * @return roots of the left and right trees (see {@link #left} and {@link #right})
    */
-  private int findPre(final int pre) {
-    int low = 0;
-    int high = rows - 1;
-    while(low <= high) {
-      final int mid = low + high >>> 1;
-      final int midValMin = pres[mid];
-      final int midValMax = midValMin + nids[mid] - fids[mid];
-      if(midValMax < pre) low = mid + 1;
-      else if(midValMin > pre) high = mid - 1;
-      else return mid; // key found
+  private long idSplit(final int n, final int fid) {
+    if(n == 0) return 0;
+    if(fids[n] < fid) {
+      final long split = idSplit(idrights[n], fid);
+      idrights[n] = left(split);
+      return pair(n, right(split));
     }
-    return low; // key not found.
+    final long split = idSplit(idlefts[n], fid);
+    idlefts[n] = right(split);
+    return pair(left(split), n);
   }
 
   /**
-   * Binary search of a key in a list. If there are several hits the last one is returned.
-   * @param a array to search into
-   * @param e key to search for
-   * @return index of the found hit or where the key ought to be inserted
+   * Merges two ID trees.
+   * @param l root of the left tree
+   * @param r root of the right tree
+   * @return new root
    */
-  private int sortedLastIndexOf(final int[] a, final int e) {
-    int i = Arrays.binarySearch(a, 0, rows, e);
-    if(i >= 0) {
-      while(++i < rows && a[i] == e);
-      return i - 1;
+  private int idMerge(final int l, final int r) {
+    if(l == 0) return r;
+    if(r == 0) return l;
+    if(prios[l] > prios[r]) {
+      idrights[l] = idMerge(idrights[l], r);
+      return l;
     }
-    return i;
+    idlefts[r] = idMerge(l, idlefts[r]);
+    return r;
   }
 
   /**
-   * Adds a record to the table and the ID index.
-   * @param i index in the table where the record should be inserted
-   * @param pre pre value
-   * @param fid first ID value
-   * @param nid last ID value
-   * @param inc increment value
-   * @param oid original ID value
+   * Returns the nodes of all ranges in document order.
+   * @return nodes
    */
-  private void add(final int i, final int pre, final int fid, final int nid,
-      final int inc, final int oid) {
-    if(rows == pres.length) {
-      final int s = Array.newCapacity(rows);
-      pres = Arrays.copyOf(pres, s);
-      fids = Arrays.copyOf(fids, s);
-      nids = Arrays.copyOf(nids, s);
-      incs = Arrays.copyOf(incs, s);
-      oids = Arrays.copyOf(oids, s);
-    }
-    if(i < rows) {
-      final int destPos = i + 1;
-      final int length = rows - i;
-      Array.copy(pres, i, length, pres, destPos);
-      Array.copy(fids, i, length, fids, destPos);
-      Array.copy(nids, i, length, nids, destPos);
-      Array.copy(incs, i, length, incs, destPos);
-      Array.copy(oids, i, length, oids, destPos);
+  private int[] ranges() {
+    final IntList list = new IntList(ranges), stack = new IntList();
+    for(int n = root; n != 0 || !stack.isEmpty();) {
+      if(n != 0) {
+        stack.push(n);
+        n = lefts[n];
+      } else {
+        n = stack.pop();
+        list.add(n);
+        n = rights[n];
+      }
     }
-    pres[i] = pre;
-    fids[i] = fid;
-    nids[i] = nid;
-    incs[i] = inc;
-    oids[i] = oid;
-    ++rows;
+    return list.finish();
   }
 
   /**
-   * Removes a records from the table and the ID index.
-   * @param s start index of records in the table (inclusive)
-   * @param e end index of records in the table (inclusive)
+   * Combines two nodes.
+   * @param left left node
+   * @param right right node
+   * @return combined value
    */
-  private void remove(final int s, final int e) {
-    if(s <= e) {
-      final int last = e + 1;
-      final int length = rows - last;
-      Array.copy(pres, last, length, pres, s);
-      Array.copy(fids, last, length, fids, s);
-      Array.copy(nids, last, length, nids, s);
-      Array.copy(incs, last, length, incs, s);
-      Array.copy(oids, last, length, oids, s);
-      rows -= last - s;
-    }
+  private static long pair(final int left, final int right) {
+    return (long) left << 32 | right & 0xFFFFFFFFL;
+  }
+
+  /**
+   * Returns the left node of a combined value.
+   * @param pair combined value
+   * @return node
+   */
+  private static int left(final long pair) {
+    return (int) (pair >>> 32);
+  }
+
+  /**
+   * Returns the right node of a combined value.
+   * @param pair combined value
+   * @return node
+   */
+  private static int right(final long pair) {
+    return (int) pair;
   }
 
   @Override
   public String toString() {
     final Table t = new Table();
-    t.header.add("PRE").add("FID").add("NID").add("INC").add("OID");
-    for(int i = 0; i < 5; ++i) t.align.add(true);
-    for(int i = 0; i < rows; i++) {
+    t.header.add("PRE").add("FID").add("NID");
+    for(int i = 0; i < 3; ++i) t.align.add(true);
+    int pre = 0;
+    for(final int n : ranges()) {
       final TokenList tl = new TokenList();
-      tl.add(pres[i]).add(fids[i]).add(nids[i]).add(incs[i]).add(oids[i]);
+      tl.add(pre).add(fids[n]).add(fids[n] + counts[n] - 1);
       t.contents.add(tl);
+      pre += counts[n];
     }
-    return t + "\n- BaseID: " + baseid + '\n';
+    return t + "\n- Ranges: " + ranges + '\n';
   }
 }
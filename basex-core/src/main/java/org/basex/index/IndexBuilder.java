@@ -3,12 +3,15 @@ package org.basex.index;
 import static org.basex.core.Text.*;
 
 import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
 
 import org.basex.core.*;
 import org.basex.core.jobs.*;
 import org.basex.data.*;
 import org.basex.index.value.*;
 import org.basex.util.*;
+import org.basex.util.list.*;
 
 /**
  * This interface defines the functions which are needed for building
@@ -18,6 +21,11 @@ import org.basex.util.*;
  * @author Christian Gruen
  */
 public abstract class IndexBuilder extends Job {
+  /** Minimum number of database entries per chunk. */
+  private static final int CHUNK = 1 << 15;
+  /** Threads for indexing chunks of databases. */
+  private static ThreadPoolExecutor pool;
+
   /** Performance. */
   private final Performance perf = new Performance();
 
@@ -38,6 +46,17 @@ public abstract class IndexBuilder extends Job {
   /** Names and namespace uri of element or attributes to include. */
   private final IndexNames includeNames;
 
+  /** Parent builder (only assigned if this builder indexes a chunk of the database). */
+  private IndexBuilder parent;
+  /** Builders of the chunks (only assigned if the database is indexed in parallel). */
+  private IndexBuilder[] chunks;
+  /** Ids of the partial index structures, in document order. */
+  protected final IntList partials = new IntList();
+
+  /** First pre value to be indexed. */
+  protected int start;
+  /** Pre value after the last one to be indexed. */
+  protected int end;
   /** Current pre value. */
   protected int pre;
   /** Total number of index operations (may get pretty large). */
@@ -57,6 +76,7 @@ public abstract class IndexBuilder extends Job {
     this.type = type;
     splitSize = (int) Math.min(Integer.MAX_VALUE, (long) data.meta.splitsize * splitFactor());
     size = data.meta.size;
+    end = size;
     includeNames = new IndexNames(type, data);
     text = type == IndexType.TEXT || type == IndexType.FULLTEXT;
 
@@ -71,6 +91,88 @@ public abstract class IndexBuilder extends Job {
    */
   public abstract ValueIndex build() throws IOException;
 
+  /**
+   * Indexes all entries from {@link #start} to {@link #end}.
+   * If this builder indexes a chunk of the database, all entries must be written to
+   * partial index structures.
+   * @throws IOException I/O Exception
+   */
+  protected abstract void scan() throws IOException;
+
+  /**
+   * Returns a new builder for indexing a chunk of the database.
+   * @return builder, or {@code null} if the index cannot be built in parallel
+   * @throws IOException I/O Exception
+   */
+  @SuppressWarnings("unused")
+  protected IndexBuilder chunk() throws IOException {
+    return null;
+  }
+
+  /**
+   * Indexes all database entries. Large databases are partitioned into chunks, which are indexed
+   * in parallel by separate builders (see {@link Prop#indexthreads}).
+   * @return {@code true} if the database was indexed in parallel. In this case,
+   *   all entries have been written to partial index structures
+   * @throws IOException I/O Exception
+   */
+  protected final boolean index() throws IOException {
+    final int threads = Math.min(threads(), size / CHUNK);
+    final IndexBuilder first = threads > 1 ? chunk() : null;
+    if(first == null) {
+      scan();
+      return false;
+    }
+
+    final IndexBuilder[] builders = new IndexBuilder[threads];
+    final ArrayList<Callable<Void>> tasks = new ArrayList<>(threads);
+    for(int t = 0; t < threads; t++) {
+      final IndexBuilder builder = t == 0 ? first : chunk();
+      builder.parent = this;
+      builder.start = (int) ((long) size * t / threads);
+      builder.end = (int) ((long) size * (t + 1) / threads);
+      builders[t] = builder;
+      tasks.add(() -> {
+        builder.scan();
+        return null;
+      });
+    }
+    chunks = builders;
+    invoke(pool(threads()), tasks);
+
+    for(final IndexBuilder builder : builders) {
+      partials.add(builder.partials.finish());
+      count += builder.count;
+    }
+    pre = size;
+    return true;
+  }
+
+  /**
+   * Assigns an id to a new partial index structure.
+   * @return id
+   */
+  protected final int partial() {
+    final int id;
+    if(parent == null) {
+      id = splits;
+    } else {
+      synchronized(parent) {
+        id = parent.splits++;
+      }
+    }
+    partials.add(id);
+    return id;
+  }
+
+  /**
+   * Indicates if this builder indexes a chunk of the database.
+   * @return result of check
+   */
+  protected final boolean chunked() {
+    return parent != null;
+  }
+
   /**
    * Checks if the command was interrupted, and prints some debug output.
    * @throws IOException I/O Exception
@@ -78,6 +180,7 @@ public abstract class IndexBuilder extends Job {
   @SuppressWarnings("unused")
   protected void check() throws IOException {
     checkStop();
+    if(parent != null) parent.checkStop();
     if(Prop.debug && (pre & 0x1FFFFF) == 0) Util.err(".");
   }
 
@@ -160,7 +263,13 @@ public abstract class IndexBuilder extends Job {
 
   @Override
   public final double progressInfo() {
-    return pre / (size + (splits > 0 ? size / 50.0d : 0.0d));
+    double p = pre;
+    final IndexBuilder[] builders = chunks;
+    if(builders != null && pre < size) {
+      p = 0;
+      for(final IndexBuilder builder : builders) p += builder.pre - builder.start;
+    }
+    return p / (size + (splits > 0 ? size / 50.0d : 0.0d));
   }
 
   @Override
@@ -173,4 +282,66 @@ public abstract class IndexBuilder extends Job {
       default: throw Util.notExpected();
     }
   }
+
+  /**
+   * Returns the number of threads for building index structures.
+   * @return number of threads
+   */
+  public static int threads() {
+    final int threads = Prop.indexthreads;
+    return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * Runs tasks in parallel and waits until all of them are finished.
+   * @param executor executor
+   * @param tasks tasks
+   * @throws IOException I/O exception, or the first exception raised by a task
+   */
+  public static void invoke(final ExecutorService executor, final List<Callable<Void>> tasks)
+      throws IOException {
+    final List<Future<Void>> futures;
+    try {
+      futures = executor.invokeAll(tasks);
+    } catch(final InterruptedException ex) {
+      throw new JobException(INTERRUPTED);
+    }
+    for(final Future<Void> future : futures) {
+      try {
+        future.get();
+      } catch(final InterruptedException ex) {
+        throw new JobException(INTERRUPTED);
+      } catch(final ExecutionException ex) {
+        final Throwable th = ex.getCause();
+        if(th instanceof IOException) throw (IOException) th;
+        if(th instanceof RuntimeException) throw (RuntimeException) th;
+        if(th instanceof Error) throw (Error) th;
+        throw new IOException(th);
+      }
+    }
+  }
+
+  /**
+   * Returns the thread pool for indexing chunks of databases.
+   * @param threads number of threads
+   * @return thread pool
+   */
+  private static synchronized ExecutorService pool(final int threads) {
+    if(pool == null) {
+      pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+          new LinkedBlockingQueue<>(), r -> {
+            final Thread thread = new Thread(r, "IndexBuilder");
+            thread.setDaemon(true);
+            return thread;
+          });
+      pool.allowCoreThreadTimeOut(true);
+    } else if(threads > pool.getMaximumPoolSize()) {
+      pool.setMaximumPoolSize(threads);
+      pool.setCorePoolSize(threads);
+    } else if(threads < pool.getMaximumPoolSize()) {
+      pool.setCorePoolSize(threads);
+      pool.setMaximumPoolSize(threads);
+    }
+    return pool;
+  }
 }
@@ -1,49 +1,62 @@
 package org.basex.index;
 
-import static org.basex.util.Token.*;
-
-import java.lang.ref.*;
-import java.util.concurrent.locks.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
 import org.basex.util.*;
 
 /**
  * This class caches sizes and offsets from index results.
  *
+ * Entries are stored in a concurrent hash map, and lookups are performed without locking.
+ * The maximum number of entries is defined by {@link Prop#indexcache}. If the cache is full,
+ * entries are evicted with the CLOCK algorithm: every hit sets a reference flag, and an entry is
+ * only replaced if it has not been accessed since the clock hand passed it the last time.
+ * Additions and deletions are synchronized.
+ *
  * @author BaseX Team 2005-24, BSD License
  * @author Dimitar Popov
  */
 public final class IndexCache {
-  /** Queue used to collect unused keys. */
-  private final ReferenceQueue<IndexEntry> queue = new ReferenceQueue<>();
-  /** Read-write lock. */
-  private final ReentrantReadWriteLock rwl = new ReentrantReadWriteLock(true);
-  /** Hash table buckets. */
-  private BucketEntry[] buckets = new BucketEntry[Array.INITIAL_CAPACITY];
-  /** Number of entries in the cache. */
+  /** Total number of cache hits. */
+  private static final LongAdder HITS = new LongAdder();
+  /** Total number of cache misses. */
+  private static final LongAdder MISSES = new LongAdder();
+
+  /** Cached entries. */
+  private final ConcurrentHashMap<Key, Slot> map = new ConcurrentHashMap<>();
+  /** Maximum number of entries. */
+  private final int max;
+  /** Clock: keys of the cached entries. */
+  private Key[] clock = new Key[Array.INITIAL_CAPACITY];
+  /** Number of used clock positions. */
   private int size;
+  /** Position of the clock hand. */
+  private int hand;
+
+  /**
+   * Constructor.
+   */
+  public IndexCache() {
+    max = Math.max(0, Prop.indexcache);
+  }
 
   /**
    * Gets cached entry for the specified key.
+   * <p><em>Important:</em> This method is thread-safe.</p>
    * @param key key
-   * @return cached entry or {@code null} if the entry is stale
+   * @return cached entry or {@code null} if the entry is not cached
    */
   public IndexEntry get(final byte[] key) {
-    final int hash = hash(key);
-    rwl.readLock().lock();
-
-    try {
-      final int i = indexFor(hash, buckets.length);
-      BucketEntry e = buckets[i];
-      while(e != null) {
-        final IndexEntry entry = e.get();
-        if(entry != null && e.hash == hash && eq(entry.key, key)) return entry;
-        e = e.next;
-      }
-    } finally {
-      rwl.readLock().unlock();
+    final Slot slot = map.get(new Key(key));
+    if(slot == null) {
+      MISSES.increment();
+      return null;
     }
-    return null;
+    HITS.increment();
+    if(!slot.used) slot.used = true;
+    return slot.entry;
   }
 
   /**
@@ -54,176 +67,131 @@ public final class IndexCache {
    * @param offset offset to id list
    * @return cache entry
    */
-  public IndexEntry add(final byte[] key, final int count, final long offset) {
-    final int hash = hash(key);
-    rwl.writeLock().lock();
-
-    try {
-      purge();
-      final int i = indexFor(hash, buckets.length);
-      BucketEntry current = buckets[i], prev = current;
-      while(current != null) {
-        final BucketEntry next = current.next;
-        final IndexEntry entry = current.get();
-        if(entry == null) {
-          delete(i, current, prev, next);
-        } else if(current.hash == hash && eq(entry.key, key)) {
-          update(entry, count, offset);
-          return entry;
-        }
-        prev = current;
-        current = next;
-      }
-
-      final IndexEntry entry = new IndexEntry(key, count, offset);
-      add(i, hash, entry);
+  public synchronized IndexEntry add(final byte[] key, final int count, final long offset) {
+    final Key k = new Key(key);
+    final Slot slot = map.get(k);
+    if(slot != null) {
+      final IndexEntry entry = slot.entry;
+      entry.size = count;
+      entry.offset = offset;
       return entry;
-    } finally {
-      rwl.writeLock().unlock();
     }
+
+    final IndexEntry entry = new IndexEntry(key, count, offset);
+    if(max != 0) map.put(k, new Slot(entry, position(k)));
+    return entry;
   }
 
   /**
    * Deletes a cached entry.
    * @param key key
    */
-  public void delete(final byte[] key) {
-    final int hash = hash(key);
-    rwl.writeLock().lock();
-
-    try {
-      purge();
-      final int i = indexFor(hash, buckets.length);
-      BucketEntry e = buckets[i], prev = e;
-      while(e != null) {
-        final BucketEntry next = e.next;
-        final IndexEntry entry = e.get();
-        if(entry == null) {
-          delete(i, e, prev, next);
-        } else if(e.hash == hash && eq(entry.key, key)) {
-          delete(i, e, prev, next);
-          break;
-        }
-        prev = e;
-        e = next;
-      }
-    } finally {
-      rwl.writeLock().unlock();
-    }
+  public synchronized void delete(final byte[] key) {
+    map.remove(new Key(key));
   }
 
   /**
-   * Purges stale entries from the cache.
+   * Returns the number of cached entries.
+   * @return number of entries
    */
-  private void purge() {
-    for(Object x; (x = queue.poll()) != null;) {
-      final BucketEntry e = (BucketEntry) x;
-      final int i = indexFor(e.hash, buckets.length);
-      BucketEntry prev = buckets[i], p = prev;
-      while(p != null) {
-        final BucketEntry next = p.next;
-        if(p == e) {
-          delete(i, e, prev, next);
-          break;
-        }
-        prev = p;
-        p = next;
-      }
-    }
-  }
-
-  /**
-   * Add a new index entry to the bucket with the specified index.
-   * @param i bucket index
-   * @param hash hash of the new index key
-   * @param entry index entry
-   */
-  private void add(final int i, final int hash, final IndexEntry entry) {
-    buckets[i] = new BucketEntry(hash, buckets[i], entry, queue);
-    if(++size == buckets.length) rehash();
+  public int size() {
+    return map.size();
   }
 
   /**
-   * Update an existing index entry.
-   * @param entry index entry to update
-   * @param size new size
-   * @param offset new offset
+   * Returns the total number of cache hits.
+   * @return hits
    */
-  private static void update(final IndexEntry entry, final int size, final long offset) {
-    entry.size = size;
-    entry.offset = offset;
+  public static long hits() {
+    return HITS.sum();
   }
 
   /**
-   * Deletes a cached entry from the buckets with the specified index.
-   * @param i buckets index
-   * @param e cached entry to delete
-   * @param p previous cache entry
-   * @param n next cache entry
+   * Returns the total number of cache misses.
+   * @return misses
    */
-  private void delete(final int i, final BucketEntry e, final BucketEntry p, final BucketEntry n) {
-    if(p == e) buckets[i] = n;
-    else p.next = n;
-    e.next = null;
-    --size;
+  public static long misses() {
+    return MISSES.sum();
   }
 
   /**
-   * Resizes the hash table.
+   * Returns a clock position for a new key. If all positions are in use, the clock hand is
+   * advanced until a position is found whose entry has not been accessed recently.
+   * @param key key
+   * @return position
    */
-  private void rehash() {
-    purge();
-
-    final int newSize = size << 1;
-    final BucketEntry[] tmp = new BucketEntry[newSize];
-
-    final int l = buckets.length;
-    for(int i = 0; i < l; ++i) {
-      BucketEntry e = buckets[i];
-      buckets[i] = null;
-      while(e != null) {
-        final BucketEntry next = e.next;
-        final int p = indexFor(e.hash, tmp.length);
-        e.next = tmp[p];
-        tmp[p] = e;
-        e = next;
+  private int position(final Key key) {
+    final int p;
+    if(size < max) {
+      if(size == clock.length) clock = Arrays.copyOf(clock, Math.min(max, Array.newCapacity(size)));
+      p = size++;
+    } else {
+      while(true) {
+        final Slot slot = map.get(clock[hand]);
+        // position is free if the entry has been deleted or reassigned
+        if(slot == null || slot.position != hand) break;
+        if(!slot.used) {
+          map.remove(clock[hand]);
+          break;
+        }
+        slot.used = false;
+        hand = (hand + 1) % max;
       }
+      p = hand;
+      hand = (hand + 1) % max;
     }
-    buckets = tmp;
+    clock[p] = key;
+    return p;
   }
 
   /**
-   * Returns buckets index for a hash code.
-   * @param h hash code
-   * @param n number of available buckets
-   * @return index of a buckets
+   * Cache key.
    */
-  private static int indexFor(final int h, final int n) {
-    return h & n - 1;
+  private static final class Key {
+    /** Token. */
+    private final byte[] token;
+    /** Hash code. */
+    private final int hash;
+
+    /**
+     * Constructor.
+     * @param token token
+     */
+    private Key(final byte[] token) {
+      this.token = token;
+      hash = Token.hash(token);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      return obj instanceof Key && Token.eq(token, ((Key) obj).token);
+    }
   }
 
   /**
-   * Cache buckets entry. Used to implement a linked list of cache entries for each bucket.
-   * It also stores the hash of the current entry for better performance.
+   * Cached entry.
    */
-  private static class BucketEntry extends SoftReference<IndexEntry> {
-    /** Hash code of the stored cache entry key. */
-    final int hash;
-    /** Next bucket entry or {@code null} if the last one for this bucket. */
-    BucketEntry next;
+  private static final class Slot {
+    /** Index entry. */
+    private final IndexEntry entry;
+    /** Clock position. */
+    private final int position;
+    /** Reference flag (set by lookups, reset by the clock hand; races are harmless). */
+    private boolean used;
 
     /**
      * Constructor.
-     * @param h hash code of the cache entry key
-     * @param n next buckets entry or {@code null} if the last one
-     * @param v stored cache entry
-     * @param rq reference queue
+     * @param entry index entry
+     * @param position clock position
      */
-    BucketEntry(final int h, final BucketEntry n, final IndexEntry v,
-        final ReferenceQueue<IndexEntry> rq) {
-      super(v, rq);
-      hash = h;
-      next = n;
+    private Slot(final IndexEntry entry, final int position) {
+      this.entry = entry;
+      this.position = position;
     }
   }
 }
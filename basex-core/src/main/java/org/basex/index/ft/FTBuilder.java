@@ -58,32 +58,9 @@ public final class FTBuilder extends IndexBuilder {
     Util.debugln(detailedInfo());
 
     try {
-      for(pre = 0; pre < size; ++pre) {
-        if((pre & 0x0FFF) == 0) check();
-        if(!indexEntry()) continue;
-
-        // current lexer position
-        final StopWords sw = lexer.ftOpt().sw;
-        lexer.init(data.text(pre, true));
-        int pos = -1;
-        while(lexer.hasNext()) {
-          final byte[] token = lexer.nextToken();
-          ++pos;
-          // skip too long and stopword tokens
-          if(token.length <= data.meta.maxlen && !sw.contains(token)) {
-            // check if main memory is exhausted
-            if((ntok++ & 0xFFFF) == 0 && splitRequired()) {
-              writeIndex(true);
-              clean();
-            }
-            tree.index(token, pre, pos, splits);
-            count++;
-          }
-        }
-      }
-
       // finalize partial or all index structures
-      write(splits > 0);
+      if(index()) merge();
+      else write(splits > 0);
 
       finishIndex();
       return new FTIndex(data);
@@ -95,6 +72,39 @@ public final class FTBuilder extends IndexBuilder {
     }
   }
 
+  @Override
+  protected void scan() throws IOException {
+    for(pre = start; pre < end; ++pre) {
+      if((pre & 0x0FFF) == 0) check();
+      if(!indexEntry()) continue;
+
+      // current lexer position
+      final StopWords sw = lexer.ftOpt().sw;
+      lexer.init(data.text(pre, true));
+      int pos = -1;
+      while(lexer.hasNext()) {
+        final byte[] token = lexer.nextToken();
+        ++pos;
+        // skip too long and stopword tokens
+        if(token.length <= data.meta.maxlen && !sw.contains(token)) {
+          // check if main memory is exhausted
+          if((ntok++ & 0xFFFF) == 0 && splitRequired()) {
+            writeIndex(true);
+            clean();
+          }
+          tree.index(token, pre, pos, splits);
+          count++;
+        }
+      }
+    }
+    if(chunked()) writeIndex(true);
+  }
+
+  @Override
+  protected FTBuilder chunk() throws IOException {
+    return new FTBuilder(data);
+  }
+
   /**
    * Writes the index data to disk.
    * @param partial write partial index
@@ -102,8 +112,14 @@ public final class FTBuilder extends IndexBuilder {
    */
   private void write(final boolean partial) throws IOException {
     writeIndex(partial);
-    if(!partial) return;
+    if(partial) merge();
+  }
 
+  /**
+   * Merges the partial index structures.
+   * @throws IOException I/O exception
+   */
+  private void merge() throws IOException {
     // merges temporary index files
     try(DataOutput outX = new DataOutput(data.meta.dbFile(DATAFTX + 'x'));
         DataOutput outY = new DataOutput(data.meta.dbFile(DATAFTX + 'y'));
@@ -113,7 +129,8 @@ public final class FTBuilder extends IndexBuilder {
 
       // open all temporary sorted lists
       final FTList[] v = new FTList[splits];
-      for(int b = 0; b < splits; ++b) v[b] = new FTList(data, b);
+      // partial structures are merged in document order
+      for(int b = 0; b < splits; ++b) v[b] = new FTList(data, partials.get(b));
 
       final IntList il = new IntList();
       while(check(v)) {
@@ -146,7 +163,7 @@ public final class FTBuilder extends IndexBuilder {
         // merge and write data size
         outY.write4(merge(outZ, il, v));
       }
-      writeInd(outX, ind, ind.get(ind.size() - 2) + 1, (int) outY.size());
+      writeInd(outX, ind, ind.isEmpty() ? 1 : ind.get(ind.size() - 2) + 1, (int) outY.size());
     }
   }
 
@@ -177,7 +194,7 @@ public final class FTBuilder extends IndexBuilder {
    * @throws IOException I/O exception
    */
   private void writeIndex(final boolean partial) throws IOException {
-    final String name = DATAFTX + (partial ? splits : "");
+    final String name = DATAFTX + (partial ? partial() : "");
     try(DataOutput outX = new DataOutput(data.meta.dbFile(name + 'x'));
         DataOutput outY = new DataOutput(data.meta.dbFile(name + 'y'));
         DataOutput outZ = new DataOutput(data.meta.dbFile(name + 'z'))) {
@@ -150,6 +150,48 @@ public final class Stats {
     }
   }
 
+  /**
+   * Estimates the number of values in the specified numeric range. If the distinct values are
+   * known, the exact number is returned. Otherwise, the values are assumed to be evenly
+   * distributed between the minimum and maximum.
+   * @param mn minimum (inclusive)
+   * @param mx maximum (inclusive)
+   * @return estimated number of values
+   */
+  public int count(final double mn, final double mx) {
+    if(values != null) {
+      int c = 0;
+      for(final byte[] value : values) {
+        final double d = toDouble(value);
+        if(d >= mn && d <= mx) c += values.get(value);
+      }
+      return c;
+    }
+    final double lo = Math.max(mn, min), hi = Math.min(mx, max);
+    if(lo > hi) return 0;
+    final double i = isInteger(type) ? 1 : 0, range = max - min + i;
+    return range == 0 ? count :
+      Math.max(1, (int) Math.ceil(count * Math.min(1, (hi - lo + i) / range)));
+  }
+
+  /**
+   * Returns the number of values in the specified string range.
+   * @param mn minimum
+   * @param mni include minimum
+   * @param mx maximum
+   * @param mxi include maximum
+   * @return number of values, or {@code -1} if the distinct values are unknown
+   */
+  public int count(final byte[] mn, final boolean mni, final byte[] mx, final boolean mxi) {
+    if(values == null) return -1;
+    int c = 0;
+    for(final byte[] value : values) {
+      final int d1 = compare(value, mn), d2 = compare(value, mx);
+      if((mni ? d1 >= 0 : d1 > 0) && (mxi ? d2 <= 0 : d2 < 0)) c += values.get(value);
+    }
+    return c;
+  }
+
   /**
    * Getter for leaf flag.
    * @return leaf flag
@@ -50,33 +50,16 @@ public final class DiskValuesBuilder extends ValuesBuilder {
     Util.debugln(detailedInfo());
 
     try {
-      final boolean updindex = data.meta.updindex;
-      for(pre = 0; pre < size; ++pre) {
-        if((pre & 0x0FFF) == 0) check();
-        if(indexEntry()) {
-          final int id = updindex ? data.id(pre) : pre;
-          if(tokenize) {
-            int pos = 0;
-            for(final byte[] token : distinctTokens(data.text(pre, text))) {
-              index.add(token, id, pos++);
-              count++;
-            }
-          } else if(data.textLen(pre, text) <= data.meta.maxlen) {
-            index.add(data.text(pre, text), id, 0);
-            count++;
-          }
-        }
-      }
-
-      writeIndex(splits > 0);
-      if(splits > 1) {
+      final boolean parallel = index();
+      if(!parallel) writeIndex(splits > 0);
+      if(parallel || splits > 1) {
         index = null;
         clean();
         merge();
       }
 
       finishIndex();
-      return updindex ? new UpdatableDiskValues(data, type) : new DiskValues(data, type);
+      return data.meta.updindex ? new UpdatableDiskValues(data, type) : new DiskValues(data, type);
 
     } catch(final Throwable th) {
       // drop index files
@@ -85,6 +68,33 @@ public final class DiskValuesBuilder extends ValuesBuilder {
     }
   }
 
+  @Override
+  protected void scan() throws IOException {
+    final boolean updindex = data.meta.updindex;
+    for(pre = start; pre < end; ++pre) {
+      if((pre & 0x0FFF) == 0) check();
+      if(indexEntry()) {
+        final int id = updindex ? data.id(pre) : pre;
+        if(tokenize) {
+          int pos = 0;
+          for(final byte[] token : distinctTokens(data.text(pre, text))) {
+            index.add(token, id, pos++);
+            count++;
+          }
+        } else if(data.textLen(pre, text) <= data.meta.maxlen) {
+          index.add(data.text(pre, text), id, 0);
+          count++;
+        }
+      }
+    }
+    if(chunked()) writeIndex(true);
+  }
+
+  @Override
+  protected DiskValuesBuilder chunk() {
+    return new DiskValuesBuilder(data, type);
+  }
+
   @Override
   protected void check() throws IOException {
     super.check();
@@ -169,7 +179,7 @@ public final class DiskValuesBuilder extends ValuesBuilder {
    */
   private void writeIndex(final boolean partial) throws IOException {
     // write id arrays and references
-    final String name = DiskValues.fileSuffix(type) + (partial ? splits : "");
+    final String name = DiskValues.fileSuffix(type) + (partial ? partial() : "");
     try(DataOutput outL = new DataOutput(data.meta.dbFile(name + 'l'));
         DataOutput outR = new DataOutput(data.meta.dbFile(name + 'r'))) {
       outL.write4(index.size());
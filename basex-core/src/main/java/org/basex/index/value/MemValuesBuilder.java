@@ -15,6 +15,9 @@ import org.basex.util.*;
  * @author Christian Gruen
  */
 public class MemValuesBuilder extends ValuesBuilder {
+  /** Index. */
+  private MemValues index;
+
   /**
    * Constructor.
    * @param data data reference
@@ -28,9 +31,17 @@ public class MemValuesBuilder extends ValuesBuilder {
   public MemValues build() throws IOException {
     Util.debugln(detailedInfo());
 
-    final MemValues index = new MemValues(data, type);
+    index = new MemValues(data, type);
+    scan();
+    index.finish();
+    finishIndex();
+    return index;
+  }
+
+  @Override
+  protected void scan() throws IOException {
     final boolean updindex = data.meta.updindex;
-    for(pre = 0; pre < size; pre++) {
+    for(pre = start; pre < end; pre++) {
       if((pre & 0x0FFF) == 0) check();
       if(indexEntry()) {
         if(tokenize) {
@@ -44,8 +55,5 @@ public class MemValuesBuilder extends ValuesBuilder {
         }
       }
     }
-    index.finish();
-    finishIndex();
-    return index;
   }
 }
@@ -110,6 +110,15 @@ public class BufferInput extends InputStream {
     return readByte();
   }
 
+  /**
+   * Returns the number of buffered bytes that can be read without blocking.
+   * @return number of bytes
+   */
+  @Override
+  public int available() {
+    return bsize - bpos;
+  }
+
   /**
    * Returns the next unsigned byte.
    * {@code -1} is returned if all bytes have been read.
@@ -0,0 +1,166 @@
+package org.basex.io.random;
+
+import java.util.*;
+
+/**
+ * This class compresses and decompresses blocks. The format is compatible with the LZ4 block
+ * format: Each sequence consists of a token (4 bits for the literal length, 4 bits for the
+ * match length), optional length bytes, the literals, and a 2-byte offset to the match.
+ * Matches are found via a hash table with the positions of previously seen 4-byte sequences.
+ *
+ * @author BaseX Team 2005-24, BSD License
+ * @author Christian Gruen
+ */
+final class BlockCodec {
+  /** Minimum length of a match. */
+  private static final int MINMATCH = 4;
+  /** Number of trailing bytes that are always stored as literals. */
+  private static final int LASTLITERALS = 5;
+  /** Minimum distance between the start of the last match and the end of the input. */
+  private static final int MFLIMIT = 12;
+  /** Maximum offset of a match. */
+  private static final int MAXOFFSET = 0xFFFF;
+  /** Number of bits of the hash table. */
+  private static final int HASHBITS = 12;
+
+  /** Hash table (positions of 4-byte sequences, incremented by one). */
+  private final int[] table = new int[1 << HASHBITS];
+
+  /**
+   * Returns the maximum size of compressed data.
+   * @param length length of uncompressed data
+   * @return maximum size
+   */
+  static int bound(final int length) {
+    return length + length / 255 + 16;
+  }
+
+  /**
+   * Compresses the specified data.
+   * @param src data to be compressed
+   * @param length number of bytes to be compressed
+   * @param dst target array (its size must be at least {@link #bound(int)})
+   * @return size of the compressed data
+   */
+  int compress(final byte[] src, final int length, final byte[] dst) {
+    final int[] tbl = table;
+    Arrays.fill(tbl, 0);
+
+    final int mflimit = length - MFLIMIT, mlimit = length - LASTLITERALS;
+    int ip = 0, anchor = 0, op = 0;
+    while(ip < mflimit) {
+      final int seq = int4(src, ip), h = seq * -1640531535 >>> 32 - HASHBITS;
+      final int ref = tbl[h] - 1;
+      tbl[h] = ip + 1;
+      if(ref < 0 || ip - ref > MAXOFFSET || int4(src, ref) != seq) {
+        ip++;
+        continue;
+      }
+      // extend match
+      int ml = MINMATCH;
+      while(ip + ml < mlimit && src[ref + ml] == src[ip + ml]) ml++;
+
+      op = literals(src, anchor, ip - anchor, ml - MINMATCH, dst, op);
+      final int offset = ip - ref;
+      dst[op++] = (byte) offset;
+      dst[op++] = (byte) (offset >>> 8);
+      if(ml - MINMATCH >= 15) op = length(ml - MINMATCH - 15, dst, op);
+      ip += ml;
+      anchor = ip;
+    }
+    // last sequence: literals only
+    return literals(src, anchor, length - anchor, 0, dst, op);
+  }
+
+  /**
+   * Decompresses the specified data.
+   * @param src compressed data
+   * @param length length of the compressed data
+   * @param dst target array
+   * @return size of the decompressed data
+   */
+  static int decompress(final byte[] src, final int length, final byte[] dst) {
+    int ip = 0, op = 0;
+    while(ip < length) {
+      final int token = src[ip++] & 0xFF;
+      // copy literals
+      int ll = token >>> 4;
+      if(ll == 15) {
+        int b;
+        do {
+          b = src[ip++] & 0xFF;
+          ll += b;
+        } while(b == 255);
+      }
+      System.arraycopy(src, ip, dst, op, ll);
+      ip += ll;
+      op += ll;
+      if(ip >= length) break;
+
+      // copy match
+      final int offset = src[ip++] & 0xFF | (src[ip++] & 0xFF) << 8;
+      int ml = token & 0x0F;
+      if(ml == 15) {
+        int b;
+        do {
+          b = src[ip++] & 0xFF;
+          ml += b;
+        } while(b == 255);
+      }
+      ml += MINMATCH;
+      int ref = op - offset;
+      if(offset >= ml) {
+        System.arraycopy(dst, ref, dst, op, ml);
+        op += ml;
+      } else {
+        // overlapping match
+        for(final int end = op + ml; op < end;) dst[op++] = dst[ref++];
+      }
+    }
+    return op;
+  }
+
+  /**
+   * Writes a token and literals.
+   * @param src source data
+   * @param off offset of the literals
+   * @param ll number of literals
+   * @param ml match length (minus minimum length)
+   * @param dst target array
+   * @param pos current target position
+   * @return new target position
+   */
+  private static int literals(final byte[] src, final int off, final int ll, final int ml,
+      final byte[] dst, final int pos) {
+    int op = pos;
+    dst[op++] = (byte) (Math.min(ll, 15) << 4 | Math.min(ml, 15));
+    if(ll >= 15) op = length(ll - 15, dst, op);
+    System.arraycopy(src, off, dst, op, ll);
+    return op + ll;
+  }
+
+  /**
+   * Writes additional length bytes.
+   * @param length remaining length
+   * @param dst target array
+   * @param pos current target position
+   * @return new target position
+   */
+  private static int length(final int length, final byte[] dst, final int pos) {
+    int l = length, op = pos;
+    for(; l >= 255; l -= 255) dst[op++] = (byte) 255;
+    dst[op++] = (byte) l;
+    return op;
+  }
+
+  /**
+   * Returns a 4-byte sequence.
+   * @param data data
+   * @param pos position
+   * @return sequence
+   */
+  private static int int4(final byte[] data, final int pos) {
+    return (data[pos] & 0xFF) << 24 | (data[pos + 1] & 0xFF) << 16 |
+      (data[pos + 2] & 0xFF) << 8 | data[pos + 3] & 0xFF;
+  }
+}
@@ -10,9 +10,11 @@ import org.basex.io.*;
  */
 final class Buffer {
   /** Buffer data. */
-  final byte[] data = new byte[IO.BLOCKSIZE];
+  byte[] data = new byte[IO.BLOCKSIZE];
   /** Disk offset, or block position. */
   long pos = -1;
   /** Dirty flag. */
   boolean dirty;
+  /** Indicates if the buffer has been changed since the last commit (see {@link Journal}). */
+  boolean changed;
 }
@@ -1,23 +1,91 @@
 package org.basex.io.random;
 
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+import org.basex.util.*;
+
 /**
- * This class provides a simple, clock-based buffer management.
+ * This class provides a scan-resistant buffer management, based on the 2Q algorithm.
+ * <ul>
+ *   <li> Blocks that are requested for the first time are added to a FIFO queue ({@code A1in}).
+ *        Repeated requests will not change their position.</li>
+ *   <li> If blocks are dropped from the FIFO queue, their positions are remembered in a ghost
+ *        queue ({@code A1out}).</li>
+ *   <li> Blocks whose positions are found in the ghost queue are added to an LRU queue
+ *        ({@code Am}).</li>
+ * </ul>
+ * Blocks that are accessed only once, such as the blocks of a full table scan, will only pass the
+ * FIFO queue and will not replace frequently accessed blocks.
+ *
+ * The maximum number of buffers is defined by {@link Prop#buffers} (minimum: 16).
+ * Buffers are allocated on demand.
  *
  * @author BaseX Team 2005-24, BSD License
  * @author Christian Gruen
  */
-final class Buffers {
-  /** Number of buffers (must be 1 << n). */
-  private static final int BUFFERS = 1 << 4;
+public final class Buffers {
+  /** Total number of buffer hits. */
+  private static final LongAdder HITS = new LongAdder();
+  /** Total number of buffer misses. */
+  private static final LongAdder MISSES = new LongAdder();
+
+  /** Queue identifier: FIFO queue ({@code A1in}). */
+  private static final byte IN = 1;
+  /** Queue identifier: LRU queue ({@code Am}). */
+  private static final byte AM = 2;
+
+  /** Maximum number of buffers. */
+  private final int max;
+  /** Maximum number of buffers in the FIFO queue. */
+  private final int maxIn;
+
   /** Buffers. */
-  private final Buffer[] buffer = new Buffer[BUFFERS];
-  /** Current buffer offset. */
+  private Buffer[] buffer;
+  /** Block positions assigned to the buffers. */
+  private long[] keys;
+  /** Queue identifiers of the buffers. */
+  private byte[] queue;
+  /** Pointers to previous buffers in the queues. */
+  private int[] prev;
+  /** Pointers to next buffers in the queues. */
+  private int[] next;
+  /** Number of allocated buffers. */
+  private int size;
+  /** Index of the current buffer. */
   private int offset;
 
+  /** Oldest entry of the FIFO queue ({@code -1}: empty). */
+  private int inHead;
+  /** Newest entry of the FIFO queue ({@code -1}: empty). */
+  private int inTail;
+  /** Number of entries in the FIFO queue. */
+  private int inSize;
+  /** Least recently used entry of the LRU queue ({@code -1}: empty). */
+  private int amHead;
+  /** Most recently used entry of the LRU queue ({@code -1}: empty). */
+  private int amTail;
+
+  /** Positions of resident blocks. */
+  private final Positions resident;
+  /** Positions of blocks that have recently been dropped from the FIFO queue. */
+  private final Positions ghosts;
+  /** Ring buffer with the positions of the ghost queue. */
+  private final long[] ghostQueue;
+  /** Index of the oldest ghost entry. */
+  private int ghostHead;
+  /** Number of ghost entries. */
+  private int ghostSize;
+
   /**
    * Constructor.
    */
   Buffers() {
+    max = Math.max(1 << 4, Prop.buffers);
+    maxIn = Math.max(1, max >>> 2);
+    resident = new Positions(max);
+    ghostQueue = new long[Math.max(1, max >>> 1)];
+    ghosts = new Positions(ghostQueue.length);
     init();
   }
 
@@ -25,9 +93,23 @@ final class Buffers {
    * Initializes the buffers.
    */
   void init() {
-    for(int b = 0; b < BUFFERS; ++b) {
-      buffer[b] = new Buffer();
-    }
+    final int initial = Math.min(max, 1 << 4);
+    buffer = new Buffer[initial];
+    keys = new long[initial];
+    queue = new byte[initial];
+    prev = new int[initial];
+    next = new int[initial];
+    resident.clear();
+    ghosts.clear();
+    inHead = -1;
+    inTail = -1;
+    amHead = -1;
+    amTail = -1;
+    inSize = 0;
+    ghostHead = 0;
+    ghostSize = 0;
+    size = 0;
+    offset = add(-1, IN);
   }
 
   /**
@@ -35,7 +117,7 @@ final class Buffers {
    * @return buffers
    */
   Buffer[] all() {
-    return buffer;
+    return Arrays.copyOf(buffer, size);
   }
 
   /**
@@ -47,18 +129,249 @@ final class Buffers {
   }
 
   /**
-   * Chooses a buffer and sets the offset.
+   * Chooses a buffer and sets the offset. If the block is not buffered yet, a buffer
+   * is assigned to it, and the caller is responsible for writing the old contents of the
+   * buffer (if dirty) and reading the new contents.
    * @param pos buffer position
    * @return true if cursor has changed
    */
   boolean cursor(final long pos) {
-    final int o = offset;
-    do {
-      if(buffer[offset].pos == pos) return false;
-      offset = offset + 1 & BUFFERS - 1;
-    } while(offset != o);
+    if(keys[offset] == pos) {
+      HITS.increment();
+      return false;
+    }
+
+    final int hit = resident.get(pos);
+    if(hit != -1) {
+      HITS.increment();
+      // FIFO queue: keep position; LRU queue: move buffer to the end
+      if(queue[hit] == AM) {
+        unlink(hit);
+        link(hit, AM);
+      }
+      offset = hit;
+      return false;
+    }
 
-    offset = o + 1 & BUFFERS - 1;
+    MISSES.increment();
+    final boolean hot = ghosts.remove(pos);
+    offset = add(pos, hot ? AM : IN);
     return true;
   }
+
+  /**
+   * Assigns a buffer to a block that has been read in advance. The current buffer is not changed,
+   * but it may be reassigned if it is the next one to be replaced.
+   * @param pos block position
+   * @return buffer, or {@code null} if the block is already buffered
+   */
+  Buffer prefetch(final long pos) {
+    if(resident.get(pos) != -1) return null;
+    final int b = add(pos, IN);
+    return buffer[b];
+  }
+
+  /**
+   * Returns the total number of buffer hits.
+   * @return hits
+   */
+  public static long hits() {
+    return HITS.sum();
+  }
+
+  /**
+   * Returns the total number of buffer misses.
+   * @return misses
+   */
+  public static long misses() {
+    return MISSES.sum();
+  }
+
+  // PRIVATE METHODS ==============================================================================
+
+  /**
+   * Assigns a buffer to the specified block position and adds it to a queue.
+   * @param pos block position
+   * @param q queue identifier
+   * @return index of the buffer
+   */
+  private int add(final long pos, final byte q) {
+    final int b;
+    if(size < max) {
+      // allocate new buffer
+      b = size++;
+      if(b == buffer.length) {
+        final int s = Math.min(max, b << 1);
+        buffer = Arrays.copyOf(buffer, s);
+        keys = Arrays.copyOf(keys, s);
+        queue = Arrays.copyOf(queue, s);
+        prev = Arrays.copyOf(prev, s);
+        next = Arrays.copyOf(next, s);
+      }
+      buffer[b] = new Buffer();
+    } else {
+      // reuse buffer: prefer oldest entry of FIFO queue if it exceeds its maximum size
+      if(amHead == -1 || inHead != -1 && inSize > maxIn) {
+        b = inHead;
+        ghost(keys[b]);
+      } else {
+        b = amHead;
+      }
+      unlink(b);
+      resident.remove(keys[b]);
+    }
+    keys[b] = pos;
+    resident.put(pos, b);
+    link(b, q);
+    return b;
+  }
+
+  /**
+   * Remembers a position in the ghost queue.
+   * @param pos block position
+   */
+  private void ghost(final long pos) {
+    final int gl = ghostQueue.length;
+    if(ghostSize == gl) {
+      ghosts.remove(ghostQueue[ghostHead]);
+      ghostHead = (ghostHead + 1) % gl;
+      ghostSize--;
+    }
+    ghostQueue[(ghostHead + ghostSize++) % gl] = pos;
+    if(ghosts.get(pos) == -1) ghosts.put(pos, 0);
+  }
+
+  /**
+   * Appends a buffer to the end of a queue.
+   * @param b buffer index
+   * @param q queue identifier
+   */
+  private void link(final int b, final byte q) {
+    queue[b] = q;
+    next[b] = -1;
+    if(q == IN) {
+      prev[b] = inTail;
+      if(inTail == -1) inHead = b;
+      else next[inTail] = b;
+      inTail = b;
+      inSize++;
+    } else {
+      prev[b] = amTail;
+      if(amTail == -1) amHead = b;
+      else next[amTail] = b;
+      amTail = b;
+    }
+  }
+
+  /**
+   * Removes a buffer from its queue.
+   * @param b buffer index
+   */
+  private void unlink(final int b) {
+    final int p = prev[b], n = next[b];
+    if(queue[b] == IN) {
+      if(p == -1) inHead = n;
+      else next[p] = n;
+      if(n == -1) inTail = p;
+      else prev[n] = p;
+      inSize--;
+    } else {
+      if(p == -1) amHead = n;
+      else next[p] = n;
+      if(n == -1) amTail = p;
+      else prev[n] = p;
+    }
+  }
+
+  /**
+   * Hash map for block positions, based on linear probing.
+   */
+  private static final class Positions {
+    /** Keys ({@code -1}: empty slot). */
+    private final long[] pos;
+    /** Values. */
+    private final int[] values;
+
+    /**
+     * Constructor.
+     * @param capacity maximum number of entries
+     */
+    Positions(final int capacity) {
+      int c = 1;
+      while(c < capacity << 1) c <<= 1;
+      pos = new long[c];
+      values = new int[c];
+      clear();
+    }
+
+    /**
+     * Removes all entries.
+     */
+    void clear() {
+      Arrays.fill(pos, -1);
+    }
+
+    /**
+     * Returns the value of the specified position.
+     * @param key position
+     * @return value, or {@code -1} if the position is unknown
+     */
+    int get(final long key) {
+      final int m = pos.length - 1;
+      for(int i = hash(key) & m; pos[i] != -1; i = i + 1 & m) {
+        if(pos[i] == key) return values[i];
+      }
+      return -1;
+    }
+
+    /**
+     * Stores a position and its value.
+     * @param key position (must not exist yet)
+     * @param value value
+     */
+    void put(final long key, final int value) {
+      if(key == -1) return;
+      final int m = pos.length - 1;
+      int i = hash(key) & m;
+      while(pos[i] != -1) i = i + 1 & m;
+      pos[i] = key;
+      values[i] = value;
+    }
+
+    /**
+     * Removes a position.
+     * @param key position
+     * @return {@code true} if the position was found
+     */
+    boolean remove(final long key) {
+      if(key == -1) return false;
+      final int m = pos.length - 1;
+      int i = hash(key) & m;
+      while(pos[i] != key) {
+        if(pos[i] == -1) return false;
+        i = i + 1 & m;
+      }
+      // close gap: move subsequent entries of the same probe sequence
+      for(int j = i + 1 & m; pos[j] != -1; j = j + 1 & m) {
+        final int h = hash(pos[j]) & m;
+        if((j - h & m) >= (j - i & m)) {
+          pos[i] = pos[j];
+          values[i] = values[j];
+          i = j;
+        }
+      }
+      pos[i] = -1;
+      return true;
+    }
+
+    /**
+     * Computes the hash value of a position.
+     * @param key position
+     * @return hash value
+     */
+    private static int hash(final long key) {
+      final long h = key * 0x9E3779B97F4A7C15L;
+      return (int) (h ^ h >>> 32);
+    }
+  }
 }
@@ -0,0 +1,220 @@
+package org.basex.io.random;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+
+import org.basex.io.*;
+import org.basex.io.in.DataInput;
+import org.basex.io.out.DataOutput;
+import org.basex.util.*;
+
+/**
+ * This class stores the blocks of a file in compressed form.
+ * Blocks are compressed with the {@link BlockCodec}. If a block cannot be compressed, it is
+ * stored uncompressed. An index file contains the logical file length and the offset,
+ * capacity and size of each block. Updated blocks are written to their original slot if the
+ * capacity suffices, or appended to the end of the file. Unused slots are reclaimed when the
+ * database is rebuilt.
+ *
+ * @author BaseX Team 2005-24, BSD License
+ * @author Christian Gruen
+ */
+public final class CompressedFile {
+  /** Slots are allocated in chunks of this size. */
+  private static final int CHUNK = 64;
+
+  /** Compressor. */
+  private final BlockCodec codec = new BlockCodec();
+  /** Buffer for compressing blocks. */
+  private final byte[] packed = new byte[BlockCodec.bound(IO.BLOCKSIZE)];
+  /** File storing the compressed blocks. */
+  private final RandomAccessFile file;
+  /** Index file. */
+  private final IOFile index;
+
+  /** Offsets of the blocks. */
+  private long[] offsets;
+  /** Capacities of the slots. */
+  private int[] capacities;
+  /** Sizes of the blocks ({@code 0}: empty block, {@link IO#BLOCKSIZE}: uncompressed). */
+  private int[] sizes;
+  /** Number of blocks. */
+  private int blocks;
+  /** Logical file length. */
+  private long length;
+  /** End of the file. */
+  private long end;
+  /** Dirty flag. */
+  private boolean dirty;
+
+  /**
+   * Constructor.
+   * @param file file storing the compressed blocks
+   * @param index index file
+   * @throws IOException I/O exception
+   */
+  CompressedFile(final RandomAccessFile file, final IOFile index) throws IOException {
+    this.file = file;
+    this.index = index;
+    if(index.exists()) {
+      try(DataInput in = new DataInput(index)) {
+        length = in.readLong();
+        blocks = in.readNum();
+        offsets = new long[blocks];
+        capacities = new int[blocks];
+        sizes = new int[blocks];
+        for(int b = 0; b < blocks; b++) {
+          offsets[b] = in.readLong();
+          capacities[b] = in.readNum();
+          sizes[b] = in.readNum();
+        }
+      }
+    } else {
+      offsets = new long[0];
+      capacities = new int[0];
+      sizes = new int[0];
+    }
+    end = file.length();
+  }
+
+  /**
+   * Compresses the blocks of the specified file and creates an index file.
+   * The file is rewritten in place.
+   * @param file file to be compressed
+   * @param index index file
+   * @throws IOException I/O exception
+   */
+  public static void compress(final IOFile file, final IOFile index) throws IOException {
+    try(RandomAccessFile raf = new RandomAccessFile(file.file(), "rw")) {
+      final long len = raf.length();
+      final CompressedFile cf = new CompressedFile(raf, index);
+      cf.end = 0;
+      // compressed blocks will never be larger than the blocks that have already been read
+      final byte[] data = new byte[IO.BLOCKSIZE];
+      for(long pos = 0; pos < len; pos += IO.BLOCKSIZE) {
+        raf.seek(pos);
+        final int l = (int) Math.min(IO.BLOCKSIZE, len - pos);
+        raf.readFully(data, 0, l);
+        Arrays.fill(data, l, IO.BLOCKSIZE, (byte) 0);
+        cf.write(pos, data);
+      }
+      cf.length(len);
+      cf.flush();
+      raf.setLength(cf.end);
+    }
+  }
+
+  /**
+   * Returns the logical file length.
+   * @return length
+   */
+  long length() {
+    return length;
+  }
+
+  /**
+   * Sets the logical file length. Blocks beyond the new length are discarded.
+   * @param len length
+   */
+  void length(final long len) {
+    length = len;
+    blocks = (int) Math.min(blocks, len + IO.BLOCKSIZE - 1 >>> IO.BLOCKPOWER);
+    dirty = true;
+  }
+
+  /**
+   * Reads a block. This method can be called by multiple threads as long as no blocks are written.
+   * @param pos file position of the block
+   * @param data array to be filled
+   * @throws IOException I/O exception
+   */
+  void read(final long pos, final byte[] data) throws IOException {
+    final int b = (int) (pos >>> IO.BLOCKPOWER), size = b < blocks ? sizes[b] : 0;
+    if(size == 0) {
+      Arrays.fill(data, (byte) 0);
+    } else if(size == IO.BLOCKSIZE) {
+      read(file.getChannel(), offsets[b], data, size);
+    } else {
+      final byte[] bytes = new byte[size];
+      read(file.getChannel(), offsets[b], bytes, size);
+      final int l = BlockCodec.decompress(bytes, size, data);
+      if(l != IO.BLOCKSIZE) throw new IOException("Corrupt block: " + b);
+    }
+  }
+
+  /**
+   * Reads bytes from the specified file position without changing the position of the file.
+   * @param channel file channel
+   * @param pos file position
+   * @param data array to be filled
+   * @param length number of bytes to read
+   * @throws IOException I/O exception
+   */
+  static void read(final FileChannel channel, final long pos, final byte[] data, final int length)
+      throws IOException {
+    final ByteBuffer bb = ByteBuffer.wrap(data, 0, length);
+    while(bb.hasRemaining()) {
+      if(channel.read(bb, pos + bb.position()) == -1) throw new EOFException();
+    }
+  }
+
+  /**
+   * Writes a block.
+   * @param pos file position of the block
+   * @param data block data
+   * @throws IOException I/O exception
+   */
+  void write(final long pos, final byte[] data) throws IOException {
+    final int b = (int) (pos >>> IO.BLOCKPOWER);
+    if(b >= offsets.length) {
+      final int s = Math.max(b + 1, Array.newCapacity(offsets.length));
+      offsets = Arrays.copyOf(offsets, s);
+      capacities = Arrays.copyOf(capacities, s);
+      sizes = Arrays.copyOf(sizes, s);
+    }
+    for(; blocks <= b; blocks++) {
+      offsets[blocks] = 0;
+      capacities[blocks] = 0;
+      sizes[blocks] = 0;
+    }
+
+    int size = codec.compress(data, IO.BLOCKSIZE, packed);
+    final byte[] bytes;
+    if(size < IO.BLOCKSIZE) {
+      bytes = packed;
+    } else {
+      bytes = data;
+      size = IO.BLOCKSIZE;
+    }
+    if(size > capacities[b]) {
+      // slot is too small: append block to the end of the file
+      offsets[b] = end;
+      capacities[b] = Math.min(IO.BLOCKSIZE, size + CHUNK - 1 & -CHUNK);
+      end += capacities[b];
+    }
+    file.seek(offsets[b]);
+    file.write(bytes, 0, size);
+    sizes[b] = size;
+    dirty = true;
+  }
+
+  /**
+   * Writes the index file.
+   * @throws IOException I/O exception
+   */
+  void flush() throws IOException {
+    if(!dirty) return;
+    try(DataOutput out = new DataOutput(index)) {
+      out.writeLong(length);
+      out.writeNum(blocks);
+      for(int b = 0; b < blocks; b++) {
+        out.writeLong(offsets[b]);
+        out.writeNum(capacities[b]);
+        out.writeNum(sizes[b]);
+      }
+    }
+    dirty = false;
+  }
+}
@@ -1,12 +1,16 @@
 package org.basex.io.random;
 
 import java.io.*;
+import java.util.*;
 
 import org.basex.io.*;
 import org.basex.util.*;
 
 /**
  * This class allows positional read and write access to a database file.
+ * Each thread has its own cursor. Blocks are shared by all threads and managed by a single
+ * buffer pool, which is only locked if a cursor is moved to another block. Updates must
+ * not be performed in parallel with other operations.
  *
  * @author BaseX Team 2005-24, BSD License
  * @author Christian Gruen
@@ -14,14 +18,22 @@ import org.basex.util.*;
 public final class DataAccess implements Closeable {
   /** Buffer manager. */
   private final Buffers buffers = new Buffers();
+  /** Cursors of the reading and writing threads. */
+  private final ThreadLocal<Cursor> cursors = ThreadLocal.withInitial(Cursor::new);
   /** Reference to the data input stream. */
   private final RandomAccessFile raf;
+  /** Compressed blocks ({@code null} if the file is stored uncompressed). */
+  private final CompressedFile compressed;
+  /** Modification counter (invalidates the cursors of other threads). */
+  private volatile int version;
   /** File size. */
   private long length;
   /** Changed flag. */
   private boolean changed;
-  /** Offset. */
-  private int off;
+  /** Journal ({@code null} if updates are not logged). */
+  private Journal journal;
+  /** File identifier in the journal. */
+  private int id;
 
   /**
    * Constructor, initializing the file reader.
@@ -29,10 +41,21 @@ public final class DataAccess implements Closeable {
    * @throws IOException I/O Exception
    */
   public DataAccess(final IOFile file) throws IOException {
+    this(file, null);
+  }
+
+  /**
+   * Constructor, initializing the file reader.
+   * @param file the file to be read
+   * @param index index file of the compressed blocks ({@code null} if the file is not compressed)
+   * @throws IOException I/O Exception
+   */
+  public DataAccess(final IOFile file, final IOFile index) throws IOException {
     RandomAccessFile f = null;
     try {
       f = new RandomAccessFile(file.file(), "rw");
-      length = f.length();
+      compressed = index != null ? new CompressedFile(f, index) : null;
+      length = compressed != null ? compressed.length() : f.length();
       raf = f;
       cursor(0);
     } catch(final IOException ex) {
@@ -50,14 +73,49 @@ public final class DataAccess implements Closeable {
         if(buffer.dirty) writeBlock(buffer);
       }
       if(changed) {
-        raf.setLength(length);
+        if(compressed != null) compressed.length(length);
+        else raf.setLength(length);
         changed = false;
       }
+      if(compressed != null) compressed.flush();
     } catch(final IOException ex) {
       Util.stack(ex);
     }
   }
 
+  /**
+   * Assigns a journal, in which all changed blocks will be logged.
+   * @param jrn journal ({@code null} if updates are not logged)
+   * @param i file identifier in the journal
+   */
+  public synchronized void journal(final Journal jrn, final int i) {
+    journal = jrn;
+    id = i;
+  }
+
+  /**
+   * Logs all blocks that have been changed since the last commit.
+   * @return file length of the committed state
+   * @throws IOException I/O exception
+   */
+  public synchronized long commit() throws IOException {
+    for(final Buffer buffer : buffers.all()) {
+      if(buffer.changed) {
+        journal.log(id, buffer.pos, buffer.data);
+        buffer.changed = false;
+      }
+    }
+    return length;
+  }
+
+  /**
+   * Synchronizes the file with the storage device.
+   * @throws IOException I/O exception
+   */
+  public synchronized void force() throws IOException {
+    raf.getChannel().force(true);
+  }
+
   @Override
   public synchronized void close() {
     flush();
@@ -73,7 +131,8 @@ public final class DataAccess implements Closeable {
    * @return position in the file
    */
   public long cursor() {
-    return buffer(false).pos + off;
+    final Cursor c = local();
+    return c.pos + c.off;
   }
 
   /**
@@ -97,7 +156,7 @@ public final class DataAccess implements Closeable {
    * @param pos position
    * @return integer value
    */
-  public synchronized byte read1(final long pos) {
+  public byte read1(final long pos) {
     cursor(pos);
     return read1();
   }
@@ -106,8 +165,8 @@ public final class DataAccess implements Closeable {
    * Reads a byte value.
    * @return integer value
    */
-  public synchronized byte read1() {
-    return (byte) read();
+  public byte read1() {
+    return (byte) read(local());
   }
 
   /**
@@ -115,7 +174,7 @@ public final class DataAccess implements Closeable {
    * @param pos position
    * @return integer value
    */
-  public synchronized int read4(final long pos) {
+  public int read4(final long pos) {
     cursor(pos);
     return read4();
   }
@@ -124,8 +183,9 @@ public final class DataAccess implements Closeable {
    * Reads an integer value.
    * @return integer value
    */
-  public synchronized int read4() {
-    return (read() << 24) + (read() << 16) + (read() << 8) + read();
+  public int read4() {
+    final Cursor c = local();
+    return (read(c) << 24) + (read(c) << 16) + (read(c) << 8) + read(c);
   }
 
   /**
@@ -133,7 +193,7 @@ public final class DataAccess implements Closeable {
    * @param pos position
    * @return long value
    */
-  public synchronized long read5(final long pos) {
+  public long read5(final long pos) {
     cursor(pos);
     return read5();
   }
@@ -142,8 +202,10 @@ public final class DataAccess implements Closeable {
    * Reads a 5-byte value.
    * @return long value
    */
-  public synchronized long read5() {
-    return ((long) read() << 32) + ((long) read() << 24) + (read() << 16) + (read() << 8) + read();
+  public long read5() {
+    final Cursor c = local();
+    return ((long) read(c) << 32) + ((long) read(c) << 24) + (read(c) << 16) + (read(c) << 8) +
+        read(c);
   }
 
   /**
@@ -151,7 +213,7 @@ public final class DataAccess implements Closeable {
    * @param pos text position
    * @return read num
    */
-  public synchronized int readNum(final long pos) {
+  public int readNum(final long pos) {
     cursor(pos);
     return readNum();
   }
@@ -161,7 +223,7 @@ public final class DataAccess implements Closeable {
    * @param pos text position
    * @return text as byte array
    */
-  public synchronized byte[] readToken(final long pos) {
+  public byte[] readToken(final long pos) {
     cursor(pos);
     return readToken();
   }
@@ -170,7 +232,7 @@ public final class DataAccess implements Closeable {
    * Reads the next token from disk.
    * @return text as byte array
    */
-  public synchronized byte[] readToken() {
+  public byte[] readToken() {
     final int l = readNum();
     return readBytes(l);
   }
@@ -181,7 +243,7 @@ public final class DataAccess implements Closeable {
    * @param len length
    * @return byte array
    */
-  public synchronized byte[] readBytes(final long pos, final int len) {
+  public byte[] readBytes(final long pos, final int len) {
     cursor(pos);
     return readBytes(len);
   }
@@ -191,20 +253,16 @@ public final class DataAccess implements Closeable {
    * @param len length
    * @return byte array
    */
-  public synchronized byte[] readBytes(final int len) {
-    int l = len, ll = IO.BLOCKSIZE - off;
-    final byte[] data = new byte[l];
-    Array.copyToStart(buffer(false).data, off, Math.min(l, ll), data);
-    if(l > ll) {
-      l -= ll;
-      while(l > IO.BLOCKSIZE) {
-        Array.copyFromStart(buffer(true).data, IO.BLOCKSIZE, data, ll);
-        ll += IO.BLOCKSIZE;
-        l -= IO.BLOCKSIZE;
-      }
-      Array.copyFromStart(buffer(true).data, l, data, ll);
+  public byte[] readBytes(final int len) {
+    final Cursor c = local();
+    final byte[] data = new byte[len];
+    for(int o = 0; o < len;) {
+      if(c.off == IO.BLOCKSIZE) next(c);
+      final int l = Math.min(len - o, IO.BLOCKSIZE - c.off);
+      Array.copy(c.data, c.off, l, data, o);
+      c.off += l;
+      o += l;
     }
-    off += l;
     return data;
   }
 
@@ -213,37 +271,29 @@ public final class DataAccess implements Closeable {
    * @param pos read position
    */
   public void cursor(final long pos) {
-    off = (int) (pos & IO.BLOCKSIZE - 1);
+    final Cursor c = cursors.get();
+    final int off = (int) (pos & IO.BLOCKSIZE - 1);
     final long b = pos - off;
-    if(!buffers.cursor(b)) return;
-
-    final Buffer buffer = buffers.current();
-    try {
-      if(buffer.dirty) writeBlock(buffer);
-      buffer.pos = b;
-      raf.seek(buffer.pos);
-      if(buffer.pos < raf.length())
-        raf.readFully(buffer.data, 0, (int) Math.min(length - buffer.pos, IO.BLOCKSIZE));
-    } catch(final IOException ex) {
-      Util.stack(ex);
-    }
+    if(c.data == null || c.pos != b || c.version != version) block(c, b);
+    c.off = off;
   }
 
   /**
    * Reads the next compressed number and returns it as integer.
    * @return next integer
    */
-  public synchronized int readNum() {
-    final int value = read();
+  public int readNum() {
+    final Cursor c = local();
+    final int value = read(c);
     switch(value & 0xC0) {
     case 0:
       return value;
     case 0x40:
-      return (value - 0x40 << 8) + read();
+      return (value - 0x40 << 8) + read(c);
     case 0x80:
-      return (value - 0x80 << 24) + (read() << 16) + (read() << 8) + read();
+      return (value - 0x80 << 24) + (read(c) << 16) + (read(c) << 8) + read(c);
     default:
-      return (read() << 24) + (read() << 16) + (read() << 8) + read();
+      return (read(c) << 24) + (read(c) << 16) + (read(c) << 8) + read(c);
     }
   }
 
@@ -254,11 +304,12 @@ public final class DataAccess implements Closeable {
    */
   public void write5(final long pos, final long value) {
     cursor(pos);
-    write((byte) (value >>> 32));
-    write((byte) (value >>> 24));
-    write((byte) (value >>> 16));
-    write((byte) (value >>> 8));
-    write((byte) value);
+    final Cursor c = local();
+    write(c, (byte) (value >>> 32));
+    write(c, (byte) (value >>> 24));
+    write(c, (byte) (value >>> 16));
+    write(c, (byte) (value >>> 8));
+    write(c, (byte) value);
   }
 
   /**
@@ -276,10 +327,11 @@ public final class DataAccess implements Closeable {
    * @param value value to be written
    */
   public void write4(final int value) {
-    write(value >>> 24);
-    write(value >>> 16);
-    write(value >>>  8);
-    write(value);
+    final Cursor c = local();
+    write(c, value >>> 24);
+    write(c, value >>> 16);
+    write(c, value >>>  8);
+    write(c, value);
   }
 
   /**
@@ -287,19 +339,20 @@ public final class DataAccess implements Closeable {
    * @param value value to be written
    */
   public void writeNum(final int value) {
+    final Cursor c = local();
     if(value < 0 || value > 0x3FFFFFFF) {
-      write(0xC0);
-      write(value >>> 24);
-      write(value >>> 16);
-      write(value >>> 8);
+      write(c, 0xC0);
+      write(c, value >>> 24);
+      write(c, value >>> 16);
+      write(c, value >>> 8);
     } else if(value > 0x3FFF) {
-      write(value >>> 24 | 0x80);
-      write(value >>> 16);
-      write(value >>> 8);
+      write(c, value >>> 24 | 0x80);
+      write(c, value >>> 16);
+      write(c, value >>> 8);
     } else if(value > 0x3F) {
-      write(value >>> 8 | 0x40);
+      write(c, value >>> 8 | 0x40);
     }
-    write(value);
+    write(c, value);
   }
 
   /**
@@ -309,18 +362,18 @@ public final class DataAccess implements Closeable {
    * @param len number of bytes to be written
    */
   public void writeBytes(final byte[] data, final int offset, final int len) {
+    final Cursor c = local();
     final int last = offset + len;
     int o = offset;
 
     while(o < last) {
-      final Buffer buffer = buffer();
-      final int l = Math.min(last - o, IO.BLOCKSIZE - off);
-      Array.copy(data, o, l, buffer.data, off);
-      buffer.dirty = true;
-      off += l;
+      final Buffer buffer = buffer(c);
+      final int l = Math.min(last - o, IO.BLOCKSIZE - c.off);
+      Array.copy(data, o, l, buffer.data, c.off);
+      c.off += l;
       o += l;
       // adjust file size
-      final long nl = buffer.pos + off;
+      final long nl = c.pos + c.off;
       if(nl > length) length(nl);
     }
   }
@@ -350,7 +403,8 @@ public final class DataAccess implements Closeable {
 
     // extend available space by subsequent zero-bytes
     cursor(pos + os);
-    for(; pos + os < length && os < size && read() == 0xFF; os++);
+    final Cursor c = local();
+    for(; pos + os < length && os < size && read(c) == 0xFF; os++);
 
     long o = pos;
     if(pos + os == length) {
@@ -370,7 +424,7 @@ public final class DataAccess implements Closeable {
         cursor(pos + size);
       }
       // fill gap with 0xFF for future updates
-      while(t++ < os) write(0xFF);
+      while(t++ < os) write(c, 0xFF);
     }
     return o;
   }
@@ -388,27 +442,98 @@ public final class DataAccess implements Closeable {
 
   // PRIVATE METHODS ==============================================================================
 
+  /**
+   * Returns the cursor of the current thread.
+   * @return cursor
+   */
+  private Cursor local() {
+    final Cursor c = cursors.get();
+    if(c.data == null || c.version != version) block(c, c.pos);
+    return c;
+  }
+
   /**
    * Reads the next byte.
+   * @param c cursor
    * @return next byte
    */
-  private int read() {
-    final Buffer buffer = buffer();
-    return buffer.data[off++] & 0xFF;
+  private int read(final Cursor c) {
+    if(c.off == IO.BLOCKSIZE) next(c);
+    return c.data[c.off++] & 0xFF;
   }
 
   /**
    * Writes the next byte.
+   * @param c cursor
    * @param value byte to be written
    */
-  private void write(final int value) {
-    final Buffer buffer = buffer();
-    buffer.dirty = true;
-    buffer.data[off++] = (byte) value;
-    final long nl = buffer.pos + off;
+  private void write(final Cursor c, final int value) {
+    final Buffer buffer = buffer(c);
+    buffer.data[c.off++] = (byte) value;
+    final long nl = c.pos + c.off;
     if(nl > length) length(nl);
   }
 
+  /**
+   * Moves the cursor to the next block.
+   * @param c cursor
+   */
+  private void next(final Cursor c) {
+    block(c, c.pos + IO.BLOCKSIZE);
+    c.off = 0;
+  }
+
+  /**
+   * Assigns a block to the cursor. If the block is not buffered yet, it is read from disk.
+   * The data of a buffer is replaced when another block is read. This way, the cursors of
+   * other threads may continue reading the old data.
+   * @param c cursor
+   * @param pos block position
+   */
+  private synchronized void block(final Cursor c, final long pos) {
+    if(buffers.cursor(pos)) {
+      final Buffer buffer = buffers.current();
+      try {
+        if(buffer.dirty) writeBlock(buffer);
+        buffer.pos = pos;
+        buffer.data = new byte[IO.BLOCKSIZE];
+        if(compressed != null) {
+          if(pos < length) compressed.read(pos, buffer.data);
+        } else {
+          raf.seek(pos);
+          if(pos < raf.length())
+            raf.readFully(buffer.data, 0, (int) Math.min(length - pos, IO.BLOCKSIZE));
+        }
+      } catch(final IOException ex) {
+        Util.stack(ex);
+      }
+    }
+    c.data = buffers.current().data;
+    c.pos = pos;
+    c.version = version;
+  }
+
+  /**
+   * Returns the buffer of the block that can be used for writing new bytes.
+   * Invalidates the cursors of all other threads.
+   * @param c cursor
+   * @return buffer
+   */
+  private synchronized Buffer buffer(final Cursor c) {
+    if(c.off == IO.BLOCKSIZE) {
+      c.pos += IO.BLOCKSIZE;
+      c.off = 0;
+    }
+    Buffer buffer = buffers.current();
+    if(buffer.pos != c.pos || buffer.data != c.data) {
+      block(c, c.pos);
+      buffer = buffers.current();
+    }
+    buffer.dirty = buffer.changed = true;
+    c.version = ++version;
+    return buffer;
+  }
+
   /**
    * Writes the specified block to disk.
    * @param buffer buffer to write
@@ -416,26 +541,47 @@ public final class DataAccess implements Closeable {
    */
   private void writeBlock(final Buffer buffer) throws IOException {
     final long pos = buffer.pos, len = Math.min(IO.BLOCKSIZE, length - pos);
-    raf.seek(pos);
-    raf.write(buffer.data, 0, (int) len);
+    if(journal != null) {
+      if(buffer.changed) {
+        // uncommitted block: log committed version and current version
+        if(!journal.logged(id, pos)) {
+          final byte[] data = new byte[IO.BLOCKSIZE];
+          if(compressed != null) {
+            compressed.read(pos, data);
+          } else {
+            final int l = (int) Math.max(0, Math.min(IO.BLOCKSIZE, raf.length() - pos));
+            CompressedFile.read(raf.getChannel(), pos, data, l);
+          }
+          journal.base(id, pos, data);
+        }
+        journal.log(id, pos, buffer.data);
+        buffer.changed = false;
+      }
+      journal.force();
+    }
+    if(compressed != null) {
+      // compressed blocks are always written completely: discard bytes beyond the file length
+      final int l = (int) Math.max(0, len);
+      if(l < IO.BLOCKSIZE) Arrays.fill(buffer.data, l, IO.BLOCKSIZE, (byte) 0);
+      compressed.write(pos, buffer.data);
+    } else {
+      raf.seek(pos);
+      raf.write(buffer.data, 0, (int) len);
+    }
     buffer.dirty = false;
   }
 
   /**
-   * Returns a buffer which can be used for writing new bytes.
-   * @return buffer
-   */
-  private Buffer buffer() {
-    return buffer(off == IO.BLOCKSIZE);
-  }
-
-  /**
-   * Returns the current or next buffer.
-   * @param next next block
-   * @return buffer
+   * Cursor of a single thread.
    */
-  private Buffer buffer(final boolean next) {
-    if(next) cursor(buffers.current().pos + IO.BLOCKSIZE);
-    return buffers.current();
+  private static final class Cursor {
+    /** Data of the current block ({@code null} if no block has been assigned yet). */
+    byte[] data;
+    /** Position of the current block. */
+    long pos;
+    /** Offset in the current block. */
+    int off;
+    /** Modification counter at the time the block was assigned. */
+    int version;
   }
 }
@@ -0,0 +1,390 @@
+package org.basex.io.random;
+
+import static org.basex.data.DataText.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.zip.*;
+
+import org.basex.data.*;
+import org.basex.io.*;
+import org.basex.io.in.DataInput;
+import org.basex.io.out.DataOutput;
+import org.basex.io.out.*;
+import org.basex.util.hash.*;
+
+/**
+ * Write-ahead log for the updates of a disk database.
+ *
+ * Pages of the table and the heap files that have been changed by a transaction are appended to
+ * the journal before they are written to their original position. A commit record contains the
+ * meta data and the page index of the committed state. Transactions release their locks before
+ * the journal is synchronized with the storage device: The log records of concurrent transactions
+ * are persisted with a single call (group commit, see {@link #sync()}).
+ *
+ * If a changed page is written to the database files before the transaction has been committed,
+ * the committed version of the page is logged first. If the database was not closed properly,
+ * the last committed versions of all logged pages and the meta data of the last commit are
+ * restored when the database is opened again (see {@link #recover(MetaData)}).
+ * The journal is cleared whenever all changes have been written to the database files.
+ *
+ * @author BaseX Team 2005-24, BSD License
+ * @author Christian Gruen
+ */
+public final class Journal implements Closeable {
+  /** File identifier: table. */
+  public static final int TABLE = 0;
+  /** File identifier: texts. */
+  public static final int TEXTS = 1;
+  /** File identifier: attribute values. */
+  public static final int VALUES = 2;
+
+  /** Size of the journal after which all changes should be written to the database files. */
+  private static final long LIMIT = 1 << 24;
+  /** Record type: committed version of a page. */
+  private static final int BASE = 1;
+  /** Record type: changed page. */
+  private static final int PAGE = 2;
+  /** Record type: commit. */
+  private static final int COMMIT = 3;
+  /** Size of a record header (type, file, position, length). */
+  private static final int HEADER = 14;
+
+  /** Journals and log positions of the commits of the current thread. */
+  private static final ThreadLocal<Map<Journal, Long>> COMMITS =
+      ThreadLocal.withInitial(HashMap::new);
+
+  /** Journal file. */
+  private final RandomAccessFile file;
+  /** Checksum calculator. */
+  private final CRC32 crc = new CRC32();
+  /** Positions of the blocks that can be restored from the journal (per file). */
+  private final IntSet[] logged = { new IntSet(), new IntSet(), new IntSet() };
+  /** Log position of the start of the journal file. */
+  private long start;
+  /** Log position of the end of the written records. */
+  private long written;
+  /** Log position up to which all records have been synchronized. */
+  private long synced;
+  /** Indicates if the journal is currently synchronized by a thread. */
+  private boolean syncing;
+
+  /**
+   * Constructor, creating a new journal.
+   * @param meta meta data
+   * @throws IOException I/O exception
+   */
+  public Journal(final MetaData meta) throws IOException {
+    file = new RandomAccessFile(meta.dbFile(DATAJRN).file(), "rw");
+    // the first byte indicates if the pages are stored in compressed blocks
+    file.setLength(0);
+    file.write(meta.compress ? 1 : 0);
+  }
+
+  /**
+   * Checks if the specified block can be restored from the journal.
+   * @param id file identifier
+   * @param pos file position of the block
+   * @return result of check
+   */
+  synchronized boolean logged(final int id, final long pos) {
+    return logged[id].contains((int) (pos >>> IO.BLOCKPOWER));
+  }
+
+  /**
+   * Logs the committed version of a block before it is overwritten.
+   * @param id file identifier
+   * @param pos file position of the block
+   * @param data block data
+   * @throws IOException I/O exception
+   */
+  synchronized void base(final int id, final long pos, final byte[] data) throws IOException {
+    append(BASE, id, pos, data);
+    logged[id].add((int) (pos >>> IO.BLOCKPOWER));
+  }
+
+  /**
+   * Logs a changed block.
+   * @param id file identifier
+   * @param pos file position of the block
+   * @param data block data
+   * @throws IOException I/O exception
+   */
+  synchronized void log(final int id, final long pos, final byte[] data) throws IOException {
+    append(PAGE, id, pos, data);
+    logged[id].add((int) (pos >>> IO.BLOCKPOWER));
+  }
+
+  /**
+   * Logs a commit. The commit will be persisted by the next call of {@link #sync()} in the
+   * current thread.
+   * @param info meta data
+   * @param index page index of the table
+   * @param idmap ID-PRE mapping (empty if no mapping exists)
+   * @param texts length of the texts file
+   * @param values length of the attribute values file
+   * @throws IOException I/O exception
+   */
+  public void commit(final byte[] info, final byte[] index, final byte[] idmap, final long texts,
+      final long values) throws IOException {
+
+    final ArrayOutput ao = new ArrayOutput();
+    try(DataOutput out = new DataOutput(ao)) {
+      out.writeToken(info);
+      out.writeToken(index);
+      out.writeToken(idmap);
+      out.writeLong(texts);
+      out.writeLong(values);
+    }
+    final long lsn;
+    synchronized(this) {
+      append(COMMIT, 0, 0, ao.finish());
+      lsn = written;
+    }
+    COMMITS.get().merge(this, lsn, Math::max);
+  }
+
+  /**
+   * Indicates if the journal should be cleared.
+   * @return result of check
+   */
+  public synchronized boolean full() {
+    return written - start > LIMIT;
+  }
+
+  /**
+   * Clears the journal. Must be called after all changes have been written to the database files
+   * and synchronized with the storage device.
+   * @throws IOException I/O exception
+   */
+  public synchronized void clear() throws IOException {
+    sync(written);
+    file.setLength(1);
+    start = written;
+    for(int l = 0; l < logged.length; l++) logged[l] = new IntSet();
+  }
+
+  /**
+   * Synchronizes all written records with the storage device. Must be called before changed
+   * pages are written to the database files.
+   * @throws IOException I/O exception
+   */
+  void force() throws IOException {
+    final long lsn;
+    synchronized(this) {
+      lsn = written;
+    }
+    sync(lsn);
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    file.close();
+    // release waiting threads
+    synced = Long.MAX_VALUE;
+    notifyAll();
+  }
+
+  /**
+   * Persists the commits of the current thread. Commits of other threads that have been logged
+   * in the meantime are persisted as well.
+   * @throws IOException I/O exception
+   */
+  public static void sync() throws IOException {
+    final Map<Journal, Long> commits = COMMITS.get();
+    if(commits.isEmpty()) return;
+    try {
+      for(final Map.Entry<Journal, Long> commit : commits.entrySet()) {
+        commit.getKey().sync(commit.getValue());
+      }
+    } finally {
+      commits.clear();
+    }
+  }
+
+  /**
+   * Synchronizes the journal up to the specified log position.
+   * The first waiting thread synchronizes the records of all other threads.
+   * @param lsn log position
+   * @throws IOException I/O exception
+   */
+  private void sync(final long lsn) throws IOException {
+    final long end;
+    synchronized(this) {
+      while(synced < lsn) {
+        if(!syncing) break;
+        try {
+          wait();
+        } catch(final InterruptedException ex) {
+          throw new InterruptedIOException(ex.getMessage());
+        }
+      }
+      if(synced >= lsn) return;
+      syncing = true;
+      end = written;
+    }
+    boolean ok = false;
+    try {
+      file.getChannel().force(false);
+      ok = true;
+    } finally {
+      synchronized(this) {
+        if(ok) synced = Math.max(synced, end);
+        syncing = false;
+        notifyAll();
+      }
+    }
+  }
+
+  /**
+   * Appends a record.
+   * @param type record type
+   * @param id file identifier
+   * @param pos file position
+   * @param data data
+   * @throws IOException I/O exception
+   */
+  private void append(final int type, final int id, final long pos, final byte[] data)
+      throws IOException {
+
+    final int dl = data.length;
+    final ByteBuffer bb = ByteBuffer.allocate(HEADER + dl + 4);
+    bb.put((byte) type).put((byte) id).putLong(pos).putInt(dl).put(data);
+    crc.reset();
+    crc.update(bb.array(), 0, HEADER + dl);
+    bb.putInt((int) crc.getValue());
+    bb.flip();
+
+    final FileChannel channel = file.getChannel();
+    long fp = written - start + 1;
+    while(bb.hasRemaining()) fp += channel.write(bb, fp);
+    written = start + fp - 1;
+  }
+
+  // RECOVERY =====================================================================================
+
+  /**
+   * Restores the last committed state of a database if its journal exists.
+   * Must be called before the meta data is read. The journal must be deleted by the caller
+   * after the indexes have been updated; until then, recovery can be repeated.
+   * @param meta meta data
+   * @return {@code true} if the database has been recovered
+   * @throws IOException I/O exception
+   */
+  public static boolean recover(final MetaData meta) throws IOException {
+    final IOFile jrn = meta.dbFile(DATAJRN);
+    if(!jrn.exists()) return false;
+
+    final byte[] bytes = jrn.read();
+    final boolean compress = bytes.length > 0 && bytes[0] == 1;
+    // committed versions of the pages, pages of the pending transaction
+    final List<Map<Long, byte[]>> pages = new ArrayList<>(), pending = new ArrayList<>();
+    for(int i = 0; i < 3; i++) {
+      pages.add(new HashMap<>());
+      pending.add(new HashMap<>());
+    }
+    byte[] state = null;
+
+    // parse records until the end of the file or an incomplete record is found
+    final ByteBuffer bb = ByteBuffer.wrap(bytes);
+    final CRC32 crc = new CRC32();
+    for(int p = 1; p + HEADER + 4 <= bytes.length;) {
+      bb.position(p);
+      final int type = bb.get(), id = bb.get();
+      final long pos = bb.getLong();
+      final int dl = bb.getInt();
+      if(dl < 0 || dl > bytes.length - p - HEADER - 4 || id < 0 || id > 2) break;
+      crc.reset();
+      crc.update(bytes, p, HEADER + dl);
+      if(bb.getInt(p + HEADER + dl) != (int) crc.getValue()) break;
+
+      final byte[] data = Arrays.copyOfRange(bytes, p + HEADER, p + HEADER + dl);
+      if(type == BASE) {
+        pages.get(id).put(pos, data);
+      } else if(type == PAGE) {
+        pending.get(id).put(pos, data);
+      } else if(type == COMMIT) {
+        for(int i = 0; i < 3; i++) {
+          pages.get(i).putAll(pending.get(i));
+          pending.get(i).clear();
+        }
+        state = data;
+      } else {
+        break;
+      }
+      p += HEADER + dl + 4;
+    }
+
+    // restore meta data and page index
+    long texts = -1, values = -1;
+    if(state != null) {
+      try(DataInput in = new DataInput(new IOContent(state))) {
+        meta.dbFile(DATAINF).write(in.readToken());
+        meta.dbFile(DATATBL + 'i').write(in.readToken());
+        final byte[] idmap = in.readToken();
+        if(idmap.length != 0) meta.dbFile(DATAIDP).write(idmap);
+        texts = in.readLong();
+        values = in.readLong();
+      }
+    }
+
+    // restore pages
+    restore(meta, DATATBL, compress, pages.get(TABLE), -1);
+    restore(meta, DATATXT, compress, pages.get(TEXTS), texts);
+    restore(meta, DATAATV, compress, pages.get(VALUES), values);
+    for(final String name : new String[] { DATAINF, DATATBL + 'i', DATAIDP }) {
+      force(meta.dbFile(name));
+    }
+    return true;
+  }
+
+  /**
+   * Writes pages to a database file.
+   * @param meta meta data
+   * @param name name of the file
+   * @param compress compressed blocks
+   * @param pages pages to be written
+   * @param length logical file length ({@code -1}: unchanged)
+   * @throws IOException I/O exception
+   */
+  private static void restore(final MetaData meta, final String name, final boolean compress,
+      final Map<Long, byte[]> pages, final long length) throws IOException {
+
+    try(RandomAccessFile raf = new RandomAccessFile(meta.dbFile(name).file(), "rw")) {
+      if(compress) {
+        final CompressedFile cf = new CompressedFile(raf, meta.dbFile(name + 'z'));
+        for(final Map.Entry<Long, byte[]> page : pages.entrySet()) {
+          cf.write(page.getKey(), page.getValue());
+        }
+        if(length != -1) cf.length(length);
+        raf.getChannel().force(true);
+        cf.flush();
+        force(meta.dbFile(name + 'z'));
+      } else {
+        for(final Map.Entry<Long, byte[]> page : pages.entrySet()) {
+          final long pos = page.getKey();
+          final int l = (int) Math.min(IO.BLOCKSIZE, length == -1 ? IO.BLOCKSIZE : length - pos);
+          if(l <= 0) continue;
+          raf.seek(pos);
+          raf.write(page.getValue(), 0, l);
+        }
+        if(length != -1) raf.setLength(length);
+        raf.getChannel().force(true);
+      }
+    }
+  }
+
+  /**
+   * Synchronizes the specified file with the storage device.
+   * @param file file (ignored if it does not exist)
+   * @throws IOException I/O exception
+   */
+  public static void force(final IOFile file) throws IOException {
+    if(!file.exists()) return;
+    try(RandomAccessFile raf = new RandomAccessFile(file.file(), "rw")) {
+      raf.getChannel().force(true);
+    }
+  }
+}
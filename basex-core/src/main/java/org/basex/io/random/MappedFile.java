@@ -0,0 +1,126 @@
+package org.basex.io.random;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.channels.FileChannel.*;
+
+import org.basex.util.*;
+
+/**
+ * Read-only, memory-mapped view on a file. The file is mapped in segments of
+ * {@code 1 << SEGPOWER} bytes. As the segment size is a multiple of the block size,
+ * values that are stored within a single block will never span two segments.
+ *
+ * @author BaseX Team 2005-24, BSD License
+ * @author Christian Gruen
+ */
+final class MappedFile {
+  /** Power of segment size. */
+  private static final int SEGPOWER = 30;
+  /** Mapped segments. */
+  private MappedByteBuffer[] segments;
+  /** Number of mapped bytes. */
+  private final long length;
+
+  /**
+   * Constructor, mapping the specified number of bytes.
+   * @param channel file channel
+   * @param length number of bytes to map
+   * @throws IOException I/O exception
+   */
+  MappedFile(final FileChannel channel, final long length) throws IOException {
+    this.length = length;
+    final int size = (int) (length + (1L << SEGPOWER) - 1 >>> SEGPOWER);
+    segments = new MappedByteBuffer[size];
+    for(int s = 0; s < size; s++) {
+      final long pos = (long) s << SEGPOWER;
+      segments[s] = channel.map(MapMode.READ_ONLY, pos, Math.min(length - pos, 1L << SEGPOWER));
+    }
+  }
+
+  /**
+   * Returns the number of mapped bytes.
+   * @return number of bytes
+   */
+  long length() {
+    return length;
+  }
+
+  /**
+   * Reads a byte value and returns it as an integer value.
+   * @param pos file position
+   * @return integer value
+   */
+  int read1(final long pos) {
+    return segment(pos).get(offset(pos)) & 0xFF;
+  }
+
+  /**
+   * Reads a short value and returns it as an integer value.
+   * @param pos file position
+   * @return integer value
+   */
+  int read2(final long pos) {
+    return segment(pos).getShort(offset(pos)) & 0xFFFF;
+  }
+
+  /**
+   * Reads an integer value.
+   * @param pos file position
+   * @return integer value
+   */
+  int read4(final long pos) {
+    return segment(pos).getInt(offset(pos));
+  }
+
+  /**
+   * Reads a 5-byte value and returns it as a long value.
+   * @param pos file position
+   * @return long value
+   */
+  long read5(final long pos) {
+    final MappedByteBuffer segment = segment(pos);
+    final int o = offset(pos);
+    return (long) (segment.get(o) & 0xFF) << 32 | segment.getInt(o + 1) & 0xFFFFFFFFL;
+  }
+
+  /**
+   * Releases the mapped segments. Must only be called if no other thread accesses the mapping.
+   */
+  void close() {
+    // release memory right away (a mapping would otherwise be released by the garbage collector)
+    final Class<?> clazz = Reflect.find("sun.misc.Unsafe");
+    final Method clean = Reflect.method(clazz, "invokeCleaner", ByteBuffer.class);
+    if(clean != null) {
+      try {
+        final Field field = clazz.getDeclaredField("theUnsafe");
+        field.setAccessible(true);
+        final Object unsafe = field.get(null);
+        for(final MappedByteBuffer segment : segments) Reflect.invoke(clean, unsafe, segment);
+      } catch(final ReflectiveOperationException | RuntimeException ex) {
+        Util.debug(ex);
+      }
+    }
+    segments = new MappedByteBuffer[0];
+  }
+
+  /**
+   * Returns the segment for the specified file position.
+   * @param pos file position
+   * @return segment
+   */
+  private MappedByteBuffer segment(final long pos) {
+    return segments[(int) (pos >>> SEGPOWER)];
+  }
+
+  /**
+   * Returns the offset of the specified file position in its segment.
+   * @param pos file position
+   * @return offset
+   */
+  private static int offset(final long pos) {
+    return (int) (pos & (1L << SEGPOWER) - 1);
+  }
+}
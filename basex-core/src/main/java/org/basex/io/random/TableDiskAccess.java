@@ -5,30 +5,64 @@ import static org.basex.data.DataText.*;
 import java.io.*;
 import java.nio.channels.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 import org.basex.core.*;
 import org.basex.data.*;
 import org.basex.io.*;
 import org.basex.io.in.DataInput;
 import org.basex.io.out.DataOutput;
+import org.basex.io.out.*;
 import org.basex.util.*;
+import org.basex.util.list.*;
 
 /**
  * This class stores the table on disk and reads it page-wise.
+ * Each reading thread keeps a reference to the page it has accessed last. The buffer pool is only
+ * locked if another page is requested. Updates must not be performed in parallel with other
+ * operations. If the table is compressed, the buffer pool contains the decompressed pages.
+ *
+ * If pages are requested in ascending order, and if the table is not locked for updates,
+ * the next pages are read in advance by a background thread (see {@link Prop#readahead}).
  *
  * @author BaseX Team 2005-24, BSD License
  * @author Christian Gruen
  * @author Tim Petrowsky
  */
 public final class TableDiskAccess extends TableAccess {
+  /** Threads for reading pages in advance. */
+  private static final ExecutorService READAHEAD = Executors.newCachedThreadPool(r -> {
+    final Thread thread = new Thread(r, "ReadAhead");
+    thread.setDaemon(true);
+    return thread;
+  });
+
   /** Buffer manager. */
   private final Buffers buffers = new Buffers();
   /** File storing all pages. */
   private final RandomAccessFile file;
+  /** Compressed pages ({@code null} if the table is stored uncompressed). */
+  private final CompressedFile compressed;
   /** Bitmap storing free (=0) and used (=1) pages. */
   private BitArray usedPages;
   /** File lock. */
   private FileLock lock;
+  /** Memory-mapped table (only assigned if table is read-locked; can be {@code null}). */
+  private volatile MappedFile mapping;
+  /** Last memory-mapped table (retained during updates; can be {@code null}). */
+  private MappedFile mapped;
+  /** Pages that have last been accessed by the reading threads. */
+  private final ThreadLocal<Page> local = ThreadLocal.withInitial(Page::new);
+  /** Modification counter (invalidates the pages of the reading threads). */
+  private volatile int version;
+  /** Indicates if pages may be read in advance (only if the table is not locked for updates). */
+  private boolean readahead;
+  /** Task that reads pages in advance ({@code null} if no pages have been scheduled yet). */
+  private Future<?> task;
+  /** Last page that has been scheduled for being read in advance ({@code -1}: none). */
+  private int ahead = -1;
+  /** Journal ({@code null} if updates are not logged). */
+  private Journal journal;
 
   /** First pre values (ascending order); will be initialized with the first update. */
   private int[] fPreIndex;
@@ -76,6 +110,7 @@ public final class TableDiskAccess extends TableAccess {
 
     // initialize data file
     file = new RandomAccessFile(meta.dbFile(DATATBL).file(), "rw");
+    compressed = meta.compress ? new CompressedFile(file, meta.dbFile(DATATBL + 'z')) : null;
     if(!lock(write)) throw new BaseXException(Text.DB_PINNED_X, meta.name);
   }
 
@@ -102,41 +137,59 @@ public final class TableDiskAccess extends TableAccess {
     for(final Buffer buffer : buffers.all()) {
       write(buffer);
     }
+    if(compressed != null) compressed.flush();
     if(!dirty || !all) return;
 
+    if(fPreIndex != null && regular()) removeMapping();
     try(DataOutput out = new DataOutput(meta.dbFile(DATATBL + 'i'))) {
-      final int p = pages;
-      boolean regular = true;
-
-      // check if page mapping is regular (are all pages used and in ascending order?)
-      if(fPreIndex != null) {
-        regular = p == used;
-        for(int i = 0; i < p && regular; i++) regular = fPreIndex[i] == i * IO.ENTRIES;
-        for(int i = 0; i < p && regular; i++) regular = pageIndex[i] == i;
-        if(regular) removeMapping();
-      }
+      write(out);
+    }
+    dirty = false;
+  }
 
-      if(regular) {
-        // no mapping available or required (0: empty table; MAX: no mapping, see TableOutput#close)
-        out.writeNum(p);
-        out.writeNum(used == 0 ? 0 : Integer.MAX_VALUE);
-      } else {
-        out.writeNum(p);
-        out.writeNum(used);
-        out.writeNum(p);
-        for(int s = 0; s < p; s++) out.writeNum(fPreIndex[s]);
-        out.writeNum(p);
-        for(int s = 0; s < p; s++) out.writeNum(pageIndex[s]);
-        out.writeLongs(usedPages.toArray());
+  /**
+   * Assigns a journal, in which all changed pages will be logged.
+   * @param jrn journal ({@code null} if updates are not logged)
+   */
+  public synchronized void journal(final Journal jrn) {
+    journal = jrn;
+  }
+
+  /**
+   * Logs all pages that have been changed since the last commit.
+   * @return page index of the committed table
+   * @throws IOException I/O exception
+   */
+  public synchronized byte[] commit() throws IOException {
+    for(final Buffer buffer : buffers.all()) {
+      if(buffer.changed) {
+        journal.log(Journal.TABLE, buffer.pos << IO.BLOCKPOWER, buffer.data);
+        buffer.changed = false;
       }
     }
-    dirty = false;
+    final ArrayOutput ao = new ArrayOutput();
+    try(DataOutput out = new DataOutput(ao)) {
+      write(out);
+    }
+    return ao.finish();
+  }
+
+  /**
+   * Synchronizes the table with the storage device.
+   * @throws IOException I/O exception
+   */
+  public synchronized void force() throws IOException {
+    file.getChannel().force(true);
   }
 
   @Override
-  public synchronized void close() throws IOException {
-    flush(true);
-    file.close();
+  public void close() throws IOException {
+    stopReadAhead();
+    synchronized(this) {
+      unmap(true);
+      flush(true);
+      file.close();
+    }
   }
 
   @Override
@@ -146,63 +199,88 @@ public final class TableDiskAccess extends TableAccess {
         if(write != lock.isShared()) return true;
         lock.release();
       }
+      // updates are performed on the buffered table; the mapping is recreated afterwards
+      unmap(false);
+      // no pages must be read while the table is updated
+      stopReadAhead();
       lock = file.getChannel().tryLock(0, Long.MAX_VALUE, !write);
-      return lock != null;
+      if(lock == null) return false;
+      if(!write) {
+        map();
+        synchronized(this) {
+          readahead = true;
+        }
+      }
+      return true;
     } catch(final IOException ex) {
       throw Util.notExpected(ex);
     }
   }
 
   @Override
-  public synchronized int read1(final int pre, final int offset) {
-    final int o = offset + cursor(pre);
-    final byte[] data = buffers.current().data;
-    return data[o] & 0xFF;
+  public int read1(final int pre, final int offset) {
+    final MappedFile mf = mapping;
+    if(mf != null) return mf.read1(position(pre) + offset);
+    final Page pg = page(pre);
+    final int o = offset + pg.offset(pre);
+    return pg.data[o] & 0xFF;
   }
 
   @Override
-  public synchronized int read2(final int pre, final int offset) {
-    final int o = offset + cursor(pre);
-    final byte[] data = buffers.current().data;
+  public int read2(final int pre, final int offset) {
+    final MappedFile mf = mapping;
+    if(mf != null) return mf.read2(position(pre) + offset);
+    final Page pg = page(pre);
+    final int o = offset + pg.offset(pre);
+    final byte[] data = pg.data;
     return ((data[o] & 0xFF) << 8) + (data[o + 1] & 0xFF);
   }
 
   @Override
-  public synchronized int read4(final int pre, final int offset) {
-    final int o = offset + cursor(pre);
-    final byte[] data = buffers.current().data;
+  public int read4(final int pre, final int offset) {
+    final MappedFile mf = mapping;
+    if(mf != null) return mf.read4(position(pre) + offset);
+    final Page pg = page(pre);
+    final int o = offset + pg.offset(pre);
+    final byte[] data = pg.data;
     return ((data[o] & 0xFF) << 24) + ((data[o + 1] & 0xFF) << 16) +
       ((data[o + 2] & 0xFF) << 8) + (data[o + 3] & 0xFF);
   }
 
   @Override
-  public synchronized long read5(final int pre, final int offset) {
-    final int o = offset + cursor(pre);
-    final byte[] data = buffers.current().data;
+  public long read5(final int pre, final int offset) {
+    final MappedFile mf = mapping;
+    if(mf != null) return mf.read5(position(pre) + offset);
+    final Page pg = page(pre);
+    final int o = offset + pg.offset(pre);
+    final byte[] data = pg.data;
     return ((long) (data[o] & 0xFF) << 32) + ((long) (data[o + 1] & 0xFF) << 24) +
       ((data[o + 2] & 0xFF) << 16) + ((data[o + 3] & 0xFF) << 8) + (data[o + 4] & 0xFF);
   }
 
   @Override
   public void write1(final int pre, final int offset, final int value) {
+    version++;
     final int o = offset + cursor(pre);
     final Buffer buffer = buffers.current();
     buffer.data[o] = (byte) value;
-    buffer.dirty = true;
+    buffer.dirty = buffer.changed = true;
   }
 
   @Override
   public void write2(final int pre, final int offset, final int value) {
+    version++;
     final int o = offset + cursor(pre);
     final Buffer buffer = buffers.current();
     final byte[] data = buffer.data;
     data[o] = (byte) (value >>> 8);
     data[o + 1] = (byte) value;
-    buffer.dirty = true;
+    buffer.dirty = buffer.changed = true;
   }
 
   @Override
   public void write4(final int pre, final int offset, final int value) {
+    version++;
     final int o = offset + cursor(pre);
     final Buffer buffer = buffers.current();
     final byte[] data = buffer.data;
@@ -210,11 +288,12 @@ public final class TableDiskAccess extends TableAccess {
     data[o + 1] = (byte) (value >>> 16);
     data[o + 2] = (byte) (value >>> 8);
     data[o + 3] = (byte) value;
-    buffer.dirty = true;
+    buffer.dirty = buffer.changed = true;
   }
 
   @Override
   public void write5(final int pre, final int offset, final long value) {
+    version++;
     final int o = offset + cursor(pre);
     final Buffer buffer = buffers.current();
     final byte[] data = buffer.data;
@@ -223,7 +302,7 @@ public final class TableDiskAccess extends TableAccess {
     data[o + 2] = (byte) (value >>> 16);
     data[o + 3] = (byte) (value >>> 8);
     data[o + 4] = (byte) value;
-    buffer.dirty = true;
+    buffer.dirty = buffer.changed = true;
   }
 
   @Override
@@ -233,7 +312,7 @@ public final class TableDiskAccess extends TableAccess {
       final int off = cursor(i);
       final Buffer buffer = buffers.current();
       Array.copy(entries, o, IO.NODESIZE, buffer.data, off);
-      buffer.dirty = true;
+      buffer.dirty = buffer.changed = true;
     }
   }
 
@@ -338,7 +417,7 @@ public final class TableDiskAccess extends TableAccess {
     Buffer buffer = buffers.current();
     if(nold + nnew <= IO.BLOCKSIZE) {
       Array.insert(buffer.data, split, nnew, nold, entries);
-      buffer.dirty = true;
+      buffer.dirty = buffer.changed = true;
 
       // increment first pre-values of pages after the last modified page
       for(int i = page + 1; i < used; ++i) fPreIndex[i] += nr;
@@ -358,7 +437,7 @@ public final class TableDiskAccess extends TableAccess {
     int nrem = IO.BLOCKSIZE - split;
     if(nrem > 0) {
       Array.copyFromStart(all, nrem, buffer.data, split);
-      buffer.dirty = true;
+      buffer.dirty = buffer.changed = true;
     }
 
     // number of new required pages and remaining bytes
@@ -376,7 +455,7 @@ public final class TableDiskAccess extends TableAccess {
           buffer = buffers.current();
           Array.copyFromStart(buffer.data, o, buffer.data, remain);
           Array.copyToStart(all, all.length - remain, remain, buffer.data);
-          buffer.dirty = true;
+          buffer.dirty = buffer.changed = true;
           // reduce the pre value, since it will be later incremented with nr
           fPreIndex[page] -= remain >>> IO.NODEPOWER;
           // go back to the previous page
@@ -441,9 +520,10 @@ public final class TableDiskAccess extends TableAccess {
   // PRIVATE METHODS ==============================================================================
 
   /**
-   * Marks the data structures as dirty.
+   * Marks the data structures as dirty and invalidates the pages of the reading threads.
    */
   private void dirty() {
+    version++;
     // initialize data structures required for performing updates
     if(fPreIndex == null) {
       fPreIndex = new int[pages];
@@ -455,6 +535,209 @@ public final class TableDiskAccess extends TableAccess {
     dirty = true;
   }
 
+  /**
+   * Checks if the page mapping is regular (are all pages used and in ascending order?).
+   * @return result of check
+   */
+  private boolean regular() {
+    if(fPreIndex == null) return true;
+    final int p = pages;
+    boolean regular = p == used;
+    for(int i = 0; i < p && regular; i++) regular = fPreIndex[i] == i * IO.ENTRIES;
+    for(int i = 0; i < p && regular; i++) regular = pageIndex[i] == i;
+    return regular;
+  }
+
+  /**
+   * Writes the page index.
+   * @param out output stream
+   * @throws IOException I/O exception
+   */
+  private void write(final DataOutput out) throws IOException {
+    final int p = pages;
+    if(regular()) {
+      // no mapping available or required (0: empty table; MAX: no mapping, see TableOutput#close)
+      out.writeNum(p);
+      out.writeNum(used == 0 ? 0 : Integer.MAX_VALUE);
+    } else {
+      out.writeNum(p);
+      out.writeNum(used);
+      out.writeNum(p);
+      for(int s = 0; s < p; s++) out.writeNum(fPreIndex[s]);
+      out.writeNum(p);
+      for(int s = 0; s < p; s++) out.writeNum(pageIndex[s]);
+      out.writeLongs(usedPages.toArray());
+    }
+  }
+
+  /**
+   * Memory-maps the table file if this is requested by the static options.
+   * Compressed tables are never mapped. The last mapping is reused if the file has not grown,
+   * as changes that have been written to the file are visible in the mapping.
+   * @throws IOException I/O exception
+   */
+  private void map() throws IOException {
+    if(Prop.mmap && compressed == null) {
+      for(final Buffer buffer : buffers.all()) write(buffer);
+      final long length = file.length();
+      if(mapped == null || length > mapped.length()) {
+        mapped = new MappedFile(file.getChannel(), length);
+      }
+      mapping = mapped;
+    }
+  }
+
+  /**
+   * Discards the memory-mapped table.
+   * @param release release the mapped memory right away (only allowed if no other thread
+   *   accesses the table)
+   */
+  private void unmap(final boolean release) {
+    mapping = null;
+    final MappedFile mf = mapped;
+    if(mf != null && release) {
+      mapped = null;
+      mf.close();
+    }
+  }
+
+  /**
+   * Returns the file position of the entry for the specified pre value.
+   * In contrast to {@link #cursor(int)}, no instance variables are changed.
+   * @param pre pre value
+   * @return file position
+   */
+  private long position(final int pre) {
+    if(pre < 0 || pre >= meta.size) throw Util.notExpected(
+        "Data Access out of bounds:\n- pre value: " + pre + "\n- table size: " + meta.size);
+    if(fPreIndex == null) return (long) pre << IO.NODEPOWER;
+
+    // find last page with a first pre value that is smaller than or equal to the pre value
+    int l = 0, h = used - 1;
+    while(l < h) {
+      final int m = l + h + 1 >>> 1;
+      if(fPreIndex[m] <= pre) l = m;
+      else h = m - 1;
+    }
+    return ((long) pageIndex[l] << IO.BLOCKPOWER) + (pre - fPreIndex[l] << IO.NODEPOWER);
+  }
+
+  /**
+   * Returns the page of the current thread that contains the entry for the specified pre value.
+   * @param pre pre value
+   * @return page
+   */
+  private Page page(final int pre) {
+    final Page pg = local.get();
+    if(pg.version != version || pre < pg.first || pre >= pg.next || pg.data == null) {
+      synchronized(this) {
+        final int prev = page;
+        cursor(pre);
+        pg.data = buffers.current().data;
+        pg.first = firstPre;
+        pg.next = nextPre;
+        pg.version = version;
+        if(page != prev) readAhead(page == prev + 1);
+      }
+    }
+    return pg;
+  }
+
+  /**
+   * Schedules the next pages for being read in advance if pages are accessed sequentially.
+   * @param sequential sequential access
+   */
+  private void readAhead(final boolean sequential) {
+    final int n = Prop.readahead;
+    if(!sequential) ahead = -1;
+    if(!sequential || n <= 0 || !readahead || task != null && !task.isDone() ||
+        ahead > page + (n >>> 1)) return;
+
+    // choose pages that have not been scheduled yet
+    final int first = Math.max(page, ahead) + 1, last = Math.min(used, page + 1 + n);
+    if(first >= last) return;
+    final IntList list = new IntList(last - first);
+    for(int p = first; p < last; p++) {
+      final int pos = pageIndex == null ? p : pageIndex[p];
+      if(pos < pages) list.add(pos);
+    }
+    ahead = last - 1;
+    if(list.isEmpty()) return;
+
+    final int[] positions = list.finish();
+    final int v = version;
+    task = READAHEAD.submit(() -> {
+      try {
+        for(final int pos : positions) {
+          final byte[] data = new byte[IO.BLOCKSIZE];
+          if(compressed != null) {
+            compressed.read((long) pos << IO.BLOCKPOWER, data);
+          } else {
+            CompressedFile.read(file.getChannel(), (long) pos << IO.BLOCKPOWER, data,
+                IO.BLOCKSIZE);
+          }
+          if(!add(pos, data, v)) break;
+        }
+      } catch(final IOException | RuntimeException ex) {
+        // table may have been closed, or page may be corrupt: it will be read again on demand
+        Util.debug(ex);
+      }
+    });
+  }
+
+  /**
+   * Disables reading pages in advance and waits until a running task has been finished.
+   * The task is stopped after the current page, as it must not add any more pages to the buffers.
+   */
+  private void stopReadAhead() {
+    final Future<?> f;
+    synchronized(this) {
+      readahead = false;
+      f = task;
+      task = null;
+    }
+    if(f == null || f.isDone()) return;
+    boolean interrupted = false;
+    while(true) {
+      try {
+        f.get();
+        break;
+      } catch(final InterruptedException ex) {
+        Util.debug(ex);
+        interrupted = true;
+      } catch(final ExecutionException ex) {
+        Util.debug(ex);
+        break;
+      }
+    }
+    if(interrupted) Thread.currentThread().interrupt();
+  }
+
+  /**
+   * Adds a page that has been read in advance to the buffers.
+   * @param pos page position
+   * @param data page data
+   * @param v modification counter at the time the page was scheduled
+   * @return {@code false} if the table has been modified or locked in the meantime
+   * @throws IOException I/O exception
+   */
+  private synchronized boolean add(final int pos, final byte[] data, final int v)
+      throws IOException {
+    if(!readahead || version != v) return false;
+    final Buffer current = buffers.current();
+    final Buffer buffer = buffers.prefetch(pos);
+    if(buffer != null) {
+      write(buffer);
+      buffer.pos = pos;
+      buffer.data = data;
+      // the buffer of the current page has been reassigned: read current page again
+      if(buffer == current && page >= 0 && page < used) {
+        read(pageIndex == null ? page : pageIndex[page]);
+      }
+    }
+    return true;
+  }
+
   /**
    * Searches for the page containing the entry for the specified pre value.
    * Reads the page and returns its offset inside the page.
@@ -525,8 +808,12 @@ public final class TableDiskAccess extends TableAccess {
     try {
       write(buffer);
       buffer.pos = pre;
+      // assign new array: pages of reading threads may still reference the old data
+      buffer.data = new byte[IO.BLOCKSIZE];
       if(pre >= pages) {
         pages = pre + 1;
+      } else if(compressed != null) {
+        compressed.read(buffer.pos << IO.BLOCKPOWER, buffer.data);
       } else {
         file.seek(buffer.pos << IO.BLOCKPOWER);
         file.readFully(buffer.data);
@@ -544,8 +831,31 @@ public final class TableDiskAccess extends TableAccess {
   private void write(final Buffer buffer) throws IOException {
     if(!buffer.dirty) return;
 
-    file.seek(buffer.pos << IO.BLOCKPOWER);
-    file.write(buffer.data);
+    final long pos = buffer.pos << IO.BLOCKPOWER;
+    if(journal != null) {
+      if(buffer.changed) {
+        // uncommitted page: log committed version and current version
+        if(!journal.logged(Journal.TABLE, pos)) {
+          final byte[] data = new byte[IO.BLOCKSIZE];
+          if(compressed != null) {
+            compressed.read(pos, data);
+          } else {
+            final int l = (int) Math.max(0, Math.min(IO.BLOCKSIZE, file.length() - pos));
+            CompressedFile.read(file.getChannel(), pos, data, l);
+          }
+          journal.base(Journal.TABLE, pos, data);
+        }
+        journal.log(Journal.TABLE, pos, buffer.data);
+        buffer.changed = false;
+      }
+      journal.force();
+    }
+    if(compressed != null) {
+      compressed.write(pos, buffer.data);
+    } else {
+      file.seek(pos);
+      file.write(buffer.data);
+    }
     buffer.dirty = false;
   }
 
@@ -580,7 +890,7 @@ public final class TableDiskAccess extends TableAccess {
   private static void delete(final Buffer buffer, final int from, final int to, final int length) {
     final byte[] array = buffer.data;
     Array.copy(array, to << IO.NODEPOWER, length << IO.NODEPOWER, array, from << IO.NODEPOWER);
-    buffer.dirty = true;
+    buffer.dirty = buffer.changed = true;
   }
 
   /**
@@ -593,7 +903,7 @@ public final class TableDiskAccess extends TableAccess {
     final Buffer buffer = buffers.current();
     final int len = Math.min(IO.BLOCKSIZE, array.length - offset);
     Array.copyToStart(array, offset, len, buffer.data);
-    buffer.dirty = true;
+    buffer.dirty = buffer.changed = true;
     return len;
   }
 
@@ -614,4 +924,27 @@ public final class TableDiskAccess extends TableAccess {
     pageIndex = null;
     usedPages = null;
   }
+
+  /**
+   * Page of a reading thread.
+   */
+  private static final class Page {
+    /** Page data ({@code null} if no page has been assigned yet). */
+    byte[] data;
+    /** Pre value of the first entry. */
+    int first;
+    /** First pre value of the next page. */
+    int next;
+    /** Modification counter at the time the page was assigned. */
+    int version;
+
+    /**
+     * Returns the offset of the entry for the specified pre value.
+     * @param pre pre value
+     * @return offset
+     */
+    int offset(final int pre) {
+      return pre - first << IO.NODEPOWER;
+    }
+  }
 }
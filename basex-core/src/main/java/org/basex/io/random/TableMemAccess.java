@@ -8,7 +8,7 @@ import org.basex.util.*;
 
 /**
  * This class allows main memory access to the database table representation.
- * All table entries are stored in arrays
+ * All table entries are stored in arrays, or in direct buffers outside the Java heap.
  *
  * @author BaseX Team 2005-24, BSD License
  * @author Christian Gruen
@@ -16,6 +16,8 @@ import org.basex.util.*;
 public final class TableMemAccess extends TableAccess {
   /** Table blocks. */
   private final ArrayList<TableMemBlock> blocks = new ArrayList<>();
+  /** Store table blocks in direct buffers. */
+  private final boolean offheap;
   /** Dense flag (blocks contain no gaps). */
   private boolean dense = true;
   /** Current block index. */
@@ -26,7 +28,17 @@ public final class TableMemAccess extends TableAccess {
    * @param meta meta data
    */
   public TableMemAccess(final MetaData meta) {
+    this(meta, false);
+  }
+
+  /**
+   * Constructor.
+   * @param meta meta data
+   * @param offheap store table blocks in direct buffers
+   */
+  public TableMemAccess(final MetaData meta, final boolean offheap) {
     super(meta);
+    this.offheap = offheap;
   }
 
   @Override
@@ -140,7 +152,7 @@ public final class TableMemAccess extends TableAccess {
       final int bs = blocks.size();
       final int remaining = bs == 0 ? 0 : blocks.get(bs - 1).remaining(size);
       if(remaining < count) {
-        blocks.addAll(bs, TableMemBlock.get(count - remaining, pre + remaining));
+        blocks.addAll(bs, TableMemBlock.get(count - remaining, pre + remaining, offheap));
       }
     } else {
       // insert entries. if no space is left, insert new blocks
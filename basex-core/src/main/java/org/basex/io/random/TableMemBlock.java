@@ -1,5 +1,6 @@
 package org.basex.io.random;
 
+import java.nio.*;
 import java.util.*;
 
 import org.basex.io.*;
@@ -8,35 +9,46 @@ import org.basex.util.list.*;
 
 /**
  * Organizes a single main memory table block.
- * All table entries are stored in arrays
+ * All table entries are stored in arrays, or in direct buffers outside the Java heap.
  *
  * @author BaseX Team 2005-24, BSD License
  * @author Christian Gruen
  */
 final class TableMemBlock {
-  /** Table data, with two values for one XML node. */
+  /** Table data, with two values for one XML node ({@code null} if a direct buffer is used). */
   private long[] data;
+  /** Table data in a direct buffer ({@code null} if an array is used). */
+  private final LongBuffer direct;
   /** First pre value. */
   int firstPre;
 
   /**
    * Constructor with initial capacity.
    * @param compact compact block size
+   * @param offheap store data in a direct buffer (blocks will always be allocated completely)
    */
-  private TableMemBlock(final boolean compact) {
-    data = new long[(compact ? 1 : IO.BLOCKSIZE) << 1];
+  private TableMemBlock(final boolean compact, final boolean offheap) {
+    if(offheap) {
+      direct = ByteBuffer.allocateDirect(IO.BLOCKSIZE << 4).order(ByteOrder.nativeOrder()).
+          asLongBuffer();
+    } else {
+      data = new long[(compact ? 1 : IO.BLOCKSIZE) << 1];
+      direct = null;
+    }
   }
 
   /**
    * Creates new blocks.
    * @param count number of entries to add
    * @param compact compact block size
+   * @param offheap store data in direct buffers
    * @return new blocks
    */
-  private static ArrayList<TableMemBlock> get(final int count, final boolean compact) {
+  private static ArrayList<TableMemBlock> get(final int count, final boolean compact,
+      final boolean offheap) {
     final int bs = IO.BLOCKSIZE + count - 1 >>> IO.BLOCKPOWER;
     final ArrayList<TableMemBlock> list = new ArrayList<>(bs);
-    for(int b = 0; b < bs; b++) list.add(new TableMemBlock(compact));
+    for(int b = 0; b < bs; b++) list.add(new TableMemBlock(compact, offheap));
     return list;
   }
 
@@ -44,10 +56,11 @@ final class TableMemBlock {
    * Creates new blocks with computed pre values.
    * @param count number of entries to add
    * @param pre pre value of first block (will be incremented for subsequent blocks)
+   * @param offheap store data in direct buffers
    * @return new blocks
    */
-  static ArrayList<TableMemBlock> get(final int count, final int pre) {
-    final ArrayList<TableMemBlock> blocks = get(count, true);
+  static ArrayList<TableMemBlock> get(final int count, final int pre, final boolean offheap) {
+    final ArrayList<TableMemBlock> blocks = get(count, true, offheap);
     int fp = pre;
     for(final TableMemBlock block : blocks) {
       block.firstPre = fp;
@@ -72,7 +85,8 @@ final class TableMemBlock {
    * @return value
    */
   long value(final int pre, final int offset) {
-    return data[index(pre, offset)];
+    final int i = index(pre, offset);
+    return direct != null ? direct.get(i) : data[i];
   }
 
   /**
@@ -83,8 +97,12 @@ final class TableMemBlock {
    */
   void value(final int pre, final int offset, final long value) {
     final int i = index(pre, offset);
-    resize(i + 1);
-    data[i] = value;
+    if(direct != null) {
+      direct.put(i, value);
+    } else {
+      resize(i + 1);
+      data[i] = value;
+    }
   }
 
   /**
@@ -97,7 +115,7 @@ final class TableMemBlock {
   int delete(final int pre, final int count, final int nextPre) {
     final int first = pre - firstPre, last = first + count, filled = nextPre - firstPre;
     if(last >= filled) return filled - first;
-    System.arraycopy(data, last << 1, data, first << 1, filled - last << 1);
+    move(last << 1, first << 1, filled - last << 1);
     return count;
   }
 
@@ -115,18 +133,18 @@ final class TableMemBlock {
     // check if entries can be inserted into existing block
     if(count <= remaining) {
       resize(last + copy << 1);
-      System.arraycopy(data, first << 1, data, last << 1, copy << 1);
+      move(first << 1, last << 1, copy << 1);
       return null;
     }
 
     // otherwise, create new blocks
     resize(IO.BLOCKSIZE << 1);
-    final ArrayList<TableMemBlock> blocks = get(count - remaining, false);
+    final ArrayList<TableMemBlock> blocks = get(count - remaining, false, direct != null);
     // create temporary array with final entries
     final int total = filled + count;
     final long[] longs = new long[total << 1];
-    System.arraycopy(data, 0, longs, 0, first << 1);
-    System.arraycopy(data, first << 1, longs, last << 1, copy << 1);
+    copyTo(0, longs, 0, first << 1);
+    copyTo(first << 1, longs, last << 1, copy << 1);
 
     /* redistribute entries evenly:
      * 300 entries: 2 blocks with 150 entries each
@@ -135,12 +153,12 @@ final class TableMemBlock {
     final int bs = blocks.size(), fill = (total + bs) / (bs + 1);
     final int total2 = total << 1, fill2 = fill << 1;
     // populate original block
-    System.arraycopy(longs, 0, data, 0, fill2);
+    copyFrom(longs, 0, fill2);
     // populate new blocks
     int copied = fill, copied2 = fill2;
     for(final TableMemBlock block : blocks) {
       block.firstPre = firstPre + copied;
-      System.arraycopy(longs, copied2, block.data, 0, Math.min(fill2, total2 - copied2));
+      block.copyFrom(longs, copied2, Math.min(fill2, total2 - copied2));
       copied += fill;
       copied2 += fill2;
     }
@@ -152,6 +170,7 @@ final class TableMemBlock {
    * @param size minimum size
    */
   private void resize(final int size) {
+    if(direct != null) return;
     final long[] dt = data;
     final int dl = dt.length;
     if(dl < size) data = Arrays.copyOf(dt, Math.min(Math.max(size, dl << 1), IO.BLOCKSIZE << 1));
@@ -162,9 +181,9 @@ final class TableMemBlock {
     final StringBuilder sb = new StringBuilder(Util.className(this) + '[' + firstPre + ": ");
     final IntList ints = new IntList();
     int first = -1, last = 0;
-    final int dl = data.length;
+    final int dl = direct != null ? direct.capacity() : data.length;
     for(int d = 0; d < dl; d++) {
-      if(data[d] != 0) {
+      if((direct != null ? direct.get(d) : data[d]) != 0) {
         if(first == -1) first = d;
         last = d;
       } else if(first != -1) {
@@ -182,6 +201,51 @@ final class TableMemBlock {
 
   // PRIVATE METHODS ==============================================================================
 
+  /**
+   * Moves values inside the block.
+   * @param from source index
+   * @param to target index
+   * @param length number of values
+   */
+  private void move(final int from, final int to, final int length) {
+    if(direct == null) {
+      System.arraycopy(data, from, data, to, length);
+    } else if(from > to) {
+      for(int i = 0; i < length; i++) direct.put(to + i, direct.get(from + i));
+    } else {
+      for(int i = length - 1; i >= 0; i--) direct.put(to + i, direct.get(from + i));
+    }
+  }
+
+  /**
+   * Copies values from the block to an array.
+   * @param from source index
+   * @param longs target array
+   * @param to target index
+   * @param length number of values
+   */
+  private void copyTo(final int from, final long[] longs, final int to, final int length) {
+    if(direct == null) {
+      System.arraycopy(data, from, longs, to, length);
+    } else {
+      for(int i = 0; i < length; i++) longs[to + i] = direct.get(from + i);
+    }
+  }
+
+  /**
+   * Copies values from an array to the start of the block.
+   * @param longs source array
+   * @param from source index
+   * @param length number of values
+   */
+  private void copyFrom(final long[] longs, final int from, final int length) {
+    if(direct == null) {
+      System.arraycopy(longs, from, data, 0, length);
+    } else {
+      for(int i = 0; i < length; i++) direct.put(i, longs[from + i]);
+    }
+  }
+
   /**
    * Returns the index to the current table segment.
    * @param pre pre value
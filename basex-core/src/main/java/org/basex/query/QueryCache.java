@@ -0,0 +1,324 @@
+package org.basex.query;
+
+import java.util.*;
+import java.util.Map.*;
+
+import org.basex.core.*;
+import org.basex.io.*;
+import org.basex.query.func.*;
+import org.basex.query.scope.*;
+import org.basex.query.util.*;
+import org.basex.query.value.item.*;
+import org.basex.query.var.*;
+
+/**
+ * This class caches prepared queries, which are shared by all clients.
+ *
+ * Compiled queries cannot be reused, as expressions are rewritten in place, and as the
+ * optimizations depend on the bound variables and the current state of the databases. Instead,
+ * the cache contains query strings in which all function declarations that cannot be reached
+ * from the main expression or a static variable are replaced by whitespaces. If a query with
+ * large modules is evaluated repeatedly, only the required functions will be parsed and compiled.
+ * Line and column positions of the remaining code are preserved. Queries are still parsed and
+ * compiled for each evaluation, and queries without function declarations are not cached.
+ *
+ * Entries are identified by the query string, the base URI and the main options.
+ *
+ * Entries are invalidated if the timestamp of an imported module changes. The maximum number of
+ * entries is defined by {@link StaticOptions#QUERYCACHE}, and the number of characters of all
+ * retained query strings is limited to a fraction of the available main memory. If a limit is
+ * exceeded, the least recently used entries are removed.
+ *
+ * @author BaseX Team 2005-24, BSD License
+ * @author Christian Gruen
+ */
+public final class QueryCache {
+  /** Cached entries, ordered by their last access. */
+  private final LinkedHashMap<Key, Prepared> map = new LinkedHashMap<>(16, 0.75f, true);
+  /** Maximum number of entries. */
+  private final int max;
+  /** Maximum number of retained characters. */
+  private final long maxChars;
+  /** Number of retained characters. */
+  private long chars;
+
+  /**
+   * Constructor.
+   * @param max maximum number of entries
+   */
+  public QueryCache(final int max) {
+    this(max, Runtime.getRuntime().maxMemory() / 32);
+  }
+
+  /**
+   * Constructor.
+   * @param max maximum number of entries
+   * @param maxChars maximum number of retained characters
+   */
+  QueryCache(final int max, final long maxChars) {
+    this.max = Math.max(0, max);
+    this.maxChars = maxChars;
+  }
+
+  /**
+   * Indicates if queries are cached.
+   * @return result of check
+   */
+  boolean enabled() {
+    return max != 0;
+  }
+
+  /**
+   * Returns a valid cache entry for the specified query.
+   * @param query query string
+   * @param uri base URI (can be {@code null})
+   * @param options main options
+   * @return entry or {@code null}
+   */
+  synchronized Prepared get(final String query, final String uri, final MainOptions options) {
+    final Key key = new Key(query, uri, options);
+    final Prepared prepared = map.get(key);
+    if(prepared == null) return null;
+    if(prepared.valid()) return prepared;
+    map.remove(key);
+    chars -= prepared.chars;
+    return null;
+  }
+
+  /**
+   * Creates a cache entry for a parsed query.
+   * @param query query string
+   * @param uri base URI (can be {@code null})
+   * @param qc query context
+   */
+  void add(final String query, final String uri, final QueryContext qc) {
+    // skip queries without functions and modules that cannot be validated
+    final StaticFunc[] funcs = qc.functions.funcs();
+    if(funcs.length == 0 || qc.contextValue != null) return;
+    for(final String path : qc.modSources.keySet()) {
+      if(!(IO.get(path) instanceof IOFile)) return;
+    }
+
+    // collect the functions to be skipped, grouped by the paths of their modules
+    final HashMap<String, ArrayList<StaticFunc>> skipped = new HashMap<>();
+    final ArrayList<Scope> roots = new ArrayList<>();
+    roots.add(qc.main);
+    for(final StaticVar var : qc.vars) roots.add(var);
+    final Set<Scope> reached = reachable(roots);
+    if(!lookups(reached)) {
+      for(final StaticFunc func : funcs) {
+        if(!reached.contains(func) && func.start != -1) {
+          final String path = func.info.path();
+          skipped.computeIfAbsent(qc.modSources.containsKey(path) ? path : "",
+            k -> new ArrayList<>()).add(func);
+        }
+      }
+    }
+
+    final HashMap<String, Source> sources = new HashMap<>();
+    for(final Entry<String, Source> entry : qc.modSources.entrySet()) {
+      final String path = entry.getKey();
+      final Source source = entry.getValue();
+      final ArrayList<StaticFunc> list = skipped.get(path);
+      sources.put(path, new Source(list != null ? strip(source.query, list) : null, source.time));
+    }
+    final ArrayList<StaticFunc> list = skipped.get("");
+    final String main = skipped.isEmpty() ? null : list != null ? strip(query, list) : query;
+
+    final Prepared prepared = new Prepared(query, main, sources);
+    synchronized(this) {
+      final Prepared old = map.put(new Key(query, uri, qc.context.options), prepared);
+      chars += prepared.chars - (old != null ? old.chars : 0);
+      // remove least recently used entries (including the new one if it exceeds the limit)
+      final Iterator<Prepared> iter = map.values().iterator();
+      while((map.size() > max || chars > maxChars) && iter.hasNext()) {
+        chars -= iter.next().chars;
+        iter.remove();
+      }
+    }
+  }
+
+  /**
+   * Checks if one of the specified scopes may look up functions dynamically
+   * (via function calls or references to {@code fn:function-lookup} or {@code inspect:functions}).
+   * @param scopes scopes
+   * @return result of check
+   */
+  public static boolean lookups(final Collection<? extends Scope> scopes) {
+    final ASTVisitor visitor = new ASTVisitor() {
+      @Override
+      public boolean funcLookup() {
+        return false;
+      }
+    };
+    for(final Scope scope : scopes) {
+      if(!scope.visit(visitor)) return true;
+    }
+    return false;
+  }
+
+  /**
+   * Returns all functions, variables and inline functions that are reachable from the specified
+   * scopes.
+   * @param scopes scopes to start from
+   * @return reachable scopes, including the specified ones
+   */
+  public static Set<Scope> reachable(final Collection<? extends Scope> scopes) {
+    final Set<Scope> reached = Collections.newSetFromMap(new IdentityHashMap<>());
+    final ASTVisitor visitor = new ASTVisitor() {
+      @Override
+      public boolean staticVar(final StaticVar var) {
+        if(reached.add(var)) var.visit(this);
+        return true;
+      }
+
+      @Override
+      public boolean staticFuncCall(final StaticFuncCall call) {
+        final StaticFunc func = call.func();
+        if(func != null && reached.add(func)) func.visit(this);
+        return true;
+      }
+
+      @Override
+      public boolean inlineFunc(final Scope scope) {
+        if(reached.add(scope)) scope.visit(this);
+        return true;
+      }
+
+      @Override
+      public boolean funcItem(final FuncItem func) {
+        if(reached.add(func)) func.visit(this);
+        return true;
+      }
+    };
+    for(final Scope scope : scopes) {
+      if(reached.add(scope)) scope.visit(visitor);
+    }
+    return reached;
+  }
+
+  /**
+   * Replaces the declarations of the specified functions by whitespaces.
+   * Newlines are normalized in the same way as it is done by the query parser.
+   * @param query query string
+   * @param funcs functions declared in the query
+   * @return resulting query string
+   */
+  public static String strip(final String query, final Collection<StaticFunc> funcs) {
+    final int[] cps = query.replaceAll("\r\n?", "\n").codePoints().toArray();
+    for(final StaticFunc func : funcs) {
+      if(func.start == -1) continue;
+      for(int c = func.start; c < func.end; c++) {
+        if(cps[c] != '\n') cps[c] = ' ';
+      }
+    }
+    return new String(cps, 0, cps.length);
+  }
+
+  /**
+   * Source of a parsed module.
+   */
+  static final class Source {
+    /** Query string ({@code null}: read file). */
+    final String query;
+    /** Timestamp of the file. */
+    final long time;
+
+    /**
+     * Constructor.
+     * @param query query string ({@code null}: read file)
+     * @param time timestamp of the file
+     */
+    Source(final String query, final long time) {
+      this.query = query;
+      this.time = time;
+    }
+  }
+
+  /**
+   * Key of a cache entry.
+   */
+  private static final class Key {
+    /** Query string. */
+    private final String query;
+    /** Base URI (can be {@code null}). */
+    private final String uri;
+    /** Main options that differ from the default values. */
+    private final String options;
+
+    /**
+     * Constructor.
+     * @param query query string
+     * @param uri base URI (can be {@code null})
+     * @param options main options
+     */
+    private Key(final String query, final String uri, final MainOptions options) {
+      this.query = query;
+      this.uri = uri;
+      this.options = options.toString();
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      if(this == obj) return true;
+      if(!(obj instanceof Key)) return false;
+      final Key key = (Key) obj;
+      return query.equals(key.query) && Objects.equals(uri, key.uri) &&
+          options.equals(key.options);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(query, uri, options);
+    }
+  }
+
+  /**
+   * Prepared query.
+   */
+  static final class Prepared {
+    /** Query string ({@code null}: no functions can be skipped). */
+    final String query;
+    /** Module sources, indexed by their file paths. */
+    private final HashMap<String, Source> sources;
+    /** Number of retained characters (including the key of the entry). */
+    private final long chars;
+
+    /**
+     * Constructor.
+     * @param key original query string
+     * @param query query string ({@code null}: no functions can be skipped)
+     * @param sources module sources
+     */
+    private Prepared(final String key, final String query, final HashMap<String, Source> sources) {
+      this.query = query;
+      this.sources = sources;
+
+      long c = key.length() + (query != null && query != key ? query.length() : 0);
+      for(final Entry<String, Source> entry : sources.entrySet()) {
+        final String source = entry.getValue().query;
+        c += entry.getKey().length() + (source != null ? source.length() : 0);
+      }
+      chars = c;
+    }
+
+    /**
+     * Returns a copy of the module sources.
+     * @return sources
+     */
+    HashMap<String, Source> sources() {
+      return new HashMap<>(sources);
+    }
+
+    /**
+     * Checks if the modules have not been changed.
+     * @return result of check
+     */
+    private boolean valid() {
+      for(final Entry<String, Source> entry : sources.entrySet()) {
+        if(new IOFile(entry.getKey()).timeStamp() != entry.getValue().time) return false;
+      }
+      return true;
+    }
+  }
+}
@@ -16,6 +16,7 @@ import org.basex.core.MainOptions.MainParser;
 import org.basex.core.cmd.*;
 import org.basex.core.jobs.*;
 import org.basex.core.locks.*;
+import org.basex.core.metrics.*;
 import org.basex.data.*;
 import org.basex.io.parse.json.*;
 import org.basex.io.serial.*;
@@ -111,6 +112,8 @@ public final class QueryContext extends Job implements Closeable {
   final TokenMap modDeclared = new TokenMap();
   /** Stack of module files that are currently parsed. */
   final TokenList modStack = new TokenList();
+  /** Sources of parsed modules, indexed by their file paths (only assigned if cached). */
+  HashMap<String, QueryCache.Source> modSources;
 
   /** Main module (root expression). */
   public MainModule main;
@@ -133,6 +136,8 @@ public final class QueryContext extends Job implements Closeable {
   private boolean optimized;
   /** Indicates if the query context has been closed. */
   private boolean closed;
+  /** Performance measurement since the creation of the query context. */
+  private final Performance latency = new Performance();
 
   /**
    * Constructor.
@@ -216,7 +221,7 @@ public final class QueryContext extends Job implements Closeable {
   public MainModule parseMain(final String query, final String uri, final StaticContext sc)
       throws QueryException {
 
-    return run(info.parsing, () -> {
+    return run(info.parsing, context.metrics.parsing, () -> {
       info.query = query;
       main = new QueryParser(query, uri, this, sc).parseMain();
       return main;
@@ -231,7 +236,7 @@ public final class QueryContext extends Job implements Closeable {
    * @throws QueryException query exception
    */
   public LibraryModule parseLibrary(final String query, final String uri) throws QueryException {
-    return run(info.parsing, () -> {
+    return run(info.parsing, context.metrics.parsing, () -> {
       info.query = query;
       return new QueryParser(query, uri, this, null).parseLibrary(true);
     });
@@ -269,7 +274,7 @@ public final class QueryContext extends Job implements Closeable {
     if(compiled) return;
     compiled = true;
 
-    run(info.compiling, () -> {
+    run(info.compiling, context.metrics.compiling, () -> {
       // assign tail call option after compiling options
       options.compile();
       tco = context.options.get(MainOptions.TAILCALLS) >= 0;
@@ -296,7 +301,7 @@ public final class QueryContext extends Job implements Closeable {
     if(optimized) return;
     optimized = true;
 
-    run(info.optimizing, () -> {
+    run(info.optimizing, context.metrics.optimizing, () -> {
       // bind context
       final StaticContext sc = main.sc;
       if(parent == null && !bindings.contains(QNm.EMPTY)) {
@@ -356,7 +361,8 @@ public final class QueryContext extends Job implements Closeable {
    */
   public Iter iter() throws QueryException {
     optimize();
-    return run(info.evaluating, () -> updating ? update().iter() : main.iter(this));
+    return run(info.evaluating, context.metrics.evaluating,
+        () -> updating ? update().iter() : main.iter(this));
   }
 
   /**
@@ -366,7 +372,8 @@ public final class QueryContext extends Job implements Closeable {
    */
   public Value value() throws QueryException {
     optimize();
-    return run(info.evaluating, () -> updating ? update() : main.value(this));
+    return run(info.evaluating, context.metrics.evaluating,
+        () -> updating ? update() : main.value(this));
   }
 
   /**
@@ -508,12 +515,20 @@ public final class QueryContext extends Job implements Closeable {
     } else {
       // otherwise, adopt update reference (may have been initialized by sub query)
       parent.updates = updates;
-      parent.popJob();
+      parent.popJob(this);
     }
     options.close();
 
     final Performance perf = jc().performance;
-    if(perf != null) info.serializing.addAndGet(perf.ns());
+    if(perf != null) {
+      final long ns = perf.ns();
+      info.serializing.addAndGet(ns);
+      context.metrics.serializing.add(ns);
+    }
+    if(parent == null) {
+      context.metrics.queries.increment();
+      context.metrics.query.record(latency.ns());
+    }
   }
 
   @Override
@@ -572,11 +587,12 @@ public final class QueryContext extends Job implements Closeable {
 
   /**
    * Initializes the static date and time context of a query if not done yet.
+   * The context of the parent query is adopted by sub queries.
    * @return self reference
    * @throws QueryException query exception
    */
-  public QueryDateTime dateTime() throws QueryException {
-    if(dateTime == null) dateTime = new QueryDateTime();
+  public synchronized QueryDateTime dateTime() throws QueryException {
+    if(dateTime == null) dateTime = parent != null ? parent.dateTime() : new QueryDateTime();
     return dateTime;
   }
 
@@ -600,7 +616,7 @@ public final class QueryContext extends Job implements Closeable {
     final Data data = resources.globalData();
     try {
       optimize();
-      run(info.evaluating, () -> {
+      run(info.evaluating, context.metrics.evaluating, () -> {
         // evaluates the query
         final int mx = max >= 0 ? max : Integer.MAX_VALUE;
         final Iter iter = iter();
@@ -746,13 +762,15 @@ public final class QueryContext extends Job implements Closeable {
 
   /**
    * Runs code and measures its runtime.
-   * @param code code to run
    * @param runtime value storing the runtime
+   * @param counter metrics counter for the runtime
+   * @param code code to run
    * @param <T> type of result value
    * @return result
    * @throws QueryException query exception
    */
-  private <T> T run(final AtomicLong runtime, final QuerySupplier<T> code) throws QueryException {
+  private <T> T run(final AtomicLong runtime, final Counter counter, final QuerySupplier<T> code)
+      throws QueryException {
     Performance perf = jc().performance;
     if(perf == null) {
       perf = new Performance();
@@ -762,7 +780,9 @@ public final class QueryContext extends Job implements Closeable {
     try {
       return code.get();
     } finally {
-      runtime.addAndGet(perf.ns());
+      final long ns = perf.ns();
+      runtime.addAndGet(ns);
+      counter.add(ns);
     }
   }
 
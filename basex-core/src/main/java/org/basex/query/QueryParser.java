@@ -371,6 +371,7 @@ public class QueryParser extends InputParser {
       final int p = pos;
       if(!wsConsumeWs(DECLARE)) break;
 
+      StaticFunc func = null;
       if(wsConsumeWs(CONTEXT)) {
         contextValueDecl();
       } else if(wsConsumeWs(OPTION)) {
@@ -384,7 +385,7 @@ public class QueryParser extends InputParser {
           if(anns.contains(Annotation.UPDATING)) throw error(UPDATINGVAR);
           varDecl(anns.check(true, true));
         } else if(wsConsumeWs(FUNCTION)) {
-          functionDecl(anns.check(false, true));
+          func = functionDecl(anns.check(false, true));
         } else if(wsConsumeWs(ITEM_TYPE)) {
           // types cannot be updating
           if(anns.contains(Annotation.UPDATING)) throw error(UPDATINGTYPE);
@@ -399,6 +400,10 @@ public class QueryParser extends InputParser {
       docBuilder.reset();
       skipWs();
       check(';');
+      if(func != null) {
+        func.start = p;
+        func.end = pos;
+      }
     }
   }
 
@@ -781,13 +786,21 @@ public class QueryParser extends InputParser {
     }
     qc.modParsed.put(tPath, tUri);
 
-    // read module
+    // read module (use prepared source if available)
+    final HashMap<String, QueryCache.Source> sources = qc.modSources;
+    final QueryCache.Source source = sources != null ? sources.get(io.path()) : null;
     final String query;
-    try {
-      query = io.string();
-    } catch(final IOException expr) {
-      Util.debug(expr);
-      throw error(WHICHMODFILE_X, info, io);
+    if(source != null && source.query != null) {
+      query = source.query;
+    } else {
+      final long time = io.timeStamp();
+      try {
+        query = io.string();
+      } catch(final IOException expr) {
+        Util.debug(expr);
+        throw error(WHICHMODFILE_X, info, io);
+      }
+      if(sources != null) sources.put(io.path(), new QueryCache.Source(query, time));
     }
 
     qc.modStack.push(tPath);
@@ -894,9 +907,10 @@ public class QueryParser extends InputParser {
   /**
    * Parses the "FunctionDecl" rule.
    * @param anns annotations
+   * @return function
    * @throws QueryException query exception
    */
-  private void functionDecl(final AnnList anns) throws QueryException {
+  private StaticFunc functionDecl(final AnnList anns) throws QueryException {
     final InputInfo ii = info();
     final QNm name = checkReserved(eQName(sc.funcNS, FUNCNAME));
     wsCheck("(");
@@ -909,6 +923,7 @@ public class QueryParser extends InputParser {
     final VarScope vs = localVars.popContext();
     final StaticFunc func = qc.functions.declare(name, params, expr, anns, doc, vs, ii);
     funcs.add(func);
+    return func;
   }
 
   /**
@@ -1813,6 +1828,8 @@ public class QueryParser extends InputParser {
         final FuncBuilder fb = argumentList(name != null, arg);
         expr = name != null ? Functions.get(name, fb, qc) : Functions.dynamic(ex, fb);
         if(mapping) {
+          // register variable after the arguments have been parsed (required for assigning a slot)
+          localVars.add(fr.var);
           expr = new GFLWOR(ii, fr, expr);
           localVars.closeScope(s);
         }
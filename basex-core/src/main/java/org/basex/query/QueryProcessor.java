@@ -1,6 +1,7 @@
 package org.basex.query;
 
 import java.io.*;
+import java.util.*;
 
 import org.basex.core.*;
 import org.basex.core.cmd.*;
@@ -25,6 +26,8 @@ public final class QueryProcessor extends Job implements Closeable {
   public final QueryContext qc;
   /** Query. */
   private final String query;
+  /** Base URI (can be {@code null}). */
+  private final String uri;
   /** Parsed flag. */
   private boolean parsed;
 
@@ -47,6 +50,7 @@ public final class QueryProcessor extends Job implements Closeable {
   public QueryProcessor(final String query, final String uri, final Context ctx,
       final QueryInfo info) {
     this.query = query;
+    this.uri = uri;
     qc = pushJob(new QueryContext(ctx, null, null, info));
     sc = new StaticContext(qc);
     sc.baseURI(uri != null && uri.isEmpty() ? "./" : uri);
@@ -59,7 +63,25 @@ public final class QueryProcessor extends Job implements Closeable {
   public void parse() throws QueryException {
     if(parsed) return;
     try {
-      qc.parseMain(query, null, sc);
+      final QueryCache cache = qc.context.queries;
+      if(cache.enabled()) {
+        final QueryCache.Prepared prepared = cache.get(query, uri, qc.context.options);
+        if(prepared == null) {
+          // parse query and cache prepared query
+          qc.modSources = new HashMap<>();
+          qc.parseMain(query, null, sc);
+          cache.add(query, uri, qc);
+        } else if(prepared.query != null) {
+          // parse prepared query, but keep original query string
+          qc.modSources = prepared.sources();
+          qc.parseMain(prepared.query, null, sc);
+          qc.info.query = query;
+        } else {
+          qc.parseMain(query, null, sc);
+        }
+      } else {
+        qc.parseMain(query, null, sc);
+      }
     } finally {
       parsed = true;
       updating = qc.updating;
@@ -84,14 +84,14 @@ public final class QueryResources {
    * Finalizes data instances.
    */
   void close() {
+    // close external resources (which may still access the opened databases)
+    for(final QueryResource c : external.values()) c.close();
+    external.clear();
     for(final Data data : datas) Close.close(data, qc.context);
     datas.clear();
     // close dynamically loaded JAR files
     if(modules != null) modules.close();
     modules = null;
-    // close external resources
-    for(final QueryResource c : external.values()) c.close();
-    external.clear();
     // close input resources
     for(final InputStream is : inputs) {
       try {
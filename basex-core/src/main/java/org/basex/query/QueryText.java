@@ -353,10 +353,13 @@ public interface QueryText {
   /** Query Info. */ String INCLUDE_MAX = "include-max";
   /** Query Info. */ String INF = "inf";
   /** Query Info. */ String TAILCALL = "tailCall";
+  /** Query Info. */ String PARALLEL = "parallel";
   /** Query Info. */ String ENTRIES = "entries";
   /** Query Info. */ String COERCE = "coerce";
   /** Query Info. */ String DATABASE = "database";
   /** Query Info. */ String ITERATIVE = "iterative";
+  /** Query Info. */ String ESTIMATED = "estimated";
+  /** Query Info. */ String RESULTS = "results";
   /** Query Info. */ String SINGLE = "single";
   /** Query Info. */ String LINE = "line";
   /** Query Info. */ String COLUMN = "column";
@@ -391,9 +394,15 @@ public interface QueryText {
   /** Optimization info. */ String OPTINDEX_X_X = "apply % index for %";
   /** Optimization info. */ String OPTNORESULTS_X = "no index results: %";
   /** Optimization info. */ String OPTCHILD_X = "convert to child steps: %";
+  /** Optimization info. */ String OPTPARENT_X = "convert to parent predicates: %";
   /** Optimization info. */ String OPTUNROLL_X = "unroll: %";
+  /** Optimization info. */ String OPTPARALLEL_X = "evaluate in parallel: %";
+  /** Optimization info. */ String OPTJOIN_X = "rewrite to hash join: %";
   /** Optimization info. */ String OPTOPEN_X = "open database \"%\"";
 
+  /** Evaluation info. */ String SPILLRUNS_X = "order by: % sorted runs written to disk";
+  /** Evaluation info. */ String SPILLPARTS_X = "group by: % partitions written to disk";
+
   // MISCELLANEOUS ================================================================================
 
   /** Base token. */ byte[] BASE = token("base");
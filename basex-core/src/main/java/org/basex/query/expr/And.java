@@ -17,6 +17,9 @@ import org.basex.util.hash.*;
  * @author Christian Gruen
  */
 public final class And extends Logical {
+  /** Maximum factor by which the costs of intersected index requests may exceed the minimum. */
+  private static final int INTERSECT = 4;
+
   /**
    * Constructor.
    * @param info input info (can be {@code null})
@@ -47,21 +50,44 @@ public final class And extends Logical {
 
   @Override
   public boolean indexAccessible(final IndexInfo ii) throws QueryException {
-    IndexCosts costs = IndexCosts.ZERO;
-    final ExprList list = new ExprList(exprs.length);
-    for(final Expr expr : exprs) {
+    // collect index requests and remaining operands
+    final int el = exprs.length;
+    final Expr[] indexExprs = new Expr[el];
+    final IndexCosts[] costs = new IndexCosts[el];
+    final String[] infos = new String[el];
+    int min = -1;
+    for(int e = 0; e < el; e++) {
+      ii.costs = null;
       // check if expression can be rewritten, and if access is not sequential
-      if(!expr.indexAccessible(ii)) return false;
+      if(!exprs[e].indexAccessible(ii)) continue;
       // skip queries with no results
       if(ii.costs.results() == 0) return true;
-      // summarize costs
-      costs = IndexCosts.add(costs, ii.costs);
-      list.add(ii.expr);
+      indexExprs[e] = ii.expr;
+      costs[e] = ii.costs;
+      infos[e] = ii.optInfo;
+      if(min == -1 || costs[e].compareTo(costs[min]) < 0) min = e;
+    }
+    if(min == -1) return false;
+
+    // intersect index requests with similar costs, evaluate remaining operands as filter
+    // (index requests with unknown costs are always intersected)
+    final int limit = costs[min].results();
+    IndexCosts sum = IndexCosts.ZERO;
+    final ExprList list = new ExprList(el), filters = new ExprList(el);
+    for(int e = 0; e < el; e++) {
+      if(costs[e] == null || limit > 0 && costs[e].results() > (long) limit * INTERSECT) {
+        filters.add(exprs[e]);
+      } else {
+        sum = IndexCosts.add(sum, costs[e]);
+        list.add(indexExprs[e]);
+      }
     }
-    // use summarized costs for estimation
-    ii.costs = costs;
+    ii.costs = sum;
+    ii.optInfo = infos[min];
     // create intersection of all index requests
-    ii.expr = new Intersect(info, list.finish());
+    final Expr root = list.size() == 1 ? list.get(0) : new Intersect(info, list.finish());
+    ii.expr = filters.isEmpty() ? root :
+      Filter.get(ii.cc, info, root, new And(info, filters.finish()).optimize(ii.cc));
     return true;
   }
 
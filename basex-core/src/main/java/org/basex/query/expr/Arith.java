@@ -123,6 +123,136 @@ public class Arith extends Arr {
       calc.eval(item1, item2, info);
   }
 
+  /**
+   * Evaluates the expression for all items of a native integer or double sequence
+   * (vectorized evaluation). Called by simple maps if the operands of the expression are the
+   * context value, integers, doubles, or other arithmetic expressions of this kind.
+   * @param value sequence (context values)
+   * @return resulting sequence, or {@code null} if the sequence cannot be processed natively
+   *   or if the evaluation of an item fails
+   */
+  final Value map(final Value value) {
+    try {
+      final Object result = vector(value);
+      return result instanceof long[] ? IntSeq.get((long[]) result) :
+        result instanceof double[] ? DblSeq.get((double[]) result) : null;
+    } catch(final ArithmeticException ex) {
+      // overflow, division by zero: evaluate items individually, raise error
+      Util.debug(ex);
+      return null;
+    }
+  }
+
+  /**
+   * Computes the results for all items of a native sequence.
+   * @param value sequence (context values)
+   * @return array with integers or doubles, or {@code null}
+   * @throws ArithmeticException overflow, division by zero, or operation without native result
+   */
+  private Object vector(final Value value) {
+    final Object operand1 = operand(exprs[0], value), operand2 = operand(exprs[1], value);
+    if(operand1 == null || operand2 == null ||
+        !(operand1.getClass().isArray() || operand2.getClass().isArray())) return null;
+
+    final int size = (int) value.size();
+    if(!(operand1 instanceof double[] || operand1 instanceof Dbl ||
+        operand2 instanceof double[] || operand2 instanceof Dbl)) {
+      final long[] results = new long[size];
+      for(int r = 0; r < size; r++) results[r] = calc(itr(operand1, r), itr(operand2, r));
+      return results;
+    }
+    if(calc == Calc.DIVIDEINT) return null;
+
+    final double[] results = new double[size];
+    for(int r = 0; r < size; r++) {
+      results[r] = calc(dbl(operand1, r), dbl(operand2, r));
+    }
+    return results;
+  }
+
+  /**
+   * Returns an operand for vectorized evaluation.
+   * @param expr operand expression
+   * @param value sequence (context values)
+   * @return array with integers or doubles, integer or double item, or {@code null}
+   */
+  private static Object operand(final Expr expr, final Value value) {
+    if(expr instanceof Int || expr instanceof Dbl) return expr;
+    if(expr instanceof Arith) return ((Arith) expr).vector(value);
+    if(!(expr instanceof ContextValue)) return null;
+
+    if(value instanceof IntSeq) return ((IntSeq) value).values();
+    if(value instanceof DblSeq) return ((DblSeq) value).toJava();
+    if(value instanceof RangeSeq && value.size() <= Array.MAX_SIZE) {
+      final RangeSeq rs = (RangeSeq) value;
+      final int size = (int) rs.size();
+      final long start = rs.itemAt(0).itr(), step = rs.ascending() ? 1 : -1;
+      final long[] longs = new long[size];
+      for(int l = 0; l < size; l++) longs[l] = start + l * step;
+      return longs;
+    }
+    return null;
+  }
+
+  /**
+   * Returns an integer from the specified operand.
+   * @param operand array with integers or integer item
+   * @param index index in array
+   * @return integer
+   */
+  private static long itr(final Object operand, final int index) {
+    return operand instanceof long[] ? ((long[]) operand)[index] : ((Int) operand).itr();
+  }
+
+  /**
+   * Returns a double from the specified operand.
+   * @param operand array with integers or doubles, integer or double item
+   * @param index index in array
+   * @return double
+   */
+  private static double dbl(final Object operand, final int index) {
+    return operand instanceof long[] ? ((long[]) operand)[index] :
+      operand instanceof double[] ? ((double[]) operand)[index] : ((ANum) operand).dbl();
+  }
+
+  /**
+   * Performs the calculation for two integers.
+   * @param l1 first integer
+   * @param l2 second integer
+   * @return result
+   * @throws ArithmeticException overflow, division by zero, or operation without integer result
+   */
+  private long calc(final long l1, final long l2) {
+    switch(calc) {
+      case ADD:       return Math.addExact(l1, l2);
+      case SUBTRACT:  return Math.subtractExact(l1, l2);
+      case MULTIPLY:  return Math.multiplyExact(l1, l2);
+      case DIVIDEINT:
+        if(l1 == Long.MIN_VALUE && l2 == -1) throw new ArithmeticException();
+        return l1 / l2;
+      case MODULO:    return l1 % l2;
+      default:        throw new ArithmeticException();
+    }
+  }
+
+  /**
+   * Performs the calculation for two doubles.
+   * @param d1 first double
+   * @param d2 second double
+   * @return result
+   * @throws ArithmeticException operation without double result
+   */
+  private double calc(final double d1, final double d2) {
+    switch(calc) {
+      case ADD:      return d1 + d2;
+      case SUBTRACT: return d1 - d2;
+      case MULTIPLY: return d1 * d2;
+      case DIVIDE:   return d1 / d2;
+      case MODULO:   return d1 % d2;
+      default:       throw new ArithmeticException();
+    }
+  }
+
   @Override
   public Expr simplifyFor(final Simplify mode, final CompileContext cc) throws QueryException {
     Expr expr = this;
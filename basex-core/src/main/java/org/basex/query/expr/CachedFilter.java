@@ -1,5 +1,7 @@
 package org.basex.query.expr;
 
+import static org.basex.query.QueryText.*;
+
 import org.basex.query.*;
 import org.basex.query.util.list.*;
 import org.basex.query.value.*;
@@ -27,8 +29,12 @@ public class CachedFilter extends Filter {
 
   @Override
   public Value value(final QueryContext qc) throws QueryException {
-    final ItemList items = new ItemList();
     Value value = root.value(qc);
+    // native sequence: vectorized evaluation
+    final Value filtered = filter(value);
+    if(filtered != null) return filtered;
+
+    final ItemList items = new ItemList();
 
     final QueryFocus focus = qc.focus, qf = new QueryFocus();
     qc.focus = qf;
@@ -74,4 +80,9 @@ public class CachedFilter extends Filter {
   public Filter copy(final CompileContext cc, final IntObjMap<Var> vm) {
     return copyType(new CachedFilter(info, root.copy(cc, vm), Arr.copyAll(cc, vm, exprs)));
   }
+
+  @Override
+  public void toXml(final QueryPlan plan) {
+    plan.add(plan.create(this, ITERATIVE, false), root, exprs);
+  }
 }
@@ -16,6 +16,7 @@ import org.basex.query.value.type.*;
 import org.basex.query.var.*;
 import org.basex.util.*;
 import org.basex.util.hash.*;
+import org.basex.util.list.*;
 
 /**
  * Integer range expression.
@@ -157,10 +158,42 @@ public final class CmpIR extends Single {
    * @throws QueryException query exception
    */
   private boolean inRange(final Item item) throws QueryException {
-    final double value = item.dbl(info);
+    return inRange(item.dbl(info));
+  }
+
+  /**
+   * Checks if the specified value is within the allowed range.
+   * @param value value to check
+   * @return result of check
+   */
+  private boolean inRange(final double value) {
     return value >= min && value <= max && value == (long) value;
   }
 
+  /**
+   * Returns the items of a native integer or double sequence that are within the allowed range
+   * (vectorized evaluation). Called by filters if the comparison is applied to the context value.
+   * @param value sequence
+   * @return filtered sequence, or {@code null} if the sequence cannot be processed natively
+   */
+  Value filter(final Value value) {
+    if(value instanceof IntSeq) {
+      final LongList list = new LongList();
+      for(final long l : ((IntSeq) value).values()) {
+        if(inRange((double) l)) list.add(l);
+      }
+      return IntSeq.get(list.finish(), value.type);
+    }
+    if(value instanceof DblSeq) {
+      final DoubleList list = new DoubleList();
+      for(final double d : ((DblSeq) value).toJava()) {
+        if(inRange(d)) list.add(d);
+      }
+      return DblSeq.get(list.finish());
+    }
+    return null;
+  }
+
   @Override
   public Expr mergeEbv(final Expr ex, final boolean or, final CompileContext cc)
       throws QueryException {
@@ -6,6 +6,7 @@ import static org.basex.query.QueryText.*;
 import org.basex.data.*;
 import org.basex.index.*;
 import org.basex.index.query.*;
+import org.basex.index.stats.*;
 import org.basex.query.*;
 import org.basex.query.CompileContext.*;
 import org.basex.query.expr.CmpG.*;
@@ -197,6 +198,10 @@ public final class CmpSR extends Single {
     final StringRange sr = new StringRange(type, min, mni, max, mxi);
     ii.costs = IndexInfo.costs(data, sr);
     if(ii.costs == null) return false;
+    // refine costs via statistics (number of distinct values in the range)
+    final Stats stats = ii.stats();
+    final int count = stats != null ? stats.count(min, mni, max, mxi) : -1;
+    if(count != -1) ii.costs = IndexCosts.estimate(count);
 
     final TokenBuilder tb = new TokenBuilder();
     tb.add(mni ? '[' : '(').add(min).add(',').add(max).add(mxi ? ']' : ')');
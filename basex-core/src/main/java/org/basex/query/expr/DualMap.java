@@ -4,6 +4,7 @@ import org.basex.query.*;
 import org.basex.query.iter.*;
 import org.basex.query.value.*;
 import org.basex.query.value.item.*;
+import org.basex.query.value.seq.*;
 import org.basex.query.var.*;
 import org.basex.util.*;
 import org.basex.util.hash.*;
@@ -26,6 +27,15 @@ public final class DualMap extends SimpleMap {
 
   @Override
   public Iter iter(final QueryContext qc) throws QueryException {
+    // native sequence: vectorized evaluation
+    if(exprs[1] instanceof Arith && (exprs[0] instanceof VarRef || exprs[0] instanceof Value)) {
+      final Value value = exprs[0].value(qc);
+      if(!(value instanceof RangeSeq)) {
+        final Value mapped = ((Arith) exprs[1]).map(value);
+        if(mapped != null) return mapped.iter();
+      }
+    }
+
     return new Iter() {
       final Expr expr1 = exprs[0], expr2 = exprs[1];
       final Iter iter1 = expr1.iter(qc);
@@ -78,15 +88,25 @@ public final class DualMap extends SimpleMap {
     final QueryFocus qf = qc.focus;
     final Value qv = qf.value;
     try {
+      final Iter iter;
+      if(exprs[1] instanceof Arith && exprs[0].seqType().type.isNumber()) {
+        // native sequence: vectorized evaluation
+        final Value value = exprs[0].value(qc), mapped = ((Arith) exprs[1]).map(value);
+        if(mapped != null) return mapped;
+        iter = value.iter();
+      } else {
+        iter = exprs[0].iter(qc);
+      }
       final ValueBuilder vb = new ValueBuilder(qc);
-      final Iter iter = exprs[0].iter(qc);
       for(Item item; (item = qc.next(iter)) != null;) {
         qf.value = item;
         item = exprs[1].item(qc, info);
         if(!item.isEmpty()) vb.add(item);
         qf.value = qv;
       }
-      return vb.value(this);
+      // store results of arithmetic expressions as native sequences
+      final Value value = vb.value(this);
+      return exprs[1] instanceof Arith ? value.compactify() : value;
     } finally {
       qf.value = qv;
     }
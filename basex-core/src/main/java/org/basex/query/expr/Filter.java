@@ -284,6 +284,25 @@ public abstract class Filter extends Preds {
     return root.accept(visitor);
   }
 
+  /**
+   * Filters the items of a native sequence with a single range comparison on the context value
+   * (vectorized evaluation).
+   * @param value value of the root expression
+   * @return filtered sequence, or {@code null} if the sequence cannot be processed natively
+   */
+  final Value filter(final Value value) {
+    if(exprs.length == 1) {
+      final Expr expr = exprs[0];
+      if(expr instanceof CmpIR && ((CmpIR) expr).expr instanceof ContextValue) {
+        return ((CmpIR) expr).filter(value);
+      }
+      if(expr instanceof CmpR && ((CmpR) expr).expr instanceof ContextValue) {
+        return ((CmpR) expr).filter(value);
+      }
+    }
+    return null;
+  }
+
   @Override
   public boolean ddo() {
     return root.ddo();
@@ -303,7 +322,7 @@ public abstract class Filter extends Preds {
   }
 
   @Override
-  public final void toXml(final QueryPlan plan) {
+  public void toXml(final QueryPlan plan) {
     plan.add(plan.create(this), root, exprs);
   }
 
@@ -26,7 +26,13 @@ public final class IterFilter extends Filter {
   }
 
   @Override
-  public Iter iter(final QueryContext qc) {
+  public Iter iter(final QueryContext qc) throws QueryException {
+    // native sequence: vectorized evaluation
+    if(root instanceof VarRef || root instanceof Value) {
+      final Value value = filter(root.value(qc));
+      if(value != null) return value.iter();
+    }
+
     return new Iter() {
       Iter iter;
 
@@ -45,8 +51,16 @@ public final class IterFilter extends Filter {
 
   @Override
   public Value value(final QueryContext qc) throws QueryException {
+    final Iter iter;
+    if(root.seqType().type.isNumber()) {
+      // native sequence: vectorized evaluation
+      final Value value = root.value(qc), filtered = filter(value);
+      if(filtered != null) return filtered;
+      iter = value.iter();
+    } else {
+      iter = root.iter(qc);
+    }
     final ValueBuilder vb = new ValueBuilder(qc);
-    final Iter iter = root.iter(qc);
     for(Item item; (item = qc.next(iter)) != null;) {
       if(match(item, qc)) vb.add(item);
     }
@@ -50,6 +50,7 @@ public final class Or extends Logical {
     IndexCosts costs = IndexCosts.ZERO;
     final ExprList list = new ExprList(exprs.length);
     for(final Expr expr : exprs) {
+      ii.costs = null;
       // check if expression can be rewritten, and if access is not sequential
       if(!expr.indexAccessible(ii)) return false;
       // skip expressions without results
@@ -6,6 +6,7 @@ import org.basex.query.expr.index.*;
 import org.basex.query.func.*;
 import org.basex.query.iter.*;
 import org.basex.query.util.*;
+import org.basex.query.util.index.*;
 import org.basex.query.value.*;
 import org.basex.query.value.node.*;
 import org.basex.query.value.type.*;
@@ -25,6 +26,8 @@ public final class FTIndexAccess extends Simple {
   private IndexDb db;
   /** Full-text expression. */
   private FTExpr ftexpr;
+  /** Estimated and actual number of results (can be {@code null}). */
+  public IndexCardinality cardinality;
 
   /**
    * Constructor.
@@ -42,6 +45,7 @@ public final class FTIndexAccess extends Simple {
   @Override
   public NodeIter iter(final QueryContext qc) throws QueryException {
     final FTIter iter = ftexpr.iter(qc);
+    final boolean count = cardinality != null && cardinality.counting(qc);
     return new NodeIter() {
       @Override
       public ANode next() throws QueryException {
@@ -53,6 +57,7 @@ public final class FTIndexAccess extends Simple {
           if(qc.ftPosData != null) qc.ftPosData.add(item.data(), item.pre(), item.matches());
           // remove matches reference to save memory
           item.matches(null);
+          if(count) cardinality.add(1);
         }
         return item;
       }
@@ -90,7 +95,9 @@ public final class FTIndexAccess extends Simple {
 
   @Override
   public Expr copy(final CompileContext cc, final IntObjMap<Var> vm) {
-    return copyType(new FTIndexAccess(info, ftexpr.copy(cc, vm), db.copy(cc, vm)));
+    final FTIndexAccess fia = new FTIndexAccess(info, ftexpr.copy(cc, vm), db.copy(cc, vm));
+    fia.cardinality = IndexCardinality.copy(cardinality);
+    return copyType(fia);
   }
 
   @Override
@@ -118,7 +125,7 @@ public final class FTIndexAccess extends Simple {
 
   @Override
   public void toXml(final QueryPlan plan) {
-    plan.add(plan.create(this), db, ftexpr);
+    plan.add(IndexCardinality.plan(plan, plan.create(this), cardinality), db, ftexpr);
   }
 
   @Override
@@ -9,6 +9,7 @@ import org.basex.query.*;
 import org.basex.query.expr.*;
 import org.basex.query.iter.*;
 import org.basex.query.util.*;
+import org.basex.query.value.*;
 import org.basex.query.value.item.*;
 import org.basex.query.value.node.*;
 import org.basex.query.value.seq.*;
@@ -117,6 +118,41 @@ public final class For extends ForLet {
     };
   }
 
+  /**
+   * Returns an evaluator that iterates over a range of the items of the already computed input.
+   * Called for evaluating chunks of the input in parallel (see {@link ParallelFor}).
+   * @param input input (value of the bound expression)
+   * @param start position of the first item (inclusive)
+   * @param end position of the last item (exclusive)
+   * @return evaluator
+   */
+  Eval eval(final Value input, final long start, final long end) {
+    return new Eval() {
+      /** Current position. */
+      private long p = start;
+      /** Indicates if the empty sequence must be bound. */
+      private boolean none = empty && input.isEmpty();
+
+      @Override
+      public boolean next(final QueryContext qc) throws QueryException {
+        qc.checkStop();
+        if(p < end) {
+          qc.set(var, input.itemAt(p++));
+          if(pos != null) qc.set(pos, Int.get(p));
+          return true;
+        }
+        if(none) {
+          // input yields no items, bind the empty sequence instead
+          qc.set(var, Empty.VALUE);
+          if(pos != null) qc.set(pos, Int.ZERO);
+          none = false;
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
   @Override
   public For optimize(final CompileContext cc) throws QueryException {
     // assign type to clause and variable; remove empty flag if expression always yields items
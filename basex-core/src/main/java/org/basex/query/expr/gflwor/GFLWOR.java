@@ -3,6 +3,7 @@ package org.basex.query.expr.gflwor;
 import java.util.*;
 import java.util.function.*;
 
+import org.basex.core.*;
 import org.basex.query.*;
 import org.basex.query.CompileContext.*;
 import org.basex.query.expr.*;
@@ -30,6 +31,10 @@ public final class GFLWOR extends ParseExpr {
   private final LinkedList<Clause> clauses;
   /** Return expression. */
   private Expr rtrn;
+  /** Minimum number of iterations for parallel evaluation ({@code 0}: sequential evaluation). */
+  private long parallel;
+  /** Indicates if the aggregations of the group by clauses have been determined. */
+  private volatile boolean aggregated;
 
   /**
    * Constructor.
@@ -59,15 +64,75 @@ public final class GFLWOR extends ParseExpr {
    * @return the evaluator
    */
   private Eval newEval() {
+    aggregate();
     Eval eval = new StartEval();
     for(final Clause clause : clauses) eval = clause.eval(eval);
     return eval;
   }
 
+  /**
+   * Creates a new evaluator for a range of the items of the first clause.
+   * @param input input of the first clause
+   * @param start position of the first item (inclusive)
+   * @param end position of the last item (exclusive)
+   * @return the evaluator
+   */
+  private Eval newEval(final Value input, final long start, final long end) {
+    aggregate();
+    final Iterator<Clause> iter = clauses.iterator();
+    Eval eval = ((For) iter.next()).eval(input, start, end);
+    while(iter.hasNext()) eval = iter.next().eval(eval);
+    return eval;
+  }
+
   @Override
-  public Iter iter(final QueryContext qc) {
+  public Iter iter(final QueryContext qc) throws QueryException {
+    final Eval ev;
+    if(parallel == 0) {
+      ev = newEval();
+    } else {
+      final Value input = ((For) clauses.getFirst()).expr.value(qc);
+      final long size = input.size();
+      if(ParallelFor.enabled(size, parallel)) return parallel(input, qc).iter();
+      ev = newEval(input, 0, size);
+    }
+    return iter(ev, qc);
+  }
+
+  /**
+   * Returns an iterator for the first results of the FLWOR expression.
+   * If the tuples are sorted, and if no tuples are added or removed after sorting, and if the
+   * return expression yields single items, only the requested number of tuples will be sorted.
+   * @param qc query context
+   * @param limit number of requested items
+   * @return iterator
+   * @throws QueryException query exception
+   */
+  public Iter iter(final QueryContext qc, final long limit) throws QueryException {
+    OrderBy order = null;
+    for(final Clause clause : clauses) {
+      if(clause instanceof OrderBy) order = (OrderBy) clause;
+      else if(!(clause instanceof Let)) order = null;
+    }
+    if(order == null || limit >= Integer.MAX_VALUE || !rtrn.seqType().one()) return iter(qc);
+
+    aggregate();
+    Eval eval = new StartEval();
+    for(final Clause clause : clauses) {
+      eval = clause == order ? order.eval(eval, limit) : clause.eval(eval);
+    }
+    return iter(eval, qc);
+  }
+
+  /**
+   * Returns an iterator for the results of the specified evaluator.
+   * @param ev evaluator
+   * @param qc query context
+   * @return iterator
+   */
+  private Iter iter(final Eval ev, final QueryContext qc) {
     return new Iter() {
-      private final Eval eval = newEval();
+      private final Eval eval = ev;
       private Iter iter = Empty.ITER;
 
       @Override
@@ -87,12 +152,53 @@ public final class GFLWOR extends ParseExpr {
 
   @Override
   public Value value(final QueryContext qc) throws QueryException {
-    final Eval eval = newEval();
+    if(parallel != 0) {
+      final Value input = ((For) clauses.getFirst()).expr.value(qc);
+      final long size = input.size();
+      return ParallelFor.enabled(size, parallel) ? parallel(input, qc).value() :
+        value(input, 0, size, qc);
+    }
+    return value(newEval(), qc);
+  }
+
+  /**
+   * Evaluates a range of the items of the first clause.
+   * @param input input of the first clause
+   * @param start position of the first item (inclusive)
+   * @param end position of the last item (exclusive)
+   * @param qc query context
+   * @return resulting value
+   * @throws QueryException query exception
+   */
+  Value value(final Value input, final long start, final long end, final QueryContext qc)
+      throws QueryException {
+    return value(newEval(input, start, end), qc);
+  }
+
+  /**
+   * Evaluates the return expression for all iterations of the specified evaluator.
+   * @param eval evaluator
+   * @param qc query context
+   * @return resulting value
+   * @throws QueryException query exception
+   */
+  private Value value(final Eval eval, final QueryContext qc) throws QueryException {
     final ValueBuilder vb = new ValueBuilder(qc);
     while(eval.next(qc)) vb.add(rtrn.value(qc));
     return vb.value(this);
   }
 
+  /**
+   * Starts the parallel evaluation of the FLWOR expression.
+   * @param input input of the first clause
+   * @param qc query context
+   * @return parallel evaluation
+   */
+  private ParallelFor parallel(final Value input, final QueryContext qc) {
+    final StaticContext sc = info != null ? info.sc() : null;
+    return new ParallelFor(this, input, sc == null || sc.ordered, qc).fork();
+  }
+
   @Override
   public Expr compile(final CompileContext cc) throws QueryException {
     final ListIterator<Clause> iter = clauses.listIterator();
@@ -112,13 +218,15 @@ public final class GFLWOR extends ParseExpr {
 
   @Override
   public Expr optimize(final CompileContext cc) throws QueryException {
+    // clauses may be rewritten: aggregations will be determined again before evaluation
+    aggregated = false;
     flattenAnd();
 
     // apply all optimizations in a row until nothing changes anymore
     while(flattenReturn(cc) | flattenFor(cc) | unnestFLWR(cc) | unnestLets(cc) | ifToWhere(cc) |
         forToLet(cc) | slideLetsOut(cc) | inlineForLet(cc) | unusedClauses(cc) | unusedVars(cc) |
-        cleanDeadVars() | optimizeCond(cc, true) | optimizeCond(cc, false) | optimizePos(cc) |
-        optimizeOrderBy(cc));
+        cleanDeadVars() | hashJoin(cc) | optimizeCond(cc, true) | optimizeCond(cc, false) |
+        optimizePos(cc) | optimizeOrderBy(cc));
 
     mergeWheres(cc, true);
     mergeWheres(cc, false);
@@ -130,9 +238,57 @@ public final class GFLWOR extends ParseExpr {
     }
 
     exprType.assign(rtrn, calcSize(true));
+
+    final long limit = parallel(cc);
+    if(limit != 0 && parallel == 0) cc.info(QueryText.OPTPARALLEL_X, this);
+    parallel = limit;
     return this;
   }
 
+  /**
+   * Determines the values of non-grouping variables that will be aggregated while grouping.
+   * This is done before the expression is evaluated, as the clauses and the return expression
+   * can still be rewritten after the group by clauses have been optimized.
+   */
+  private void aggregate() {
+    if(aggregated) return;
+    synchronized(this) {
+      if(aggregated) return;
+      int c = 0;
+      for(final Clause clause : clauses) {
+        c++;
+        if(clause instanceof GroupBy) {
+          final ExprList exprs = new ExprList().add(rtrn);
+          for(final Clause cl : clauses.subList(c, clauses.size())) exprs.add(cl);
+          ((GroupBy) clause).aggregate(exprs.finish());
+        }
+      }
+      aggregated = true;
+    }
+  }
+
+  /**
+   * Checks if the FLWOR expression can be evaluated in parallel (see {@link ParallelFor}).
+   * This is the case if it starts with a {@code for} clause that may exceed the minimum number
+   * of iterations, if all other clauses are {@code let} and {@code where} clauses, and if no
+   * clause is nondeterministic or scoring.
+   * @param cc compilation context
+   * @return minimum number of iterations ({@code 0}: sequential evaluation)
+   */
+  private long parallel(final CompileContext cc) {
+    final long limit = cc.qc.context.options.get(MainOptions.PARALLELFOR);
+    if(limit <= 0 || !(clauses.getFirst() instanceof For) || has(Flag.NDT)) return 0;
+
+    final For fr = (For) clauses.getFirst();
+    final long size = fr.expr.size();
+    if(fr.scoring || size != -1 && size < limit) return 0;
+    for(final Clause clause : clauses) {
+      if(clause != fr && !(clause instanceof Where ||
+          clause instanceof Let && !((Let) clause).scoring)) return 0;
+    }
+    return limit;
+  }
+
   @Override
   public Expr simplifyFor(final Simplify mode, final CompileContext cc) throws QueryException {
     return cc.simplify(this, mode == Simplify.COUNT &&
@@ -396,8 +552,9 @@ public final class GFLWOR extends ParseExpr {
         }
       }
       // merge for/let expression with subsequent expression
-      final boolean last = c + 1 == cs;
-      if(!changing && (last || clauses.get(c + 1) instanceof ForLet &&
+      // (skip first for clause if it will be evaluated in parallel)
+      final boolean last = c + 1 == cs, par = c == 0 && fl instanceof For && parallel(cc) != 0;
+      if(!changing && !par && (last || clauses.get(c + 1) instanceof ForLet &&
           count(fl.var, c + 2) == VarUsage.NEVER)) {
         if(last) {
           // merge with return expression
@@ -604,6 +761,42 @@ public final class GFLWOR extends ParseExpr {
     return changed;
   }
 
+  /**
+   * Rewrites a for clause and a where clause with an equality comparison to a hash join
+   * (see {@link Join}). The rewrite is applied if the for clause is preceded by another clause
+   * that may generate multiple tuples, and if the clauses between the for and the where clause
+   * are deterministic for, let and where clauses.
+   * @param cc compilation context
+   * @return change flag
+   * @throws QueryException query exception
+   */
+  private boolean hashJoin(final CompileContext cc) throws QueryException {
+    boolean changed = false, tuples = false;
+    for(int c = 0; c < clauses.size(); c++) {
+      final Clause clause = clauses.get(c);
+      if(tuples && clause instanceof For) {
+        final For fr = (For) clause;
+        for(int w = c + 1; w < clauses.size(); w++) {
+          final Clause cl = clauses.get(w);
+          if(cl instanceof Where) {
+            final Join join = Join.get(fr, ((Where) cl).expr, clauses.subList(0, w));
+            if(join != null) {
+              cc.info(QueryText.OPTJOIN_X, join);
+              clauses.remove(w);
+              clauses.set(c, join.optimize(cc));
+              changed = true;
+              break;
+            }
+          } else if(!(cl instanceof For || cl instanceof Let) || cl.has(Flag.NDT)) {
+            break;
+          }
+        }
+      }
+      if(!(clause instanceof Let || clause instanceof Where)) tuples = true;
+    }
+    return changed;
+  }
+
   /**
    * Slides where/while clauses upwards and removes those that do not filter anything.
    * @param cc compilation context
@@ -1063,7 +1256,9 @@ public final class GFLWOR extends ParseExpr {
   public Expr copy(final CompileContext cc, final IntObjMap<Var> vm) {
     final LinkedList<Clause> cls = new LinkedList<>();
     for(final Clause clause : clauses) cls.add(clause.copy(cc, vm));
-    return copyType(new GFLWOR(info, cls, rtrn.copy(cc, vm)));
+    final GFLWOR flwor = new GFLWOR(info, cls, rtrn.copy(cc, vm));
+    flwor.parallel = parallel;
+    return copyType(flwor);
   }
 
   /**
@@ -1127,7 +1322,8 @@ public final class GFLWOR extends ParseExpr {
 
   @Override
   public void toXml(final QueryPlan plan) {
-    plan.add(plan.create(this), clauses.toArray(Clause[]::new), rtrn);
+    plan.add(plan.create(this, QueryText.PARALLEL, parallel != 0 ? parallel : null),
+      clauses.toArray(Clause[]::new), rtrn);
   }
 
   @Override
@@ -12,18 +12,26 @@ import org.basex.query.value.item.*;
 final class Group {
   /** Grouping key, may contain {@code null} values. */
   final Item[] key;
-  /** Non-grouping variables. */
+  /** Hash value of the grouping key. */
+  final int hash;
+  /** Values of non-grouping variables ({@code null} entries for aggregated values). */
   final ValueBuilder[] ngv;
+  /** Aggregated values of non-grouping variables ({@code null} entries for other values). */
+  final Value[] values;
   /** Overflow list. */
   Group next;
 
   /**
    * Constructor.
-   * @param k grouping key
-   * @param ng non-grouping variables
+   * @param key grouping key
+   * @param hash hash value of the grouping key
+   * @param ngv values of non-grouping variables
+   * @param values aggregated values of non-grouping variables
    */
-  Group(final Item[] k, final ValueBuilder[] ng) {
-    key = k;
-    ngv = ng;
+  Group(final Item[] key, final int hash, final ValueBuilder[] ngv, final Value[] values) {
+    this.key = key;
+    this.hash = hash;
+    this.ngv = ngv;
+    this.values = values;
   }
 }
@@ -1,11 +1,18 @@
 package org.basex.query.expr.gflwor;
 
+import static org.basex.query.QueryError.*;
 import static org.basex.query.QueryText.*;
 
+import java.io.*;
 import java.util.*;
 
+import org.basex.core.*;
+import org.basex.io.*;
+import org.basex.io.in.DataInput;
+import org.basex.io.out.DataOutput;
 import org.basex.query.*;
 import org.basex.query.expr.*;
+import org.basex.query.func.*;
 import org.basex.query.util.*;
 import org.basex.query.value.*;
 import org.basex.query.value.item.*;
@@ -18,16 +25,36 @@ import org.basex.util.hash.*;
 /**
  * The GFLWOR {@code group by} expression.
  *
+ * If the values of a non-grouping variable are only passed on to {@code count}, {@code sum},
+ * {@code min} or {@code max}, only the aggregated value is stored for each group.
+ * If the number of items held in main memory exceeds {@link MainOptions#GROUPLIMIT}, and if all
+ * values can be written to disk, the tuples are hash-partitioned to temporary files, and the
+ * partitions are grouped one by one. Partitions that still exceed the limit are partitioned again
+ * with the next bits of the hash values.
+ *
  * @author BaseX Team 2005-24, BSD License
  * @author Leo Woerteler
  */
 public final class GroupBy extends Clause {
+  /** Functions whose arguments can be aggregated while grouping. */
+  private static final Function[] AGGREGATES = {
+    Function.COUNT, Function.SUM, Function.MIN, Function.MAX
+  };
+  /** Number of hash bits that are consumed by each partitioning level. */
+  private static final int BITS = 4;
+  /** Number of partitions for spilling tuples to disk. */
+  private static final int PARTITIONS = 1 << BITS;
+  /** Maximum number of partitioning levels. */
+  private static final int LEVELS = Integer.SIZE / BITS;
+
   /** Grouping specs. */
   private final GroupSpec[] specs;
   /** Non-grouping variable expressions. */
   private Expr[] preExpr;
   /** Non-grouping variables. */
   private Var[] post;
+  /** Aggregate functions of non-grouping variables ({@code null}: no aggregation). */
+  private Function[] aggregates;
   /** Number of non-occluded grouping variables. */
   private final int nonOcc;
 
@@ -45,6 +72,7 @@ public final class GroupBy extends Clause {
     this.specs = specs;
     this.post = post;
     preExpr = Array.copy(pre, new Expr[pre.length]);
+    aggregates = new Function[pre.length];
     int n = 0;
     for(final GroupSpec spec : specs) {
       if(!spec.occluded) n++;
@@ -57,15 +85,17 @@ public final class GroupBy extends Clause {
    * @param specs grouping specs
    * @param pre pre-grouping expressions
    * @param post post-grouping variables
+   * @param aggregates aggregate functions of non-grouping variables
    * @param nonOcc number of non-occluded grouping variables
    * @param info input info (can be {@code null})
    */
-  private GroupBy(final GroupSpec[] specs, final Expr[] pre, final Var[] post, final int nonOcc,
-      final InputInfo info) {
+  private GroupBy(final GroupSpec[] specs, final Expr[] pre, final Var[] post,
+      final Function[] aggregates, final int nonOcc, final InputInfo info) {
     super(info, SeqType.ITEM_ZM, vars(specs, post));
     this.specs = specs;
     preExpr = pre;
     this.post = post;
+    this.aggregates = aggregates;
     this.nonOcc = nonOcc;
   }
 
@@ -88,13 +118,26 @@ public final class GroupBy extends Clause {
     return new Eval() {
       /** Groups to iterate over. */
       private Group[] groups;
+      /** Partitions that have been spilled to disk ({@code null}: none, or all are grouped). */
+      private Partitions partitions;
       /** Current position. */
       private int pos;
 
       @Override
       public boolean next(final QueryContext qc) throws QueryException {
         if(groups == null) groups = init(qc);
-        if(pos == groups.length) return false;
+        while(pos == groups.length) {
+          if(partitions == null) return false;
+          final Group[] grps = partitions.next(qc);
+          if(grps == null) {
+            // all partitions have been grouped: report number of spilled partitions
+            qc.evalInfo(Util.info(SPILLPARTS_X, partitions.spilled));
+            partitions = null;
+            return false;
+          }
+          groups = grps;
+          pos = 0;
+        }
 
         final Group curr = groups[pos];
         // be nice to the garbage collector
@@ -108,99 +151,358 @@ public final class GroupBy extends Clause {
           }
         }
         final int pl = post.length;
-        for(int i = 0; i < pl; i++) qc.set(post[i], curr.ngv[i].value(preExpr[i]));
+        for(int i = 0; i < pl; i++) qc.set(post[i], value(curr, i));
         return true;
       }
 
       /**
        * Builds up the groups.
        * @param qc query context
+       * @return groups, or groups of the first partition
        * @throws QueryException query exception
        */
       private Group[] init(final QueryContext qc) throws QueryException {
-        final ArrayList<Group> grps = new ArrayList<>();
-        final IntObjMap<Group> map = new IntObjMap<>();
-        final DeepEqual[] deeps = new DeepEqual[nonOcc];
-        int c = 0;
-        for(final GroupSpec spec : specs) {
-          if(!spec.occluded) deeps[c++] = new DeepEqual(info, spec.coll, qc);
-        }
-
-        while(sub.next(qc)) {
-          final Item[] key = new Item[nonOcc];
-          int p = 0, hash = 1;
-          for(final GroupSpec spec : specs) {
-            final Item atom = spec.atomItem(qc, info);
-            if(!spec.occluded) {
-              key[p++] = atom;
-              // If the values are compared using a special collation, we let them collide
-              // here and let the comparison do all the work later.
-              // This enables other non-collation specs to avoid the collision.
-              hash = 31 * hash + (atom.isEmpty() || spec.coll != null ? 0 : atom.hash());
+        final long limit = spill() ? qc.context.options.get(MainOptions.GROUPLIMIT) : 0;
+        Groups grps = new Groups(qc);
+        try {
+          while(sub.next(qc)) {
+            final Item[] key = new Item[nonOcc];
+            int p = 0;
+            for(final GroupSpec spec : specs) {
+              final Item atom = spec.atomItem(qc, info);
+              if(!spec.occluded) key[p++] = atom;
+              qc.set(spec.var, atom);
             }
-            qc.set(spec.var, atom);
-          }
-
-          // find the group for this key
-          final Group fst;
-          Group grp = null;
-          // no collations, so we can use hashing
-          for(Group g = fst = map.get(hash); g != null; g = g.next) {
-            if(eq(key, g.key, deeps)) {
-              grp = g;
-              break;
+            final int pl = preExpr.length;
+            final Value[] values = new Value[pl];
+            for(int g = 0; g < pl; g++) {
+              final Value value = preExpr[g].value(qc);
+              values[g] = aggregates[g] == Function.COUNT ? Int.get(value.size()) : value;
             }
-          }
 
-          final int pl = preExpr.length;
-          if(grp == null) {
-            // new group, add it to the list
-            final ValueBuilder[] ngs = new ValueBuilder[pl];
-            final int nl = ngs.length;
-            for(int n = 0; n < nl; n++) ngs[n] = new ValueBuilder(qc);
-            grp = new Group(key, ngs);
-            grps.add(grp);
-
-            // insert the group into the hash table
-            if(fst == null) {
-              map.put(hash, grp);
+            final int hash = hash(key);
+            if(partitions != null) {
+              partitions.write(key, hash, values, qc);
             } else {
-              final Group nxt = fst.next;
-              fst.next = grp;
-              grp.next = nxt;
+              grps.add(key, hash, values, qc);
+              if(limit > 0 && grps.items > limit) {
+                // budget is exceeded: move all groups and remaining tuples to partitions
+                partitions = new Partitions(0, limit, qc);
+                partitions.write(grps, qc);
+                grps = null;
+              }
             }
           }
+        } finally {
+          if(partitions != null) partitions.finish();
+        }
+        return partitions != null ? new Group[0] : grps.list.toArray(Group[]::new);
+      }
+    };
+  }
 
-          // add values of non-grouping variables to the group
-          for(int g = 0; g < pl; g++) {
-            grp.ngv[g].add(preExpr[g].value(qc));
-          }
+  /**
+   * Indicates if tuples can be spilled to disk.
+   * This is the case if the values of all non-grouping variables are atomic or aggregated.
+   * @return result of check
+   */
+  private boolean spill() {
+    final int pl = preExpr.length;
+    for(int p = 0; p < pl; p++) {
+      if(aggregates[p] == null && !preExpr[p].seqType().type.instanceOf(AtomType.ANY_ATOMIC_TYPE)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Computes the hash value of a grouping key.
+   * @param key grouping key
+   * @return hash value
+   */
+  private int hash(final Item[] key) {
+    int p = 0, hash = 1;
+    for(final GroupSpec spec : specs) {
+      if(!spec.occluded) {
+        final Item atom = key[p++];
+        // If the values are compared using a special collation, we let them collide
+        // here and let the comparison do all the work later.
+        // This enables other non-collation specs to avoid the collision.
+        hash = 31 * hash + (atom.isEmpty() || spec.coll != null ? 0 : atom.hash());
+      }
+    }
+    return hash;
+  }
+
+  /**
+   * Returns the value of a non-grouping variable of a group.
+   * @param group group
+   * @param p index of the variable
+   * @return value
+   */
+  private Value value(final Group group, final int p) {
+    final Value value = partial(group, p);
+    // count: return a sequence with the counted number of items
+    return aggregates[p] == Function.COUNT ? RangeSeq.get(1, ((Int) value).itr(), true) : value;
+  }
+
+  /**
+   * Returns the values or the partially aggregated value of a non-grouping variable of a group.
+   * @param group group
+   * @param p index of the variable
+   * @return value
+   */
+  private Value partial(final Group group, final int p) {
+    final Value value = group.values[p];
+    return value != null ? value : group.ngv[p].value(preExpr[p]);
+  }
+
+  /**
+   * Groups in main memory.
+   */
+  private final class Groups {
+    /** Groups in the order of their creation. */
+    private final ArrayList<Group> list = new ArrayList<>();
+    /** Groups, indexed by the hash values of their keys. */
+    private final IntObjMap<Group> map = new IntObjMap<>();
+    /** Deep equality comparisons. */
+    private final DeepEqual[] deeps = new DeepEqual[nonOcc];
+    /** Number of items held in main memory. */
+    private long items;
+
+    /**
+     * Constructor.
+     * @param qc query context
+     */
+    Groups(final QueryContext qc) {
+      int c = 0;
+      for(final GroupSpec spec : specs) {
+        if(!spec.occluded) deeps[c++] = new DeepEqual(info, spec.coll, qc);
+      }
+    }
+
+    /**
+     * Adds the values of a tuple to its group.
+     * @param key grouping key
+     * @param hash hash value of the key
+     * @param values values of the non-grouping variables
+     * @param qc query context
+     * @throws QueryException query exception
+     */
+    void add(final Item[] key, final int hash, final Value[] values, final QueryContext qc)
+        throws QueryException {
+
+      // find the group for this key
+      final Group fst;
+      Group grp = null;
+      // no collations, so we can use hashing
+      for(Group g = fst = map.get(hash); g != null; g = g.next) {
+        if(eq(key, g.key)) {
+          grp = g;
+          break;
+        }
+      }
+
+      final int pl = preExpr.length;
+      if(grp == null) {
+        // new group, add it to the list
+        final ValueBuilder[] ngv = new ValueBuilder[pl];
+        for(int g = 0; g < pl; g++) {
+          if(aggregates[g] == null) ngv[g] = new ValueBuilder(qc);
         }
+        grp = new Group(key, hash, ngv, new Value[pl]);
+        list.add(grp);
+        items += key.length;
+
+        // insert the group into the hash table
+        if(fst == null) {
+          map.put(hash, grp);
+        } else {
+          final Group nxt = fst.next;
+          fst.next = grp;
+          grp.next = nxt;
+        }
+      }
 
-        // we're finished, copy the array so the list can be garbage-collected
-        return grps.toArray(Group[]::new);
+      // add values of non-grouping variables to the group
+      for(int g = 0; g < pl; g++) {
+        final Function func = aggregates[g];
+        final Value value = values[g], agg = grp.values[g];
+        if(func == null) {
+          grp.ngv[g].add(value);
+          items += value.size();
+        } else if(func == Function.COUNT) {
+          grp.values[g] = agg == null ? value : Int.get(((Int) agg).itr() + ((Int) value).itr());
+        } else {
+          if(agg == null) items++;
+          grp.values[g] = func.get(info, agg == null ? value :
+            ValueBuilder.concat(agg, value, qc)).item(qc, info);
+        }
       }
+    }
 
-      /**
-       * Checks two keys for equality.
-       * @param items1 first keys
-       * @param items2 second keys
-       * @param deeps deep equality comparisons
-       * @return {@code true} if the compare as equal, {@code false} otherwise
-       * @throws QueryException query exception
-       */
-      private boolean eq(final Item[] items1, final Item[] items2, final DeepEqual[] deeps)
-          throws QueryException {
-
-        final int il = items1.length;
-        for(int i = 0; i < il; i++) {
-          final Item item1 = items1[i], item2 = items2[i];
-          final boolean empty1 = item1.isEmpty(), empty2 = item2.isEmpty();
-          if(empty1 ^ empty2 || !empty1 && !deeps[i].equal(item1, item2)) return false;
+    /**
+     * Checks two keys for equality.
+     * @param items1 first keys
+     * @param items2 second keys
+     * @return {@code true} if the compare as equal, {@code false} otherwise
+     * @throws QueryException query exception
+     */
+    private boolean eq(final Item[] items1, final Item[] items2) throws QueryException {
+      final int il = items1.length;
+      for(int i = 0; i < il; i++) {
+        final Item item1 = items1[i], item2 = items2[i];
+        final boolean empty1 = item1.isEmpty(), empty2 = item2.isEmpty();
+        if(empty1 ^ empty2 || !empty1 && !deeps[i].equal(item1, item2)) return false;
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Tuples that have been spilled to disk. The tuples are distributed to the partitions by the
+   * hash values of their keys, so all tuples of a group are stored in the same partition.
+   */
+  private final class Partitions {
+    /** Temporary files. */
+    private final SpillFiles spill;
+    /** Partitioning level (specifies the bits of the hash values that select the partition). */
+    private final int level;
+    /** Maximum number of items held in main memory. */
+    private final long limit;
+    /** Partition files. */
+    private final IOFile[] files = new IOFile[PARTITIONS];
+    /** Outputs of the partitions. */
+    private final DataOutput[] outputs = new DataOutput[PARTITIONS];
+    /** Number of tuples of the partitions. */
+    private final long[] sizes = new long[PARTITIONS];
+    /** Next partition to be grouped. */
+    private int next;
+    /** Sub-partitions of the current partition ({@code null}: partition is grouped in memory). */
+    private Partitions sub;
+    /** Number of partitions that have been written to disk (including sub-partitions). */
+    private int spilled;
+
+    /**
+     * Constructor.
+     * @param level partitioning level
+     * @param limit maximum number of items held in main memory
+     * @param qc query context
+     */
+    Partitions(final int level, final long limit, final QueryContext qc) {
+      this.level = level;
+      this.limit = limit;
+      spill = qc.resources.index(SpillFiles.class);
+    }
+
+    /**
+     * Writes the partially aggregated values of all groups to their partitions.
+     * @param grps groups
+     * @param qc query context
+     * @throws QueryException query exception
+     */
+    void write(final Groups grps, final QueryContext qc) throws QueryException {
+      final int pl = preExpr.length;
+      for(final Group grp : grps.list) {
+        final Value[] values = new Value[pl];
+        for(int g = 0; g < pl; g++) values[g] = partial(grp, g);
+        write(grp.key, grp.hash, values, qc);
+      }
+    }
+
+    /**
+     * Writes a tuple to its partition.
+     * @param key grouping key
+     * @param hash hash value of the key
+     * @param values values of the non-grouping variables
+     * @param qc query context
+     * @throws QueryException query exception
+     */
+    void write(final Item[] key, final int hash, final Value[] values, final QueryContext qc)
+        throws QueryException {
+      final int p = hash >>> level * BITS & PARTITIONS - 1;
+      try {
+        if(outputs[p] == null) {
+          files[p] = spill.create(qc, info);
+          outputs[p] = new DataOutput(files[p]);
+          spilled++;
         }
-        return true;
+        final DataOutput out = outputs[p];
+        for(final Item item : key) Store.write(out, item);
+        for(final Value value : values) Store.write(out, value);
+        sizes[p]++;
+      } catch(final IOException ex) {
+        throw IOERR_X.get(info, ex);
       }
-    };
+    }
+
+    /**
+     * Closes the outputs of all partitions.
+     * @throws QueryException query exception
+     */
+    void finish() throws QueryException {
+      try {
+        for(final DataOutput out : outputs) {
+          if(out != null) out.close();
+        }
+      } catch(final IOException ex) {
+        throw IOERR_X.get(info, ex);
+      }
+    }
+
+    /**
+     * Reads the tuples of the next partition and returns its groups.
+     * If the groups of a partition exceed the main-memory limit, the partition is split up into
+     * sub-partitions, unless all keys have the same hash value.
+     * @param qc query context
+     * @return groups or {@code null}
+     * @throws QueryException query exception
+     */
+    Group[] next(final QueryContext qc) throws QueryException {
+      while(true) {
+        if(sub != null) {
+          final Group[] groups = sub.next(qc);
+          if(groups != null) return groups;
+          spilled += sub.spilled;
+          sub = null;
+        }
+        if(next == PARTITIONS) return null;
+
+        final IOFile file = files[next];
+        final long size = sizes[next++];
+        if(file == null) continue;
+
+        Groups grps = new Groups(qc);
+        final int pl = preExpr.length;
+        try(DataInput in = new DataInput(file)) {
+          for(long s = 0; s < size; s++) {
+            final Item[] key = new Item[nonOcc];
+            for(int k = 0; k < nonOcc; k++) key[k] = (Item) Store.read(in, qc);
+            final Value[] values = new Value[pl];
+            for(int g = 0; g < pl; g++) values[g] = Store.read(in, qc);
+            final int hash = hash(key);
+            if(sub != null) {
+              sub.write(key, hash, values, qc);
+            } else {
+              grps.add(key, hash, values, qc);
+              if(grps.items > limit && level + 1 < LEVELS && grps.map.size() > 1) {
+                // budget is still exceeded: move groups and remaining tuples to sub-partitions
+                sub = new Partitions(level + 1, limit, qc);
+                sub.write(grps, qc);
+                grps = null;
+              }
+            }
+          }
+        } catch(final IOException ex) {
+          throw IOERR_X.get(info, ex);
+        } finally {
+          spill.delete(file);
+          if(sub != null) sub.finish();
+        }
+        if(grps != null) return grps.list.toArray(Group[]::new);
+      }
+    }
   }
 
   @Override
@@ -262,7 +564,8 @@ public final class GroupBy extends Clause {
     for(int p = 0; p < pl; p++) ps[p] = cc.copy(post[p], vm);
 
     // done
-    return copyType(new GroupBy(Arr.copyAll(cc, vm, specs), pEx, ps, nonOcc, info));
+    return copyType(new GroupBy(Arr.copyAll(cc, vm, specs), pEx, ps, aggregates.clone(), nonOcc,
+        info));
   }
 
   @Override
@@ -283,6 +586,7 @@ public final class GroupBy extends Clause {
     for(int p = 0; p < post.length; p++) {
       if(!used.get(post[p].id)) {
         preExpr = Array.remove(preExpr, p);
+        aggregates = Array.remove(aggregates, p);
         post = Array.remove(post, p--);
       }
     }
@@ -294,6 +598,65 @@ public final class GroupBy extends Clause {
     return false;
   }
 
+  /**
+   * Checks if the values of non-grouping variables are only passed on to aggregate functions by
+   * the subsequent clauses and the return expression. In this case, the values will be aggregated
+   * while the groups are built. The values of {@code sum}, {@code min} and {@code max} are only
+   * aggregated if they are numeric, as the aggregated item is then an instance of the static type.
+   * This function is called before the clause is evaluated for the first time.
+   * @param exprs subsequent clauses and return expression
+   */
+  void aggregate(final Expr... exprs) {
+    final int pl = post.length;
+    final Function[] aggrs = new Function[pl];
+    for(int p = 0; p < pl; p++) {
+      final Var var = post[p];
+      final int[] refs = { 0 };
+      final ASTVisitor visitor = new ASTVisitor() {
+        @Override
+        public boolean used(final VarRef ref) {
+          if(ref.var == var) refs[0]++;
+          return true;
+        }
+      };
+      for(final Expr expr : exprs) expr.accept(visitor);
+
+      Function aggregate = null;
+      if(refs[0] > 0) {
+        final boolean number = preExpr[p].seqType().type.isNumber();
+        for(final Function func : AGGREGATES) {
+          if(func != Function.COUNT && !number) continue;
+          int calls = 0;
+          for(final Expr expr : exprs) calls += calls(func, var, expr);
+          if(calls == refs[0]) {
+            aggregate = func;
+            break;
+          }
+        }
+      }
+      aggrs[p] = aggregate;
+    }
+    aggregates = aggrs;
+  }
+
+  /**
+   * Counts the function calls with the specified variable as single argument.
+   * @param func function
+   * @param var variable
+   * @param expr expression
+   * @return number of calls
+   */
+  private static int calls(final Function func, final Var var, final Expr expr) {
+    final Expr[] args = expr instanceof ForLet ? new Expr[] { ((ForLet) expr).expr } :
+      expr instanceof Where ? new Expr[] { ((Where) expr).expr } : expr.args();
+    if(args == null) return 0;
+    if(func.is(expr) && args.length == 1 && args[0] instanceof VarRef &&
+        ((VarRef) args[0]).var == var) return 1;
+    int calls = 0;
+    for(final Expr arg : args) calls += calls(func, var, arg);
+    return calls;
+  }
+
   /**
    * Returns a group specification that can be further rewritten and simplified.
    * @return group specification
@@ -339,7 +702,7 @@ public final class GroupBy extends Clause {
 
   @Override
   public void toXml(final QueryPlan plan) {
-    plan.add(plan.create(this), specs);
+    plan.add(plan.create(this, ITERATIVE, false), specs);
   }
 
   @Override
@@ -0,0 +1,308 @@
+package org.basex.query.expr.gflwor;
+
+import static org.basex.query.QueryText.*;
+
+import java.util.*;
+import java.util.List;
+
+import org.basex.data.*;
+import org.basex.query.*;
+import org.basex.query.expr.*;
+import org.basex.query.expr.CmpG.*;
+import org.basex.query.iter.*;
+import org.basex.query.util.*;
+import org.basex.query.util.hash.*;
+import org.basex.query.value.*;
+import org.basex.query.value.item.*;
+import org.basex.query.value.seq.*;
+import org.basex.query.value.type.*;
+import org.basex.query.var.*;
+import org.basex.util.*;
+import org.basex.util.hash.*;
+import org.basex.util.list.*;
+
+/**
+ * FLWOR hash join, created from a {@code for} clause and a {@code where} clause that compares
+ * the items of the clause with the tuples of the preceding clauses:
+ * {@code for $b in B where P = K($b)}.
+ *
+ * For the first incoming tuple, the input of the clause is evaluated, and the positions of its
+ * items are indexed by the atomized keys (build phase). For each incoming tuple, the atomized
+ * probe values are looked up, and the matching items are bound in their original order
+ * (probe phase).
+ *
+ * @author BaseX Team 2005-24, BSD License
+ * @author Christian Gruen
+ */
+public final class Join extends Clause {
+  /** Numeric types whose instances are compared without type promotion. */
+  private static final AtomType[] NUMBERS = { AtomType.DECIMAL, AtomType.FLOAT, AtomType.DOUBLE };
+  /** Item variable. */
+  final Var var;
+  /** Input expression. */
+  Expr expr;
+  /** Key expression (references the item variable). */
+  Expr key;
+  /** Probe expression (references the variables of the preceding clauses). */
+  Expr probe;
+
+  /**
+   * Constructor.
+   * @param var item variable
+   * @param expr input expression
+   * @param key key expression
+   * @param probe probe expression
+   * @param info input info (can be {@code null})
+   */
+  Join(final Var var, final Expr expr, final Expr key, final Expr probe, final InputInfo info) {
+    super(info, SeqType.ITEM_O, var);
+    this.var = var;
+    this.expr = expr;
+    this.key = key;
+    this.probe = probe;
+  }
+
+  /**
+   * Tries to create a hash join from a {@code for} clause and the comparison of a {@code where}
+   * clause. The input expression and the key expression must not reference variables that are
+   * bound for each tuple, and the compared values must have compatible hashes. Numbers are only
+   * joined if they are compared without type promotion.
+   * @param fr for clause
+   * @param cmp comparison
+   * @param before clauses that precede the where clause (including the for clause)
+   * @return join or {@code null}
+   */
+  static Join get(final For fr, final Expr cmp, final List<Clause> before) {
+    if(fr.vars.length != 1 || fr.empty || fr.var.declType != null || !input(fr.expr) ||
+        !(cmp instanceof CmpG) || ((CmpG) cmp).opG() != OpG.EQ ||
+        ((CmpG) cmp).sc().collation != null || cmp.has(Flag.NDT)) return null;
+
+    final Expr[] args = cmp.args();
+    for(int a = 0; a < 2; a++) {
+      final Expr key = args[a], probe = args[1 - a];
+      if(!key.uses(fr.var) || probe.uses(fr.var)) continue;
+
+      // input and key expression may only reference variables that are bound once,
+      // probe expression must not reference variables declared after the for clause
+      boolean valid = true, once = true, after = false;
+      for(final Clause clause : before) {
+        if(!(clause instanceof Let || clause instanceof Where)) once = false;
+        for(final Var vr : clause.vars) {
+          if(vr != fr.var && (!once && (key.uses(vr) || fr.expr.uses(vr)) ||
+              after && probe.uses(vr))) valid = false;
+        }
+        if(clause == fr) after = true;
+      }
+      final Type type1 = key.seqType().type, type2 = probe.seqType().type;
+      if(valid && (numbers(type1, type2) ||
+          type1.isStringOrUntyped() && type2.isStringOrUntyped())) {
+        return new Join(fr.var, fr.expr, key, probe, cmp.info());
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Checks if numbers of the specified types can be compared without type promotion
+   * (e.g., integers are promoted to doubles if they are compared with doubles).
+   * In this case, equal numbers have the same hash values.
+   * @param type1 first type
+   * @param type2 second type
+   * @return result of check
+   */
+  private static boolean numbers(final Type type1, final Type type2) {
+    for(final AtomType type : NUMBERS) {
+      if(type1.instanceOf(type) && type2.instanceOf(type)) return true;
+    }
+    return false;
+  }
+
+  /**
+   * Checks if the specified input is suitable for being joined.
+   * Ranges and databases with value indexes are skipped, as the comparison can be rewritten to
+   * a range check or an index access.
+   * @param expr input expression
+   * @return result of check
+   */
+  private static boolean input(final Expr expr) {
+    if(expr instanceof Range || expr instanceof RangeSeq || expr.has(Flag.NDT)) return false;
+    final Data data = expr.data();
+    return data == null || !data.meta.textindex && !data.meta.attrindex;
+  }
+
+  @Override
+  Eval eval(final Eval sub) {
+    return new Eval() {
+      /** Indexed keys (assigned in the build phase). */
+      private HashItemSet keys;
+      /** Positions of the input items, indexed by the ids of the keys. */
+      private final ArrayList<IntList> positions = new ArrayList<>();
+      /** Input value. */
+      private Value input;
+      /** Positions of the matching items. */
+      private IntList matches;
+      /** Current position in the matching items. */
+      private int m;
+
+      @Override
+      public boolean next(final QueryContext qc) throws QueryException {
+        while(true) {
+          if(matches != null && m < matches.size()) {
+            qc.set(var, input.itemAt(matches.get(m++)));
+            return true;
+          }
+          if(!sub.next(qc)) return false;
+          if(keys == null) build(qc);
+          matches = probe(qc);
+          m = 0;
+        }
+      }
+
+      /**
+       * Indexes the positions of the input items by their keys.
+       * @param qc query context
+       * @throws QueryException query exception
+       */
+      private void build(final QueryContext qc) throws QueryException {
+        keys = new HashItemSet(true, info);
+        positions.add(null);
+        input = expr.value(qc);
+        final long size = input.size();
+        for(int p = 0; p < size; p++) {
+          qc.checkStop();
+          qc.set(var, input.itemAt(p));
+          final Iter iter = key.atomIter(qc, info);
+          for(Item item; (item = qc.next(iter)) != null;) {
+            final int id = keys.put(item);
+            if(id == positions.size()) positions.add(new IntList(1));
+            final IntList list = positions.get(id);
+            if(list.isEmpty() || list.peek() != p) list.add(p);
+          }
+        }
+      }
+
+      /**
+       * Returns the positions of the input items that match the probe values.
+       * @param qc query context
+       * @return positions or {@code null}
+       * @throws QueryException query exception
+       */
+      private IntList probe(final QueryContext qc) throws QueryException {
+        IntList list = null;
+        boolean merged = false;
+        final Iter iter = probe.atomIter(qc, info);
+        for(Item item; (item = qc.next(iter)) != null;) {
+          final int id = keys.id(item);
+          if(id == 0) continue;
+          final IntList found = positions.get(id);
+          if(list == null) {
+            list = found;
+          } else if(list != found) {
+            if(!merged) {
+              list = new IntList(list.toArray());
+              merged = true;
+            }
+            list.add(found.toArray());
+          }
+        }
+        return merged ? list.ddo() : list;
+      }
+    };
+  }
+
+  @Override
+  public boolean has(final Flag... flags) {
+    return expr.has(flags) || key.has(flags) || probe.has(flags);
+  }
+
+  @Override
+  public Join compile(final CompileContext cc) throws QueryException {
+    expr = expr.compile(cc);
+    key = key.compile(cc);
+    probe = probe.compile(cc);
+    return optimize(cc);
+  }
+
+  @Override
+  public Join optimize(final CompileContext cc) throws QueryException {
+    exprType.assign(expr.seqType().with(Occ.EXACTLY_ONE));
+    var.refineType(seqType(), size(), cc);
+    var.expr(expr);
+    return this;
+  }
+
+  @Override
+  public boolean inlineable(final InlineContext ic) {
+    return expr.inlineable(ic) && key.inlineable(ic) && probe.inlineable(ic);
+  }
+
+  @Override
+  public VarUsage count(final Var v) {
+    return VarUsage.sum(v, expr, probe).plus(key.count(v).times(2));
+  }
+
+  @Override
+  public Clause inline(final InlineContext ic) throws QueryException {
+    final Expr inlined1 = expr.inline(ic), inlined2 = key.inline(ic), inlined3 = probe.inline(ic);
+    if(inlined1 == null && inlined2 == null && inlined3 == null) return null;
+    if(inlined1 != null) expr = inlined1;
+    if(inlined2 != null) key = inlined2;
+    if(inlined3 != null) probe = inlined3;
+    return optimize(ic.cc);
+  }
+
+  @Override
+  public Join copy(final CompileContext cc, final IntObjMap<Var> vm) {
+    final Expr ex = expr.copy(cc, vm), prb = probe.copy(cc, vm);
+    return copyType(new Join(cc.copy(var, vm), ex, key.copy(cc, vm), prb, info));
+  }
+
+  @Override
+  public boolean accept(final ASTVisitor visitor) {
+    return expr.accept(visitor) && probe.accept(visitor) && visitor.declared(var) &&
+        key.accept(visitor);
+  }
+
+  @Override
+  public void checkUp() throws QueryException {
+    checkNoneUp(expr, key, probe);
+  }
+
+  @Override
+  public void calcSize(final long[] minMax) {
+    final long size = expr.size();
+    minMax[0] = 0;
+    final long max = minMax[1];
+    if(max > 0) minMax[1] = size >= 0 ? max * size : -1;
+  }
+
+  @Override
+  public int exprSize() {
+    return expr.exprSize() + key.exprSize() + probe.exprSize();
+  }
+
+  @Override
+  public boolean equals(final Object obj) {
+    if(this == obj) return true;
+    if(!(obj instanceof Join)) return false;
+    final Join j = (Join) obj;
+    return var.equals(j.var) && expr.equals(j.expr) && key.equals(j.key) &&
+        probe.equals(j.probe);
+  }
+
+  @Override
+  public int hashCode() {
+    return var.hashCode();
+  }
+
+  @Override
+  public void toXml(final QueryPlan plan) {
+    plan.add(plan.attachVariable(plan.create(this), var, false), expr, key, probe);
+  }
+
+  @Override
+  public void toString(final QueryString qs) {
+    qs.token(FOR).token(var).token(IN).token(expr);
+    qs.token(WHERE).token(probe).token(OpG.EQ).token(key);
+  }
+}
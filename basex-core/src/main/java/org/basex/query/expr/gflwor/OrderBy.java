@@ -4,12 +4,17 @@ import static org.basex.query.QueryError.*;
 import static org.basex.query.QueryText.*;
 import static org.basex.query.func.Function.*;
 
+import java.io.*;
 import java.util.*;
-import java.util.List;
 
+import org.basex.core.*;
+import org.basex.io.*;
+import org.basex.io.in.DataInput;
+import org.basex.io.out.DataOutput;
 import org.basex.query.*;
 import org.basex.query.expr.*;
 import org.basex.query.util.*;
+import org.basex.query.util.collation.*;
 import org.basex.query.value.*;
 import org.basex.query.value.item.*;
 import org.basex.query.value.seq.*;
@@ -17,6 +22,7 @@ import org.basex.query.value.type.*;
 import org.basex.query.var.*;
 import org.basex.util.*;
 import org.basex.util.hash.*;
+import org.basex.util.list.*;
 
 /**
  * FLWOR {@code order by}-expression.
@@ -44,21 +50,41 @@ public final class OrderBy extends Clause {
 
   @Override
   Eval eval(final Eval sub) {
+    return eval(sub, Long.MAX_VALUE);
+  }
+
+  /**
+   * Returns an evaluator that only returns the specified number of tuples.
+   * If the limit is smaller than the number of incoming tuples, the smallest tuples are
+   * collected in a heap of the given size.
+   * @param sub wrapped evaluator
+   * @param limit maximum number of tuples
+   * @return evaluator
+   */
+  Eval eval(final Eval sub, final long limit) {
     return new Eval() {
-      private Value[][] tpls;
-      private Integer[] perm;
-      int pos;
+      /** Sorted tuples. */
+      private Tuple[] tuples;
+      /** Runs that have been spilled to disk ({@code null}: all tuples are in memory). */
+      private Runs runs;
+      /** Current position. */
+      private int pos;
 
       @Override
       public boolean next(final QueryContext qc) throws QueryException {
-        if(tpls == null) sort(qc);
-        if(pos == tpls.length) return false;
-        final int p = perm[pos++];
-        final Value[] tuple = tpls[p];
-        // free the space occupied by the tuple
-        tpls[p] = null;
+        if(tuples == null) sort(qc);
+        final Tuple tuple;
+        if(runs != null) {
+          tuple = runs.next(qc);
+          if(tuple == null) return false;
+        } else {
+          if(pos == tuples.length) return false;
+          tuple = tuples[pos];
+          // free the space occupied by the tuple
+          tuples[pos++] = null;
+        }
         final int rl = refs.length;
-        for(int r = 0; r < rl; r++) qc.set(refs[r].var, tuple[r]);
+        for(int r = 0; r < rl; r++) qc.set(refs[r].var, tuple.values[r]);
         return true;
       }
 
@@ -68,61 +94,420 @@ public final class OrderBy extends Clause {
        * @throws QueryException evaluation exception
        */
       private void sort(final QueryContext qc) throws QueryException {
-        // keys are stored at odd positions, values at even ones
-        List<Value[]> tuples = new ArrayList<>();
-        while(sub.next(qc)) {
-          final int kl = keys.length;
-          final Item[] key = new Item[kl];
-          for(int k = 0; k < kl; k++) key[k] = keys[k].expr.atomItem(qc, keys[k].info());
-          tuples.add(key);
-
-          final int rl = refs.length;
-          final Value[] vals = new Value[rl];
-          for(int r = 0; r < rl; r++) vals[r] = refs[r].value(qc);
-          tuples.add(vals);
-        }
+        final long max = limit < Integer.MAX_VALUE ? 0 : spill() ?
+          qc.context.options.get(MainOptions.SORTLIMIT) : 0;
+        final MinHeap<Tuple, Tuple> heap = limit < Integer.MAX_VALUE ?
+          new MinHeap<>((tuple1, tuple2) -> compare(tuple2, tuple1)) : null;
 
-        final int len = tuples.size() >>> 1;
-        final Item[][] ks = new Item[len][];
-        perm = new Integer[len];
-        tpls = new Value[len][];
-        for(int i = 0; i < len; i++) {
-          perm[i] = i;
-          tpls[i] = tuples.get(i << 1 | 1);
-          ks[i] = (Item[]) tuples.get(i << 1);
-        }
-        // be nice to the garbage collector
-        tuples = null;
+        ArrayList<Tuple> list = new ArrayList<>();
         try {
-          Arrays.sort(perm, (x, y) -> {
-            try {
-              final Item[] a = ks[x], b = ks[y];
-              final int kl = keys.length;
-              for(int k = 0; k < kl; k++) {
-                final OrderKey key = keys[k];
-                Item m = a[k], n = b[k];
-                if(m == Dbl.NAN || m == Flt.NAN) m = Empty.VALUE;
-                if(n == Dbl.NAN || n == Flt.NAN) n = Empty.VALUE;
-                if(!m.isEmpty() && !n.isEmpty() && !m.comparable(n))
-                  throw typeError(n, m.type, key.info());
-
-                final int c = m.isEmpty()
-                    ? n.isEmpty() ? 0             : key.least ? -1 : 1
-                    : n.isEmpty() ? key.least ? 1 : -1 : m.compare(n, key.coll, true, key.info());
-                if(c != 0) return key.desc ? -c : c;
+          for(int p = 0; sub.next(qc); p++) {
+            final int kl = keys.length;
+            final Item[] key = new Item[kl];
+            for(int k = 0; k < kl; k++) key[k] = keys[k].expr.atomItem(qc, keys[k].info());
+            final int rl = refs.length;
+            final Value[] vals = new Value[rl];
+            for(int r = 0; r < rl; r++) vals[r] = refs[r].value(qc);
+            final Tuple tuple = new Tuple(key, vals, p);
+
+            if(heap != null) {
+              // top-k: keep the smallest tuples, discard the largest one
+              heap.insert(tuple, tuple);
+              if(heap.size() > limit) heap.removeMin();
+            } else {
+              list.add(tuple);
+              if(max > 0 && list.size() >= max) {
+                // budget is exceeded: write sorted run to disk
+                if(runs == null) runs = new Runs(qc);
+                runs.write(sorted(list), qc);
+                list = new ArrayList<>();
               }
-              return 0;
-            } catch(final QueryException ex) {
-              throw new QueryRTException(ex);
             }
-          });
+          }
+          if(heap != null) {
+            tuples = new Tuple[heap.size()];
+            for(int t = tuples.length - 1; t >= 0; t--) tuples[t] = heap.removeMin();
+          } else {
+            tuples = sorted(list);
+          }
         } catch(final QueryRTException ex) {
           throw ex.getCause();
+        } finally {
+          if(runs != null) runs.finish();
         }
+        if(runs != null) runs.merge(tuples, qc);
       }
     };
   }
 
+  /**
+   * Sorts a list of tuples. The keys of each level are extracted to primitive arrays if they
+   * have the same type, and large lists are sorted in parallel.
+   * @param list tuples
+   * @return sorted tuples
+   * @throws QueryException query exception
+   */
+  private Tuple[] sorted(final ArrayList<Tuple> list) throws QueryException {
+    final Tuple[] tuples = list.toArray(Tuple[]::new);
+    final int tl = tuples.length, kl = keys.length;
+    for(int t = 0; t < tl; t++) tuples[t].index = t;
+    final SortKeys[] sks = new SortKeys[kl];
+    for(int k = 0; k < kl; k++) sks[k] = new SortKeys(k, tuples);
+
+    Arrays.parallelSort(tuples, (tuple1, tuple2) -> {
+      for(int k = 0; k < kl; k++) {
+        final int c = sks[k].compare(tuple1, tuple2);
+        if(c != 0) return c;
+      }
+      return Long.compare(tuple1.pos, tuple2.pos);
+    });
+    return tuples;
+  }
+
+  /**
+   * Compares two tuples. Tuples with equal keys are compared by their input position.
+   * @param tuple1 first tuple
+   * @param tuple2 second tuple
+   * @return result of comparison
+   * @throws QueryRTException query runtime exception
+   */
+  private int compare(final Tuple tuple1, final Tuple tuple2) {
+    final int kl = keys.length;
+    for(int k = 0; k < kl; k++) {
+      final int c = compare(k, tuple1.key[k], tuple2.key[k]);
+      if(c != 0) return c;
+    }
+    return Long.compare(tuple1.pos, tuple2.pos);
+  }
+
+  /**
+   * Compares two sort keys.
+   * @param k index of the key
+   * @param item1 first item
+   * @param item2 second item
+   * @return result of comparison
+   * @throws QueryRTException query runtime exception
+   */
+  private int compare(final int k, final Item item1, final Item item2) {
+    final OrderKey key = keys[k];
+    Item m = item1, n = item2;
+    if(m == Dbl.NAN || m == Flt.NAN) m = Empty.VALUE;
+    if(n == Dbl.NAN || n == Flt.NAN) n = Empty.VALUE;
+    try {
+      if(!m.isEmpty() && !n.isEmpty() && !m.comparable(n))
+        throw typeError(n, m.type, key.info());
+
+      final int c = m.isEmpty()
+          ? n.isEmpty() ? 0             : key.least ? -1 : 1
+          : n.isEmpty() ? key.least ? 1 : -1 : m.compare(n, key.coll, true, key.info());
+      return key.desc ? -c : c;
+    } catch(final QueryException ex) {
+      throw new QueryRTException(ex);
+    }
+  }
+
+  /**
+   * Indicates if tuples can be spilled to disk.
+   * This is the case if the values of all variables are atomic.
+   * @return result of check
+   */
+  private boolean spill() {
+    for(final VarRef ref : refs) {
+      if(!ref.var.seqType().type.instanceOf(AtomType.ANY_ATOMIC_TYPE)) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Tuple with sort keys and values.
+   */
+  private static final class Tuple {
+    /** Sort keys. */
+    private final Item[] key;
+    /** Values of the variables. */
+    private final Value[] values;
+    /** Input position. */
+    private final long pos;
+    /** Position in the list of tuples that is currently sorted. */
+    private int index;
+
+    /**
+     * Constructor.
+     * @param key sort keys
+     * @param values values of the variables
+     * @param pos input position
+     */
+    private Tuple(final Item[] key, final Value[] values, final long pos) {
+      this.key = key;
+      this.values = values;
+      this.pos = pos;
+    }
+  }
+
+  /**
+   * Sort keys of a single level. If all keys are integers, numbers or strings without
+   * collation, they are extracted to primitive arrays. Otherwise, the items are compared.
+   */
+  private final class SortKeys {
+    /** Index of the key. */
+    private final int k;
+    /** Order key. */
+    private final OrderKey key;
+    /** Empty keys (including NaN). */
+    private boolean[] empty;
+    /** Integer keys. */
+    private long[] longs;
+    /** Numeric keys. */
+    private double[] doubles;
+    /** String keys. */
+    private byte[][] strings;
+
+    /**
+     * Constructor.
+     * @param k index of the key
+     * @param tuples tuples
+     * @throws QueryException query exception
+     */
+    SortKeys(final int k, final Tuple[] tuples) throws QueryException {
+      this.k = k;
+      key = keys[k];
+
+      boolean integer = true, number = true, string = Collation.get(key.coll, key.info()) == null;
+      for(final Tuple tuple : tuples) {
+        final Item item = tuple.key[k];
+        if(item.isEmpty()) continue;
+        integer &= item instanceof Int;
+        number &= item instanceof Int || item instanceof Dbl || item instanceof Flt;
+        string &= item instanceof AStr || item instanceof Atm;
+        if(!(number || string)) return;
+      }
+
+      final int tl = tuples.length;
+      empty = new boolean[tl];
+      if(integer) longs = new long[tl];
+      else if(number) doubles = new double[tl];
+      else strings = new byte[tl][];
+      for(int t = 0; t < tl; t++) {
+        final Item item = tuples[t].key[k];
+        if(item.isEmpty()) {
+          empty[t] = true;
+        } else if(longs != null) {
+          longs[t] = item.itr(key.info());
+        } else if(doubles != null) {
+          doubles[t] = item.dbl(key.info());
+          empty[t] = Double.isNaN(doubles[t]);
+        } else {
+          strings[t] = item.string(key.info());
+        }
+      }
+    }
+
+    /**
+     * Compares the keys of two tuples.
+     * @param tuple1 first tuple
+     * @param tuple2 second tuple
+     * @return result of comparison
+     */
+    int compare(final Tuple tuple1, final Tuple tuple2) {
+      if(empty == null) return OrderBy.this.compare(k, tuple1.key[k], tuple2.key[k]);
+
+      final int i1 = tuple1.index, i2 = tuple2.index;
+      final boolean e1 = empty[i1], e2 = empty[i2];
+      final int c;
+      if(e1 || e2) {
+        c = e1 ? e2 ? 0 : key.least ? -1 : 1 : key.least ? 1 : -1;
+      } else if(longs != null) {
+        c = Long.compare(longs[i1], longs[i2]);
+      } else if(doubles != null) {
+        final double d1 = doubles[i1], d2 = doubles[i2];
+        c = d1 < d2 ? -1 : d1 > d2 ? 1 : 0;
+      } else {
+        c = Token.compare(strings[i1], strings[i2]);
+      }
+      return key.desc ? -c : c;
+    }
+  }
+
+  /**
+   * Sorted runs of tuples that have been spilled to disk.
+   * The runs are merged with a heap, which yields the next smallest tuple.
+   */
+  private final class Runs {
+    /** Temporary files. */
+    private final SpillFiles spill;
+    /** Run files. */
+    private final ArrayList<IOFile> files = new ArrayList<>();
+    /** Number of tuples of the runs. */
+    private final LongList sizes = new LongList();
+    /** Heap with the next tuple of each run, and the run it belongs to. */
+    private MinHeap<Tuple, Run> heap;
+    /** Output of the run that is currently written. */
+    private DataOutput out;
+
+    /**
+     * Constructor.
+     * @param qc query context
+     */
+    Runs(final QueryContext qc) {
+      spill = qc.resources.index(SpillFiles.class);
+    }
+
+    /**
+     * Writes a sorted run to disk.
+     * @param tuples sorted tuples
+     * @param qc query context
+     * @throws QueryException query exception
+     */
+    void write(final Tuple[] tuples, final QueryContext qc) throws QueryException {
+      final IOFile file = spill.create(qc, info);
+      files.add(file);
+      sizes.add(tuples.length);
+      try {
+        out = new DataOutput(file);
+        for(final Tuple tuple : tuples) {
+          out.writeLong(tuple.pos);
+          for(final Item item : tuple.key) Store.write(out, item);
+          for(final Value value : tuple.values) Store.write(out, value);
+        }
+        out.close();
+        out = null;
+      } catch(final IOException ex) {
+        throw IOERR_X.get(info, ex);
+      }
+    }
+
+    /**
+     * Closes the output of the run that is currently written.
+     * @throws QueryException query exception
+     */
+    void finish() throws QueryException {
+      try {
+        if(out != null) out.close();
+      } catch(final IOException ex) {
+        throw IOERR_X.get(info, ex);
+      }
+    }
+
+    /**
+     * Starts the merge of all runs and reports the number of runs that have been written to disk.
+     * @param tuples sorted tuples that have not been written to disk
+     * @param qc query context
+     * @throws QueryException query exception
+     */
+    void merge(final Tuple[] tuples, final QueryContext qc) throws QueryException {
+      heap = new MinHeap<>(OrderBy.this::compare);
+      final int fs = files.size();
+      qc.evalInfo(Util.info(SPILLRUNS_X, fs));
+      for(int f = 0; f < fs; f++) add(new Run(files.get(f), sizes.get(f)), qc);
+      add(new Run(tuples), qc);
+    }
+
+    /**
+     * Returns the next tuple.
+     * @param qc query context
+     * @return tuple or {@code null}
+     * @throws QueryException query exception
+     */
+    Tuple next(final QueryContext qc) throws QueryException {
+      if(heap.isEmpty()) return null;
+      final Run run;
+      try {
+        run = heap.removeMin();
+      } catch(final QueryRTException ex) {
+        throw ex.getCause();
+      }
+      final Tuple tuple = run.tuple;
+      add(run, qc);
+      return tuple;
+    }
+
+    /**
+     * Adds the next tuple of a run to the heap.
+     * @param run run
+     * @param qc query context
+     * @throws QueryException query exception
+     */
+    private void add(final Run run, final QueryContext qc) throws QueryException {
+      if(run.next(qc)) {
+        try {
+          heap.insert(run.tuple, run);
+        } catch(final QueryRTException ex) {
+          throw ex.getCause();
+        }
+      }
+    }
+
+    /**
+     * Sorted run.
+     */
+    private final class Run {
+      /** Tuples in main memory ({@code null} if the run is stored on disk). */
+      private final Tuple[] tuples;
+      /** Run file ({@code null} if the run is stored in main memory). */
+      private final IOFile file;
+      /** Number of remaining tuples. */
+      private long size;
+      /** Input of the run file. */
+      private DataInput in;
+      /** Current tuple. */
+      private Tuple tuple;
+
+      /**
+       * Constructor for runs in main memory.
+       * @param tuples sorted tuples
+       */
+      Run(final Tuple[] tuples) {
+        this.tuples = tuples;
+        file = null;
+        size = tuples.length;
+      }
+
+      /**
+       * Constructor for runs on disk.
+       * @param file run file
+       * @param size number of tuples
+       */
+      Run(final IOFile file, final long size) {
+        this.file = file;
+        this.size = size;
+        tuples = null;
+      }
+
+      /**
+       * Reads the next tuple.
+       * @param qc query context
+       * @return {@code true} if a tuple was read
+       * @throws QueryException query exception
+       */
+      boolean next(final QueryContext qc) throws QueryException {
+        if(size == 0) return false;
+        size--;
+        if(tuples != null) {
+          final int t = tuples.length - (int) size - 1;
+          tuple = tuples[t];
+          tuples[t] = null;
+          return true;
+        }
+        try {
+          if(in == null) in = new DataInput(file);
+          final long pos = in.readLong();
+          final Item[] key = new Item[keys.length];
+          for(int k = 0; k < key.length; k++) key[k] = (Item) Store.read(in, qc);
+          final Value[] values = new Value[refs.length];
+          for(int v = 0; v < values.length; v++) values[v] = Store.read(in, qc);
+          tuple = new Tuple(key, values, pos);
+          if(size == 0) {
+            in.close();
+            spill.delete(file);
+          }
+          return true;
+        } catch(final IOException ex) {
+          throw IOERR_X.get(info, ex);
+        }
+      }
+    }
+  }
+
   /**
    * Merges the order by clause with the supplied for clause.
    * @param fr for clause
@@ -246,7 +631,7 @@ public final class OrderBy extends Clause {
 
   @Override
   public void toXml(final QueryPlan plan) {
-    plan.add(plan.create(this), keys);
+    plan.add(plan.create(this, ITERATIVE, false), keys);
   }
 
   @Override
@@ -0,0 +1,255 @@
+package org.basex.query.expr.gflwor;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.basex.core.jobs.*;
+import org.basex.query.*;
+import org.basex.query.iter.*;
+import org.basex.query.value.*;
+import org.basex.query.value.item.*;
+import org.basex.query.value.seq.*;
+import org.basex.query.var.*;
+import org.basex.util.*;
+
+/**
+ * Parallel evaluation of a FLWOR expression that starts with a {@code for} clause.
+ *
+ * The input of the clause is split into chunks, which are evaluated by the worker threads of a
+ * shared pool. Each chunk is evaluated with a separate query context, a copy of the current stack
+ * frame and a copy of the focus. If the results are ordered, the chunk results are returned in the
+ * order of the input. Otherwise, they are returned in the order in which they are completed.
+ * Chunks are cancelled if an error is raised, if the query is stopped, or if the query is closed
+ * before all results have been requested.
+ *
+ * @author BaseX Team 2005-24, BSD License
+ * @author Christian Gruen
+ */
+final class ParallelFor {
+  /** Shared pool for evaluating chunks. */
+  private static final ForkJoinPool POOL =
+      new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+  /** Number of chunks per worker thread. */
+  private static final int CHUNKS = 4;
+
+  /** FLWOR expression. */
+  private final GFLWOR flwor;
+  /** Input of the {@code for} clause. */
+  private final Value input;
+  /** Query context. */
+  private final QueryContext qc;
+  /** Copy of the current stack frame. */
+  private final QueryStack frame = new QueryStack();
+  /** Copy of the current focus. */
+  private final QueryFocus focus;
+  /** Chunks, ordered by their position in the input. */
+  private final ArrayList<Chunk> chunks = new ArrayList<>();
+  /** Completed chunks ({@code null} if the results are ordered). */
+  private final BlockingQueue<Chunk> completed;
+  /** Indicates if the evaluation has been cancelled. */
+  private volatile boolean cancelled;
+
+  /**
+   * Constructor.
+   * @param flwor FLWOR expression
+   * @param input input of the {@code for} clause
+   * @param ordered indicates if the results are ordered
+   * @param qc query context
+   */
+  ParallelFor(final GFLWOR flwor, final Value input, final boolean ordered,
+      final QueryContext qc) {
+    this.flwor = flwor;
+    this.input = input;
+    this.qc = qc;
+    frame.copyFrame(qc.stack);
+    focus = qc.focus.copy();
+    completed = ordered ? null : new LinkedBlockingQueue<>();
+  }
+
+  /**
+   * Indicates if the specified number of iterations can be evaluated in parallel.
+   * Nested FLWOR expressions and expressions in other pools are evaluated sequentially.
+   * @param size number of iterations
+   * @param limit minimum number of iterations
+   * @return result of check
+   */
+  static boolean enabled(final long size, final long limit) {
+    return size >= limit && size > 1 && !ForkJoinTask.inForkJoinPool();
+  }
+
+  /**
+   * Starts the evaluation of all chunks.
+   * @return self reference
+   */
+  ParallelFor fork() {
+    final long size = input.size();
+    final long cs = Math.max(1, (size + CHUNKS * POOL.getParallelism() - 1) /
+        (CHUNKS * POOL.getParallelism()));
+    for(long start = 0; start < size; start += cs) {
+      final Chunk chunk = new Chunk(start, Math.min(size, start + cs));
+      chunks.add(chunk);
+    }
+    // register evaluation, cancel remaining chunks when the query is closed
+    qc.resources.index(Evaluations.class).add(this);
+    for(final Chunk chunk : chunks) POOL.execute(chunk);
+    return this;
+  }
+
+  /**
+   * Returns an iterator over the results, which are returned as soon as their chunk is completed.
+   * @return iterator
+   */
+  Iter iter() {
+    return new Iter() {
+      /** Number of returned chunks. */
+      private int c;
+      /** Current chunk iterator. */
+      private Iter iter = Empty.ITER;
+
+      @Override
+      public Item next() throws QueryException {
+        while(true) {
+          final Item item = qc.next(iter);
+          if(item != null) return item;
+          if(c == chunks.size()) {
+            finish();
+            return null;
+          }
+          iter = result(c++).iter();
+        }
+      }
+    };
+  }
+
+  /**
+   * Returns the results.
+   * @return value
+   * @throws QueryException query exception
+   */
+  Value value() throws QueryException {
+    final ValueBuilder vb = new ValueBuilder(qc);
+    final int cs = chunks.size();
+    for(int c = 0; c < cs; c++) vb.add(result(c));
+    finish();
+    return vb.value(flwor);
+  }
+
+  /**
+   * Waits for the result of the next chunk.
+   * @param c number of chunks that have already been returned
+   * @return result
+   * @throws QueryException query exception
+   */
+  private Value result(final int c) throws QueryException {
+    try {
+      return (completed != null ? completed.take() : chunks.get(c)).join();
+    } catch(final InterruptedException ex) {
+      cancel();
+      throw Util.notExpected(ex);
+    } catch(final RuntimeException ex) {
+      // cancel remaining chunks, pass on query and job exceptions
+      cancel();
+      final Throwable th = Util.rootException(ex);
+      if(th instanceof QueryException) throw (QueryException) th;
+      if(th instanceof JobException) throw (JobException) th;
+      throw ex;
+    }
+  }
+
+  /**
+   * Unregisters the evaluation after all chunks have been returned.
+   */
+  private void finish() {
+    qc.resources.index(Evaluations.class).remove(this);
+  }
+
+  /**
+   * Cancels all chunks. Chunks that have not been started yet are skipped, running chunks are
+   * stopped.
+   */
+  private void cancel() {
+    cancelled = true;
+    for(final Chunk chunk : chunks) {
+      chunk.cancel(false);
+      final QueryContext cqc = chunk.context;
+      if(cqc != null) cqc.stop();
+    }
+  }
+
+  /**
+   * Parallel evaluations of a query.
+   */
+  public static final class Evaluations implements QueryResource {
+    /** Evaluations whose results have not been completely returned yet. */
+    private final Set<ParallelFor> evaluations = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Adds an evaluation.
+     * @param pf evaluation
+     */
+    void add(final ParallelFor pf) {
+      evaluations.add(pf);
+    }
+
+    /**
+     * Removes an evaluation.
+     * @param pf evaluation
+     */
+    void remove(final ParallelFor pf) {
+      evaluations.remove(pf);
+    }
+
+    @Override
+    public void close() {
+      // cancel chunks, wait until running chunks have been stopped
+      for(final ParallelFor pf : evaluations) pf.cancel();
+      for(final ParallelFor pf : evaluations) {
+        for(final Chunk chunk : pf.chunks) chunk.quietlyJoin();
+      }
+      evaluations.clear();
+    }
+  }
+
+  /**
+   * Chunk of the input.
+   */
+  private final class Chunk extends RecursiveTask<Value> {
+    /** Serial version UID. */
+    private static final long serialVersionUID = 1L;
+
+    /** Position of the first item (inclusive). */
+    private final long start;
+    /** Position of the last item (exclusive). */
+    private final long end;
+    /** Query context of the running evaluation ({@code null} if the chunk has not been started). */
+    private volatile QueryContext context;
+
+    /**
+     * Constructor.
+     * @param start position of the first item
+     * @param end position of the last item
+     */
+    private Chunk(final long start, final long end) {
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    protected Value compute() {
+      try(QueryContext cqc = new QueryContext(qc)) {
+        // stop evaluation if the query has been stopped, or if the chunks have been cancelled
+        context = cqc;
+        if(cancelled) cqc.stop();
+        qc.checkStop();
+        cqc.stack.copyFrame(frame);
+        cqc.focus = focus.copy();
+        return flwor.value(input, start, end, cqc);
+      } catch(final QueryException ex) {
+        completeExceptionally(ex);
+        return null;
+      } finally {
+        if(completed != null) completed.add(this);
+      }
+    }
+  }
+}
@@ -0,0 +1,59 @@
+package org.basex.query.expr.gflwor;
+
+import static org.basex.query.QueryError.*;
+
+import java.io.*;
+import java.util.*;
+
+import org.basex.io.*;
+import org.basex.query.*;
+import org.basex.util.*;
+
+/**
+ * Temporary files of clauses that exceed their main-memory budget.
+ * The files are created in the database directory. Files that have not been deleted by the
+ * clauses will be deleted when the query is closed.
+ *
+ * @author BaseX Team 2005-24, BSD License
+ * @author Christian Gruen
+ */
+public final class SpillFiles implements QueryResource {
+  /** Prefix of temporary files. */
+  private static final String PREFIX = ".spill-";
+
+  /** Files that have not been deleted yet. */
+  private final HashSet<IOFile> files = new HashSet<>();
+
+  /**
+   * Creates a new temporary file.
+   * @param qc query context
+   * @param info input info (can be {@code null})
+   * @return file
+   * @throws QueryException query exception
+   */
+  synchronized IOFile create(final QueryContext qc, final InputInfo info) throws QueryException {
+    final IOFile dir = qc.context.soptions.dbPath();
+    try {
+      dir.md();
+      final IOFile file = new IOFile(File.createTempFile(PREFIX, IO.TMPSUFFIX, dir.file()));
+      files.add(file);
+      return file;
+    } catch(final IOException ex) {
+      throw IOERR_X.get(info, ex);
+    }
+  }
+
+  /**
+   * Deletes a temporary file.
+   * @param file file
+   */
+  synchronized void delete(final IOFile file) {
+    if(files.remove(file)) file.delete();
+  }
+
+  @Override
+  public synchronized void close() {
+    for(final IOFile file : files) file.delete();
+    files.clear();
+  }
+}
@@ -2,7 +2,9 @@ package org.basex.query.expr.index;
 
 import org.basex.query.*;
 import org.basex.query.expr.*;
+import org.basex.query.iter.*;
 import org.basex.query.util.*;
+import org.basex.query.util.index.*;
 import org.basex.query.value.type.*;
 import org.basex.query.var.*;
 import org.basex.util.*;
@@ -16,6 +18,8 @@ import org.basex.util.*;
 public abstract class IndexAccess extends Simple {
   /** Index database. */
   IndexDb db;
+  /** Estimated and actual number of results (can be {@code null}). */
+  public IndexCardinality cardinality;
 
   /**
    * Constructor.
@@ -29,6 +33,27 @@ public abstract class IndexAccess extends Simple {
     exprType.data(db);
   }
 
+  /**
+   * Returns an iterator that counts the returned results if query plans are requested.
+   * @param iter iterator
+   * @param qc query context
+   * @return original or counting iterator
+   */
+  final Iter count(final Iter iter, final QueryContext qc) {
+    return cardinality != null ? cardinality.count(iter, qc) : iter;
+  }
+
+  /**
+   * Assigns the estimation of this expression to the specified copy.
+   * @param <T> expression type
+   * @param ia copied expression
+   * @return copied expression
+   */
+  final <T extends IndexAccess> T copyCardinality(final T ia) {
+    ia.cardinality = IndexCardinality.copy(cardinality);
+    return ia;
+  }
+
   @Override
   public boolean has(final Flag... flags) {
     return db.has(flags);
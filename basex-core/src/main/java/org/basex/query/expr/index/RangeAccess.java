@@ -9,6 +9,7 @@ import org.basex.query.*;
 import org.basex.query.expr.*;
 import org.basex.query.func.*;
 import org.basex.query.iter.*;
+import org.basex.query.util.index.*;
 import org.basex.query.value.*;
 import org.basex.query.value.item.*;
 import org.basex.query.value.node.*;
@@ -45,7 +46,7 @@ public final class RangeAccess extends IndexAccess {
     final IndexType type = index.type();
     final Data data = db.data(qc, type);
 
-    return new DBNodeIter(data) {
+    return count(new DBNodeIter(data) {
       final byte kind = type == IndexType.TEXT ? Data.TEXT : Data.ATTR;
       final IndexIterator iter = data.iter(index);
 
@@ -53,7 +54,7 @@ public final class RangeAccess extends IndexAccess {
       public DBNode next() {
         return iter.more() ? new DBNode(data, iter.pre(), kind) : null;
       }
-    };
+    }, qc);
   }
 
   @Override
@@ -64,6 +65,7 @@ public final class RangeAccess extends IndexAccess {
     final IndexIterator iter = data.iter(index);
     final IntList list = new IntList();
     while(iter.more()) list.add(iter.pre());
+    if(cardinality != null && cardinality.counting(qc)) cardinality.add(list.size());
     return DBNodeSeq.get(list.finish(), data, this);
   }
 
@@ -74,7 +76,7 @@ public final class RangeAccess extends IndexAccess {
 
   @Override
   public Expr copy(final CompileContext cc, final IntObjMap<Var> vm) {
-    return copyType(new RangeAccess(info, index, db.copy(cc, vm)));
+    return copyType(copyCardinality(new RangeAccess(info, index, db.copy(cc, vm))));
   }
 
   @Override
@@ -85,7 +87,8 @@ public final class RangeAccess extends IndexAccess {
 
   @Override
   public void toXml(final QueryPlan plan) {
-    plan.add(plan.create(this, INDEX, index.type(), MIN, index.min, MAX, index.max), db);
+    plan.add(IndexCardinality.plan(plan,
+        plan.create(this, INDEX, index.type(), MIN, index.min, MAX, index.max), cardinality), db);
   }
 
   @Override
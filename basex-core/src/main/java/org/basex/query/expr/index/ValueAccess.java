@@ -14,6 +14,7 @@ import org.basex.query.expr.path.*;
 import org.basex.query.func.*;
 import org.basex.query.iter.*;
 import org.basex.query.util.*;
+import org.basex.query.util.index.*;
 import org.basex.query.util.list.*;
 import org.basex.query.value.*;
 import org.basex.query.value.item.*;
@@ -103,11 +104,11 @@ public final class ValueAccess extends IndexAccess {
 
     // no search terms: return empty iterator
     final int c = cache.size();
-    if(c == 0) return Empty.ITER;
+    if(c == 0) return count(Empty.ITER, qc);
 
     // single search term: return single iterator
     final Data data = db.data(qc, type);
-    if(c == 1) return iter(cache.key(1), data);
+    if(c == 1) return count(iter(cache.key(1), data), qc);
 
     // multiple search terms: collect results, return result iterator
     final ANodeBuilder nodes = new ANodeBuilder();
@@ -117,7 +118,7 @@ public final class ValueAccess extends IndexAccess {
         nodes.add(node);
       }
     }
-    return nodes.value(this).iter();
+    return count(nodes.value(this).iter(), qc);
   }
 
   @Override
@@ -287,7 +288,8 @@ public final class ValueAccess extends IndexAccess {
 
   @Override
   public Expr copy(final CompileContext cc, final IntObjMap<Var> vm) {
-    return copyType(new ValueAccess(info, type, test, db.copy(cc, vm), expr.copy(cc, vm), tokens));
+    return copyType(copyCardinality(
+        new ValueAccess(info, type, test, db.copy(cc, vm), expr.copy(cc, vm), tokens)));
   }
 
   @Override
@@ -310,7 +312,8 @@ public final class ValueAccess extends IndexAccess {
 
   @Override
   public void toXml(final QueryPlan plan) {
-    plan.add(plan.create(this, INDEX, type, NAME, test), db, toExpr());
+    plan.add(IndexCardinality.plan(plan, plan.create(this, INDEX, type, NAME, test), cardinality),
+        db, toExpr());
   }
 
   @Override
@@ -1,6 +1,7 @@
 package org.basex.query.expr.path;
 
 import static org.basex.query.QueryError.*;
+import static org.basex.query.QueryText.*;
 
 import org.basex.query.*;
 import org.basex.query.expr.*;
@@ -89,4 +90,9 @@ public final class CachedPath extends AxisPath {
     final Expr rt = root == null ? null : root.copy(cc, vm);
     return copyType(new CachedPath(info, rt, Arr.copyAll(cc, vm, steps)));
   }
+
+  @Override
+  public void toXml(final QueryPlan plan) {
+    plan.add(plan.create(this, ITERATIVE, false), root, steps);
+  }
 }
@@ -1,6 +1,7 @@
 package org.basex.query.expr.path;
 
 import static org.basex.query.QueryError.*;
+import static org.basex.query.QueryText.*;
 
 import org.basex.query.*;
 import org.basex.query.expr.*;
@@ -103,4 +104,9 @@ public final class MixedPath extends Path {
     return copyType(new MixedPath(info, root == null ? null : root.copy(cc, vm),
         Arr.copyAll(cc, vm, steps)));
   }
+
+  @Override
+  public void toXml(final QueryPlan plan) {
+    plan.add(plan.create(this, ITERATIVE, false), root, steps);
+  }
 }
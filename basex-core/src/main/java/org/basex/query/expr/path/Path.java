@@ -6,6 +6,7 @@ import static org.basex.query.func.Function.*;
 import java.util.*;
 import java.util.function.*;
 
+import org.basex.core.*;
 import org.basex.core.locks.*;
 import org.basex.data.*;
 import org.basex.index.path.*;
@@ -180,6 +181,8 @@ public abstract class Path extends ParseExpr {
      * - //B [. = '...']  ->  IA('...', B)
      * - /A/B[. = '...']  ->  IA('...', B)/parent::A *[parent::document-node()] */
     if(expr == this) expr = children(cc, rt);
+    // streaming: rewrite child steps to descendant steps with parent predicates
+    if(expr == this) expr = parents(cc, rt);
     // return optimized expression
     if(expr != this) return expr;
 
@@ -681,6 +684,54 @@ public abstract class Path extends ParseExpr {
     return this;
   }
 
+  /**
+   * Rewrites descendant steps, followed by child steps, to descendant steps with parent
+   * predicates. The rewritten path yields its results in document order and can be evaluated
+   * iteratively, but the predicates of the descendant step will be evaluated for each child.
+   * Example: {@code //entry[@level = 'error']/msg  ->  descendant::msg[parent::entry[...]]}
+   * @param cc compilation context
+   * @param rt root at compile time (can be {@code null})
+   * @return original or new expression
+   * @throws QueryException query exception
+   */
+  private Expr parents(final CompileContext cc, final Expr rt) throws QueryException {
+    // skip optimization if streaming is disabled, or if path is already iterative
+    final Expr ert = root == null && rt instanceof Dummy ? rt : root;
+    if(!cc.qc.context.options.get(MainOptions.STREAMING) || ert == null) return this;
+    for(final Expr step : steps) {
+      if(!(step instanceof Step)) return this;
+    }
+    if(iterative(ert, steps)) return this;
+
+    final ExprList list = new ExprList(steps.length);
+    Type context = null, type = ert.seqType().type;
+    for(final Expr expr : steps) {
+      Step step = (Step) expr;
+      final Step prev = list.isEmpty() ? null : (Step) list.peek();
+      // the element test of the descendant step must not match the document node
+      if(prev != null && prev.axis == DESCENDANT && step.axis == CHILD &&
+          context.instanceOf(NodeType.DOCUMENT_NODE) &&
+          prev.seqType().type.instanceOf(NodeType.ELEMENT) &&
+          !prev.mayBePositional() && !step.mayBePositional()) {
+        final Step desc = Step.get(step.info(), DESCENDANT, step.test);
+        final Expr parent = cc.get(desc, () ->
+          get(cc, info, null, Step.get(cc, desc, prev.info(), PARENT, prev.test, prev.exprs)));
+        step = Step.get(step.info(), DESCENDANT, step.test,
+            ExprList.concat(new Expr[] { parent }, step.exprs));
+        list.pop();
+      } else {
+        context = type;
+      }
+      list.add(step);
+      type = step.seqType().type;
+    }
+
+    final Expr[] stps = list.finish();
+    if(!iterative(ert, stps)) return this;
+    cc.info(QueryText.OPTPARENT_X, this);
+    return get(cc, info, root, stps);
+  }
+
   /**
    * Tries to rewrite the path to a simple map expression.
    * @param cc compilation context
@@ -1217,7 +1268,7 @@ public abstract class Path extends ParseExpr {
   }
 
   @Override
-  public final void toXml(final QueryPlan plan) {
+  public void toXml(final QueryPlan plan) {
     plan.add(plan.create(this), root, steps);
   }
 
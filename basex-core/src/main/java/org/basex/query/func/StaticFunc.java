@@ -39,6 +39,8 @@ public final class StaticFunc extends StaticDecl implements XQFunction {
   final int min;
   /** Updating flag. */
   final boolean updating;
+  /** Start and end position of the declaration in the parsed input ({@code -1}: unknown). */
+  public int start = -1, end = -1;
 
   /** Map with requested function properties. */
   private final EnumMap<Flag, Boolean> map = new EnumMap<>(Flag.class);
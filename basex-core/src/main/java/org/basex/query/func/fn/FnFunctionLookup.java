@@ -36,7 +36,7 @@ public final class FnFunctionLookup extends StandardFunc {
   @Override
   public boolean accept(final ASTVisitor visitor) {
     // locked resources cannot be detected statically
-    return visitor.lock((String) null) && super.accept(visitor);
+    return visitor.lock((String) null) && visitor.funcLookup() && super.accept(visitor);
   }
 
   /**
@@ -7,8 +7,10 @@ import java.util.*;
 import org.basex.query.*;
 import org.basex.query.expr.*;
 import org.basex.query.expr.List;
+import org.basex.query.expr.gflwor.*;
 import org.basex.query.func.*;
 import org.basex.query.func.file.*;
+import org.basex.query.iter.*;
 import org.basex.query.value.item.*;
 import org.basex.query.value.seq.*;
 import org.basex.query.value.type.*;
@@ -23,7 +25,9 @@ import org.basex.util.*;
 public final class FnHead extends StandardFunc {
   @Override
   public Item item(final QueryContext qc, final InputInfo ii) throws QueryException {
-    final Item input = arg(0).iter(qc).next();
+    final Expr expr = arg(0);
+    final Iter iter = expr instanceof GFLWOR ? ((GFLWOR) expr).iter(qc, 1) : expr.iter(qc);
+    final Item input = iter.next();
     return input == null ? Empty.VALUE : input;
   }
 
@@ -48,7 +48,14 @@ public class FnMin extends StandardFunc {
       return value.isEmpty() ? Empty.VALUE : value.itemAt(min ? 0 : value.size() - 1);
     }
 
-    final Iter iter = values.atomIter(qc, info);
+    Iter iter = values.atomIter(qc, info);
+    if(iter.valueIter()) {
+      // native sequence: vectorized evaluation
+      final Value value = iter.value(qc, null);
+      final Item item = minmax(value, min);
+      if(item != null) return item;
+      iter = value.iter();
+    }
     Item item = iter.next();
     if(item == null) return Empty.VALUE;
 
@@ -76,6 +83,33 @@ public class FnMin extends StandardFunc {
     return item;
   }
 
+  /**
+   * Returns the minimum or maximum item of a native integer or double sequence.
+   * @param value value
+   * @param min compute minimum or maximum
+   * @return item, or {@code null} if the sequence cannot be processed natively
+   */
+  private static Item minmax(final Value value, final boolean min) {
+    int p = 0;
+    if(value instanceof IntSeq) {
+      final long[] values = ((IntSeq) value).values();
+      final int vl = values.length;
+      for(int v = 1; v < vl; v++) {
+        if(min ? values[p] >= values[v] : values[p] < values[v]) p = v;
+      }
+    } else if(value instanceof DblSeq) {
+      final double[] values = ((DblSeq) value).toJava();
+      final int vl = values.length;
+      for(int v = 0; v < vl; v++) {
+        if(Double.isNaN(values[v])) return Dbl.NAN;
+        if(min ? values[p] >= values[v] : values[p] < values[v]) p = v;
+      }
+    } else {
+      return null;
+    }
+    return value.itemAt(p);
+  }
+
   @Override
   protected void simplifyArgs(final CompileContext cc) throws QueryException {
     final Type type = arg(0).seqType().type;
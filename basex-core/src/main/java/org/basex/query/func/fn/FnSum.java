@@ -140,6 +140,33 @@ public class FnSum extends NumericFn {
     throw RANGE_X.get(info, bi);
   }
 
+  /**
+   * Sums up the items of a native integer or double sequence.
+   * @param value value
+   * @return sum, or {@code null} if the sequence cannot be processed natively
+   *   or if an integer overflow occurs
+   */
+  private static Item sum(final Value value) {
+    if(value instanceof IntSeq) {
+      long sum = 0;
+      for(final long l : ((IntSeq) value).values()) {
+        final long s = sum + l;
+        // overflow: sum up items individually, raise error
+        if(((sum ^ s) & (l ^ s)) < 0) return null;
+        sum = s;
+      }
+      return Int.get(sum);
+    }
+    if(value instanceof DblSeq) {
+      final double[] values = ((DblSeq) value).toJava();
+      double sum = values[0];
+      final int vl = values.length;
+      for(int v = 1; v < vl; v++) sum += values[v];
+      return Dbl.get(sum);
+    }
+    return null;
+  }
+
   /**
    * Sums up the specified item(s).
    * @param avg calculate average
@@ -151,7 +178,16 @@ public class FnSum extends NumericFn {
     final Expr values = arg(0);
     if(values instanceof Range) return range(values.value(qc), avg);
 
-    final Iter iter = values.atomIter(qc, info);
+    Iter iter = values.atomIter(qc, info);
+    if(iter.valueIter()) {
+      // native sequence: vectorized evaluation
+      final Value value = iter.value(qc, null);
+      final Item result = sum(value);
+      if(result != null) {
+        return avg ? Calc.DIVIDE.eval(result, Int.get(value.size()), info) : result;
+      }
+      iter = value.iter();
+    }
     final Item item = iter.next();
     if(item == null) return null;
 
@@ -64,6 +64,6 @@ public final class InspectFunctions extends StandardFunc {
   @Override
   public boolean accept(final ASTVisitor visitor) {
     // locked resources cannot be detected statically
-    return visitor.lock((String) null) && super.accept(visitor);
+    return visitor.lock((String) null) && visitor.funcLookup() && super.accept(visitor);
   }
 }
@@ -45,7 +45,8 @@ public final class DBOptimize extends DBUpdate {
     this.qc = qc;
 
     final Option<?>[] supported = Arrays.stream(MainOptions.INDEXING).
-        filter(c -> all || c != MainOptions.UPDINDEX).toArray(Option<?>[]::new);
+        filter(c -> all || c != MainOptions.UPDINDEX && c != MainOptions.COMPRESS).
+        toArray(Option<?>[]::new);
 
     // create options, based on global defaults
     final DBOptions dbopts = new DBOptions(qopts, supported, info);
@@ -60,6 +61,7 @@ public final class DBOptimize extends DBUpdate {
     dbopts.assignIfAbsent(MainOptions.FTINCLUDE, meta.ftinclude);
     dbopts.assignIfAbsent(MainOptions.UPDINDEX, meta.updindex);
     dbopts.assignIfAbsent(MainOptions.AUTOOPTIMIZE, meta.autooptimize);
+    dbopts.assignIfAbsent(MainOptions.COMPRESS, meta.compress);
     dbopts.assignIfAbsent(MainOptions.SPLITSIZE, meta.splitsize);
     dbopts.assignIfAbsent(MainOptions.MAXCATS, meta.maxcats);
     dbopts.assignIfAbsent(MainOptions.MAXLEN, meta.maxlen);
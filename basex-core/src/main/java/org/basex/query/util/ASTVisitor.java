@@ -87,6 +87,14 @@ public abstract class ASTVisitor {
     return true;
   }
 
+  /**
+   * Notifies the visitor of a function call that looks up functions dynamically.
+   * @return if more expressions should be visited ({@code true} by default)
+   */
+  public boolean funcLookup() {
+    return true;
+  }
+
   /**
    * Notifies the visitor of database locks. Overwritten by {@link MainModule}.
    * Returns {@code false} if the lock is not known statically.
@@ -45,6 +45,17 @@ public class HashItemSet extends ASet implements ItemSet {
     return index(key) >= 0;
   }
 
+  /**
+   * Stores the specified key and returns its id.
+   * @param key key to be added
+   * @return unique id of stored key (larger than zero)
+   * @throws QueryException query exception
+   */
+  public int put(final Item key) throws QueryException {
+    final int id = index(key);
+    return Math.abs(id);
+  }
+
   /**
    * Checks if the set contains the specified key.
    * @param key key to be looked up
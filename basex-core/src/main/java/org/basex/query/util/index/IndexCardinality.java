@@ -0,0 +1,104 @@
+package org.basex.query.util.index;
+
+import static org.basex.query.QueryText.*;
+
+import java.util.concurrent.atomic.*;
+
+import org.basex.core.*;
+import org.basex.query.*;
+import org.basex.query.iter.*;
+import org.basex.query.value.item.*;
+import org.basex.query.value.node.*;
+
+/**
+ * Estimated and actual number of results of an index access.
+ * Results are only counted if query plans are requested.
+ *
+ * @author BaseX Team 2005-24, BSD License
+ * @author Christian Gruen
+ */
+public final class IndexCardinality {
+  /** Estimated number of results ({@code -1}: unknown). */
+  private final int estimated;
+  /** Number of returned results. */
+  private final LongAdder results = new LongAdder();
+  /** Indicates if results have been counted. */
+  private volatile boolean counted;
+
+  /**
+   * Constructor.
+   * @param costs estimated costs (can be {@code null})
+   */
+  public IndexCardinality(final IndexCosts costs) {
+    this(costs != null ? costs.results() : -1);
+  }
+
+  /**
+   * Constructor.
+   * @param estimated estimated number of results
+   */
+  private IndexCardinality(final int estimated) {
+    this.estimated = Math.max(-1, estimated);
+  }
+
+  /**
+   * Checks if results will be counted.
+   * @param qc query context
+   * @return result of check
+   */
+  public boolean counting(final QueryContext qc) {
+    if(!qc.context.options.get(MainOptions.XMLPLAN)) return false;
+    counted = true;
+    return true;
+  }
+
+  /**
+   * Adds the specified number of results.
+   * @param count number of results
+   */
+  public void add(final long count) {
+    results.add(count);
+  }
+
+  /**
+   * Returns an iterator that counts the returned results.
+   * @param iter iterator
+   * @param qc query context
+   * @return original or counting iterator
+   */
+  public Iter count(final Iter iter, final QueryContext qc) {
+    return counting(qc) ? new Iter() {
+      @Override
+      public Item next() throws QueryException {
+        final Item item = iter.next();
+        if(item != null) results.increment();
+        return item;
+      }
+    } : iter;
+  }
+
+  /**
+   * Creates a copy with the same estimation.
+   * @param card cardinality (can be {@code null})
+   * @return copy or {@code null}
+   */
+  public static IndexCardinality copy(final IndexCardinality card) {
+    return card != null ? new IndexCardinality(card.estimated) : null;
+  }
+
+  /**
+   * Adds the estimated and the actual number of results to a query plan element.
+   * @param plan query plan
+   * @param elem element
+   * @param card cardinality (can be {@code null})
+   * @return element
+   */
+  public static FBuilder plan(final QueryPlan plan, final FBuilder elem,
+      final IndexCardinality card) {
+    if(card != null) {
+      if(card.estimated != -1) plan.addAttribute(elem, ESTIMATED, card.estimated);
+      if(card.counted) plan.addAttribute(elem, RESULTS, card.results.sum());
+    }
+    return elem;
+  }
+}
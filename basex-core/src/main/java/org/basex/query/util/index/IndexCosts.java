@@ -16,6 +16,10 @@ public final class IndexCosts implements Comparable<IndexCosts> {
   public static final IndexCosts ENFORCE_DYNAMIC = new IndexCosts(-1);
   /** No results. */
   public static final IndexCosts ZERO = new IndexCosts(0);
+  /** Costs of a returned index result, relative to a node visited by a sequential scan. */
+  private static final int SCAN = 8;
+  /** Minimum database size for comparing index costs with sequential scans. */
+  private static final int SCAN_MIN = 1 << 16;
 
   /**
    * Number of expected results.
@@ -45,6 +49,16 @@ public final class IndexCosts implements Comparable<IndexCosts> {
     return results == 0 ? ZERO : new IndexCosts(results);
   }
 
+  /**
+   * Returns estimated costs. As a single result is treated as exact,
+   * positive estimates are rounded up to two results.
+   * @param results estimated number of results
+   * @return costs
+   */
+  public static IndexCosts estimate(final int results) {
+    return get(results == 0 ? 0 : Math.max(2, results));
+  }
+
   /**
    * Adds index costs.
    * @param ic1 first costs
@@ -65,12 +79,15 @@ public final class IndexCosts implements Comparable<IndexCosts> {
   }
 
   /**
-   * Checks if index access is too expensive.
-   * @param data data reference (can be {@code null})
+   * Checks if index access is more expensive than a sequential scan of the database.
+   * In small databases, index access is only rejected if more results are expected than
+   * the database contains nodes.
+   * @param data data reference
    * @return result of check
    */
   public boolean tooExpensive(final Data data) {
-    return results > data.meta.size;
+    final int size = data.meta.size;
+    return (long) results * (size < SCAN_MIN ? 1 : SCAN) > size;
   }
 
   @Override
@@ -5,10 +5,12 @@ import static org.basex.query.QueryText.*;
 import org.basex.core.*;
 import org.basex.data.*;
 import org.basex.index.*;
+import org.basex.index.name.*;
 import org.basex.index.query.*;
 import org.basex.index.stats.*;
 import org.basex.query.*;
 import org.basex.query.expr.*;
+import org.basex.query.expr.ft.*;
 import org.basex.query.expr.index.*;
 import org.basex.query.expr.path.*;
 import org.basex.query.iter.*;
@@ -68,6 +70,7 @@ public final class IndexInfo {
    *   {@code null} if index access is not possible
    */
   public IndexType type(final Expr input, final IndexType type) {
+    test = null;
     pred = IndexPred.get(input, this);
     if(pred == null) return null;
 
@@ -188,8 +191,7 @@ public final class IndexInfo {
         return false;
 
       // estimate costs for dynamic query terms
-      costs = enforce() ? IndexCosts.ENFORCE_DYNAMIC :
-        IndexCosts.get(Math.max(1, data.meta.size / 10));
+      costs = enforce() ? IndexCosts.ENFORCE_DYNAMIC : estimate(data, type);
       va = new ValueAccess(info, search, type, test, db);
     }
 
@@ -217,6 +219,45 @@ public final class IndexInfo {
     }
     expr = pred.invert(rt);
     optInfo = opt;
+
+    // attach estimated number of results to the index access
+    if(root instanceof IndexAccess) {
+      ((IndexAccess) root).cardinality = new IndexCardinality(costs);
+    } else if(root instanceof FTIndexAccess) {
+      ((FTIndexAccess) root).cardinality = new IndexCardinality(costs);
+    }
+  }
+
+  /**
+   * Estimates the costs for a dynamic query term. If statistics are available, the average number
+   * of occurrences of a distinct value is returned.
+   * @param data data reference
+   * @param type index type
+   * @return costs
+   */
+  private IndexCosts estimate(final Data data, final IndexType type) {
+    final Stats stats = type == IndexType.TOKEN ? null : stats();
+    if(stats == null) return IndexCosts.estimate(Math.max(1, data.meta.size / 10));
+    // if distinct values have been discarded, there are more than the maximum number of categories
+    final int distinct = stats.values != null ? stats.values.size() : data.meta.maxcats + 1;
+    return IndexCosts.estimate(Math.max(1, stats.count / Math.max(1, distinct)));
+  }
+
+  /**
+   * Returns the statistics of the elements or attributes whose values will be compared.
+   * @return statistics, or {@code null} if they are unknown or out-dated
+   */
+  public Stats stats() {
+    final Data data = db.data();
+    if(pred == null || data == null || !data.meta.uptodate || !data.nspaces.isEmpty()) return null;
+
+    final Step step = pred.qname();
+    if(step == null || !(step.test instanceof NameTest)) return null;
+    final byte[] local = ((NameTest) step.test).local;
+    if(local == null) return null;
+
+    final Names names = text ? data.elemNames : data.attrNames;
+    return names.stats(names.id(local));
   }
 
   /**
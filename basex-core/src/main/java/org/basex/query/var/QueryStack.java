@@ -65,6 +65,20 @@ public final class QueryStack {
     if(len != sl) resize(len);
   }
 
+  /**
+   * Assigns the current stack frame of another stack to this empty stack.
+   * Used for evaluating expressions of the frame in another thread.
+   * @param qs stack to copy the frame from
+   */
+  public void copyFrame(final QueryStack qs) {
+    final int size = qs.end - qs.start;
+    ensureCapacity(size);
+    Array.copyToStart(qs.stack, qs.start, size, stack);
+    Array.copyToStart(qs.vars, qs.start, size, vars);
+    start = 0;
+    end = size;
+  }
+
   /**
    * Checks if tail calls should be eliminated.
    * @param size new frame size
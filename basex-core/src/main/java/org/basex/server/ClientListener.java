@@ -4,6 +4,8 @@ import static org.basex.core.Text.*;
 
 import java.io.*;
 import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
 import java.util.*;
 
 import org.basex.*;
@@ -26,6 +28,9 @@ import org.basex.util.list.*;
  * @author Christian Gruen
  */
 public final class ClientListener extends Thread implements ClientInfo {
+  /** Maximum size of the login data. */
+  private static final int MAX_LOGIN = 1 << 12;
+
   /** Timer for authentication time out. */
   public final Timer timeout = new Timer();
   /** Timestamp of last interaction. */
@@ -39,9 +44,17 @@ public final class ClientListener extends Thread implements ClientInfo {
   private final Context context;
   /** Server reference. */
   private final BaseXServer server;
+  /** Selector for idle sessions ({@code null} if the session is served by its own thread). */
+  private final ClientSelector selector;
   /** Socket reference. */
   private final Socket socket;
 
+  /** Login data read by the selector. */
+  private final ByteList login = new ByteList();
+  /** Number of terminated strings in the login data. */
+  private int terminators;
+  /** Nonce sent to the client. */
+  private String nonce;
   /** Input stream. */
   private BufferInput in;
   /** Output stream. */
@@ -60,11 +73,15 @@ public final class ClientListener extends Thread implements ClientInfo {
    * @param socket socket
    * @param context database context
    * @param server server reference
+   * @param selector selector for idle sessions ({@code null} if the session is served by its
+   *   own thread)
    */
-  public ClientListener(final Socket socket, final Context context, final BaseXServer server) {
+  public ClientListener(final Socket socket, final Context context, final BaseXServer server,
+      final ClientSelector selector) {
     this.context = new Context(context, this);
     this.socket = socket;
     this.server = server;
+    this.selector = selector;
     last = System.currentTimeMillis();
     setDaemon(true);
     // register the info view for trace output
@@ -73,117 +90,247 @@ public final class ClientListener extends Thread implements ClientInfo {
 
   @Override
   public void run() {
-    if(!authenticate()) return;
+    if(greet() && login()) {
+      while(process());
+    }
+  }
 
+  /**
+   * Sends the realm and a nonce to the client.
+   * @return success flag
+   */
+  boolean greet() {
     try {
-      while(authenticated) {
-        command = null;
-        String cmd;
-        final ServerCmd sc;
-        try {
-          final int b = in.read();
-          if(b == -1) {
-            // end of stream: exit session
-            close();
-            break;
-          }
-
-          last = System.currentTimeMillis();
-          perf.ns();
-          sc = ServerCmd.get(b);
-          cmd = null;
-          if(sc == ServerCmd.CREATE) {
-            create();
-          } else if(sc == ServerCmd.ADD) {
-            add();
-          } else if(sc == ServerCmd.PUT) {
-            put();
-          } else if(sc == ServerCmd.PUTBINARY) {
-            putBinary();
-          } else if(sc != ServerCmd.COMMAND) {
-            query(sc);
-          } else {
-            // database command
-            cmd = new ByteList().add(b).add(in.readBytes()).toString();
-          }
-        } catch(final IOException ex) {
-          // this exception may be thrown if a session is stopped
-          Util.debug(ex);
+      nonce = Long.toString(System.nanoTime());
+      // send {REALM:TIMESTAMP}0
+      out = PrintOutput.get(socket.getOutputStream());
+      out.print(Prop.NAME + ':' + nonce);
+      send(true);
+      return true;
+    } catch(final IOException ex) {
+      Util.debug(ex);
+      abort();
+      return false;
+    }
+  }
+
+  /**
+   * Closes a session that has not been authenticated.
+   */
+  void abort() {
+    server.remove(this);
+    close();
+  }
+
+  /**
+   * Reads login data from the non-blocking channel of the session. Called by the selector
+   * thread until the login data is complete.
+   * @param buffer buffer for reading from the channel
+   * @return {@code true} if the login data is complete
+   * @throws IOException I/O exception, or end of stream
+   */
+  boolean login(final ByteBuffer buffer) throws IOException {
+    buffer.clear();
+    if(socket.getChannel().read(buffer) == -1) throw new EOFException();
+    buffer.flip();
+    while(buffer.hasRemaining()) {
+      final byte b = buffer.get();
+      login.add(b);
+      if(b == 0) terminators++;
+    }
+    if(login.size() > MAX_LOGIN) throw new IOException("Login data exceeds limit.");
+    return terminators >= 2;
+  }
+
+  /**
+   * Authenticates a session with the login data that has been read by the selector.
+   * If authentication is successful, the session is passed on to the selector.
+   */
+  void authenticate() {
+    final ArrayInput ai = new ArrayInput(login.finish());
+    boolean ok = false;
+    try {
+      socket.getChannel().configureBlocking(true);
+      // do not wait forever for the remaining bytes of requests
+      socket.setSoTimeout(timeout());
+      // further bytes may belong to the first request
+      in = BufferInput.get(new SequenceInputStream(ai, socket.getInputStream()));
+      // receive {USER}0{DIGEST-HASH}0
+      ok = authenticate(ai.readString(), ai.readString());
+    } catch(final IOException ex) {
+      Util.debug(ex);
+    }
+    if(!ok) {
+      abort();
+    } else if(ai.available() > 0) {
+      serve();
+    } else {
+      selector.register(this);
+    }
+  }
+
+  /**
+   * Serves a session that has been selected for new input. Processes all buffered requests
+   * and returns the session to the selector.
+   */
+  void serve() {
+    try {
+      socket.getChannel().configureBlocking(true);
+      do {
+        if(!process()) return;
+      } while(in.available() > 0);
+    } catch(final IOException ex) {
+      Util.debug(ex);
+      close();
+      return;
+    }
+    selector.register(this);
+  }
+
+  /**
+   * Indicates if the session has been authenticated.
+   * @return result of check
+   */
+  boolean authenticated() {
+    return authenticated;
+  }
+
+  /**
+   * Returns the socket channel of this session.
+   * @return channel
+   */
+  SocketChannel channel() {
+    return socket.getChannel();
+  }
+
+  /**
+   * Processes a single client request.
+   * @return {@code false} if the session has been closed
+   */
+  private boolean process() {
+    try {
+      command = null;
+      String cmd;
+      final ServerCmd sc;
+      try {
+        final int b = in.read();
+        if(b == -1) {
+          // end of stream: exit session
           close();
-          break;
-        }
-        if(sc != ServerCmd.COMMAND) continue;
-
-        // parse input and create command instance
-        try {
-          command = CommandParser.get(cmd, context).parseSingle();
-          log(LogType.REQUEST, command.toString(true));
-        } catch(final QueryException ex) {
-          // log invalid command
-          final String msg = ex.getMessage();
-          log(LogType.REQUEST, cmd);
-          log(LogType.ERROR, msg);
-          // send 0 to mark end of potential result
-          out.write(0);
-          // send {INFO}0
-          out.print(msg);
-          out.write(0);
-          // send 1 to mark error
-          send(false);
-          continue;
+          return false;
         }
 
-        // execute command and send {RESULT}
-        boolean ok = true;
-        String info;
-        try {
-          // run command
-          command.execute(context, new ServerOutput(out));
-          info = command.info();
-        } catch(final BaseXException ex) {
-          Util.debug(ex);
-          ok = false;
-          info = ex.getMessage();
+        last = System.currentTimeMillis();
+        perf.ns();
+        sc = ServerCmd.get(b);
+        cmd = null;
+        if(sc == ServerCmd.CREATE) {
+          create();
+        } else if(sc == ServerCmd.ADD) {
+          add();
+        } else if(sc == ServerCmd.PUT) {
+          put();
+        } else if(sc == ServerCmd.PUTBINARY) {
+          putBinary();
+        } else if(sc == ServerCmd.BATCH) {
+          batch();
+        } else if(sc != ServerCmd.COMMAND) {
+          query(sc);
+        } else {
+          // database command
+          cmd = new ByteList().add(b).add(in.readBytes()).toString();
         }
-
-        // send 0 to mark end of result
+      } catch(final IOException ex) {
+        // this exception may be thrown if a session is stopped
+        Util.debug(ex);
+        close();
+        return false;
+      }
+      if(sc != ServerCmd.COMMAND) return true;
+
+      // parse input and create command instance
+      try {
+        command = CommandParser.get(cmd, context).parseSingle();
+        log(LogType.REQUEST, command.toString(true));
+      } catch(final QueryException ex) {
+        // log invalid command
+        final String msg = ex.getMessage();
+        log(LogType.REQUEST, cmd);
+        log(LogType.ERROR, msg);
+        // send 0 to mark end of potential result
         out.write(0);
-        // send info
-        info(info, ok);
+        // send {INFO}0
+        out.print(msg);
+        out.write(0);
+        // send 1 to mark error
+        send(false);
+        return true;
+      }
 
-        // stop console
-        if(command instanceof Exit) {
-          command = null;
-          close();
-        }
+      // execute command and send {RESULT}
+      boolean ok = true;
+      String info;
+      try {
+        // run command
+        command.execute(context, new ServerOutput(out));
+        info = command.info();
+      } catch(final BaseXException ex) {
+        Util.debug(ex);
+        ok = false;
+        info = ex.getMessage();
       }
+
+      // send 0 to mark end of result
+      out.write(0);
+      // send info
+      info(info, ok);
+
+      // stop console
+      if(command instanceof Exit) {
+        command = null;
+        close();
+        return false;
+      }
+      command = null;
+      return true;
     } catch(final IOException ex) {
       log(LogType.ERROR, Util.message(ex));
       command = null;
       close();
+      return false;
     }
-    command = null;
   }
 
   /**
-   * Initializes a session via digest authentication.
+   * Reads the login data and authenticates the session.
    * @return success flag
    */
-  private boolean authenticate() {
+  private boolean login() {
     boolean ok = false;
     try {
-      final String nonce = Long.toString(System.nanoTime());
-      final byte[] address = socket.getInetAddress().getAddress();
-
-      // send {REALM:TIMESTAMP}0
-      out = PrintOutput.get(socket.getOutputStream());
-      out.print(Prop.NAME + ':' + nonce);
-      send(true);
-
-      // evaluate login data
+      // do not wait forever for the login data
+      socket.setSoTimeout(timeout());
       in = BufferInput.get(socket.getInputStream());
       // receive {USER}0{DIGEST-HASH}0
-      final String name = in.readString(), hash = in.readString();
+      ok = authenticate(in.readString(), in.readString());
+      if(ok) socket.setSoTimeout(0);
+    } catch(final IOException ex) {
+      Util.debug(ex);
+    }
+    if(!ok) abort();
+    return ok;
+  }
+
+  /**
+   * Initializes a session via digest authentication.
+   * @param name name of the user
+   * @param hash digest hash
+   * @return success flag
+   */
+  private boolean authenticate(final String name, final String hash) {
+    boolean ok = false;
+    try {
+      final byte[] address = socket.getInetAddress().getAddress();
       final User user = context.users.get(name);
       ok = user != null && user.enabled() &&
           Strings.md5(user.code(Algorithm.DIGEST, Code.HASH) + nonce).equals(hash);
@@ -214,6 +361,15 @@ public final class ClientListener extends Thread implements ClientInfo {
     return ok;
   }
 
+  /**
+   * Returns the timeout for reading login data and the remaining bytes of requests.
+   * @return timeout in milliseconds ({@code 0}: no timeout)
+   */
+  private int timeout() {
+    return (int) Math.min(Integer.MAX_VALUE,
+        context.soptions.get(StaticOptions.KEEPALIVE) * 1000L);
+  }
+
   /**
    * Closes the session.
    */
@@ -433,6 +589,54 @@ public final class ClientListener extends Thread implements ClientInfo {
     out.flush();
   }
 
+  /**
+   * Executes a query once for each binding set. All binding sets are read before the
+   * results are sent, so that clients can send the complete request without blocking.
+   * @throws IOException I/O exception
+   */
+  private void batch() throws IOException {
+    final String arg = in.readString();
+    final ArrayList<StringList> sets = new ArrayList<>();
+    while(in.read() == 1) {
+      final StringList bindings = new StringList();
+      for(String name; !(name = in.readString()).isEmpty();) {
+        bindings.add(name).add(in.readString()).add(in.readString());
+      }
+      sets.add(bindings);
+    }
+
+    final ServerQuery qp = queries.get(arg);
+    int executed = 0;
+    for(final StringList bindings : sets) {
+      try {
+        if(qp == null) throw new IOException("Unknown Query ID: " + arg);
+        for(int b = 0; b < bindings.size(); b += 3) {
+          qp.bind(bindings.get(b), bindings.get(b + 1), bindings.get(b + 2));
+        }
+        qp.execute(out, false, true, false);
+        // send 0 as end marker, 0 as success flag
+        out.write(0);
+        out.write(0);
+        executed++;
+      } catch(final Throwable ex) {
+        // log exception (static or runtime), skip remaining binding sets
+        final String error = ex instanceof RuntimeException ? Util.bug(ex) : Util.message(ex);
+        log(LogType.REQUEST, ServerCmd.BATCH + "[" + arg + ']');
+        log(LogType.ERROR, error);
+        // send 0 as end marker, 1 as error flag, and {MSG}0
+        out.write(0);
+        out.write(1);
+        out.print(error);
+        out.write(0);
+        break;
+      }
+    }
+    out.flush();
+    if(executed == sets.size()) {
+      log(LogType.OK, ServerCmd.BATCH.toString() + '[' + arg + "] " + executed);
+    }
+  }
+
   /**
    * Sends a success flag to the client (0: true, 1: false).
    * @param ok success flag
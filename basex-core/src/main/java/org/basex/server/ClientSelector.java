@@ -0,0 +1,138 @@
+package org.basex.server;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.basex.util.*;
+
+/**
+ * Multiplexes idle client sessions over a single selector thread.
+ * The login data of new sessions is read by the selector thread without blocking.
+ * Authenticated sessions are served by worker threads as soon as new input is available.
+ * While a session is served, its channel is in blocking mode. When all requests have been
+ * processed, the session is passed on to the selector again.
+ *
+ * The specified number of worker threads is kept alive. If all of them are busy (e.g. with
+ * long-running commands, or with requests that arrive slowly), additional threads are started,
+ * which terminate after they have been idle for a while. This way, other sessions can still be
+ * served.
+ *
+ * @author BaseX Team 2005-24, BSD License
+ * @author Christian Gruen
+ */
+public final class ClientSelector implements Runnable {
+  /** Time after which additional idle worker threads are terminated (seconds). */
+  private static final long IDLE = 60;
+
+  /** Sessions to be registered by the selector thread. */
+  private final Queue<ClientListener> idle = new ConcurrentLinkedQueue<>();
+  /** Selector. */
+  private final Selector selector;
+  /** Worker threads. */
+  private final ExecutorService workers;
+
+  /**
+   * Constructor.
+   * @param threads number of worker threads
+   * @throws IOException I/O exception
+   */
+  public ClientSelector(final int threads) throws IOException {
+    selector = Selector.open();
+    workers = new ThreadPoolExecutor(threads, Integer.MAX_VALUE, IDLE, TimeUnit.SECONDS,
+        new SynchronousQueue<>(), r -> {
+          final Thread thread = new Thread(r);
+          thread.setDaemon(true);
+          return thread;
+        });
+    final Thread thread = new Thread(this);
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Registers a new session. The session will be authenticated when its login data has arrived.
+   * @param client client session
+   */
+  public void login(final ClientListener client) {
+    if(client.greet()) register(client);
+  }
+
+  /**
+   * Registers an idle session. The session will be served again if new input arrives.
+   * @param client client session
+   */
+  void register(final ClientListener client) {
+    idle.add(client);
+    selector.wakeup();
+  }
+
+  @Override
+  public void run() {
+    final ArrayList<Runnable> ready = new ArrayList<>();
+    final ByteBuffer buffer = ByteBuffer.allocate(1 << 10);
+    while(selector.isOpen()) {
+      try {
+        // register idle sessions (wakeup calls may have been consumed by the last selection)
+        for(ClientListener client; (client = idle.poll()) != null;) {
+          try {
+            final SelectableChannel channel = client.channel();
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_READ, client);
+          } catch(final IOException ex) {
+            Util.debug(ex);
+            client.close();
+          }
+        }
+        selector.select();
+
+        // cancel keys of sessions with new input or complete login data
+        final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while(keys.hasNext()) {
+          final SelectionKey key = keys.next();
+          keys.remove();
+          final ClientListener client = (ClientListener) key.attachment();
+          if(client.authenticated()) {
+            key.cancel();
+            ready.add(client::serve);
+          } else {
+            try {
+              if(client.login(buffer)) {
+                key.cancel();
+                ready.add(client::authenticate);
+              }
+            } catch(final IOException ex) {
+              Util.debug(ex);
+              key.cancel();
+              client.abort();
+            }
+          }
+        }
+        if(!ready.isEmpty()) {
+          // deregister cancelled keys, serve sessions
+          selector.selectNow();
+          for(final Runnable task : ready) workers.execute(task);
+          ready.clear();
+        }
+      } catch(final ClosedSelectorException ex) {
+        Util.debug(ex);
+      } catch(final IOException ex) {
+        Util.errln(ex);
+      }
+    }
+  }
+
+  /**
+   * Stops the selector and the worker threads.
+   */
+  public void close() {
+    try {
+      selector.close();
+    } catch(final IOException ex) {
+      Util.debug(ex);
+    }
+    workers.shutdownNow();
+  }
+}
@@ -6,6 +6,7 @@ import java.io.*;
 import java.util.*;
 
 import org.basex.core.*;
+import org.basex.core.StaticOptions.*;
 import org.basex.core.users.*;
 import org.basex.io.*;
 import org.basex.query.*;
@@ -43,6 +44,8 @@ public final class Log implements QueryTracer {
 
   /** Current log file. */
   private LogFile file;
+  /** Asynchronous writer ({@code null} if entries are written synchronously). */
+  private volatile LogWriter writer;
 
   /**
    * Constructor.
@@ -50,6 +53,11 @@ public final class Log implements QueryTracer {
    */
   public Log(final StaticOptions sopts) {
     this.sopts = sopts;
+    final int queue = sopts.get(StaticOptions.LOGQUEUE);
+    if(queue > 0) {
+      final boolean drop = sopts.get(StaticOptions.LOGOVERFLOW) == LogOverflow.DROP;
+      writer = new LogWriter(this, queue, drop);
+    }
   }
 
   /**
@@ -58,6 +66,7 @@ public final class Log implements QueryTracer {
    * @return log file, or {@code null} if it does not exist
    */
   public LogFile file(final String name) {
+    flush();
     LogFile lf = file;
     if(lf == null || !lf.valid(name)) lf = new LogFile(name, dir());
     return lf.exists() ? lf : null;
@@ -123,11 +132,10 @@ public final class Log implements QueryTracer {
     // check if logging is disabled
     if(!sopts.get(StaticOptions.LOG)) return;
 
-    // construct log text
-    final Date date = new Date();
+    // construct log text (the time is prepended when the entry is written)
+    final long time = System.currentTimeMillis();
     final int ml = sopts.get(StaticOptions.LOGMSGMAXLEN);
     final TokenBuilder tb = new TokenBuilder();
-    tb.add(DateTime.format(date, DateTime.TIME));
     tb.add('\t').add(address != null ? address.replaceFirst("^/", "") : SERVER);
     tb.add('\t').add(user != null ? user : UserText.ADMIN);
     tb.add('\t').add(type);
@@ -135,14 +143,28 @@ public final class Log implements QueryTracer {
     if(perf != null) tb.add('\t').add(perf);
     tb.add(Prop.NL);
 
+    // pass on entry to the asynchronous writer, or write it directly
+    final byte[] entry = tb.finish();
+    final LogWriter lw = writer;
+    if(lw == null || !lw.add(time, entry)) {
+      final Date date = new Date(time);
+      final TokenBuilder line = new TokenBuilder().add(DateTime.format(date, DateTime.TIME));
+      write(DateTime.format(date, DateTime.DATE), line.add(entry).finish());
+    }
+  }
+
+  /**
+   * Writes entries to the log file.
+   * @param name name of log file
+   * @param lines log entries
+   */
+  void write(final String name, final byte[] lines) {
     try {
       synchronized(sopts) {
-        // create new log file and write log entry
-        final String name = DateTime.format(date, DateTime.DATE);
-        if(file != null && !file.valid(name)) close();
+        // create new log file and write log entries
+        if(file != null && !file.valid(name)) closeFile();
         if(file == null) file = LogFile.create(name, dir());
-        // write log entry
-        file.write(tb.finish());
+        file.write(lines);
       }
     } catch(final IOException ex) {
       Util.stack(ex);
@@ -150,15 +172,35 @@ public final class Log implements QueryTracer {
   }
 
   /**
-   * Closes the log file.
+   * Waits until all queued log entries have been written.
+   */
+  public void flush() {
+    final LogWriter lw = writer;
+    if(lw != null) lw.flush();
+  }
+
+  /**
+   * Writes queued entries and closes the log file.
    */
   public void close() {
+    final LogWriter lw = writer;
+    if(lw != null) {
+      writer = null;
+      lw.finish();
+    }
+    synchronized(sopts) {
+      closeFile();
+    }
+  }
+
+  /**
+   * Closes the current log file. Must be called in a block that is synchronized on the options.
+   */
+  private void closeFile() {
     try {
-      synchronized(sopts) {
-        if(file != null) {
-          file.close();
-          file = null;
-        }
+      if(file != null) {
+        file.close();
+        file = null;
       }
     } catch(final IOException ex) {
       Util.stack(ex);
@@ -170,6 +212,7 @@ public final class Log implements QueryTracer {
    * @return log directory
    */
   public IOFile[] files() {
+    flush();
     return dir().children(".*\\" + IO.LOGSUFFIX);
   }
 
@@ -0,0 +1,208 @@
+package org.basex.server;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import org.basex.server.Log.*;
+import org.basex.util.*;
+import org.basex.util.list.*;
+
+/**
+ * Asynchronous log writer. Log entries are added to a bounded queue by the requesting threads
+ * and written in batches by a background thread. Entries that are added while the writer is
+ * finishing are rejected and need to be written synchronously by the caller.
+ *
+ * @author BaseX Team 2005-24, BSD License
+ * @author Christian Gruen
+ */
+final class LogWriter extends Thread {
+  /** Entry that stops the writer. */
+  private static final Entry STOP = new Entry(0, Token.EMPTY);
+
+  /** Queued entries. */
+  private final BlockingQueue<Entry> queue;
+  /** Number of dropped entries. */
+  private final AtomicLong dropped = new AtomicLong();
+  /** Log. */
+  private final Log log;
+  /** Maximum number of entries written in one batch. */
+  private final int capacity;
+  /** Discard new entries if the queue is full. */
+  private final boolean drop;
+  /** Lock for waiting until entries have been written. */
+  private final Object lock = new Object();
+
+  /** Number of added entries (guarded by {@link #lock}). */
+  private long added;
+  /** Number of written entries (guarded by {@link #lock}). */
+  private long written;
+  /** Indicates if the writer is running. */
+  private volatile boolean running = true;
+
+  /**
+   * Constructor.
+   * @param log log
+   * @param capacity maximum number of queued entries
+   * @param drop discard new entries if the queue is full
+   */
+  LogWriter(final Log log, final int capacity, final boolean drop) {
+    this.log = log;
+    this.capacity = capacity;
+    this.drop = drop;
+    queue = new ArrayBlockingQueue<>(capacity);
+    setDaemon(true);
+    start();
+  }
+
+  /**
+   * Adds a log entry.
+   * @param time time of the request
+   * @param entry log entry (without time)
+   * @return {@code false} if the entry was rejected and needs to be written by the caller
+   */
+  boolean add(final long time, final byte[] entry) {
+    if(!running) return false;
+
+    // count entry before it is queued, as it may be written before this method returns
+    synchronized(lock) {
+      added++;
+    }
+    final Entry e = new Entry(time, entry);
+    if(drop) {
+      if(!queue.offer(e)) {
+        dropped.incrementAndGet();
+        discard();
+        return true;
+      }
+    } else {
+      try {
+        queue.put(e);
+      } catch(final InterruptedException ex) {
+        Util.debug(ex);
+        Thread.currentThread().interrupt();
+        discard();
+        return false;
+      }
+    }
+    // writer is finishing: reject the entry unless it has already been taken from the queue
+    if(!running && queue.remove(e)) {
+      discard();
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Uncounts an entry that has not been queued.
+   */
+  private void discard() {
+    synchronized(lock) {
+      added--;
+      lock.notifyAll();
+    }
+  }
+
+  /**
+   * Waits until all entries that have been added so far are written.
+   */
+  void flush() {
+    synchronized(lock) {
+      final long target = added;
+      try {
+        // entries that have been counted may be discarded in the meantime
+        while(running && written < Math.min(target, added)) lock.wait();
+      } catch(final InterruptedException ex) {
+        Util.debug(ex);
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Stops the writer and writes the remaining entries.
+   */
+  void finish() {
+    running = false;
+    synchronized(lock) {
+      lock.notifyAll();
+    }
+    try {
+      // the queue may be full: wait until the writer has taken entries
+      while(isAlive() && !queue.offer(STOP, 100, TimeUnit.MILLISECONDS));
+      join();
+    } catch(final InterruptedException ex) {
+      Util.debug(ex);
+      Thread.currentThread().interrupt();
+    }
+    // write entries that have been added after the writer was stopped
+    final ArrayList<Entry> entries = new ArrayList<>();
+    while(queue.drainTo(entries, capacity) > 0) {
+      write(entries);
+      entries.clear();
+    }
+  }
+
+  @Override
+  public void run() {
+    final ArrayList<Entry> entries = new ArrayList<>();
+    boolean stop = false;
+    while(!stop) {
+      try {
+        entries.add(queue.take());
+      } catch(final InterruptedException ex) {
+        Util.debug(ex);
+        continue;
+      }
+      queue.drainTo(entries, capacity - 1);
+      stop = entries.remove(STOP);
+      write(entries);
+      entries.clear();
+    }
+  }
+
+  /**
+   * Writes entries. Consecutive entries that belong to the same log file are written at once.
+   * @param entries entries
+   */
+  private void write(final List<Entry> entries) {
+    final ByteList lines = new ByteList();
+    String name = null;
+    for(final Entry entry : entries) {
+      final Date date = new Date(entry.time);
+      final String nm = DateTime.format(date, DateTime.DATE);
+      if(name != null && !name.equals(nm)) {
+        log.write(name, lines.next());
+      }
+      name = nm;
+      lines.add(Token.token(DateTime.format(date, DateTime.TIME))).add(entry.entry);
+    }
+    if(name != null) log.write(name, lines.finish());
+
+    final long d = dropped.getAndSet(0);
+    if(d > 0) log.writeServer(LogType.ERROR, d + " log entries have been dropped.");
+
+    synchronized(lock) {
+      written += entries.size();
+      lock.notifyAll();
+    }
+  }
+
+  /** Queued log entry. */
+  private static final class Entry {
+    /** Time of the request. */
+    private final long time;
+    /** Log entry (without time). */
+    private final byte[] entry;
+
+    /**
+     * Constructor.
+     * @param time time of the request
+     * @param entry log entry (without time)
+     */
+    private Entry(final long time, final byte[] entry) {
+      this.time = time;
+      this.entry = entry;
+    }
+  }
+}
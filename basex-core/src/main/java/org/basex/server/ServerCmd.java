@@ -33,6 +33,8 @@ public enum ServerCmd {
   PUTBINARY(13),
   /** Code for binding a context value: {id}0{val}0{type}0. */
   CONTEXT(14),
+  /** Code for executing a query with multiple binding sets: {id}0(1({name}0{val}0{type}0)*0)*0. */
+  BATCH(15),
   /** Code for returning the update flag: {id}0. */
   UPDATING(30),
   /** Code for executing a query and returning all information relevant for XQJ: {id}0. */
@@ -102,6 +102,16 @@ public final class Prop {
   public static boolean debug;
   /** GUI mode. */
   public static boolean gui;
+  /** Memory-mapped table access (applied when databases are opened). */
+  public static boolean mmap;
+  /** Maximum number of buffered pages per database file (applied when files are opened). */
+  public static int buffers = 256;
+  /** Number of table pages that are read in advance ({@code 0}: disabled). */
+  public static int readahead = 8;
+  /** Maximum number of cached entries per database index (applied when indexes are opened). */
+  public static int indexcache = 65536;
+  /** Number of threads for building index structures ({@code 0}: number of processors). */
+  public static int indexthreads;
 
   /** Private constructor. */
   private Prop() { }
@@ -0,0 +1,158 @@
+package org.basex.util.hash;
+
+import java.nio.*;
+import java.util.*;
+
+import org.basex.util.*;
+
+/**
+ * This is a hash set for storing tokens outside the Java heap.
+ * The tokens are stored in direct buffers. Only their positions, lengths and hash values are
+ * kept in arrays, which are not traversed by the garbage collector.
+ *
+ * @author BaseX Team 2005-24, BSD License
+ * @author Christian Gruen
+ */
+public final class DirectTokenSet extends ASet {
+  /** Size of a memory chunk. */
+  private static final int CHUNK = 1 << 20;
+
+  /** Memory chunks. */
+  private final ArrayList<ByteBuffer> chunks = new ArrayList<>();
+  /** Positions of the tokens (upper 32 bits: chunk index, lower 32 bits: offset). */
+  private long[] positions;
+  /** Lengths of the tokens. */
+  private int[] lengths;
+  /** Hash values of the tokens. */
+  private int[] hashes;
+  /** Offset in the current chunk. */
+  private int offset = CHUNK;
+
+  /**
+   * Default constructor.
+   */
+  public DirectTokenSet() {
+    super(Array.INITIAL_CAPACITY);
+    final int c = capacity();
+    positions = new long[c];
+    lengths = new int[c];
+    hashes = new int[c];
+  }
+
+  /**
+   * Stores the specified key and returns its id.
+   * @param key key to be added
+   * @return unique id of stored key (larger than zero)
+   */
+  public int put(final byte[] key) {
+    final int h = Token.hash(key);
+    int b = h & capacity() - 1;
+    for(int id = buckets[b]; id != 0; id = next[id]) {
+      if(eq(id, key, h)) return id;
+    }
+    final int s = size++;
+    if(checkCapacity()) b = h & capacity() - 1;
+    next[s] = buckets[b];
+    buckets[b] = s;
+    store(s, key, h);
+    return s;
+  }
+
+  /**
+   * Returns the id of the specified key, or {@code 0} if the key does not exist.
+   * @param key key to be looked up
+   * @return id, or {@code 0} if key does not exist
+   */
+  public int id(final byte[] key) {
+    final int h = Token.hash(key);
+    for(int id = buckets[h & capacity() - 1]; id != 0; id = next[id]) {
+      if(eq(id, key, h)) return id;
+    }
+    return 0;
+  }
+
+  /**
+   * Returns the key with the specified id.
+   * All ids start with {@code 1} instead of {@code 0}.
+   * @param id id of the key to return
+   * @return key
+   */
+  public byte[] key(final int id) {
+    final long pos = positions[id];
+    final ByteBuffer bb = chunks.get((int) (pos >>> 32)).duplicate();
+    bb.position((int) pos);
+    final byte[] key = new byte[lengths[id]];
+    bb.get(key);
+    return key;
+  }
+
+  /**
+   * Returns the length of the key with the specified id.
+   * @param id id of the key
+   * @return length
+   */
+  public int length(final int id) {
+    return lengths[id];
+  }
+
+  @Override
+  protected int hash(final int id) {
+    return hashes[id];
+  }
+
+  @Override
+  protected void rehash(final int newSize) {
+    positions = Arrays.copyOf(positions, newSize);
+    lengths = Arrays.copyOf(lengths, newSize);
+    hashes = Arrays.copyOf(hashes, newSize);
+  }
+
+  /**
+   * Stores a key in the direct buffers.
+   * @param id id of the key
+   * @param key key
+   * @param hash hash value
+   */
+  private void store(final int id, final byte[] key, final int hash) {
+    final int kl = key.length;
+    if(kl > CHUNK - offset) {
+      chunks.add(ByteBuffer.allocateDirect(Math.max(CHUNK, kl)));
+      offset = 0;
+    }
+    final int c = chunks.size() - 1;
+    final ByteBuffer bb = chunks.get(c).duplicate();
+    bb.position(offset);
+    bb.put(key);
+    positions[id] = (long) c << 32 | offset;
+    lengths[id] = kl;
+    hashes[id] = hash;
+    // oversized chunks will not be used for other keys
+    offset += kl;
+  }
+
+  /**
+   * Compares a stored key with the specified key.
+   * @param id id of the stored key
+   * @param key key to be compared
+   * @param hash hash value of the key
+   * @return result of check
+   */
+  private boolean eq(final int id, final byte[] key, final int hash) {
+    final int kl = key.length;
+    if(hashes[id] != hash || lengths[id] != kl) return false;
+    final long pos = positions[id];
+    final ByteBuffer bb = chunks.get((int) (pos >>> 32));
+    final int off = (int) pos;
+    for(int k = 0; k < kl; k++) {
+      if(bb.get(off + k) != key[k]) return false;
+    }
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    final Object[] keys = new Object[size];
+    for(int id = 1; id < size; id++) keys[id] = key(id);
+    return toString(keys);
+  }
+}
@@ -8,7 +8,6 @@ import java.util.*;
 import org.basex.*;
 import org.basex.core.*;
 import org.basex.core.users.*;
-import org.basex.io.in.*;
 import org.basex.io.out.*;
 import org.basex.server.*;
 import org.basex.util.*;
@@ -100,10 +99,11 @@ public final class XdmInfoTest extends SandboxTest {
     }
 
     /**
-     * Executes a command and sends the result to the specified output stream.
+     * Executes a command and returns the first result item.
+     * The remaining items are skipped, and the complete response is consumed.
      * @param cmd server command
      * @param arg argument
-     * @return string
+     * @return first item (including type information)
      * @throws IOException I/O exception
      */
     byte[] exec(final ServerCmd cmd, final String arg) throws IOException {
@@ -111,9 +111,10 @@ public final class XdmInfoTest extends SandboxTest {
       sout.write(cmd.code);
       send(arg);
       sout.flush();
-      final BufferInput bi = BufferInput.get(sin);
-      ClientSession.receive(bi, ao);
-      if(!ClientSession.ok(bi)) throw new BaseXException(bi.readString());
+      ClientSession.receive(sin, ao);
+      // skip remaining items until the end marker, read status
+      while(sin.read() > 0) ClientSession.receive(sin, new ArrayOutput());
+      if(!ClientSession.ok(sin)) throw new BaseXException(sin.readString());
       return ao.finish();
     }
   }
@@ -0,0 +1,101 @@
+package org.basex.core.jobs;
+
+import static org.basex.query.func.Function.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.util.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for scheduling jobs with a limited number of worker threads.
+ *
+ * @author BaseX Team 2005-24, BSD License
+ * @author Christian Gruen
+ */
+public final class JobPoolTest extends SandboxTest {
+  /** Database context with a single job thread. */
+  private static Context ctx;
+
+  /** Creates the database context. */
+  @BeforeAll public static void init() {
+    Prop.put(StaticOptions.JOBTHREADS, "1");
+    try {
+      ctx = new Context();
+    } finally {
+      Prop.put(StaticOptions.JOBTHREADS, "0");
+    }
+  }
+
+  /** Closes the database context. */
+  @AfterAll public static void close() {
+    ctx.close();
+  }
+
+  /**
+   * Runs queued jobs by their priority.
+   * @throws BaseXException database exception
+   */
+  @Test public void priorities() throws BaseXException {
+    // block the worker thread
+    final String blocker = run(_JOB_EVAL.args("prof:sleep(500)"));
+    while(ctx.jobs.active.get(blocker) == null) Performance.sleep(1);
+
+    final String low = submit("low"), normal = submit("normal"), high = submit("high");
+    for(final String id : new String[] { blocker, low, normal, high }) {
+      run(_JOB_WAIT.args(id));
+    }
+    final long l = result(low), n = result(normal), h = result(high);
+    assertTrue(h < n && n < l, h + ", " + n + ", " + l);
+  }
+
+  /**
+   * Reports the time spent in the queue.
+   * @throws BaseXException database exception
+   */
+  @Test public void waited() throws BaseXException {
+    final String blocker = run(_JOB_EVAL.args("prof:sleep(500)"));
+    while(ctx.jobs.active.get(blocker) == null) Performance.sleep(1);
+
+    final String id = submit("normal");
+    assertEquals("true", run(_JOB_LIST_DETAILS.args(id) + "/@state = 'scheduled'"));
+    run(_JOB_WAIT.args(id));
+    assertEquals("true", run("xs:dayTimeDuration(" + _JOB_LIST_DETAILS.args(id) +
+        "/@waited) >= xs:dayTimeDuration('PT0.2S')"));
+    result(id);
+  }
+
+  /**
+   * Schedules a job that returns the time of its evaluation.
+   * @param priority priority
+   * @return job id
+   * @throws BaseXException database exception
+   */
+  private static String submit(final String priority) throws BaseXException {
+    return run(_JOB_EVAL.args("prof:current-ns()", " ()",
+        " map { 'cache': true(), 'priority': '" + priority + "' }"));
+  }
+
+  /**
+   * Returns the result of a cached job.
+   * @param id job id
+   * @return result
+   * @throws BaseXException database exception
+   */
+  private static long result(final String id) throws BaseXException {
+    return Long.parseLong(run(_JOB_RESULT.args(id)));
+  }
+
+  /**
+   * Evaluates a query.
+   * @param query query
+   * @return result
+   * @throws BaseXException database exception
+   */
+  private static String run(final String query) throws BaseXException {
+    return new XQuery(query).execute(ctx);
+  }
+}
@@ -0,0 +1,94 @@
+package org.basex.core.metrics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.management.*;
+import java.util.*;
+import java.util.Set;
+
+import javax.management.*;
+
+import org.basex.*;
+import org.basex.core.cmd.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for collecting and exporting metrics.
+ *
+ * @author BaseX Team 2005-24, BSD License
+ * @author Christian Gruen
+ */
+public final class MetricsTest extends SandboxTest {
+  /** Collects query metrics. */
+  @Test public void queries() {
+    final Metrics metrics = context.metrics;
+    final long queries = metrics.queries.get(), latency = metrics.query.count();
+    final long locking = metrics.locking.count();
+    query("1 + 1");
+    execute(new XQuery("2 + 2"));
+    assertEquals(queries + 2, metrics.queries.get());
+    assertEquals(latency + 2, metrics.query.count());
+    assertTrue(metrics.locking.count() > locking);
+    assertTrue(metrics.evaluating.get() > 0);
+  }
+
+  /** Computes percentiles. */
+  @Test public void percentiles() {
+    final Histogram histogram = new Metrics().histogram("test_seconds", "Test.");
+    assertEquals(0, histogram.percentile(0.5));
+    for(int i = 1; i <= 1000; i++) histogram.record(i * 1_000_000L);
+    assertEquals(1000, histogram.count());
+
+    // the relative error is bounded by the bucket width
+    final long p50 = histogram.percentile(0.5), p99 = histogram.percentile(0.99);
+    assertTrue(p50 >= 250_000_000L && p50 <= 1_000_000_000L, Long.toString(p50));
+    assertTrue(p99 >= p50 && p99 <= 1_000_000_000L, Long.toString(p99));
+    assertEquals(1_000_000_000L, histogram.percentile(1));
+  }
+
+  /** Returns metrics in the Prometheus text format. */
+  @Test public void text() {
+    final Metrics metrics = new Metrics();
+    metrics.counter("test_total", "Test counter.").add(3);
+    metrics.gauge("test_gauge", "Test gauge.", () -> 42);
+    metrics.histogram("test_seconds", "Test histogram.").record(2_000_000_000L);
+
+    final String text = metrics.text();
+    assertTrue(text.contains("# TYPE test_total counter\ntest_total 3\n"), text);
+    assertTrue(text.contains("# TYPE test_gauge gauge\ntest_gauge 42\n"), text);
+    assertTrue(text.contains("# TYPE test_seconds summary\n"), text);
+    assertTrue(text.contains("test_seconds{quantile=\"0.5\"} 2.0\n"), text);
+    assertTrue(text.contains("test_seconds_sum 2.0\ntest_seconds_count 1\n"), text);
+    assertTrue(text.contains("basex_buffer_hits_total"), text);
+
+    // metrics with the same name are shared; different types are rejected
+    assertEquals(3, metrics.counter("test_total", "Test counter.").get());
+    assertThrows(RuntimeException.class, () -> metrics.histogram("test_total", "Test."));
+  }
+
+  /**
+   * Accesses metrics via JMX.
+   * @throws JMException JMX exception
+   */
+  @Test public void jmx() throws JMException {
+    final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    final Metrics metrics = new Metrics();
+    metrics.counter("test_total", "Test counter.").add(3);
+    final Set<ObjectName> names = server.queryNames(new ObjectName("org.basex:type=Metrics,*"),
+        null);
+    metrics.register();
+    try {
+      final Set<ObjectName> added = server.queryNames(
+          new ObjectName("org.basex:type=Metrics,*"), null);
+      added.removeAll(names);
+      assertEquals(1, added.size());
+      final ObjectName name = added.iterator().next();
+      assertEquals(3L, server.getAttribute(name, "test_total"));
+      assertEquals(0L, server.getAttribute(name, "basex_query_seconds_count"));
+    } finally {
+      metrics.close();
+    }
+    assertEquals(names, server.queryNames(new ObjectName("org.basex:type=Metrics,*"), null));
+  }
+}
@@ -0,0 +1,82 @@
+package org.basex.data;
+
+import static org.basex.query.func.Function.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class tests databases with compressed tables and texts ({@link MainOptions#COMPRESS}).
+ *
+ * @author BaseX Team 2005-24, BSD License
+ * @author Christian Gruen
+ */
+public final class CompressedStorageTest extends SandboxTest {
+  /** Test file. */
+  private static final String FILE = "src/test/resources/xmark.xml";
+
+  /** Creates the test database. */
+  @BeforeEach public void setUp() {
+    set(MainOptions.COMPRESS, true);
+    execute(new CreateDB(NAME, FILE));
+  }
+
+  /** Drops the test database. */
+  @AfterEach public void tearDown() {
+    execute(new DropDB(NAME));
+    set(MainOptions.COMPRESS, false);
+  }
+
+  /**
+   * Reads the database.
+   */
+  @Test public void read() {
+    query(_DB_PROPERTY.args(NAME, "compress"), true);
+    query("count(//*)", 396);
+    query("count(//@*)", 75);
+    query("//item[@id = 'item0']/location/string()", "United States");
+
+    // compare results with uncompressed database
+    final String result = query("string-join(//text(), '|')");
+    execute(new Close());
+    set(MainOptions.COMPRESS, false);
+    execute(new CreateDB(NAME + '2', FILE));
+    assertEquals(result, query("string-join(//text(), '|')"));
+    final long size = context.data().meta.dbFile(DataText.DATATBL).length();
+    execute(new DropDB(NAME + '2'));
+
+    execute(new Open(NAME));
+    assertTrue(context.data().meta.dbFile(DataText.DATATBL).length() < size);
+  }
+
+  /**
+   * Updates the database.
+   */
+  @Test public void update() {
+    query("for $i in 1 to 300 return insert node <new n='{ $i }'>{ $i }</new> into (//item)[1]");
+    query("replace value of node (//item)[1]/location with 'Germany'");
+    query("delete node //new[@n > 100]");
+    query("count(//new)", 100);
+    query("sum(//new)", 5050);
+
+    execute(new Close());
+    execute(new Open(NAME));
+    query("count(//new)", 100);
+    query("sum(//new)", 5050);
+    query("(//item)[1]/location/string()", "Germany");
+
+    // rebuild database
+    set(MainOptions.COMPRESS, false);
+    execute(new OptimizeAll());
+    query(_DB_PROPERTY.args(NAME, "compress"), false);
+    query("sum(//new)", 5050);
+    set(MainOptions.COMPRESS, true);
+    execute(new OptimizeAll());
+    query(_DB_PROPERTY.args(NAME, "compress"), true);
+    query("sum(//new)", 5050);
+  }
+}
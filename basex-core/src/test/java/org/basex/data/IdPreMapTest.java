@@ -2,11 +2,18 @@ package org.basex.data;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.*;
 import java.util.*;
 
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
 import org.basex.index.*;
+import org.basex.io.*;
+import org.basex.io.out.DataOutput;
 import org.basex.util.list.*;
 import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.Test;
 
 /**
  * ID -> PRE mapping test.
@@ -14,7 +21,7 @@ import org.junit.jupiter.api.*;
  * @author BaseX Team 2005-24, BSD License
  * @author Dimitar Popov
  */
-public final class IdPreMapTest {
+public final class IdPreMapTest extends SandboxTest {
   /** Number of update operations to execute in each test. */
   private static final int ITERATIONS = 200;
   /** Initial number of records. */
@@ -96,6 +103,85 @@ public final class IdPreMapTest {
     }
   }
 
+  /** IDs of deleted records are not found anymore. */
+  @Test public void deleted() {
+    testedmap.delete(10, 10, -5);
+    for(int id = 10; id < 15; id++) assertEquals(-1, testedmap.pre(id));
+    assertEquals(9, testedmap.pre(9));
+    assertEquals(10, testedmap.pre(15));
+    assertEquals(-1, testedmap.pre(BASEID + 1));
+
+    testedmap.insert(0, BASEID + 1, 2);
+    testedmap.delete(0, BASEID + 1, -1);
+    assertEquals(-1, testedmap.pre(BASEID + 1));
+    assertEquals(0, testedmap.pre(BASEID + 2));
+    assertEquals(1, testedmap.pre(0));
+  }
+
+  /** Lookups in a single range. */
+  @Test public void single() {
+    assertEquals(0, testedmap.pre(0));
+    assertEquals(BASEID, testedmap.pre(BASEID));
+    assertEquals(-1, testedmap.pre(BASEID + 1));
+    assertEquals(-1, testedmap.pre(-1));
+
+    testedmap.insert(BASEID + 1, BASEID + 1, 2);
+    testedmap.delete(0, 0, -3);
+    assertEquals(-1, testedmap.pre(2));
+    assertEquals(0, testedmap.pre(3));
+    assertEquals(BASEID - 1, testedmap.pre(BASEID + 2));
+    assertEquals(-1, testedmap.pre(BASEID + 3));
+  }
+
+  /**
+   * Writes a map and reads it again.
+   * @throws IOException I/O exception
+   */
+  @Test public void write() throws IOException {
+    for(int i = 0, cnt = BASEID + 1, id = BASEID + 1; i < ITERATIONS; ++i) {
+      if(RANDOM.nextBoolean() || cnt == 0) insert(RANDOM.nextInt(++cnt), id++);
+      else delete(RANDOM.nextInt(cnt--));
+    }
+    final IOFile file = new IOFile(sandbox(), NAME + IO.BASEXSUFFIX);
+    testedmap.write(file);
+    final int ranges = testedmap.size();
+    testedmap = new IdPreMap(file, null);
+    assertEquals(ranges, testedmap.size());
+    check();
+  }
+
+  /**
+   * Migrates maps written by previous versions.
+   * @throws IOException I/O exception
+   */
+  @Test public void legacy() throws IOException {
+    set(MainOptions.UPDINDEX, true);
+    try {
+      // database with updated contents
+      execute(new CreateDB(NAME, "<a><b/><c/><d/></a>"));
+      execute(new XQuery("delete node //c, insert node <e/> into /a"));
+      legacy(context.data().meta.lastid, 2);
+      checkData();
+
+      // empty database with added documents: maps start with the last ID of the empty database
+      execute(new CreateDB(NAME));
+      execute(new Add("a.xml", "<a><b/></a>"));
+      execute(new Add("b.xml", "<b/>"));
+      legacy(-1, 2);
+      checkData();
+
+      // empty database
+      execute(new CreateDB(NAME));
+      legacy(-1, 0);
+      checkData();
+      execute(new Add("a.xml", "<a/>"));
+      checkData();
+    } finally {
+      execute(new DropDB(NAME));
+      set(MainOptions.UPDINDEX, false);
+    }
+  }
+
   /** Insert performance: insert at random positions. */
   @Test public void insertPerformance() {
     insertPerformance(testedmap);
@@ -194,6 +280,37 @@ public final class IdPreMapTest {
     basemap.delete(pre, basemap.id(pre), -1);
   }
 
+  /**
+   * Closes the opened database, replaces its ID-PRE map with a map in the format of previous
+   * versions, and opens the database again.
+   * @param baseid last ID when the database was created
+   * @param rows number of update records
+   * @throws IOException I/O exception
+   */
+  private static void legacy(final int baseid, final int rows) throws IOException {
+    final IOFile file = context.data().meta.dbFile(DataText.DATAIDP);
+    execute(new Close());
+    try(DataOutput out = new DataOutput(file)) {
+      out.writeNum(baseid);
+      out.writeNum(rows);
+      final int[] array = new int[Math.max(1, rows)];
+      for(int a = 0; a < 5; a++) out.writeNums(array);
+    }
+    execute(new Open(NAME));
+  }
+
+  /** Checks the ID-PRE mapping of the opened database, before and after reopening it. */
+  private static void checkData() {
+    for(int i = 0; i < 2; i++) {
+      final Data data = context.data();
+      final int size = data.meta.size;
+      for(int pre = 0; pre < size; pre++) assertEquals(pre, data.pre(data.id(pre)));
+      assertEquals(-1, data.pre(data.meta.lastid + 1));
+      execute(new Close());
+      execute(new Open(NAME));
+    }
+  }
+
   /** Check the two mappings. */
   private void check() {
     final int bs = basemap.size();
@@ -0,0 +1,126 @@
+package org.basex.data;
+
+import static org.basex.data.DataText.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.io.*;
+import org.basex.util.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class tests the journaling of updates ({@link MainOptions#JOURNAL}).
+ *
+ * @author BaseX Team 2005-24, BSD License
+ * @author Christian Gruen
+ */
+public final class JournalTest extends SandboxTest {
+  /** Name of the recovered database. */
+  private static final String COPY = NAME + "Copy";
+  /** Query for comparing the database contents. */
+  private static final String CONTENTS = "string-join(//b ! (@n || ':' || .), ',')";
+
+  /** Original number of buffers. */
+  private int buffers;
+
+  /** Creates the test database. */
+  @BeforeEach public void setUp() {
+    buffers = Prop.buffers;
+    set(MainOptions.JOURNAL, true);
+    set(MainOptions.UPDINDEX, true);
+    execute(new CreateDB(NAME, "<a/>"));
+  }
+
+  /** Drops the test databases. */
+  @AfterEach public void tearDown() {
+    execute(new DropDB(NAME));
+    execute(new DropDB(COPY));
+    set(MainOptions.JOURNAL, false);
+    set(MainOptions.UPDINDEX, false);
+    Prop.buffers = buffers;
+  }
+
+  /**
+   * Performs small updates.
+   */
+  @Test public void update() {
+    for(int i = 1; i <= 200; i++) {
+      query("insert node <b n='" + i + "'>text " + i + "</b> into /a");
+    }
+    assertTrue(journal(NAME).exists());
+    query("count(//b)", 200);
+    query("sum(//b/@n ! xs:integer(.))", 20100);
+
+    execute(new Close());
+    assertFalse(journal(NAME).exists());
+    execute(new Open(NAME));
+    query("count(//b)", 200);
+    query("//b[text() = 'text 100']/@n/string()", 100);
+
+    // disable journal
+    set(MainOptions.JOURNAL, false);
+    query("delete node //b[@n > 100]");
+    assertFalse(journal(NAME).exists());
+    query("count(//b)", 100);
+  }
+
+  /**
+   * Restores a database from the journal.
+   * @throws IOException I/O exception
+   */
+  @Test public void recover() throws IOException {
+    recover(false);
+  }
+
+  /**
+   * Restores a database with compressed blocks from the journal.
+   * @throws IOException I/O exception
+   */
+  @Test public void recoverCompressed() throws IOException {
+    recover(true);
+  }
+
+  /**
+   * Updates a database, simulates a crash and restores the database from the journal.
+   * @param compress compress blocks
+   * @throws IOException I/O exception
+   */
+  private void recover(final boolean compress) throws IOException {
+    // pages of uncommitted transactions will be written to disk
+    Prop.buffers = 16;
+    set(MainOptions.COMPRESS, compress);
+    execute(new CreateDB(NAME, "<a/>"));
+    set(MainOptions.COMPRESS, false);
+    query("insert node (1 to 5000) ! <b n='{ . }'>text { . }</b> into /a");
+    query("for $b in //b[@n mod 2 = 0] return replace value of node $b with 'x' || $b/@n");
+    query("delete node //b[@n > 4000]");
+    query("insert node <b n='0'>first</b> as first into /a");
+    final String expected = query(CONTENTS);
+
+    // simulate crash: copy the files of the opened database
+    final IOFile source = context.soptions.dbPath(NAME), target = context.soptions.dbPath(COPY);
+    for(final IOFile file : source.children()) file.copyTo(new IOFile(target, file.name()));
+    assertTrue(journal(COPY).exists());
+
+    execute(new Open(COPY));
+    assertFalse(journal(COPY).exists());
+    assertEquals(expected, query(CONTENTS));
+    query("//b[text() = 'x100']/@n/string()", 100);
+    query("//b[text() = 'text 4001']", "");
+    query("count(//b)", 4001);
+  }
+
+  /**
+   * Returns the journal file of a database.
+   * @param db name of database
+   * @return journal file
+   */
+  private static IOFile journal(final String db) {
+    return MetaData.file(context.soptions.dbPath(db), DATAJRN);
+  }
+}
@@ -0,0 +1,77 @@
+package org.basex.data;
+
+import static org.basex.query.func.Function.*;
+
+import org.basex.*;
+import org.basex.core.cmd.*;
+import org.basex.util.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class tests the memory-mapped read access to the database table.
+ *
+ * @author BaseX Team 2005-24, BSD License
+ * @author Christian Gruen
+ */
+public final class MappedTableTest extends SandboxTest {
+  /** Test file. */
+  private static final String FILE = "src/test/resources/xmark.xml";
+
+  /** Enables memory mapping. */
+  @BeforeAll public static void init() {
+    Prop.mmap = true;
+  }
+
+  /** Disables memory mapping. */
+  @AfterAll public static void finish() {
+    Prop.mmap = false;
+  }
+
+  /** Creates the test database. */
+  @BeforeEach public void setUp() {
+    execute(new CreateDB(NAME, FILE));
+  }
+
+  /** Drops the test database. */
+  @AfterEach public void tearDown() {
+    execute(new DropDB(NAME));
+  }
+
+  /**
+   * Reads the table.
+   */
+  @Test public void read() {
+    query("count(//*)", 396);
+    query("count(//@*)", 75);
+    query("//item[@id = 'item0']/location/string()", "United States");
+  }
+
+  /**
+   * Reads the table after updates.
+   */
+  @Test public void update() {
+    query("for $i in 1 to 300 return insert node <new n='{ $i }'/> into (//item)[1]");
+    query("count(//new)", 300);
+    query("sum(//new/@n)", 45150);
+    query("delete node //new[@n > 100]");
+    query("count(//new)", 100);
+    query("count(//*)", 496);
+
+    execute(new Close());
+    execute(new Open(NAME));
+    query("count(//new)", 100);
+    query(_DB_GET.args(NAME) + "//item[new]/new[last()]/@n/string()", 100);
+  }
+
+  /**
+   * Reads the table after updates that do not change its size.
+   */
+  @Test public void updateInPlace() {
+    for(int i = 1; i <= 5; i++) {
+      query("rename node (//item)[1] as 'renamed'");
+      query("count(//renamed)", i);
+      query("(//renamed)[last()]/@id/string()", "item" + (i - 1));
+    }
+  }
+}
@@ -0,0 +1,37 @@
+package org.basex.data;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test index updates when using off-heap memory storage ({@link MainOptions#OFFHEAP}).
+ *
+ * @author BaseX Team 2005-24, BSD License
+ * @author Christian Gruen
+ */
+public final class OffHeapDataTest extends MemDataTest {
+  @Override
+  @BeforeEach public void setUp() {
+    set(MainOptions.MAINMEM, true);
+    set(MainOptions.OFFHEAP, true);
+    execute(new CreateDB(NAME, XMLSTR));
+  }
+
+  /** Index entries are looked up in the values that are stored off-heap. */
+  @Test public void indexEntries() {
+    query("string-join(index:texts('" + NAME + "', 'test'), ',')", "test,test1,test3");
+    query("count(db:text('" + NAME + "', 'test1'))", 1);
+    query("count(db:text('" + NAME + "', 'test2'))", 0);
+    query("count(db:attribute('" + NAME + "', 'x'))", 0);
+  }
+
+  /**
+   * Clean up method; executed after each test.
+   */
+  @AfterEach public void cleanUp() {
+    set(MainOptions.MAINMEM, false);
+    set(MainOptions.OFFHEAP, false);
+  }
+}
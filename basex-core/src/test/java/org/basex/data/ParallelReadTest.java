@@ -0,0 +1,69 @@
+package org.basex.data;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import org.basex.*;
+import org.basex.api.client.*;
+import org.basex.core.cmd.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class tests the parallel read access to a single database.
+ *
+ * @author BaseX Team 2005-24, BSD License
+ * @author Christian Gruen
+ */
+public final class ParallelReadTest extends SandboxTest {
+  /** Test file. */
+  private static final String FILE = "src/test/resources/xmark.xml";
+  /** Queries. */
+  private static final String[] QUERIES = {
+    "string-join(//text(), '|')",
+    "string-join(//@*, '|')",
+    "string-join(reverse(//*) ! name(), '|')",
+    "sum(for $n in //node() return string-length($n))",
+  };
+
+  /** Creates the test database. */
+  @BeforeEach public void setUp() {
+    execute(new CreateDB(NAME, FILE));
+  }
+
+  /** Drops the test database. */
+  @AfterEach public void tearDown() {
+    execute(new DropDB(NAME));
+  }
+
+  /**
+   * Runs the same queries in parallel and compares the results.
+   * @throws Exception exception
+   */
+  @Test public void read() throws Exception {
+    final int ql = QUERIES.length;
+    final String[] expected = new String[ql];
+    for(int q = 0; q < ql; q++) expected[q] = query(QUERIES[q]);
+
+    final ExecutorService pool = Executors.newFixedThreadPool(8);
+    try {
+      final List<Future<?>> futures = new ArrayList<>();
+      for(int t = 0; t < 64; t++) {
+        final int q = t % ql;
+        futures.add(pool.submit(() -> {
+          try(Session session = new LocalSession(context)) {
+            session.execute(new Open(NAME));
+            assertEquals(expected[q], session.query(QUERIES[q]).execute());
+          }
+          return null;
+        }));
+      }
+      for(final Future<?> future : futures) future.get();
+    } finally {
+      pool.shutdown();
+    }
+  }
+}
@@ -0,0 +1,77 @@
+package org.basex.data;
+
+import static org.basex.query.func.Function.*;
+
+import org.basex.*;
+import org.basex.core.cmd.*;
+import org.basex.util.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class tests the sequential scan of tables whose pages are read in advance.
+ *
+ * @author BaseX Team 2005-24, BSD License
+ * @author Christian Gruen
+ */
+public final class ReadAheadTest extends SandboxTest {
+  /** Original number of pages read in advance. */
+  private static int readahead;
+  /** Original number of buffers. */
+  private static int buffers;
+
+  /** Enables read-ahead and chooses a small buffer pool. */
+  @BeforeAll public static void init() {
+    readahead = Prop.readahead;
+    buffers = Prop.buffers;
+    Prop.readahead = 16;
+    Prop.buffers = 32;
+  }
+
+  /** Restores the original settings. */
+  @AfterAll public static void finish() {
+    Prop.readahead = readahead;
+    Prop.buffers = buffers;
+  }
+
+  /** Creates the test database. */
+  @BeforeEach public void setUp() {
+    query(_DB_CREATE.args(NAME, " <a>{ (1 to 50000) ! <b n='{ . }'/> }</a>", "a.xml"));
+    execute(new Open(NAME));
+  }
+
+  /** Drops the test database. */
+  @AfterEach public void tearDown() {
+    execute(new DropDB(NAME));
+  }
+
+  /**
+   * Scans the table.
+   */
+  @Test public void scan() {
+    for(int i = 0; i < 3; i++) {
+      query("sum(//b ! xs:integer(@n))", 1250025000);
+      query("sum(reverse(//b) ! xs:integer(@n))", 1250025000);
+    }
+  }
+
+  /**
+   * Scans the table after updates.
+   */
+  @Test public void update() {
+    query("sum(//b ! xs:integer(@n))", 1250025000);
+    query("for $b in //b[@n mod 100 = 0] return replace value of node $b/@n with 0");
+    query("sum(//b ! xs:integer(@n))", 1237500000);
+    query("delete node //b[@n > 25000]");
+    query("count(//b)", 25250);
+    query("sum(//b ! xs:integer(@n))", 309375000);
+    query("insert node (1 to 100000) ! <c/> into /a");
+    query("count(//c)", 100000);
+    query("sum(//b ! xs:integer(@n))", 309375000);
+
+    execute(new Close());
+    execute(new Open(NAME));
+    query("count(//c)", 100000);
+    query("sum(//b ! xs:integer(@n))", 309375000);
+  }
+}
@@ -5,6 +5,7 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import java.util.*;
 
+import org.basex.util.*;
 import org.junit.jupiter.api.*;
 
 /**
@@ -69,6 +70,39 @@ public final class IndexCacheTest {
     assertNull(cache.get(key));
   }
 
+  /** Test for the maximum number of entries and the eviction of entries. */
+  @Test public void testEviction() {
+    final int indexcache = Prop.indexcache;
+    Prop.indexcache = 100;
+    try {
+      cache = new IndexCache();
+      final byte[] hot = token("hot");
+      cache.add(hot, 1, 1L);
+      for(int i = 0; i < 1000; ++i) {
+        cache.add(token("keyEvict" + i), i, i);
+        assertNotNull(cache.get(hot));
+        assertTrue(cache.size() <= 100);
+      }
+      assertEquals(100, cache.size());
+      assertNull(cache.get(token("keyEvict0")));
+      assertCacheEntry(token("keyEvict999"), 999, 999L);
+    } finally {
+      Prop.indexcache = indexcache;
+    }
+  }
+
+  /** Test for the cache statistics. */
+  @Test public void testStatistics() {
+    final byte[] key = token("keyStats");
+    final long hits = IndexCache.hits(), misses = IndexCache.misses();
+    assertNull(cache.get(key));
+    cache.add(key, 1, 1L);
+    assertNotNull(cache.get(key));
+    assertNotNull(cache.get(key));
+    assertTrue(IndexCache.hits() >= hits + 2);
+    assertTrue(IndexCache.misses() >= misses + 1);
+  }
+
   /**
    * Test that new records can be continuously added without hitting
    * {@link OutOfMemoryError}.
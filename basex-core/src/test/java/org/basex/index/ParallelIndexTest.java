@@ -0,0 +1,98 @@
+package org.basex.index;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.util.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for building index structures in parallel ({@link Prop#indexthreads}).
+ *
+ * @author BaseX Team 2005-24, BSD License
+ * @author Christian Gruen
+ */
+public final class ParallelIndexTest extends SandboxTest {
+  /** Query for generating the test document (120'000 nodes). */
+  private static final String DOC = "<x>{ for $i in 1 to 40000 return "
+      + "<a b='{ $i mod 100 }'>text { $i mod 1000 } t{ $i mod 7 }</a> }</x>";
+  /** Query for returning the contents of all indexes. */
+  private static final String INDEXES = "string-join(("
+      + "index:texts('" + NAME + "') ! (. || '=' || @count),"
+      + "index:attributes('" + NAME + "') ! (. || '=' || @count),"
+      + "index:tokens('" + NAME + "') ! (. || '=' || @count),"
+      + "ft:tokens('" + NAME + "') ! (. || '=' || @count),"
+      + "db:get('" + NAME + "')//a[text() = 'text 5 t5'] ! db:node-pre(.),"
+      + "db:get('" + NAME + "')//a[@b = '5'] ! db:node-pre(.),"
+      + "db:get('" + NAME + "')//a[contains-token(@b, '6')] ! db:node-pre(.),"
+      + "ft:search('" + NAME + "', 't3') ! db:node-pre(.)"
+      + "), ' ')";
+
+  /** Original number of threads. */
+  private int threads;
+
+  /** Assigns the index options. */
+  @BeforeEach public void setUp() {
+    threads = Prop.indexthreads;
+    set(MainOptions.TEXTINDEX, true);
+    set(MainOptions.ATTRINDEX, true);
+    set(MainOptions.TOKENINDEX, true);
+    set(MainOptions.FTINDEX, true);
+  }
+
+  /** Resets the options and drops the test database. */
+  @AfterEach public void tearDown() {
+    Prop.indexthreads = threads;
+    set(MainOptions.FTINDEX, false);
+    set(MainOptions.TOKENINDEX, false);
+    set(MainOptions.UPDINDEX, false);
+    execute(new DropDB(NAME));
+  }
+
+  /** Builds the indexes sequentially and in parallel. */
+  @Test public void build() {
+    compare();
+  }
+
+  /** Builds updatable indexes sequentially and in parallel. */
+  @Test public void updatable() {
+    set(MainOptions.UPDINDEX, true);
+    compare();
+    // indexes are updated after parallel build
+    query("delete node db:get('" + NAME + "')//a[1]");
+    query("count(db:get('" + NAME + "')//a[text() = 'text 1 t1'])", 5);
+    query("count(db:get('" + NAME + "')//a[@b = '1'])", 399);
+  }
+
+  /** Rebuilds the indexes in parallel with the OPTIMIZE command. */
+  @Test public void optimize() {
+    Prop.indexthreads = 1;
+    execute(new CreateDB(NAME, query(DOC)));
+    final String expected = query(INDEXES);
+
+    Prop.indexthreads = 4;
+    execute(new Optimize());
+    assertEquals(expected, query(INDEXES));
+    execute(new OptimizeAll());
+    assertEquals(expected, query(INDEXES));
+    execute(new CreateIndex("fulltext"));
+    assertEquals(expected, query(INDEXES));
+  }
+
+  /**
+   * Creates the test database sequentially and in parallel and compares the index contents.
+   */
+  private void compare() {
+    final String doc = query(DOC);
+    Prop.indexthreads = 1;
+    execute(new CreateDB(NAME, doc));
+    final String expected = query(INDEXES);
+
+    Prop.indexthreads = 4;
+    execute(new CreateDB(NAME, doc));
+    assertEquals(expected, query(INDEXES));
+  }
+}
@@ -0,0 +1,67 @@
+package org.basex.io.random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+
+import org.basex.io.*;
+import org.junit.jupiter.api.*;
+
+/**
+ * Tests for class {@link BlockCodec}.
+ *
+ * @author BaseX Team 2005-24, BSD License
+ * @author Christian Gruen
+ */
+public final class BlockCodecTest {
+  /**
+   * Compresses and decompresses blocks with different contents.
+   */
+  @Test public void roundtrip() {
+    final Random rnd = new Random(0);
+    final byte[] block = new byte[IO.BLOCKSIZE];
+    // empty block
+    roundtrip(block, true);
+    // repeated patterns
+    for(int i = 0; i < block.length; i++) block[i] = (byte) (i % 7);
+    roundtrip(block, true);
+    // repeated text with variations
+    final byte[] text = "<item id='item0'><location>United States</location></item>".getBytes();
+    for(int i = 0; i < block.length; i++) {
+      block[i] = rnd.nextInt(50) == 0 ? (byte) rnd.nextInt(256) : text[i % text.length];
+    }
+    roundtrip(block, true);
+    // random data
+    rnd.nextBytes(block);
+    roundtrip(block, false);
+  }
+
+  /**
+   * Compresses and decompresses short inputs.
+   */
+  @Test public void small() {
+    for(int l = 0; l < 32; l++) {
+      final byte[] data = new byte[l];
+      Arrays.fill(data, (byte) 'a');
+      final byte[] packed = new byte[BlockCodec.bound(l)];
+      final int size = new BlockCodec().compress(data, l, packed);
+      final byte[] unpacked = new byte[l];
+      assertEquals(l, BlockCodec.decompress(packed, size, unpacked));
+      assertArrayEquals(data, unpacked);
+    }
+  }
+
+  /**
+   * Compresses and decompresses a block.
+   * @param block block
+   * @param smaller expect compressed data to be smaller
+   */
+  private static void roundtrip(final byte[] block, final boolean smaller) {
+    final byte[] packed = new byte[BlockCodec.bound(block.length)];
+    final int size = new BlockCodec().compress(block, block.length, packed);
+    assertEquals(smaller, size < block.length);
+    final byte[] unpacked = new byte[block.length];
+    assertEquals(block.length, BlockCodec.decompress(packed, size, unpacked));
+    assertArrayEquals(block, unpacked);
+  }
+}
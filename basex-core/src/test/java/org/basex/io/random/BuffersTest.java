@@ -0,0 +1,58 @@
+package org.basex.io.random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+
+/**
+ * Tests for class {@link Buffers}.
+ *
+ * @author BaseX Team 2005-24, BSD License
+ * @author Christian Gruen
+ */
+public final class BuffersTest {
+  /**
+   * Checks if the assigned buffers match the requested positions.
+   */
+  @Test public void positions() {
+    final Buffers buffers = new Buffers();
+    final Random rnd = new Random(0);
+    for(int i = 0; i < 100000; i++) {
+      final long pos = rnd.nextInt(i % 2 == 0 ? 64 : 4096);
+      if(buffers.cursor(pos)) buffers.current().pos = pos;
+      assertEquals(pos, buffers.current().pos);
+    }
+    for(final Buffer buffer : buffers.all()) {
+      int count = 0;
+      for(final Buffer b : buffers.all()) {
+        if(b.pos == buffer.pos) count++;
+      }
+      assertEquals(1, count, "Duplicate buffer: " + buffer.pos);
+    }
+  }
+
+  /**
+   * Checks if frequently accessed blocks survive a scan.
+   */
+  @Test public void scan() {
+    final Buffers buffers = new Buffers();
+    // blocks are moved to the hot queue if they are requested again after having been evicted
+    for(long pos = 0; pos < 4; pos++) access(buffers, pos);
+    for(long pos = 1000; pos < 1300; pos++) access(buffers, pos);
+    for(long pos = 0; pos < 4; pos++) access(buffers, pos);
+    // scan
+    for(long pos = 10000; pos < 20000; pos++) access(buffers, pos);
+    for(long pos = 0; pos < 4; pos++) assertFalse(buffers.cursor(pos), "Block evicted: " + pos);
+  }
+
+  /**
+   * Accesses a block.
+   * @param buffers buffers
+   * @param pos block position
+   */
+  private static void access(final Buffers buffers, final long pos) {
+    if(buffers.cursor(pos)) buffers.current().pos = pos;
+  }
+}
@@ -0,0 +1,17 @@
+package org.basex.io.random;
+
+import org.basex.data.*;
+import org.junit.jupiter.api.*;
+
+/**
+ * Tests for {@link TableMemAccess} class, storing table blocks off-heap.
+ *
+ * @author BaseX Team 2005-24, BSD License
+ * @author Christian Gruen
+ */
+public final class TableMemOffHeapTest extends TableMemAccessTest {
+  @Override
+  @BeforeEach public void setUp() {
+    table = new TableMemAccess(new MetaData(context.options), true);
+  }
+}
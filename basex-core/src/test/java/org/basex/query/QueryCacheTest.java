@@ -0,0 +1,190 @@
+package org.basex.query;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.io.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for prepared queries ({@link QueryCache}).
+ *
+ * @author BaseX Team 2005-24, BSD License
+ * @author Christian Gruen
+ */
+public final class QueryCacheTest extends SandboxTest {
+  /** Module file. */
+  private static final IOFile MODULE = new IOFile(sandbox(), "module.xqm");
+
+  /**
+   * Writes the test module.
+   * @throws IOException I/O exception
+   */
+  @BeforeEach public void setUp() throws IOException {
+    MODULE.write("module namespace m = 'm';\n"
+        + "declare variable $m:v := m:a(1);\n"
+        + "declare function m:a($a) { $a + 1 };\n"
+        + "declare function m:b($b) { m:c#1($b) * 2 };\n"
+        + "declare function m:c($c) { $c * 3 };\n"
+        + "declare function m:d($d) { error() };\n");
+  }
+
+  /**
+   * Skips unreachable functions.
+   * @throws QueryException query exception
+   */
+  @Test public void skip() throws QueryException {
+    final String query = "import module namespace m = 'm' at '" + MODULE.path() + "';\n"
+        + "declare function local:f($x) { m:b($x) + $m:v };\n"
+        + "declare function local:g($x) { m:d($x) };\n"
+        + "local:f(1)";
+    run(query, 8);
+    run(query, 8);
+
+    final QueryCache.Prepared prepared = context.queries.get(query, null, context.options);
+    assertNotNull(prepared);
+    assertEquals(query.length(), prepared.query.length());
+    assertTrue(prepared.query.contains("local:f"));
+    assertFalse(prepared.query.contains("local:g"));
+    final String module = prepared.sources().get(MODULE.path()).query;
+    assertTrue(module.contains("m:a") && module.contains("m:b") && module.contains("m:c"));
+    assertFalse(module.contains("m:d"));
+  }
+
+  /**
+   * Invalidates prepared queries if a module changes.
+   * @throws Exception exception
+   */
+  @Test public void invalidate() throws Exception {
+    final String query = "import module namespace m = 'm' at '" + MODULE.path() + "'; m:b(1)";
+    run(query, 6);
+    assertNotNull(context.queries.get(query, null, context.options));
+
+    MODULE.write("module namespace m = 'm';\n"
+        + "declare function m:b($b) { $b * 5 };\n"
+        + "declare function m:d($d) { error() };\n");
+    MODULE.file().setLastModified(MODULE.timeStamp() + 2000);
+    assertNull(context.queries.get(query, null, context.options));
+    run(query, 5);
+  }
+
+  /**
+   * Does not skip functions if they may be looked up dynamically.
+   * @throws QueryException query exception
+   */
+  @Test public void lookup() throws QueryException {
+    final String query = "declare function local:f() { 1 };\n"
+        + "declare function local:g() { 2 };\n"
+        + "function-lookup(xs:QName('local:g'), 0)()";
+    run(query, 2);
+    run(query, 2);
+    final QueryCache.Prepared prepared = context.queries.get(query, null, context.options);
+    assertNotNull(prepared);
+    assertNull(prepared.query);
+  }
+
+  /**
+   * Does not skip functions if they may be looked up via calls or function references.
+   * @throws QueryException query exception
+   */
+  @Test public void lookupTree() throws QueryException {
+    final String funcs = "declare function local:f() { 1 };\n"
+        + "declare function local:g() { 2 };\n";
+    for(final String query : new String[] {
+      "count(inspect:functions ())",
+      "count(inspect:functions#0())",
+      "count(function-lookup (xs:QName('local:g'), 0))",
+      "let $f := function-lookup#2 return count($f(xs:QName('local:g'), 0))"
+    }) {
+      run(funcs + query, query.startsWith("count(inspect") ? 2 : 1);
+      run(funcs + query, query.startsWith("count(inspect") ? 2 : 1);
+    }
+  }
+
+  /**
+   * Distinguishes entries by the main options.
+   * @throws QueryException query exception
+   */
+  @Test public void options() throws QueryException {
+    final String query = "declare function local:f() { 1 }; local:f()";
+    run(query, 1);
+    assertNotNull(context.queries.get(query, null, context.options));
+    set(MainOptions.MIXUPDATES, true);
+    try {
+      assertNull(context.queries.get(query, null, context.options));
+      run(query, 1);
+      assertNotNull(context.queries.get(query, null, context.options));
+    } finally {
+      set(MainOptions.MIXUPDATES, false);
+    }
+  }
+
+  /** Errors are reported at the original positions. */
+  @Test public void positions() {
+    final String query = "declare function local:f() { 1 };\r\n"
+        + "declare function local:g() {\n 2 + error() };\n"
+        + "local:g()";
+    final int[] position = new int[2];
+    for(int i = 0; i < 2; i++) {
+      final QueryException ex = assertThrows(QueryException.class, () -> {
+        try(QueryProcessor qp = new QueryProcessor(query, context)) {
+          qp.value();
+        }
+      });
+      if(i == 0) {
+        position[0] = ex.line();
+        position[1] = ex.column();
+      } else {
+        assertEquals(position[0], ex.line());
+        assertEquals(position[1], ex.column());
+      }
+    }
+    assertEquals(3, position[0]);
+    assertNotNull(context.queries.get(query, null, context.options));
+  }
+
+  /**
+   * Removes the least recently used entries if too many characters are retained.
+   * @throws QueryException query exception
+   */
+  @Test public void limit() throws QueryException {
+    final String[] queries = new String[3];
+    for(int q = 0; q < queries.length; q++) {
+      queries[q] = "import module namespace m = 'm' at '" + MODULE.path() + "'; m:a(" + q + ')';
+    }
+    final QueryCache cache = new QueryCache(10, (MODULE.length() + queries[0].length()) * 3);
+    for(final String query : queries) {
+      try(QueryProcessor qp = new QueryProcessor(query, context)) {
+        qp.parse();
+        cache.add(query, null, qp.qc);
+      }
+    }
+    assertNull(cache.get(queries[0], null, context.options));
+    assertNotNull(cache.get(queries[1], null, context.options));
+    assertNotNull(cache.get(queries[2], null, context.options));
+
+    // skip entries that exceed the limit
+    final QueryCache small = new QueryCache(10, queries[0].length());
+    try(QueryProcessor qp = new QueryProcessor(queries[0], context)) {
+      qp.parse();
+      small.add(queries[0], null, qp.qc);
+    }
+    assertNull(small.get(queries[0], null, context.options));
+  }
+
+  /**
+   * Evaluates the specified query and compares the result.
+   * @param query query
+   * @param expected expected result
+   * @throws QueryException query exception
+   */
+  private static void run(final String query, final Object expected) throws QueryException {
+    try(QueryProcessor qp = new QueryProcessor(query, context)) {
+      assertEquals(expected.toString(), qp.value().toString());
+    }
+  }
+}
@@ -421,4 +421,19 @@ public final class FilterTest extends SandboxTest {
     check(pre + "!= 0          to last() + 1" + post, "", empty());
     check(pre + "!= last() + 1 to last() + 2" + post, "", empty(Pos.class));
   }
+
+  /** Range filters on native sequences. */
+  @Test public void nativeRange() {
+    final String ints = "declare variable $i := " + STRING_TO_CODEPOINTS.args("adbc") + "; ";
+    query(ints + "$i[. > 97]", "100\n98\n99");
+    query(ints + "$i[. >= 98 and . <= 99]", "98\n99");
+    query(ints + "$i[. > 1000]", "");
+    query(ints + COUNT.args(" $i[. < 100]"), 3);
+
+    final String dbls = "declare variable $d := " + STRING_TO_CODEPOINTS.args("adbc") +
+        " ! (. * 0.5e0); ";
+    query(dbls + "$d[. > 49]", "50\n49.5");
+    query(dbls + "$d[. >= 48.5 and . < 49.5]", "48.5\n49");
+    query(dbls + "$d[. > 1000]", "");
+  }
 }
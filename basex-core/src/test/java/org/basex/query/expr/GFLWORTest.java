@@ -5,6 +5,9 @@ import static org.basex.query.func.Function.*;
 import static org.junit.jupiter.api.Assertions.*;
 
 import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.XQuery;
+import org.basex.query.*;
 import org.basex.query.expr.constr.*;
 import org.basex.query.expr.gflwor.*;
 import org.basex.query.up.expr.*;
@@ -512,4 +515,276 @@ public final class GFLWORTest extends SandboxTest {
         "1\n2", exists(DualIterMap.class));
     check("let $a := <a/>[text()] while $a return $a", "", root(IterFilter.class));
   }
+
+  /** Parallel evaluation of for clauses. */
+  @Test public void parallel() {
+    final String flwor = "for $i in 1 to 10000 let $s := string($i) where ends-with($s, '7') "
+        + "return $s || $s";
+    parallel("string-join(" + flwor + ", ',')");
+    parallel("count(" + flwor + ')');
+    parallel("head(" + flwor + ')');
+    parallel("sum((" + flwor + ") ! string-length())");
+    // outer variables, context value, positional variable
+    parallel("let $x := <x>3</x> return <a/> ! string-join("
+        + "for $i at $p in 1 to 10000 let $j := $i * $x where $j mod 7 = 0 return name() || $p)");
+    // nested expressions
+    parallel("for $i in 1 to 1000 let $s := string($i) return count(for $j in 1 to $i "
+        + "let $t := string($j) where contains($s, $t) return $t)");
+    // unordered results
+    parallel("declare ordering unordered; "
+        + "sort(for $i in 1 to 10000 let $s := string($i) where ends-with($s, '3') return $s)");
+
+    set(MainOptions.PARALLELFOR, 100);
+    try {
+      error("for $i in 1 to 10000 let $s := string($i) "
+          + "return if($i = 5000) then error() else $s", FUNERR1);
+      // sequential evaluation of small inputs and nondeterministic expressions
+      check("for $i in 1 to 10 let $s := string($i) return $s || $s",
+          "11\n22\n33\n44\n55\n66\n77\n88\n99\n1010", empty("GFLWOR[@parallel]"));
+      check("count(for $i in 1 to 10000 let $r := random:double() return $r * $i)", 10000,
+          empty("GFLWOR[@parallel]"));
+    } finally {
+      set(MainOptions.PARALLELFOR, 0);
+    }
+  }
+
+  /** Cancellation of parallel evaluations. */
+  @Test public void parallelCancel() {
+    // only the items of the first chunk are cheap
+    final int chunk = 50, size = chunk * 4 * Runtime.getRuntime().availableProcessors();
+    final String query = "head(for $i in 1 to " + size + " let $s := if($i <= " + chunk
+        + ") then $i else string-length(string-join((1 to 200000 + $i) ! string())) "
+        + "where $s != 0 return $s)";
+    set(MainOptions.PARALLELFOR, 1);
+    try {
+      // remaining chunks must be cancelled when the query is closed
+      final Performance perf = new Performance();
+      for(int i = 0; i < 3; i++) check(query, 1, exists("GFLWOR[@parallel]"));
+      assertTrue(perf.ns(false) < 2_000_000_000L, "Chunks were not cancelled: " + perf);
+    } finally {
+      set(MainOptions.PARALLELFOR, 0);
+    }
+  }
+
+  /** Aggregation of non-grouping variables while grouping. */
+  @Test public void groupAggregate() {
+    final String flwor = "for $i in 1 to 1000 let $d := $i div 8e0 group by $k := $i mod 7 "
+        + "order by $k return ";
+    query(flwor + "count($i)", "142\n143\n143\n143\n143\n143\n143");
+    query(flwor + "sum($i)", "71071\n71214\n71357\n71500\n71643\n71786\n71929");
+    query(flwor + "min($d)", "0.875\n0.125\n0.25\n0.375\n0.5\n0.625\n0.75");
+    query(flwor + "max($i) - count($d)", "852\n852\n853\n854\n855\n856\n857");
+    query(flwor + "sum($i) idiv count($i)", "500\n498\n499\n500\n501\n502\n503");
+    query(flwor + "count($i) || ':' || $i[1]",
+        "142:7\n143:1\n143:2\n143:3\n143:4\n143:5\n143:6");
+
+    query("for $e in (<a/>, <b/>, <a/>) group by $n := name($e) order by $n "
+        + "return $n || count($e)", "a2\nb1");
+    query("for $d in (1e0, xs:double('NaN'), 0e0) group by $k := 1 return min($d)", "NaN");
+    query("for $i in 1 to 3 let $e := $i[. > 3] group by $k := 1 return count($e)", 0);
+    query("for $i in 1 to 3 let $e := $i[. > 3] group by $k := 1 return sum($e)", 0);
+    query("for $i in 1 to 3 let $e := $i[. > 3] group by $k := 1 return min($e)", "");
+    query("for $i in 1 to 3 let $s := string($i) group by $k := 1 return min($s)", 1);
+
+    // references are rewritten after the clauses have been optimized
+    final String func = "declare function local:f($s) { count($s) || ':' || $s[1] }; ";
+    query(func + "for $i in 1 to 5 group by $k := $i mod 2 order by $k return local:f($i)",
+        "2:2\n3:1");
+    query(func + "for $i in 1 to 5 group by $k := $i mod 2 order by $k "
+        + "return local:f(sum($i))", "1:6\n1:9");
+  }
+
+  /** Grouping with a limited main-memory budget. */
+  @Test public void groupSpill() {
+    final String flwor = "for $i in 1 to 1000 let $s := string($i) let $d := $i div 8e0 "
+        + "group by $k := $i mod 17 ";
+    groupSpill("sort(" + flwor + "return $k || ':' || string-join($s, ','))", true);
+    groupSpill("sort(" + flwor + "return $k || ':' || count($s) || ':' || sum($d))", true);
+    groupSpill("sort(" + flwor + "order by $k return $k || ':' || max($d))", true);
+    groupSpill("sort(for $i in 1 to 1000 group by $a := $i mod 3, $b := $i mod 5 "
+        + "return $a || $b || ':' || count($i))", true);
+    // nodes are grouped in main memory
+    groupSpill("sort(for $i in 1 to 100 let $e := <e>{ $i }</e> group by $k := $i mod 3 "
+        + "return $k || ':' || string-join($e, ','))", false);
+
+    // partitions exceeding the limit are partitioned again: one summary for all partitions
+    final String query = "distinct-values(for $i in 1 to 2000 group by $k := $i mod 1000 "
+        + "return count($i))";
+    assertEquals("2", query(query));
+    final String info = groupSpill(query, true);
+    final String prefix = QueryText.SPILLPARTS_X.replaceAll("%.*", "");
+    assertEquals(2, info.split(prefix, -1).length, "Query info:\n" + info);
+    final int spilled = Integer.parseInt(info.replaceAll("(?s).*" + prefix + "(\\d+).*", "$1"));
+    assertTrue(spilled > 16, "Query info:\n" + info);
+  }
+
+  /** Sorting with a limited main-memory budget. */
+  @Test public void orderSpill() {
+    final String flwor = "for $i in 1 to 1000 let $s := string($i) let $d := $i mod 13 ";
+    orderSpill("string-join(" + flwor + "order by $d return $s, ',')", true);
+    orderSpill("string-join(" + flwor + "order by $d descending, $s return $s, ',')", true);
+    orderSpill("string-join(" + flwor + "let $e := $d[. > 5] order by $e empty greatest "
+        + "return $s, ',')", true);
+    orderSpill("string-join(" + flwor + "let $n := if($d = 3) then xs:double('NaN') else $d "
+        + "order by $n return $s, ',')", true);
+    // return expression must not be rewritten to sort()
+    orderSpill("string-join(" + flwor + "order by $s collation "
+        + "'http://www.w3.org/2005/xpath-functions/collation/codepoint' return $s || $d, ',')",
+        true);
+    // top-k selection is performed in main memory
+    orderSpill("head(" + flwor + "order by $d descending return $s)", false);
+    // nodes are sorted in main memory (node constructor must not be inlined)
+    orderSpill("string-join(for $i in 1 to 100 let $e := <e>{ $i }</e> order by $i mod 7 "
+        + "return name($e) || $e, ',')", false);
+
+    set(MainOptions.SORTLIMIT, 10);
+    try {
+      error("for $i in (1 to 100, 'a') order by $i empty greatest return $i",
+          INVCONVERT_X_X_X);
+    } finally {
+      set(MainOptions.SORTLIMIT, 0);
+    }
+  }
+
+  /** Sorting of typed keys. */
+  @Test public void orderKeys() {
+    final String values = "(3, 1e0, xs:float(2), (), xs:double('NaN'), -0e0, 0, 2)";
+    query("for $v at $p in " + values + " order by $v return $p", "4\n5\n6\n2\n3\n7\n1");
+    query("for $v at $p in " + values + " order by $v empty greatest return $p",
+        "5\n6\n2\n3\n7\n1\n4");
+    query("for $v at $p in " + values + " order by $v descending return $p",
+        "1\n3\n7\n2\n5\n6\n4");
+    query("for $i in 1 to 3 let $k := $i[. != 2] order by $k empty greatest return $i",
+        "1\n3\n2");
+    query("for $s in ('b', xs:untypedAtomic('a'), 'A', xs:anyURI('c'), 'a') "
+        + "order by $s return string($s)", "A\na\na\nb\nc");
+    query("for $s in ('b', 'a', 'B', 'A') order by $s collation "
+        + "'http://www.w3.org/2005/xpath-functions/collation/html-ascii-case-insensitive' "
+        + "return $s", "a\nA\nb\nB");
+    query("for $i in 1 to 6 order by $i mod 2, -$i return $i", "6\n4\n2\n5\n3\n1");
+
+    // large inputs
+    query("let $s := (1 to 100000) ! (. * 7919 mod 100003) "
+        + "return deep-equal(for $i in $s order by $i return $i, sort($s))", true);
+    query("let $s := (1 to 100000) ! string(. * 7919 mod 100003) "
+        + "return deep-equal(for $i in $s order by $i descending return $i, reverse(sort($s)))",
+        true);
+    error("for $i in (1 to 100000, 'a') order by $i empty greatest return $i", INVCONVERT_X_X_X);
+  }
+
+  /** Sorting of the first tuples. */
+  @Test public void topK() {
+    final String flwor = "for $i in 1 to 1000 let $s := string($i) order by $i mod 13 descending ";
+    final String all = "(" + flwor + "return $s)";
+    query("subsequence(" + all + ", 1, 5) => string-join(',')", "12,25,38,51,64");
+    query(all + "[position() <= 5] => string-join(',')", "12,25,38,51,64");
+    query(all + "[position() = 4 to 6] => string-join(',')", "51,64,77");
+    query("head(" + all + ")", 12);
+    query("subsequence(" + flwor + "let $t := $s || '!' return $t, 2, 2) => string-join(',')",
+        "25!,38!");
+    // no top-k: multiple results per tuple, filter after sorting
+    query("subsequence(" + flwor + "return ($s, $s), 1, 3) => string-join(',')", "12,12,25");
+    query("subsequence(" + flwor + "where $i > 20 return $s, 1, 3) => string-join(',')",
+        "25,38,51");
+    query("subsequence(" + flwor + "for $j in 1 to 2 return $s, 1, 3) => string-join(',')",
+        "12,12,25");
+  }
+
+  /** Hash joins. */
+  @Test public void hashJoin() {
+    check("for $a in (1, 2, 3, 2) for $b in (2.0, 3.0, 4, 2) where $a = $b return $a || ':' || $b",
+        "2:2\n2:2\n3:3\n2:2\n2:2", exists(Join.class));
+    check("let $x := (<a k='x'/>, <a k='y'/>, <a k='z'/>) "
+        + "let $y := (<b><k>y</k><k>x</k></b>, <b><k>x</k></b>, <b><k>x</k><k>x</k></b>) "
+        + "for $a in $x for $b in $y where $b/k = $a/@k return $a/@k || count($b/k)",
+        "x2\nx1\nx2\ny2", exists(Join.class));
+    check("for $a in (<a><k>3</k><k>1</k></a>, <a/>, <a><k>2</k></a>) "
+        + "for $b in ('1', '2', '3', '1') where $a/k = $b return $b",
+        "1\n3\n1\n2", exists(Join.class));
+    check("for $a in (1e0, xs:double('NaN')) for $b in (xs:double('NaN'), 1e0, 2e0) "
+        + "where $a = $b return $b",
+        1, exists(Join.class));
+    check("for $a in (<a>1</a>, <a>2</a>) let $c := xs:integer($a) + 1 for $b in (1, 2, 3)[. > 0] "
+        + "where $c = $b return $a || $b",
+        "12\n23", exists(Join.class));
+
+    // no joins: positional variable, dependent input, range
+    check("for $a in (1, 2, 3) for $b at $p in (1, 2)[. > 0] where $a = $b return $p",
+        "1\n2", empty(Join.class));
+    check("for $a in (1, 2) for $b in ($a, 2, 3)[. > 0] where $a = $b return $b",
+        "1\n2\n2", empty(Join.class));
+    check("for $a in (1, 5) for $b in 1 to 3 where $a = $b return $b",
+        1, empty(Join.class));
+    // no joins: numbers are promoted to a common type
+    check("for $a in (9007199254740993, 1) for $b in (9007199254740992e0, 2e0) "
+        + "where $a = $b return $a", 9007199254740993L, empty(Join.class));
+    check("for $a in (0.1, 1.0) for $b in (xs:float(0.1), xs:float(2)) "
+        + "where $a = $b return $a", 0.1, empty(Join.class));
+  }
+
+  /**
+   * Compares the results of a query that is sorted in main memory and with spilling.
+   * @param query query
+   * @param spilled indicates if sorted runs are expected to be written to disk
+   */
+  private static void orderSpill(final String query, final boolean spilled) {
+    final String expected = query(query);
+    set(MainOptions.SORTLIMIT, 10);
+    set(MainOptions.QUERYINFO, true);
+    try {
+      final XQuery xquery = new XQuery(query);
+      assertEquals(expected, execute(xquery));
+      final String info = xquery.info();
+      assertEquals(spilled, info.contains(QueryText.SPILLRUNS_X.replaceAll("%.*", "")),
+          "Query info:\n" + info);
+      assertEquals(0, context.soptions.dbPath().children(".*\\.tmp").length);
+    } finally {
+      set(MainOptions.QUERYINFO, false);
+      set(MainOptions.SORTLIMIT, 0);
+    }
+  }
+
+  /**
+   * Compares the results of a query that is grouped in main memory and with spilling.
+   * @param query query
+   * @param spilled indicates if partitions are expected to be written to disk
+   * @return query info
+   */
+  private static String groupSpill(final String query, final boolean spilled) {
+    final String expected = query(query);
+    set(MainOptions.GROUPLIMIT, 10);
+    set(MainOptions.QUERYINFO, true);
+    try {
+      final XQuery xquery = new XQuery(query);
+      assertEquals(expected, execute(xquery));
+      final String info = xquery.info();
+      assertEquals(spilled, info.contains(QueryText.SPILLPARTS_X.replaceAll("%.*", "")),
+          "Query info:\n" + info);
+      assertEquals(0, context.soptions.dbPath().children(".*\\.tmp").length);
+      return info;
+    } finally {
+      set(MainOptions.QUERYINFO, false);
+      set(MainOptions.GROUPLIMIT, 0);
+    }
+  }
+
+  /**
+   * Compares the results of a query that is evaluated sequentially and in parallel.
+   * @param query query
+   */
+  private static void parallel(final String query) {
+    final String expected = query(query);
+    set(MainOptions.PARALLELFOR, 100);
+    set(MainOptions.QUERYINFO, true);
+    try {
+      final XQuery xquery = new XQuery(query);
+      assertEquals(expected, execute(xquery));
+      final String info = xquery.info();
+      assertTrue(info.contains(QueryText.OPTPARALLEL_X.replaceAll("%.*", "")),
+          "Query info:\n" + info);
+    } finally {
+      set(MainOptions.QUERYINFO, false);
+      set(MainOptions.PARALLELFOR, 0);
+    }
+  }
 }
@@ -3,6 +3,7 @@ package org.basex.query.expr;
 import static org.basex.query.func.Function.*;
 
 import org.basex.*;
+import org.basex.core.*;
 import org.basex.core.cmd.*;
 import org.basex.query.expr.path.*;
 import org.basex.query.var.*;
@@ -295,4 +296,31 @@ public final class PathTest extends SandboxTest {
     check(el + "/child::(text()|e|text()) ! string()", "e\nt",
         type(IterStep.class, "(text()|element(e))*"));
   }
+
+  /** Streaming: descendant steps, followed by child steps. */
+  @Test public void streaming() {
+    final String doc = "document { <a><b n='1'><c>1</c><b n='2'><c>2</c></b><c>3</c></b></a> }";
+    check(doc + "//b/c ! string()", "1\n2\n3", exists(CachedPath.class));
+
+    set(MainOptions.STREAMING, true);
+    try {
+      check(doc + "//b/c ! string()", "1\n2\n3", empty(CachedPath.class));
+      check(doc + "//b[@n = '2']/c ! string()", "2", empty(CachedPath.class));
+      check(doc + "//b/c/text() ! string()", "1\n2\n3", empty(CachedPath.class));
+      check(doc + "//b/node() ! string()", "1\n2\n2\n3", empty(CachedPath.class));
+      check(doc + "//*/c ! string()", "1\n2\n3", empty(CachedPath.class));
+
+      // positional predicates, steps that require sorting
+      check(doc + "//b/c[1] ! string()", "1\n2", exists(CachedPath.class));
+      check(doc + "//b[1]/c ! string()", "1\n2\n3", exists(CachedPath.class));
+      check(doc + "//b/c/.. ! name()", "b\nb", exists(CachedPath.class));
+      check(doc + "//a//b/c ! string()", "1\n2\n3", exists(CachedPath.class));
+
+      // materialized expressions are marked in the query plan
+      query(_XQUERY_PARSE.args(doc + "//b/c/..", " { 'compile': true(), 'plan': true() }") +
+          "//CachedPath/@iterative/string()", "false");
+    } finally {
+      set(MainOptions.STREAMING, false);
+    }
+  }
 }
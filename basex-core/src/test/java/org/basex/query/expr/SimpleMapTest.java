@@ -132,6 +132,42 @@ public final class SimpleMapTest extends SandboxTest {
     check("(<a/>, <b/>) ! data(.)", "\n", root(DATA));
   }
 
+  /** Vectorized evaluation of arithmetic expressions and aggregations. */
+  @Test public void vectorized() {
+    final String ints = STRING_TO_CODEPOINTS.args("adb"), dbls = ints + " ! (. * 0.5e0)";
+    query(ints + " ! (. * 2)", "194\n200\n196");
+    query(ints + " ! (. - 97) ! (2 * . + 1)", "1\n7\n3");
+    query(ints + " ! (100 - .)", "3\n0\n2");
+    query(ints + " ! (. idiv 2)", "48\n50\n49");
+    query(ints + " ! (. mod 2)", "1\n0\n0");
+    query(ints + " ! (. div 2)", "48.5\n50\n49");
+    query(ints + " ! (. * .)", "9409\n10000\n9604");
+    query(dbls, "48.5\n50\n49");
+    query(dbls + " ! (. + 1)", "49.5\n51\n50");
+    query(dbls + " ! (1 div .) ! (. = 1 div 49)", "false\nfalse\ntrue");
+    query("(1 to 3) ! (. * 2)", "2\n4\n6");
+    query("(3 to 1) ! (. * 2)", "");
+    query(REVERSE.args(" 1 to 3") + " ! (. * 2)", "6\n4\n2");
+
+    final String vars = "declare variable $i := " + ints + "; " +
+        "declare variable $d := " + dbls + "; ";
+    query(vars + SUM.args(" $i"), 295);
+    query(vars + SUM.args(" $d"), 147.5);
+    query(vars + AVG.args(" $i"), "98.333333333333333333");
+    query(vars + AVG.args(" $d"), "49.166666666666664");
+    query(vars + MIN.args(" $i"), 97);
+    query(vars + MAX.args(" $i"), 100);
+    query(vars + MIN.args(" $d"), 48.5);
+    query(vars + MAX.args(" $d"), 50);
+    query(vars + MIN.args(" $d ! (. * 0 div 0e0)"), "NaN");
+    query(vars + SUM.args(" $i ! (. * 2)"), 590);
+
+    error(ints + " ! (. mod 0)", DIVZERO_X);
+    error(ints + " ! (. idiv 0)", DIVZERO_X);
+    error(ints + " ! (. * 9223372036854775807)", RANGE_X);
+    error(vars + SUM.args(" $i ! (. * 90000000000000000)"), RANGE_X);
+  }
+
   /** XQuery: Unroll simple map expressions. */
   @Test public void gh1994() {
     // do not unroll
@@ -220,6 +220,7 @@ public final class JobModuleTest extends SandboxTest {
       query(list + "/@user/string()", UserText.ADMIN);
       query(list + "/@state/string() = ('running', 'queued')", true);
       query(list + "/@duration/string() castable as xs:dayTimeDuration", true);
+      query(list + "/@waited/string() castable as xs:dayTimeDuration", true);
     } finally {
       query(_JOB_REMOVE.args(id));
     }
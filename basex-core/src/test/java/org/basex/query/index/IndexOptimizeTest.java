@@ -1,6 +1,7 @@
 package org.basex.query.index;
 
 import static org.basex.query.func.Function.*;
+import static org.junit.jupiter.api.Assertions.*;
 
 import org.basex.*;
 import org.basex.core.*;
@@ -324,6 +325,30 @@ public final class IndexOptimizeTest extends SandboxTest {
     query("M/descendant-or-self::M[contains-token(@v, 'a')]", xml);
   }
 
+  /** Cost-based index selection. */
+  @Test public void costs() {
+    execute(new CreateDB(NAME, "<xml>" +
+        "<a x='y'>1</a><a x='y'>2</a><a x='z'>3</a><a x='z'>3</a><n>1</n><n>2</n><n>2</n>" +
+        "</xml>"));
+
+    // only some operands of an and expression can be rewritten for index access
+    indexCheck("//a[(@x = 'y' and starts-with(., '1')) or . = '3']/text()", "1\n3\n3");
+    // estimated number of results, based on statistics
+    check("//n[text() = '2']", "<n>2</n>\n<n>2</n>",
+        exists(Util.className(ValueAccess.class) + "[@estimated = 3]"));
+    check("for $t in ('1', '3') return //a[text() = $t]", "<a x=\"y\">1</a>\n" +
+        "<a x=\"z\">3</a>\n<a x=\"z\">3</a>",
+        exists(Util.className(ValueAccess.class) + "[@estimated = 2]"));
+
+    // actual number of results
+    set(MainOptions.XMLPLAN, true);
+    final XQuery xquery = new XQuery("//a[text() = '3']");
+    execute(xquery);
+    set(MainOptions.XMLPLAN, false);
+    final String info = xquery.info();
+    assertTrue(info.contains("estimated=\"2\" results=\"2\""), info);
+  }
+
   /**
    * Creates a test database.
    */
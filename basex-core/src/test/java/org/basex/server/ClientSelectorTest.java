@@ -0,0 +1,144 @@
+package org.basex.server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import static org.basex.core.Text.*;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+
+import org.basex.*;
+import org.basex.api.client.*;
+import org.basex.core.*;
+import org.basex.core.users.*;
+import org.basex.io.in.*;
+import org.basex.io.out.*;
+import org.basex.util.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class tests the client/server session API with a limited number of worker threads.
+ *
+ * @author BaseX Team 2005-24, BSD License
+ * @author Christian Gruen
+ */
+public final class ClientSelectorTest extends SessionTest {
+  /** Server reference. */
+  private static BaseXServer server;
+
+  /**
+   * Starts the server.
+   * @throws IOException I/O exception
+   */
+  @BeforeAll public static void startServer() throws IOException {
+    Prop.put(StaticOptions.SERVERTHREADS, "2");
+    try {
+      server = createServer();
+    } finally {
+      Prop.put(StaticOptions.SERVERTHREADS, "0");
+    }
+  }
+
+  /**
+   * Stops the server.
+   * @throws IOException I/O exception
+   */
+  @AfterAll public static void stop() throws IOException {
+    stopServer(server);
+  }
+
+  /** Starts a session. */
+  @BeforeEach public void startSession() {
+    try {
+      session = createClient();
+      session.setOutputStream(out);
+    } catch(final IOException ex) {
+      Util.stack(ex);
+      fail(Util.message(ex));
+    }
+  }
+
+  /**
+   * Serves more sessions than worker threads.
+   * @throws IOException I/O exception
+   */
+  @Test public void idleSessions() throws IOException {
+    final ArrayList<ClientSession> sessions = new ArrayList<>();
+    try {
+      for(int s = 0; s < 50; s++) sessions.add(createClient());
+      for(int r = 0; r < 3; r++) {
+        int s = 0;
+        for(final ClientSession cs : sessions) {
+          assertEquals(Integer.toString(s + r), cs.query(s++ + " + " + r).execute());
+        }
+      }
+    } finally {
+      for(final ClientSession cs : sessions) cs.close();
+    }
+  }
+
+  /**
+   * Serves new sessions while more sessions than worker threads are stalled.
+   * @throws Exception exception
+   */
+  @Test public void stalledSessions() throws Exception {
+    final ArrayList<Socket> sockets = new ArrayList<>();
+    final ArrayList<Thread> threads = new ArrayList<>();
+    try {
+      for(int s = 0; s < 4; s++) {
+        // login data is not sent
+        sockets.add(connect(false));
+        // request is incomplete
+        final Socket socket = connect(true);
+        socket.getOutputStream().write(Token.token("xquery 1"));
+        socket.getOutputStream().flush();
+        sockets.add(socket);
+        // query is evaluated for a long time
+        final Thread thread = new Thread(() -> {
+          try(ClientSession cs = createClient()) {
+            cs.execute("xquery prof:sleep(3000)");
+          } catch(final IOException ex) {
+            Util.stack(ex);
+          }
+        });
+        thread.start();
+        threads.add(thread);
+      }
+      Performance.sleep(500);
+
+      final Performance perf = new Performance();
+      try(ClientSession cs = createClient()) {
+        assertEquals("2", cs.execute("xquery 1 + 1"));
+      }
+      assertTrue(perf.ns(false) < 2_000_000_000L, "Session was blocked: " + perf);
+    } finally {
+      for(final Socket socket : sockets) socket.close();
+      for(final Thread thread : threads) thread.join();
+    }
+  }
+
+  /**
+   * Connects to the server.
+   * @param login send login data
+   * @return socket
+   * @throws IOException I/O exception
+   */
+  private static Socket connect(final boolean login) throws IOException {
+    final Socket socket = new Socket(S_LOCALHOST, DB_PORT);
+    final BufferInput in = BufferInput.get(socket.getInputStream());
+    final String[] response = Strings.split(in.readString(), ':');
+    if(login) {
+      final String code = UserText.ADMIN + ':' + response[0] + ':' + NAME;
+      final PrintOutput out = PrintOutput.get(socket.getOutputStream());
+      out.print(UserText.ADMIN);
+      out.write(0);
+      out.print(Strings.md5(Strings.md5(code) + response[1]));
+      out.write(0);
+      out.flush();
+      assertEquals(0, in.read());
+    }
+    return socket;
+  }
+}
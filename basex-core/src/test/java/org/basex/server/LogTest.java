@@ -0,0 +1,127 @@
+package org.basex.server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.util.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.io.*;
+import org.basex.server.Log.*;
+import org.basex.util.*;
+import org.basex.util.list.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for writing log files.
+ *
+ * @author BaseX Team 2005-24, BSD License
+ * @author Christian Gruen
+ */
+public final class LogTest extends SandboxTest {
+  /**
+   * Writes log entries synchronously.
+   * @throws Exception exception
+   */
+  @Test public void sync() throws Exception {
+    assertEquals(4000, write("0", StaticOptions.LogOverflow.BLOCK, false));
+  }
+
+  /**
+   * Writes log entries via the asynchronous writer.
+   * @throws Exception exception
+   */
+  @Test public void async() throws Exception {
+    assertEquals(4000, write("16", StaticOptions.LogOverflow.BLOCK, false));
+  }
+
+  /**
+   * Closes the asynchronous writer while entries are added.
+   * @throws Exception exception
+   */
+  @Test public void close() throws Exception {
+    assertEquals(4000, write("1", StaticOptions.LogOverflow.BLOCK, true));
+  }
+
+  /**
+   * Discards log entries if the queue is full.
+   * @throws Exception exception
+   */
+  @Test public void drop() throws Exception {
+    final int lines = write("1", StaticOptions.LogOverflow.DROP, false);
+    assertTrue(lines > 0 && lines <= 4000, Integer.toString(lines));
+  }
+
+  /**
+   * Flushes the asynchronous writer after each entry.
+   * @throws Exception exception
+   */
+  @Test public void flush() throws Exception {
+    Prop.put(StaticOptions.LOGQUEUE, "16");
+    final Context ctx = new Context();
+    try {
+      for(int i = 1; i <= 100; i++) {
+        ctx.log.writeServer(LogType.INFO, "entry " + i);
+        ctx.log.flush();
+        assertEquals(i, lines(ctx));
+      }
+    } finally {
+      ctx.close();
+      for(final IOFile file : ctx.log.files()) file.delete();
+      Prop.put(StaticOptions.LOGQUEUE, "0");
+    }
+  }
+
+  /**
+   * Writes log entries from multiple threads and returns the number of written entries.
+   * @param queue size of log queue
+   * @param overflow overflow policy
+   * @param close close the log while entries are written
+   * @return number of entries
+   * @throws Exception exception
+   */
+  private static int write(final String queue, final StaticOptions.LogOverflow overflow,
+      final boolean close) throws Exception {
+    Prop.put(StaticOptions.LOGQUEUE, queue);
+    Prop.put(StaticOptions.LOGOVERFLOW, overflow.toString());
+    final Context ctx = new Context();
+    try {
+      final ArrayList<Thread> threads = new ArrayList<>();
+      for(int t = 0; t < 4; t++) {
+        threads.add(new Thread(() -> {
+          for(int i = 0; i < 1000; i++) ctx.log.writeServer(LogType.INFO, "entry " + i);
+        }));
+      }
+      for(final Thread thread : threads) thread.start();
+      if(close) ctx.log.close();
+      for(final Thread thread : threads) thread.join();
+
+      return lines(ctx);
+    } finally {
+      ctx.close();
+      for(final IOFile file : ctx.log.files()) file.delete();
+      Prop.put(StaticOptions.LOGQUEUE, "0");
+      Prop.put(StaticOptions.LOGOVERFLOW, StaticOptions.LogOverflow.BLOCK.toString());
+    }
+  }
+
+  /**
+   * Returns the number of written info entries.
+   * @param ctx database context
+   * @return number of entries
+   * @throws IOException I/O exception
+   */
+  private static int lines(final Context ctx) throws IOException {
+    int lines = 0;
+    for(final IOFile file : ctx.log.files()) {
+      final StringList list = ctx.log.file(file.name().replace(IO.LOGSUFFIX, "")).read();
+      // skip info on dropped entries
+      for(final String line : list) {
+        if(line.split("\t")[3].equals(LogType.INFO.toString())) lines++;
+      }
+    }
+    return lines;
+  }
+}
@@ -5,6 +5,8 @@ import static org.basex.util.Token.*;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.*;
+import java.util.*;
+import java.util.List;
 
 import org.basex.*;
 import org.basex.api.client.*;
@@ -65,6 +67,21 @@ public abstract class SessionTest extends SandboxTest {
     assertThrows(BaseXException.class, () -> session.execute("1, <a/> + ''"));
   }
 
+  /**
+   * Runs multiple commands.
+   * @throws IOException I/O exception
+   */
+  @Test public final void commands() throws IOException {
+    final List<String> results = session.execute(Arrays.asList("XQUERY 'A'", "XQUERY 'B'"));
+    if(out == null) assertEquals(Arrays.asList("A", "B"), results);
+    else assertEqual("AB", null);
+
+    // all commands are executed, first error is raised
+    assertThrows(BaseXException.class, () ->
+      session.execute(Arrays.asList("XQUERY (", "CREATE DB " + NAME)));
+    assertEqual("true", session.execute("XQUERY " + _DB_EXISTS.args(NAME)));
+  }
+
   /**
    * Creates new databases.
    * @throws IOException I/O exception
@@ -442,6 +459,25 @@ public abstract class SessionTest extends SandboxTest {
     }
   }
 
+  /**
+   * Runs a query with multiple binding sets.
+   * @throws IOException I/O exception */
+  @Test public final void queryBatch() throws IOException {
+    try(Query query = session.query("declare variable $a external; xs:integer($a) * 2")) {
+      final List<Map<String, Object>> bindings = new ArrayList<>();
+      for(int b = 0; b < 3; b++) bindings.add(Collections.singletonMap("a", b));
+      final List<String> results = query.execute(bindings);
+      if(out == null) assertEquals(Arrays.asList("0", "2", "4"), results);
+      else assertEqual("024", null);
+
+      // execution stops at the first error
+      bindings.add(Collections.singletonMap("a", "x"));
+      assertThrows(BaseXException.class, () -> query.execute(bindings));
+      if(out != null) out.reset();
+      assertEqual("2", query.execute(bindings.subList(1, 2)).get(0));
+    }
+  }
+
   /**
    * Binds a document node to an external variable.
    * @throws IOException I/O exception */
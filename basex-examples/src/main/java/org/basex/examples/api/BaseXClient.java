@@ -90,6 +90,28 @@ public final class BaseXClient implements Closeable {
     return new String(os.toByteArray(), UTF8);
   }
 
+  /**
+   * Executes multiple commands and returns the results.
+   * All commands are sent at once, and the results are read afterwards.
+   * @param commands commands
+   * @return results
+   * @throws IOException Exception (for the first command that failed)
+   */
+  public List<String> execute(final List<String> commands) throws IOException {
+    // send {Command}0 for each command
+    for(final String command : commands) send(command);
+    final List<String> results = new ArrayList<>();
+    IOException error = null;
+    for(int c = commands.size(); c > 0; c--) {
+      final String result = receive();
+      info = receive();
+      if(!ok() && error == null) error = new IOException(info);
+      results.add(result);
+    }
+    if(error != null) throw error;
+    return results;
+  }
+
   /**
    * Creates a query object.
    * @param query query string
@@ -361,6 +383,39 @@ public final class BaseXClient implements Closeable {
       return exec(5, id);
     }
 
+    /**
+     * Executes the query once for each binding set and returns the results.
+     * All binding sets are sent at once, and the results are read afterwards.
+     * @param bindings binding sets (variable names and values)
+     * @return query results
+     * @throws IOException I/O Exception (execution stops at the first error)
+     */
+    public List<String> execute(final List<? extends Map<String, String>> bindings)
+        throws IOException {
+      cache = null;
+      // send {ID}0, and 1, {NAME}0{VALUE}0{TYPE}0 and 0 for each binding set
+      out.write(15);
+      send(id);
+      for(final Map<String, String> map : bindings) {
+        out.write(1);
+        for(final Map.Entry<String, String> entry : map.entrySet()) {
+          send(entry.getKey());
+          send(entry.getValue());
+          send("");
+        }
+        out.write(0);
+      }
+      out.write(0);
+
+      final List<String> results = new ArrayList<>();
+      for(int b = bindings.size(); b > 0; b--) {
+        final String result = receive();
+        if(!ok()) throw new IOException(receive());
+        results.add(result);
+      }
+      return results;
+    }
+
     /**
      * Returns query info in a string.
      * @return query info